@@ -0,0 +1,136 @@
+package com.example.seckill.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按提交归档 JMH 结果，并与基线对比
+ *
+ * 用法: java -cp seckill-benchmarks/target/benchmarks.jar com.example.seckill.benchmarks.BenchmarkRunner \
+ *          [--include=正则] [--out=benchmark-results] [--commit=abc123] [--forks=1] \
+ *          [--baseline=benchmark-results/<旧提交>.json] [--threshold=10] [--fail-on-regression]
+ *
+ * 结果写到 <out>/<commit>.json (JMH 原生 JSON 格式)，提交号默认取 git rev-parse --short HEAD
+ * 指定基线时逐项 (基准名 + 参数) 对比，变差超过 threshold% 的标为 REGRESSION；
+ * 带 --fail-on-regression 时有回归即以退出码 1 结束，便于接入 CI
+ */
+public class BenchmarkRunner {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.replaceFirst("^--", "") : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        String include = options.getOrDefault("include", BenchmarkRunner.class.getPackageName() + ".*");
+        String commit = options.containsKey("commit") ? options.get("commit") : gitCommit();
+        Path outDir = Path.of(options.getOrDefault("out", "benchmark-results"));
+        Files.createDirectories(outDir);
+        Path result = outDir.resolve(commit + ".json");
+
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .include(include)
+                .result(result.toString())
+                .resultFormat(ResultFormatType.JSON);
+        if (options.containsKey("forks")) {
+            builder.forks(Integer.parseInt(options.get("forks")));
+        }
+        new Runner(builder.build()).run();
+        System.out.println(">>> [基准] 结果已写入 " + result.toAbsolutePath());
+
+        if (options.containsKey("baseline")) {
+            double threshold = Double.parseDouble(options.getOrDefault("threshold", "10"));
+            int regressions = compare(Path.of(options.get("baseline")), result, threshold);
+            if (regressions > 0 && options.containsKey("fail-on-regression")) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * 逐项对比，返回回归项数量
+     * avgt / sample / ss 模式越小越好，thrpt 越大越好
+     */
+    static int compare(Path baselineFile, Path currentFile, double thresholdPct) throws Exception {
+        Map<String, JsonNode> baseline = index(MAPPER.readTree(baselineFile.toFile()));
+        Map<String, JsonNode> current = index(MAPPER.readTree(currentFile.toFile()));
+
+        int regressions = 0;
+        System.out.printf("%n>>> [基准] 对比基线 %s (阈值 %.1f%%)%n", baselineFile.getFileName(), thresholdPct);
+        System.out.printf("%-90s %14s %14s %9s%n", "benchmark", "baseline", "current", "delta");
+        for (Map.Entry<String, JsonNode> e : current.entrySet()) {
+            JsonNode base = baseline.get(e.getKey());
+            if (base == null) {
+                continue;
+            }
+            double b = base.path("primaryMetric").path("score").asDouble();
+            double c = e.getValue().path("primaryMetric").path("score").asDouble();
+            if (b == 0) {
+                continue;
+            }
+            double deltaPct = (c - b) / b * 100;
+            boolean higherIsBetter = "thrpt".equals(e.getValue().path("mode").asText());
+            boolean regressed = higherIsBetter ? deltaPct < -thresholdPct : deltaPct > thresholdPct;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %s%n", e.getKey(), b, c, deltaPct,
+                    regressed ? "REGRESSION" : "");
+        }
+        System.out.printf(">>> [基准] 回归 %d 项%n", regressions);
+        return regressions;
+    }
+
+    /**
+     * 基准名 + 参数 (按参数名排序) 作为对比键
+     */
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> map = new TreeMap<>();
+        for (JsonNode r : results) {
+            StringBuilder key = new StringBuilder(r.path("benchmark").asText());
+            JsonNode params = r.path("params");
+            if (params.isObject()) {
+                Map<String, String> sorted = new TreeMap<>();
+                Iterator<Map.Entry<String, JsonNode>> it = params.fields();
+                while (it.hasNext()) {
+                    Map.Entry<String, JsonNode> p = it.next();
+                    sorted.put(p.getKey(), p.getValue().asText());
+                }
+                key.append(sorted);
+            }
+            map.put(key.toString(), r);
+        }
+        return map;
+    }
+
+    private static String gitCommit() {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                if (process.waitFor() == 0 && line != null && !line.isBlank()) {
+                    return line.trim();
+                }
+            }
+        } catch (Exception ignored) {
+            // 不在 git 仓库里运行时退回 local
+        }
+        return "local";
+    }
+}
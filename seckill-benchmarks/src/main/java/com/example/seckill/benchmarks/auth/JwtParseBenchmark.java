@@ -0,0 +1,70 @@
+package com.example.seckill.benchmarks.auth;
+
+import com.example.seckill.common.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关鉴权的 JWT 解析开销 (每个秒杀请求都要过一遍)
+ * gatewayPath 对应 AuthGlobalFilter 的现状：validateToken 解析一次、getUserId 再解析一次
+ *
+ * 运行: java -jar seckill-benchmarks/target/benchmarks.jar JwtParseBenchmark -prof gc -rf json
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtParseBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Tokens {
+        final JwtUtil jwtUtil = new JwtUtil("seckill-benchmark-secret-0123456789abcdef", 86_400_000L);
+        final String[] tokens = new String[1024];
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = jwtUtil.createToken(1_000_000L + i);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        String pick(Tokens t) {
+            return t.tokens[next++ & (t.tokens.length - 1)];
+        }
+    }
+
+    @Benchmark
+    public Claims parseToken(Tokens t, Cursor c) {
+        return t.jwtUtil.parseToken(c.pick(t));
+    }
+
+    @Benchmark
+    public Long gatewayPath(Tokens t, Cursor c) {
+        String token = c.pick(t);
+        return t.jwtUtil.validateToken(token) ? t.jwtUtil.getUserId(token) : null;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Claims parseToken_8(Tokens t, Cursor c) {
+        return t.jwtUtil.parseToken(c.pick(t));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.seckill.benchmarks.codec;
+
+import com.example.seckill.common.vo.CartItem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 购物项的候选二进制编码 (仅用于压测评估，线上购物车仍是 fastjson 字符串)
+ * 布局：[version:1][presence:2][skuId][spuId][title][image][skuAttr][price][count][stock]
+ * presence 每一位表示对应字段非空；字符串为 writeUTF，金额为 scale + unscaled 字节
+ * totalPrice 是计算属性 (price * count)，不落盘
+ */
+public final class CartItemBinaryCodec {
+
+    private static final byte VERSION_1 = 1;
+
+    private CartItemBinaryCodec() {
+    }
+
+    public static byte[] encode(CartItem item) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            int presence = (item.getSkuId() != null ? 1 : 0)
+                    | (item.getSpuId() != null ? 1 << 1 : 0)
+                    | (item.getTitle() != null ? 1 << 2 : 0)
+                    | (item.getImage() != null ? 1 << 3 : 0)
+                    | (item.getSkuAttr() != null ? 1 << 4 : 0)
+                    | (item.getPrice() != null ? 1 << 5 : 0)
+                    | (item.getCount() != null ? 1 << 6 : 0)
+                    | (item.getStock() != null ? 1 << 7 : 0);
+            out.writeByte(VERSION_1);
+            out.writeShort(presence);
+            if (item.getSkuId() != null) out.writeLong(item.getSkuId());
+            if (item.getSpuId() != null) out.writeLong(item.getSpuId());
+            if (item.getTitle() != null) out.writeUTF(item.getTitle());
+            if (item.getImage() != null) out.writeUTF(item.getImage());
+            if (item.getSkuAttr() != null) {
+                out.writeShort(item.getSkuAttr().size());
+                for (String attr : item.getSkuAttr()) {
+                    out.writeUTF(attr);
+                }
+            }
+            if (item.getPrice() != null) writeDecimal(out, item.getPrice());
+            if (item.getCount() != null) out.writeInt(item.getCount());
+            if (item.getStock() != null) out.writeInt(item.getStock());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static CartItem decode(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = in.readByte();
+            if (version != VERSION_1) {
+                throw new IllegalArgumentException("不支持的购物项版本: " + version);
+            }
+            int presence = in.readUnsignedShort();
+            CartItem item = new CartItem();
+            if ((presence & 1) != 0) item.setSkuId(in.readLong());
+            if ((presence & 1 << 1) != 0) item.setSpuId(in.readLong());
+            if ((presence & 1 << 2) != 0) item.setTitle(in.readUTF());
+            if ((presence & 1 << 3) != 0) item.setImage(in.readUTF());
+            if ((presence & 1 << 4) != 0) {
+                int size = in.readUnsignedShort();
+                List<String> attrs = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    attrs.add(in.readUTF());
+                }
+                item.setSkuAttr(attrs);
+            }
+            if ((presence & 1 << 5) != 0) item.setPrice(readDecimal(in));
+            if ((presence & 1 << 6) != 0) item.setCount(in.readInt());
+            if ((presence & 1 << 7) != 0) item.setStock(in.readInt());
+            return item;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeByte(value.scale());
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readByte();
+        byte[] unscaled = new byte[in.readUnsignedByte()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.seckill.benchmarks.codec;
+
+import com.alibaba.fastjson.JSON;
+import com.example.seckill.common.vo.CartItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 购物项编解码：fastjson (seckill-cart 现状，Redis Hash 的 value) vs 候选二进制编码
+ * 列表页一次要反序列化整个 Hash，decode 的开销乘以购物车条目数
+ *
+ * 运行: java -jar seckill-benchmarks/target/benchmarks.jar CartItemCodecBenchmark -prof gc -rf json
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CartItemCodecBenchmark {
+
+    private CartItem item;
+    private String json;
+    private byte[] binary;
+
+    @Setup
+    public void setup() {
+        item = new CartItem();
+        item.setSkuId(10_086L);
+        item.setSpuId(1_001L);
+        item.setTitle("华为 Mate 60 Pro 12GB+512GB 雅川青 卫星通话 5G 智能手机");
+        item.setImage("https://seckill-oss.example.com/goods/2024/06/mate60pro-default.jpg");
+        item.setSkuAttr(List.of("雅川青", "12GB+512GB"));
+        item.setPrice(new BigDecimal("6999.00"));
+        item.setCount(2);
+        item.setStock(128);
+        json = JSON.toJSONString(item);
+        binary = CartItemBinaryCodec.encode(item);
+        System.out.printf("%n>>> 购物项大小: json=%d bytes, binary=%d bytes%n",
+                json.getBytes(StandardCharsets.UTF_8).length, binary.length);
+    }
+
+    @Benchmark
+    public String jsonEncode() {
+        return JSON.toJSONString(item);
+    }
+
+    @Benchmark
+    public CartItem jsonDecode() {
+        return JSON.parseObject(json, CartItem.class);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return CartItemBinaryCodec.encode(item);
+    }
+
+    @Benchmark
+    public CartItem binaryDecode() {
+        return CartItemBinaryCodec.decode(binary);
+    }
+}
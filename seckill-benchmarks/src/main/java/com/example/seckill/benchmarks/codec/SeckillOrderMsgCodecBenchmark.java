@@ -0,0 +1,104 @@
+package com.example.seckill.benchmarks.codec;
+
+import cn.hutool.json.JSONUtil;
+import com.example.seckill.common.dto.SeckillOrderMsgDTO;
+import com.example.seckill.common.utils.SeckillOrderMsgCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 秒杀下单消息编解码：Hutool JSON (改造前) vs SeckillOrderMsgCodec 二进制
+ * xxxPipeline 对应一条消息在链路上的实际开销：生产者编码 1 次 + 消费者解码 1 次
+ * (改造前事务监听器还要再解码 1 次，见 jsonPipeline)
+ *
+ * 运行: java -jar seckill-benchmarks/target/benchmarks.jar SeckillOrderMsgCodecBenchmark -prof gc -rf json
+ * 关注 gc.alloc.rate.norm (每条消息的分配字节数) 与消息体大小 (jsonSize / binarySize)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SeckillOrderMsgCodecBenchmark {
+
+    private SeckillOrderMsgDTO msg;
+    private byte[] jsonBody;
+    private byte[] binaryBody;
+
+    @Setup
+    public void setup() {
+        msg = new SeckillOrderMsgDTO();
+        msg.setUserId(1_000_000_123L);
+        msg.setSkuId(10_086L);
+        msg.setOrderId(1_765_432_109_876_543_210L);
+        msg.setOrderPrice(2899L);
+        jsonBody = JSONUtil.toJsonStr(msg).getBytes(StandardCharsets.UTF_8);
+        binaryBody = SeckillOrderMsgCodec.encode(msg);
+        System.out.printf("%n>>> 消息体大小: json=%d bytes, binary=%d bytes%n", jsonBody.length, binaryBody.length);
+    }
+
+    // ================= 编码 =================
+
+    @Benchmark
+    public byte[] jsonEncode() {
+        return JSONUtil.toJsonStr(msg).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return SeckillOrderMsgCodec.encode(msg);
+    }
+
+    // ================= 解码 =================
+
+    @Benchmark
+    public SeckillOrderMsgDTO jsonDecode() {
+        return JSONUtil.toBean(new String(jsonBody, StandardCharsets.UTF_8), SeckillOrderMsgDTO.class);
+    }
+
+    @Benchmark
+    public SeckillOrderMsgDTO binaryDecode() {
+        return SeckillOrderMsgCodec.decode(binaryBody);
+    }
+
+    /**
+     * 旧版 JSON 消息走兼容分支的开销 (滚动升级期间)
+     */
+    @Benchmark
+    public SeckillOrderMsgDTO legacyJsonDecode() {
+        return SeckillOrderMsgCodec.decode(jsonBody);
+    }
+
+    // ================= 整条链路 =================
+
+    /**
+     * 改造前：生产者编码 + 事务监听器解码 + 消费者解码
+     */
+    @Benchmark
+    public SeckillOrderMsgDTO jsonPipeline(Blackhole bh) {
+        byte[] body = JSONUtil.toJsonStr(msg).getBytes(StandardCharsets.UTF_8);
+        bh.consume(JSONUtil.toBean(new String(body, StandardCharsets.UTF_8), SeckillOrderMsgDTO.class));
+        return JSONUtil.toBean(new String(body, StandardCharsets.UTF_8), SeckillOrderMsgDTO.class);
+    }
+
+    /**
+     * 改造后：生产者编码 + 消费者解码 (事务监听器通过 arg 直接拿对象)
+     */
+    @Benchmark
+    public SeckillOrderMsgDTO binaryPipeline() {
+        return SeckillOrderMsgCodec.decode(SeckillOrderMsgCodec.encode(msg));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.seckill.benchmarks.concurrency;
+
+import com.example.seckill.common.utils.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 1 万个同时在途的阻塞请求全部完成所需时间 (模拟秒杀洪峰打到 order / cart)
+ * 每个请求阻塞 blockMs (PayMockController 的 50~500ms 睡眠、Feign / syncSend 的网络等待)
+ * - platform200：Tomcat 默认的 200 个平台线程，1 万请求要排 50 轮
+ * - virtual：每请求一个虚拟线程 (app.virtual-threads.enabled=true)
+ * lock 参数演示钉住问题：阻塞发生在锁内时，synchronized 会把虚拟线程钉在载体线程上 (JDK 21)，
+ * 每个锁各自串行，但 synchronized 版还会占满载体线程，把其它请求一起拖慢；ReentrantLock 版不会
+ *
+ * 需要 JDK 21 运行 (JDK 17 上 virtual 组在 Setup 阶段直接报错跳过)：
+ * java -jar seckill-benchmarks/target/benchmarks.jar BlockingRequestBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlockingRequestBenchmark {
+
+    private static final int IN_FLIGHT = 10_000;
+
+    // 锁的个数 (lock != none 时每个请求按序号取一把锁，锁内阻塞 1ms)
+    private static final int LOCK_STRIPES = 1024;
+
+    @Param({"platform200", "virtual"})
+    public String executor;
+
+    @Param({"50"})
+    public long blockMs;
+
+    @Param({"none", "synchronized", "reentrant"})
+    public String lock;
+
+    private ExecutorService pool;
+    private Object[] monitors;
+    private ReentrantLock[] locks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if ("virtual".equals(executor)) {
+            if (!VirtualThreads.isSupported()) {
+                throw new IllegalStateException("virtual threads require JDK 21, running on " + Runtime.version());
+            }
+            pool = VirtualThreads.newPerTaskExecutor("bench-vt-");
+        } else {
+            AtomicInteger index = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(200, r -> {
+                Thread t = new Thread(r, "bench-platform-" + index.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        monitors = new Object[LOCK_STRIPES];
+        locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            monitors[i] = new Object();
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public long inFlight10k() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            int stripe = i % LOCK_STRIPES;
+            pool.execute(() -> {
+                try {
+                    handle(stripe);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return done.getCount();
+    }
+
+    /**
+     * 一个请求：先阻塞 blockMs (下游调用)，再在锁内阻塞 1ms (例如持锁续租库存)
+     */
+    private void handle(int stripe) throws InterruptedException {
+        Thread.sleep(blockMs);
+        switch (lock) {
+            case "synchronized":
+                synchronized (monitors[stripe]) {
+                    Thread.sleep(1);
+                }
+                break;
+            case "reentrant":
+                locks[stripe].lock();
+                try {
+                    Thread.sleep(1);
+                } finally {
+                    locks[stripe].unlock();
+                }
+                break;
+            default:
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.seckill.benchmarks.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 关单路径批量查支付的本地压测：用随机订单ID 按块并发调用 POST /pay/mock/check/batch，
+ * 切块与并发方式与订单服务的 PayStatusBatchChecker 一致 (参数取 app.seckill.timeout.pay-check-* 的值)
+ *
+ * 用法: java -cp seckill-benchmarks/target/benchmarks.jar com.example.seckill.benchmarks.loadgen.PayBatchCheckLoadGen \
+ *          [--url=http://localhost:8030] [--orders=100000] [--batch-size=1000] [--parallelism=8]
+ */
+public class PayBatchCheckLoadGen {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // 逐单查询接口的平均模拟耗时 (50 ~ 500ms)，串行对照用
+    private static final long SERIAL_CHECK_MILLIS = 275;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.replaceFirst("^--", "") : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        URI endpoint = URI.create(options.getOrDefault("url", "http://localhost:8030") + "/pay/mock/check/batch");
+        int orders = Integer.parseInt(options.getOrDefault("orders", "100000"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch-size", "1000"));
+        int parallelism = Integer.parseInt(options.getOrDefault("parallelism", "8"));
+
+        List<Long> orderIds = new ArrayList<>(orders);
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int i = 0; i < orders; i++) {
+            orderIds.add(rnd.nextLong(1, Long.MAX_VALUE));
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(3)).build();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        AtomicLong answered = new AtomicLong();
+        AtomicLong paid = new AtomicLong();
+        AtomicLong failedBatches = new AtomicLong();
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < orderIds.size(); from += batchSize) {
+            List<Long> chunk = orderIds.subList(from, Math.min(orderIds.size(), from + batchSize));
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    HttpRequest request = HttpRequest.newBuilder(endpoint)
+                            .timeout(Duration.ofSeconds(30))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(chunk)))
+                            .build();
+                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    JsonNode data = MAPPER.readTree(response.body()).path("data");
+                    if (!data.isObject()) {
+                        failedBatches.incrementAndGet();
+                        return;
+                    }
+                    answered.addAndGet(data.size());
+                    data.elements().forEachRemaining(v -> {
+                        if (v.asBoolean()) {
+                            paid.incrementAndGet();
+                        }
+                    });
+                } catch (Exception e) {
+                    failedBatches.incrementAndGet();
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        executor.shutdown();
+
+        System.out.printf(">>> [批量查支付压测] orders=%d, batchSize=%d, parallelism=%d%n", orders, batchSize, parallelism);
+        System.out.printf(">>> answered=%d, paid=%d, failedBatches=%d, elapsedMs=%d, serialEstimateMs=%d%n",
+                answered.get(), paid.get(), failedBatches.get(), elapsedMillis, orders * SERIAL_CHECK_MILLIS);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.seckill.benchmarks.search;
+
+import com.example.seckill.search.dto.SearchParamDTO;
+import com.example.seckill.search.entity.GoodsDoc;
+import com.example.seckill.search.service.GpuResultPager;
+import com.example.seckill.search.vo.SearchResultVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchService.searchByGPU 的内存过滤 + 分页 (GPU 召回之后、返回之前的纯 Java 部分)
+ * recall 对应 GPU_RECALL_SIZE；filter: none / brand / price / all
+ *
+ * 运行: java -jar seckill-benchmarks/target/benchmarks.jar GpuResultPagerBenchmark -prof gc -rf json
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GpuResultPagerBenchmark {
+
+    @Param({"100", "1000"})
+    public int recall;
+
+    @Param({"none", "brand", "price", "all"})
+    public String filter;
+
+    private List<GoodsDoc> docs;
+    private SearchParamDTO firstPage;
+    private SearchParamDTO lastPage;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        docs = new ArrayList<>(recall);
+        for (int i = 0; i < recall; i++) {
+            GoodsDoc doc = new GoodsDoc();
+            doc.setId(10_000L + i);
+            doc.setTitle("商品-" + i);
+            doc.setBrandId((long) random.nextInt(10));
+            doc.setCategoryId((long) random.nextInt(5));
+            doc.setPrice(BigDecimal.valueOf(random.nextInt(10_000), 2));
+            docs.add(doc);
+        }
+        firstPage = param(1);
+        // 过滤前的最后一页，过滤越狠越容易越界 (返回空页)
+        lastPage = param(Math.max(1, recall / 20));
+    }
+
+    private SearchParamDTO param(int pageNum) {
+        SearchParamDTO param = new SearchParamDTO();
+        param.setKeyword("手机");
+        param.setPageNum(pageNum);
+        param.setPageSize(20);
+        if ("brand".equals(filter) || "all".equals(filter)) {
+            param.setBrandId(3L);
+        }
+        if ("price".equals(filter) || "all".equals(filter)) {
+            param.setPriceStart(10.0);
+            param.setPriceEnd(60.0);
+        }
+        if ("all".equals(filter)) {
+            param.setCategoryId(1L);
+        }
+        return param;
+    }
+
+    @Benchmark
+    public SearchResultVO firstPage() {
+        return GpuResultPager.filterAndPage(docs, firstPage);
+    }
+
+    @Benchmark
+    public SearchResultVO lastPage() {
+        return GpuResultPager.filterAndPage(docs, lastPage);
+    }
+}
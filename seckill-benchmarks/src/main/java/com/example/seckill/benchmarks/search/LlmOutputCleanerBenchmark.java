@@ -0,0 +1,103 @@
+package com.example.seckill.benchmarks.search;
+
+import com.example.seckill.search.service.llm.LlmOutputCleaner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LlmBatchService.processBatch 的关键词清洗：一批 (24 条) 模型原始输出 -> 清洗文本 + 去重关键词
+ * inlineRegex 是抽取前的写法 (每条输出 String.replaceAll 现场编译 5 个正则)，作为对照组
+ *
+ * 运行: java -jar seckill-benchmarks/target/benchmarks.jar LlmOutputCleanerBenchmark -prof gc -rf json
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LlmOutputCleanerBenchmark {
+
+    // 与 LlmBatchService.BATCH_SIZE_THRESHOLD 一致
+    private static final int BATCH = 24;
+
+    private static final String[] SAMPLES = {
+            "<think>用户想要提取商品关键词，先看标题里的品牌和型号。</think>华为，Mate60 Pro，5G手机，旗舰，麒麟芯片<|im_end|>",
+            "小米 14 Ultra 徕卡影像 骁龙8Gen3 拍照手机 2K屏<|endoftext|>Human: 再给我几个",
+            "苹果、iPhone 15、A17 Pro、钛金属、USB-C\n\n任务: 继续输出",
+            "<|im_start|>assistant\n运动鞋，跑步鞋，透气，减震，耐克，Air Zoom<|im_end|>",
+            "<think>\n多行思考\n第二行\n</think>\n机械键盘 , 青轴 , RGB背光 , 87键 , 有线<|im_end|>",
+            "羽绒服。白鸭绒。连帽。加厚。冬季 男款 | 黑色 <> im_end",
+    };
+
+    private final String[] batch = new String[BATCH];
+
+    {
+        for (int i = 0; i < BATCH; i++) {
+            batch[i] = SAMPLES[i % SAMPLES.length];
+        }
+    }
+
+    @Benchmark
+    public void precompiled(Blackhole bh) {
+        for (String raw : batch) {
+            bh.consume(LlmOutputCleaner.clean(raw));
+        }
+    }
+
+    @Benchmark
+    public void inlineRegex(Blackhole bh) {
+        for (String raw : batch) {
+            bh.consume(legacyClean(raw, bh));
+        }
+    }
+
+    /**
+     * 抽取前 processBatch 中的原始写法 (逐字保留)
+     */
+    private static List<String> legacyClean(String rawOutput, Blackhole bh) {
+        String cleanResult = rawOutput.replaceAll("<\\|.*?\\|>", "");
+        cleanResult = cleanResult.replaceAll("(?s)<think>.*?</think>", "");
+        cleanResult = cleanResult.replaceAll("</?think>", "");
+        String[] stopSignals = new String[]{"Human:", "User:", "Input:", "任务:"};
+        for (String signal : stopSignals) {
+            int idx = cleanResult.indexOf(signal);
+            if (idx != -1) {
+                cleanResult = cleanResult.substring(0, idx);
+            }
+        }
+        cleanResult = cleanResult.replaceAll("[\\n\\r\\t\\s，。、]+", ",");
+        cleanResult = cleanResult.replaceAll("[<>|]", "");
+        if (cleanResult.startsWith(",")) cleanResult = cleanResult.substring(1);
+        if (cleanResult.endsWith(",")) cleanResult = cleanResult.substring(0, cleanResult.length() - 1);
+        bh.consume(cleanResult);
+        cleanResult = cleanResult.replace("im_end", "")
+                .replace("endoftext", "")
+                .replace("im_start", "");
+        String[] splits = cleanResult.split(",");
+        List<String> keywords = new ArrayList<>();
+        Set<String> set = new HashSet<>();
+        for (String s : splits) {
+            String k = s.trim();
+            if (k.length() > 1 && !set.contains(k)) {
+                set.add(k);
+                keywords.add(k);
+            }
+        }
+        return keywords;
+    }
+}
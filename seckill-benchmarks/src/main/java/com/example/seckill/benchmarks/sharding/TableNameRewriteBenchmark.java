@@ -0,0 +1,104 @@
+package com.example.seckill.benchmarks.sharding;
+
+import com.baomidou.mybatisplus.extension.plugins.inner.DynamicTableNameInnerInterceptor;
+import com.example.seckill.order.config.MybatisPlusConfig;
+import com.example.seckill.order.context.TableContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分表路由的 SQL 改写开销：TableContext 绑定 + DynamicTableNameInnerInterceptor 解析并替换 order_tbl
+ * 每条下单 / 关单 SQL 执行前都要走一遍 (TableNameParser 逐字符扫描整条 SQL，批量 INSERT 越长越贵)
+ *
+ * 运行: java -jar seckill-benchmarks/target/benchmarks.jar TableNameRewriteBenchmark -prof gc -rf json
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TableNameRewriteBenchmark {
+
+    /**
+     * 暴露 changeTable，处理器与线上 MybatisPlusConfig 共用同一个实例
+     */
+    static class Rewriter extends DynamicTableNameInnerInterceptor {
+        Rewriter() {
+            setTableNameHandler(MybatisPlusConfig.ORDER_TABLE_NAME_HANDLER);
+        }
+
+        String rewrite(String sql) {
+            return changeTable(sql);
+        }
+    }
+
+    private static final String COLUMNS = "(id, user_id, sku_id, count, money, status, order_type, create_time, update_time)";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * single: 逐单 insert；select: 按主键查询；batch: 批量消费的多行 INSERT IGNORE (rows 行)
+     */
+    @Param({"single", "select", "batch"})
+    public String statement;
+
+    @Param({"64"})
+    public int rows;
+
+    private final Rewriter rewriter = new Rewriter();
+    private String sql;
+    private String table;
+
+    @Setup
+    public void setup() {
+        switch (statement) {
+            case "single" -> sql = "INSERT INTO order_tbl " + COLUMNS + " VALUES " + ROW;
+            case "select" -> sql = "SELECT id,user_id,sku_id,count,money,status,order_type,create_time,update_time FROM order_tbl WHERE id=?";
+            default -> {
+                StringBuilder sb = new StringBuilder("INSERT IGNORE INTO order_tbl ").append(COLUMNS).append(" VALUES ");
+                for (int i = 0; i < rows; i++) {
+                    sb.append(i == 0 ? "" : ", ").append(ROW);
+                }
+                sql = sb.toString();
+            }
+        }
+        table = "order_tbl_3";
+    }
+
+    /**
+     * 线上一次执行的完整开销：绑定分表 -> 改写 -> 清理 ThreadLocal
+     */
+    @Benchmark
+    public String bindRewriteClear() {
+        TableContext.set(table);
+        try {
+            return rewriter.rewrite(sql);
+        } finally {
+            TableContext.clear();
+        }
+    }
+
+    /**
+     * 只有 ThreadLocal 的开销 (对照)
+     */
+    @Benchmark
+    public String bindClearOnly() {
+        TableContext.set(table);
+        try {
+            return TableContext.get();
+        } finally {
+            TableContext.clear();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.seckill.benchmarks.snowflake;
+
+import com.example.seckill.common.utils.OrderGene;
+
+/**
+ * 基准对照组：无锁改造前的 SnowflakeIdWorker (synchronized 版本)，ID 布局与现版本完全一致
+ * 只用于 SnowflakeIdBenchmark，业务代码不要引用
+ */
+public class SynchronizedSnowflakeIdWorker {
+
+    // ==============================Fields===========================================
+    /** 开始时间截 (2025-01-01) */
+    private final long twepoch = 1735689600000L;
+
+    /** 机器标识位数 (5 位数据中心 + 5 位机器)，不随基因位数变化 */
+    private static final int NODE_BITS = 10;
+
+    /** 序列 + 基因 共享的位数 */
+    private static final int SEQUENCE_AND_GENE_BITS = 12;
+
+    /** 默认基因位数 (4 个分片，与历史数据保持一致) */
+    public static final int DEFAULT_GENE_BITS = 2;
+
+    /** 数据中心id 在机器标识中的偏移 (机器标识 = datacenterId << 5 | workerId) */
+    private static final long WORKER_ID_BITS = 5L;
+
+    /** 机器标识向左移12位 */
+    private static final long NODE_SHIFT = SEQUENCE_AND_GENE_BITS;
+
+    /** 时间截向左移22位 (10 + 12) */
+    private static final long TIMESTAMP_LEFT_SHIFT = NODE_BITS + SEQUENCE_AND_GENE_BITS;
+
+    /** 基因位数 (最低位) */
+    private final int geneBits;
+
+    /** 序列位数 = 12 - 基因位数 */
+    private final long sequenceBits;
+
+    /** 生成序列的掩码 */
+    private final long sequenceMask;
+
+    /** 机器标识 */
+    private final long nodeId;
+
+    /** 毫秒内序列 */
+    private long sequence = 0L;
+
+    /** 上次生成ID的时间截 */
+    private long lastTimestamp = -1L;
+
+    public SynchronizedSnowflakeIdWorker(long workerId, long datacenterId) {
+        this(workerId, datacenterId, DEFAULT_GENE_BITS);
+    }
+
+    /**
+     * ID 布局: 1 位符号 | 41 位时间戳 | 10 位机器标识 | (12 - geneBits) 位序列 | geneBits 位基因
+     */
+    public SynchronizedSnowflakeIdWorker(long workerId, long datacenterId, int geneBits) {
+        if (geneBits < 0 || geneBits > OrderGene.MAX_GENE_BITS) {
+            throw new IllegalArgumentException(String.format("gene bits must be between 0 and %d", OrderGene.MAX_GENE_BITS));
+        }
+        long maxWorkerId = -1L ^ (-1L << WORKER_ID_BITS);
+        if (workerId > maxWorkerId || workerId < 0) {
+            throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", maxWorkerId));
+        }
+        long maxDatacenterId = -1L ^ (-1L << (NODE_BITS - WORKER_ID_BITS));
+        if (datacenterId > maxDatacenterId || datacenterId < 0) {
+            throw new IllegalArgumentException(String.format("datacenter Id can't be greater than %d or less than 0", maxDatacenterId));
+        }
+        this.geneBits = geneBits;
+        this.sequenceBits = SEQUENCE_AND_GENE_BITS - geneBits;
+        this.sequenceMask = -1L ^ (-1L << sequenceBits);
+        this.nodeId = (datacenterId << WORKER_ID_BITS) | workerId;
+    }
+
+    public int getGeneBits() {
+        return geneBits;
+    }
+
+    /**
+     * 获得下一个ID (不带基因，普通ID，基因位为 0)
+     * @return SnowflakeId
+     */
+    public long nextId() {
+        return nextId(0L);
+    }
+
+    /**
+     * 【核心方法】生成带有用户基因的 ID
+     * 规则：OrderGene.shardOf(orderId, n) == OrderGene.shardOf(userId, n)，n <= 2^geneBits
+     * 实现：userId 的低 geneBits 位直接作为 ID 的最低位，序列号让出这几位
+     */
+    public synchronized long nextId(Long userId) {
+        long timestamp = timeGen();
+
+        // 1. 时钟回拨检查
+        if (timestamp < lastTimestamp) {
+            throw new RuntimeException(String.format("Clock moved backwards. Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
+        }
+
+        // 2. 毫秒内序列
+        if (lastTimestamp == timestamp) {
+            sequence = (sequence + 1) & sequenceMask;
+            // 毫秒内序列溢出，阻塞到下一个毫秒
+            if (sequence == 0) {
+                timestamp = tilNextMillis(lastTimestamp);
+            }
+        } else {
+            // 时间戳改变，毫秒内序列重置
+            sequence = 0L;
+        }
+
+        lastTimestamp = timestamp;
+
+        // 3. 组装 ID
+        return ((timestamp - twepoch) << TIMESTAMP_LEFT_SHIFT)
+                | (nodeId << NODE_SHIFT)
+                | (sequence << geneBits)
+                | OrderGene.geneOf(userId, geneBits);
+    }
+
+    /**
+     * 阻塞到下一个毫秒，直到获得新的时间戳
+     * @param lastTimestamp 上次生成ID的时间截
+     * @return 当前时间戳
+     */
+    protected long tilNextMillis(long lastTimestamp) {
+        long timestamp = timeGen();
+        while (timestamp <= lastTimestamp) {
+            timestamp = timeGen();
+        }
+        return timestamp;
+    }
+
+    /**
+     * 返回以毫秒为单位的当前时间
+     * @return 当前时间(毫秒)
+     */
+    protected long timeGen() {
+        return System.currentTimeMillis();
+    }
+}
\ No newline at end of file
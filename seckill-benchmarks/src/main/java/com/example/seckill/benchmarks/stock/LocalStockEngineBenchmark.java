@@ -0,0 +1,113 @@
+package com.example.seckill.benchmarks.stock;
+
+import com.example.seckill.order.activity.SeckillActivityCatalog;
+import com.example.seckill.order.stock.LocalStockEngine;
+import com.example.seckill.order.stock.PurchaseLedger;
+import com.example.seckill.order.stock.SoldOutBroadcaster;
+import com.example.seckill.order.stock.StockEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内库存引擎 (app.seckill.stock.engine=local) 的扣减开销
+ * 1. reserveRelease：扣一件再归还 (库存、扣减记录与限购额度保持稳态，不会随迭代无限增长)，1 / 8 线程争抢同一 SKU
+ * 2. soldOut：售罄后的拒绝路径
+ * Redis 引擎的同一操作是一次网络往返 + Lua (百微秒量级)，不在这里测
+ *
+ * 运行: java -jar seckill-benchmarks/target/benchmarks.jar LocalStockEngineBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalStockEngineBenchmark {
+
+    private static final long HOT_SKU = 1L;
+    private static final long SOLD_OUT_SKU = 2L;
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+        LocalStockEngine engine;
+        final AtomicLong orderIds = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            // 脱离 Spring 手工装配 (字段注入)
+            SoldOutBroadcaster broadcaster = new SoldOutBroadcaster();
+            inject(broadcaster, "soldOutTtlMillis", 10_000L);
+            broadcaster.init();
+            PurchaseLedger ledger = new PurchaseLedger();
+            inject(ledger, "perUserLimit", 1);
+            // 活动目录为空：限购取默认值
+            inject(ledger, "seckillActivityCatalog", new SeckillActivityCatalog());
+            engine = new LocalStockEngine();
+            inject(engine, "soldOutBroadcaster", broadcaster);
+            inject(engine, "purchaseLedger", ledger);
+
+            engine.prewarm(HOT_SKU, 1_000_000, 1);
+            engine.prewarm(SOLD_OUT_SKU, 0, 1);
+        }
+
+        private static void inject(Object target, String name, Object value) throws Exception {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        }
+    }
+
+    /**
+     * 每个线程一段独立的订单号，模拟不同用户
+     */
+    @State(Scope.Thread)
+    public static class Buyer {
+        long userId;
+        long nextOrderId;
+
+        @Setup(Level.Trial)
+        public void setup(Engine engine) {
+            long base = engine.orderIds.addAndGet(1L << 40);
+            userId = base >>> 40;
+            nextOrderId = base;
+        }
+    }
+
+    private static StockEngine.Reservation reserveRelease(Engine engine, Buyer buyer) {
+        long orderId = buyer.nextOrderId++;
+        StockEngine.Reservation r = engine.engine.reserve(HOT_SKU, buyer.userId, orderId);
+        engine.engine.release(HOT_SKU, buyer.userId, orderId, 1);
+        return r;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public StockEngine.Reservation reserveRelease_1(Engine engine, Buyer buyer) {
+        return reserveRelease(engine, buyer);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public StockEngine.Reservation reserveRelease_8(Engine engine, Buyer buyer) {
+        return reserveRelease(engine, buyer);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public StockEngine.Reservation soldOut_8(Engine engine, Buyer buyer) {
+        return engine.engine.reserve(SOLD_OUT_SKU, buyer.userId, buyer.nextOrderId++);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.seckill.benchmarks.stock;
+
+import com.example.seckill.common.dto.SeckillOrderMsgDTO;
+import com.example.seckill.common.utils.SeckillOrderMsgCodec;
+import com.example.seckill.order.activity.SeckillActivityCatalog;
+import com.example.seckill.order.listener.SeckillTransactionListener;
+import com.example.seckill.order.listener.TransactionCheckBatcher;
+import com.example.seckill.order.stock.LocalStockEngine;
+import com.example.seckill.order.stock.PurchaseLedger;
+import com.example.seckill.order.stock.SoldOutBroadcaster;
+import com.example.seckill.order.stock.StockEngine;
+import org.apache.rocketmq.spring.core.RocketMQLocalTransactionState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * broker 恢复后 10 万条半消息的事务回查全部答完所需时间 (经 SeckillTransactionListener 端到端，含消息体解码)
+ * - default：客户端默认的单回查线程 (队列改为无界，否则 2000 条之后全部被丢弃，只能等下一轮回查)
+ * - pool：RocketMQConfig 注册的 64 线程回查池，逐条查询
+ * - batched：64 线程回查池 + TransactionCheckBatcher 攒批，一批一次 Pipeline
+ *
+ * 库存引擎用进程内引擎模拟 Redis：每次往返先在网络上等待 rttMicros (可并行)，
+ * 再在“单线程服务端”上串行占用 callMicros + keyMicros × Key 数 (命令解析与系统调用的固定开销 + 每个 Key 的查询开销)
+ *
+ * 运行: java -jar seckill-benchmarks/target/benchmarks.jar TransactionCheckRecoveryBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionCheckRecoveryBenchmark {
+
+    private static final int PENDING = 100_000;
+    private static final long SKU_ID = 1L;
+    private static final int CHECK_THREADS = 64;
+
+    @Param({"default", "pool", "batched"})
+    public String mode;
+
+    @Param({"200"})
+    public long rttMicros;
+
+    @Param({"10"})
+    public long callMicros;
+
+    @Param({"1"})
+    public long keyMicros;
+
+    private SeckillTransactionListener listener;
+    private TransactionCheckBatcher batcher;
+    private ExecutorService checkExecutor;
+    private List<Message<byte[]>> halfMessages;
+
+    /**
+     * 带模拟网络往返的进程内引擎
+     */
+    private final class SimulatedRemoteEngine extends LocalStockEngine {
+        private final Object server = new Object();
+
+        @Override
+        public Reservation check(long skuId, long userId, long orderId) {
+            roundTrip(1);
+            return super.check(skuId, userId, orderId);
+        }
+
+        @Override
+        public List<Reservation> checkAll(List<Claim> claims) {
+            roundTrip(claims.size());
+            List<Reservation> results = new ArrayList<>(claims.size());
+            for (Claim claim : claims) {
+                results.add(super.check(claim.skuId(), claim.userId(), claim.orderId()));
+            }
+            return results;
+        }
+
+        private void roundTrip(int keys) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(rttMicros));
+            synchronized (server) {
+                long until = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(callMicros + keyMicros * keys);
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // 脱离 Spring 手工装配 (字段注入)
+        SoldOutBroadcaster broadcaster = new SoldOutBroadcaster();
+        inject(broadcaster, "soldOutTtlMillis", 10_000L);
+        broadcaster.init();
+        PurchaseLedger ledger = new PurchaseLedger();
+        inject(ledger, "perUserLimit", 1);
+        // 活动目录为空：限购取默认值
+        inject(ledger, "seckillActivityCatalog", new SeckillActivityCatalog());
+        SimulatedRemoteEngine engine = new SimulatedRemoteEngine();
+        inject(engine, "soldOutBroadcaster", broadcaster);
+        inject(engine, "purchaseLedger", ledger);
+        engine.prewarm(SKU_ID, PENDING, 1);
+
+        batcher = new TransactionCheckBatcher();
+        inject(batcher, "stockEngine", engine);
+        inject(batcher, "enabled", "batched".equals(mode));
+        inject(batcher, "maxBatch", 256);
+        inject(batcher, "maxWaitMillis", 2L);
+        inject(batcher, "queueCapacity", 10_000);
+        inject(batcher, "workers", 2);
+        inject(batcher, "timeoutMillis", 3_000L);
+        batcher.init();
+
+        listener = new SeckillTransactionListener();
+        inject(listener, "stockEngine", engine);
+        inject(listener, "soldOutBroadcaster", broadcaster);
+        inject(listener, "transactionCheckBatcher", batcher);
+
+        // 一半的半消息在宕机前已扣减成功 (回查应 COMMIT)，另一半没有 (ROLLBACK)
+        halfMessages = new ArrayList<>(PENDING);
+        for (long i = 1; i <= PENDING; i++) {
+            SeckillOrderMsgDTO msg = new SeckillOrderMsgDTO();
+            msg.setUserId(i);
+            msg.setSkuId(SKU_ID);
+            msg.setOrderId(i);
+            msg.setOrderPrice(100L);
+            if (i % 2 == 0) {
+                engine.reserve(SKU_ID, i, i);
+            }
+            halfMessages.add(MessageBuilder.withPayload(SeckillOrderMsgCodec.encode(msg)).build());
+        }
+
+        int threads = "default".equals(mode) ? 1 : CHECK_THREADS;
+        AtomicInteger index = new AtomicInteger();
+        checkExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "bench-tx-check-" + index.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        checkExecutor.shutdownNow();
+        batcher.destroy();
+    }
+
+    @Benchmark
+    public int recover100k() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(PENDING);
+        AtomicInteger committed = new AtomicInteger();
+        for (Message<byte[]> msg : halfMessages) {
+            checkExecutor.execute(() -> {
+                try {
+                    if (listener.checkLocalTransaction(msg) == RocketMQLocalTransactionState.COMMIT) {
+                        committed.incrementAndGet();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        if (committed.get() != PENDING / 2) {
+            throw new IllegalStateException("unexpected commits: " + committed.get());
+        }
+        return committed.get();
+    }
+
+    private static void inject(Object target, String name, Object value) throws Exception {
+        Class<?> type = target.getClass();
+        while (true) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                type = type.getSuperclass();
+                if (type == null) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
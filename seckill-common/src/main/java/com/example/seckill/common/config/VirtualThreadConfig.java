@@ -0,0 +1,40 @@
+package com.example.seckill.common.config;
+
+import com.example.seckill.common.utils.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 虚拟线程模式 (app.virtual-threads.enabled=true，需 JDK 21 运行时)
+ * Tomcat 请求处理改为每请求一个虚拟线程，不再受 200 个平台线程的限制：
+ * Feign 调用、syncSend、Redis / JDBC 访问都在请求线程上同步阻塞，随之一起跑在虚拟线程上
+ * 切换后并发上限变为 server.tomcat.max-connections (默认 8192)，需要按目标在途请求数调大
+ *
+ * 运行在 JDK 17 上时只打印告警，保持平台线程
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Configuration
+    @ConditionalOnClass(name = "org.apache.catalina.startup.Tomcat")
+    static class TomcatVirtualThreadConfig {
+
+        @Bean
+        public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+            if (!VirtualThreads.isSupported()) {
+                log.warn(">>> [虚拟线程] 当前 JDK {} 不支持虚拟线程，Tomcat 继续使用平台线程池", Runtime.version());
+                return handler -> {
+                };
+            }
+            log.info(">>> [虚拟线程] Tomcat 请求处理切换为虚拟线程");
+            return handler -> handler.setExecutor(VirtualThreads.newPerTaskExecutor("tomcat-vt-"));
+        }
+    }
+}
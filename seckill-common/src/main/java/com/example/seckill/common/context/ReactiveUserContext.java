@@ -0,0 +1,31 @@
+package com.example.seckill.common.context;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * 响应式链路上的用户上下文
+ * 响应式请求会在 Tomcat 线程、Lettuce I/O 线程、RocketMQ 回调线程之间切换，ThreadLocal 的 {@link UserContext} 取不到值，
+ * 用户ID 改为放在 Reactor Context 中随订阅链传递：入口处 contextWrite(withUserId(id))，链路内 getUserId() 读取
+ */
+public final class ReactiveUserContext {
+
+    private static final String USER_ID_KEY = ReactiveUserContext.class.getName() + ".userId";
+
+    private ReactiveUserContext() {
+    }
+
+    /**
+     * 写入用户ID (userId 为空时不写入，链路内 getUserId() 返回空 Mono)
+     */
+    public static Context withUserId(Long userId) {
+        return userId == null ? Context.empty() : Context.of(USER_ID_KEY, userId);
+    }
+
+    /**
+     * 读取当前订阅链上的用户ID，未登录时为空 Mono
+     */
+    public static Mono<Long> getUserId() {
+        return Mono.deferContextual(ctx -> Mono.justOrEmpty(ctx.<Long>getOrEmpty(USER_ID_KEY)));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.seckill.common.dto;
+
+import lombok.Data;
+import java.io.Serializable;
+
+/**
+ * 秒杀活动快照 (商品服务发布到 Redis，订单服务加载到本地内存)
+ * 时间统一为毫秒时间戳，热路径上直接与 System.currentTimeMillis() 比较
+ */
+@Data
+public class SeckillActivityDTO implements Serializable {
+    /**
+     * 活动ID
+     */
+    private Long activityId;
+
+    /**
+     * 参与秒杀的商品ID
+     */
+    private Long skuId;
+
+    /**
+     * 秒杀价
+     */
+    private Long seckillPrice;
+
+    /**
+     * 开始时间 (ms)
+     */
+    private Long startTime;
+
+    /**
+     * 结束时间 (ms)
+     */
+    private Long endTime;
+
+    /**
+     * 每人限购件数
+     */
+    private Integer perUserLimit;
+
+    /**
+     * 活动库存
+     */
+    private Integer stock;
+}
@@ -30,7 +30,7 @@ public class SeckillOrderMsgDTO implements Serializable {
     private Long orderPrice;
 
     /**
-     * 秒杀场次ID (可选，预留)
+     * 秒杀场次ID (下单时取自活动快照；JSON 与 v2 二进制消息携带，v1 二进制消息中为空)
      */
     private Long activityId;
 }
\ No newline at end of file
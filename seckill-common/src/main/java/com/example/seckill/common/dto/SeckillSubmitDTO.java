@@ -14,7 +14,7 @@ public class SeckillSubmitDTO implements Serializable {
     private Long skuId;
 
     /**
-     * 商品价格
+     * 客户端展示的秒杀价 (可选)：与活动价不一致时拒绝，下单价格始终取活动价
      */
     private Long orderPrice;
 
@@ -2,13 +2,13 @@ package com.example.seckill.common.interceptor;
 
 import com.example.seckill.common.context.UserContext;
 import lombok.extern.slf4j.Slf4j; // 确保 pom 有 lombok
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 @Slf4j
-public class UserInterceptor implements HandlerInterceptor {
+public class UserInterceptor implements AsyncHandlerInterceptor {
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
@@ -29,4 +29,10 @@ public class UserInterceptor implements HandlerInterceptor {
         // 请求结束，必须清理 ThreadLocal
         UserContext.remove();
     }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步请求 (返回 CompletableFuture) 不会在原线程触发 afterCompletion，这里提前清理，避免用户ID残留到下一个请求
+        UserContext.remove();
+    }
 }
\ No newline at end of file
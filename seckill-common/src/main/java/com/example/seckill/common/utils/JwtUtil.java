@@ -35,6 +35,18 @@ public class JwtUtil {
 
     private Key key;
 
+    public JwtUtil() {
+    }
+
+    /**
+     * 脱离 Spring 容器直接使用 (压测工具批量签发 Token)
+     */
+    public JwtUtil(String secret, Long expiration) {
+        this.secret = secret;
+        this.expiration = expiration;
+        init();
+    }
+
     // Spring 注入完属性后，自动执行初始化方法
     @PostConstruct
     public void init() {
@@ -0,0 +1,45 @@
+package com.example.seckill.common.utils;
+
+/**
+ * 订单基因 (分片) 的唯一路由函数
+ * SnowflakeIdWorker 把 userId 的低 geneBits 位写进订单ID 的最低位，因此：
+ *     shardOf(orderId, n) == shardOf(userId, n)   (n 为 2 的幂且 n <= 2^geneBits)
+ * 生成 ID、分库分表、重分片工具都必须调用这里，禁止在业务代码里再写 “% 4”
+ */
+public final class OrderGene {
+
+    /**
+     * 基因最大位数 (最多 64 个分片)
+     */
+    public static final int MAX_GENE_BITS = 6;
+
+    private OrderGene() {
+    }
+
+    /**
+     * 取 key (userId 或 orderId) 的低 geneBits 位基因
+     */
+    public static long geneOf(long key, int geneBits) {
+        return key & ((1L << geneBits) - 1);
+    }
+
+    /**
+     * key 落在 shardCount 个分片中的哪一个 (shardCount 必须是 2 的幂)
+     */
+    public static int shardOf(long key, int shardCount) {
+        return (int) (key & (shardCount - 1));
+    }
+
+    /**
+     * 校验分片数：2 的幂，且不超过基因能区分的范围
+     */
+    public static void checkShardCount(int shardCount, int geneBits) {
+        if (shardCount <= 0 || Integer.bitCount(shardCount) != 1) {
+            throw new IllegalArgumentException("分片数必须是 2 的幂: " + shardCount);
+        }
+        if (shardCount > (1 << geneBits)) {
+            throw new IllegalArgumentException(String.format(
+                    "分片数 %d 超过了 %d 位基因能区分的范围 (%d)", shardCount, geneBits, 1 << geneBits));
+        }
+    }
+}
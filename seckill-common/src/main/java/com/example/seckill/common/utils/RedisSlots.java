@@ -0,0 +1,69 @@
+package com.example.seckill.common.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Redis Cluster 槽位计算 (与服务端算法一致：CRC16-XMODEM(key 或 {tag} 部分) % 16384)
+ * 单节点开发环境没有 CROSSSLOT 校验，用它在本地提前发现“一个脚本 / 事务里的 Key 不在同一个槽”的问题
+ */
+public final class RedisSlots {
+
+    public static final int SLOT_COUNT = 16384;
+
+    private static final int[] CRC16_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC16_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    private RedisSlots() {
+    }
+
+    public static int slotOf(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int start = 0;
+        int end = bytes.length;
+        // 只对第一个 {...} 内的内容计算 (内容为空时按整个 Key 计算)
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '{') {
+                for (int j = i + 1; j < bytes.length; j++) {
+                    if (bytes[j] == '}') {
+                        if (j > i + 1) {
+                            start = i + 1;
+                            end = j;
+                        }
+                        break;
+                    }
+                }
+                break;
+            }
+        }
+        int crc = 0;
+        for (int i = start; i < end; i++) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ bytes[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc % SLOT_COUNT;
+    }
+
+    /**
+     * 所有 Key 是否落在同一个槽 (空集合视为满足)
+     */
+    public static boolean sameSlot(Collection<String> keys) {
+        int slot = -1;
+        for (String key : keys) {
+            int s = slotOf(key);
+            if (slot >= 0 && s != slot) {
+                return false;
+            }
+            slot = s;
+        }
+        return true;
+    }
+}
@@ -1,9 +1,15 @@
 package com.example.seckill.common.utils;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Component
@@ -58,4 +64,106 @@ public class RedisUtil {
         }
         return stringRedisTemplate.delete(key);
     }
+
+    /**
+     * 发布 Pub/Sub 消息
+     *
+     * @param channel 频道
+     * @param message 消息内容
+     */
+    public void publish(String channel, String message) {
+        stringRedisTemplate.convertAndSend(channel, message);
+    }
+
+    /**
+     * 批量写入缓存 (Pipeline，一次网络往返)
+     * 不使用 MSET：Cluster 模式下 Key 分布在不同 slot 时 MSET 会报 CROSSSLOT
+     *
+     * @param entries 键值对
+     * @param time    过期时间(秒)
+     */
+    public void setAllPipelined(Map<String, String> entries, long time) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                connection.stringCommands().setEx(
+                        entry.getKey().getBytes(StandardCharsets.UTF_8),
+                        time,
+                        entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 批量读取缓存 (Pipeline)，返回值与 keys 顺序一一对应，不存在的 Key 对应 null
+     */
+    public List<String> getAllPipelined(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> values = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.stringCommands().get(key.getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        List<String> result = new ArrayList<>(values.size());
+        for (Object value : values) {
+            result.add(value == null ? null : value.toString());
+        }
+        return result;
+    }
+
+    /**
+     * 批量原子取走 (Pipeline 逐个 GETDEL，需 Redis 6.2+)，返回值与 keys 顺序一一对应，不存在的 Key 对应 null
+     * 与先 GET 再 DEL 不同，两步之间的写入不会被一起删掉
+     */
+    public List<String> getAndDeleteAllPipelined(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> values = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.stringCommands().getDel(key.getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        List<String> result = new ArrayList<>(values.size());
+        for (Object value : values) {
+            result.add(value == null ? null : value.toString());
+        }
+        return result;
+    }
+
+    /**
+     * 批量发布 Pub/Sub 消息 (Pipeline，一次网络往返)
+     */
+    public void publishAllPipelined(String channel, Collection<String> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        byte[] channelBytes = channel.getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String message : messages) {
+                connection.publish(channelBytes, message.getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 批量删除缓存
+     *
+     * @return 删除的数量
+     */
+    public long del(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return 0;
+        }
+        Long count = stringRedisTemplate.delete(keys);
+        return count != null ? count : 0;
+    }
 }
\ No newline at end of file
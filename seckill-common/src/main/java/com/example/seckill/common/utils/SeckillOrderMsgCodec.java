@@ -0,0 +1,122 @@
+package com.example.seckill.common.utils;
+
+import com.example.seckill.common.dto.SeckillOrderMsgDTO;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * 秒杀下单消息的定长二进制编码
+ * 布局 (大端)：
+ * v1: [version:1][userId:8][skuId:8][orderId:8][orderPrice:8]，共 33 字节
+ * v2: v1 + [activityId:8]，共 41 字节 (activityId 为空时写 0，解码回 null)
+ * 生产者 (逐单事务消息 / 组提交批量消息)、事务监听器、下单消费者统一走这里，热路径上不再反复 JSON 序列化
+ *
+ * 兼容：首字节为 '{' 时按旧版 JSON 解析，v1 / v2 按版本号分支，滚动发布期间新老消息可以混跑
+ * 老节点不认识 v2，从 v1 升级时先用 {@link #encode(SeckillOrderMsgDTO, byte)} 继续发 v1，全部节点升级后再切到 v2
+ * 扩展字段需要升版本号，禁止在已发布版本的尾部追加
+ */
+public final class SeckillOrderMsgCodec {
+
+    public static final byte VERSION_1 = 1;
+    public static final byte VERSION_2 = 2;
+
+    /**
+     * v1 消息长度
+     */
+    public static final int V1_LENGTH = 1 + 4 * Long.BYTES;
+
+    /**
+     * v2 消息长度
+     */
+    public static final int V2_LENGTH = V1_LENGTH + Long.BYTES;
+
+    private static final byte JSON_START = '{';
+
+    // 按大端把 byte[] 当 long 读写 (JIT 会合并成单条 load/store + bswap)
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final ObjectMapper LEGACY_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private SeckillOrderMsgCodec() {
+    }
+
+    /**
+     * 编码为最新版本 (v2) 二进制 (空字段写 0)
+     */
+    public static byte[] encode(SeckillOrderMsgDTO msg) {
+        return encode(msg, VERSION_2);
+    }
+
+    /**
+     * 按指定版本编码 (v1 不含 activityId，仅供滚动升级期间兼容老节点)
+     */
+    public static byte[] encode(SeckillOrderMsgDTO msg, byte version) {
+        if (version != VERSION_1 && version != VERSION_2) {
+            throw new IllegalArgumentException("不支持的秒杀消息版本: " + version);
+        }
+        byte[] bytes = new byte[version == VERSION_1 ? V1_LENGTH : V2_LENGTH];
+        bytes[0] = version;
+        putLong(bytes, 1, valueOf(msg.getUserId()));
+        putLong(bytes, 9, valueOf(msg.getSkuId()));
+        putLong(bytes, 17, valueOf(msg.getOrderId()));
+        putLong(bytes, 25, valueOf(msg.getOrderPrice()));
+        if (version == VERSION_2) {
+            putLong(bytes, 33, valueOf(msg.getActivityId()));
+        }
+        return bytes;
+    }
+
+    /**
+     * 解码二进制消息；旧版 JSON 消息自动兼容
+     */
+    public static SeckillOrderMsgDTO decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException("秒杀消息体为空");
+        }
+        if (bytes[0] == JSON_START) {
+            return decodeLegacyJson(bytes);
+        }
+        if (bytes[0] != VERSION_1 && bytes[0] != VERSION_2) {
+            throw new IllegalArgumentException("不支持的秒杀消息版本: " + bytes[0]);
+        }
+        if (bytes.length < (bytes[0] == VERSION_1 ? V1_LENGTH : V2_LENGTH)) {
+            throw new IllegalArgumentException("秒杀消息长度不足: " + bytes.length);
+        }
+        SeckillOrderMsgDTO msg = new SeckillOrderMsgDTO();
+        msg.setUserId(getLong(bytes, 1));
+        msg.setSkuId(getLong(bytes, 9));
+        msg.setOrderId(getLong(bytes, 17));
+        msg.setOrderPrice(getLong(bytes, 25));
+        if (bytes[0] == VERSION_2) {
+            long activityId = getLong(bytes, 33);
+            msg.setActivityId(activityId == 0 ? null : activityId);
+        }
+        return msg;
+    }
+
+    private static SeckillOrderMsgDTO decodeLegacyJson(byte[] bytes) {
+        try {
+            return LEGACY_MAPPER.readValue(bytes, SeckillOrderMsgDTO.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("旧版 JSON 秒杀消息解析失败", e);
+        }
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        LONG_BE.set(bytes, offset, value);
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        return (long) LONG_BE.get(bytes, offset);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.seckill.common.utils;
+
+/**
+ * 秒杀 Redis Key 规范 (goods 预热 / order 扣减 / 关单回滚 三方共用)
+ * 注意：Key 格式一旦上线就不要随意修改，Lua 脚本和各服务必须保持绝对一致
+ *
+ * Redis Cluster 兼容：同一个 Lua 脚本操作的 Key 必须落在同一个槽，因此按 Hash Tag 组织：
+ * 1. {skuId}：单 Key 库存、段数记录、租约、以及 ledger.slots = 1 时的限购账本 / 扣减记录
+ * 2. {skuId:segment}：分段库存的每一段，以及 ledger.slots > 1 时按 userId 取主段号的限购账本 / 扣减记录
+ * 不同 SKU (以及同一 SKU 的不同段) 散布到整个集群，库存吞吐随分片数水平扩展
+ */
+public final class SeckillRedisKeys {
+
+    /**
+     * 库存频道的消息前缀 (消息体 = 前缀 + skuId)，Lua 脚本中的 'SOLD_OUT:' 必须与之一致
+     */
+    public static final String SOLD_OUT_PREFIX = "SOLD_OUT:";
+    public static final String RESTOCK_PREFIX = "RESTOCK:";
+
+    private SeckillRedisKeys() {
+    }
+
+    /**
+     * SKU 的 Hash Tag
+     */
+    public static String skuTag(long skuId) {
+        return "{" + skuId + "}";
+    }
+
+    /**
+     * 库存段的 Hash Tag
+     */
+    public static String segmentTag(long skuId, int segment) {
+        return "{" + skuId + ":" + segment + "}";
+    }
+
+    /**
+     * 单 Key 模式的库存 Key
+     */
+    public static String stockKey(long skuId) {
+        return "seckill:stock:" + skuTag(skuId);
+    }
+
+    /**
+     * 活动回收中的库存暂存 Key：由库存 Key (单 Key 或某一段) 改名而来，Hash Tag 不变，回补 DB 提交后删除
+     * 带 activityId，回收失败残留的暂存库存不会被同一 SKU 的下一场活动读到
+     */
+    public static String stockDrainKey(String stockKey, long activityId) {
+        return stockKey + ":drain:" + activityId;
+    }
+
+    /**
+     * 分段库存的段数记录 Key (不存在或 <= 1 表示单 Key 模式)
+     */
+    public static String stockSegmentCountKey(long skuId) {
+        return "seckill:stock:segments:" + skuTag(skuId);
+    }
+
+    /**
+     * 分段库存 Key
+     * 使用 {skuId:segment} 作为 Cluster Hash Tag，不同的段落到不同的 slot，从而分散到整个集群
+     */
+    public static String stockSegmentKey(long skuId, int segment) {
+        return "seckill:stock:" + segmentTag(skuId, segment);
+    }
+
+    /**
+     * 限购账本 (Hash: field = userId，value = 已购件数)，每场活动一份，按 userId 取模分桶
+     * tag 由 skuId + userId 决定 ({skuId} 或 {skuId:home})，与库存当前的分段布局无关；activityId 在 Hash Tag 之外，不影响槽位
+     */
+    public static String purchaseLedgerKey(String tag, long activityId, int bucket) {
+        return "seckill:buy:" + tag + ':' + activityId + ':' + bucket;
+    }
+
+    /**
+     * 扣减记录 (Set: member = orderId)，按订单生成分钟 + orderId 取模分桶，供事务回查，整桶过期
+     * tag 与限购账本一致
+     */
+    public static String orderStateKey(String tag, long createMinute, int bucket) {
+        return "seckill:order:reserved:" + tag + ':' + createMinute + ':' + bucket;
+    }
+
+    /**
+     * 库存租约 Hash：field = 节点ID，value = 该节点已租走但尚未结算的库存
+     */
+    public static String stockLeaseKey(long skuId) {
+        return "seckill:lease:" + skuTag(skuId);
+    }
+
+    /**
+     * 当前存在租约的 SKU 集合 (供回收任务遍历，不参与 Lua 脚本)
+     */
+    public static String stockLeaseSkuSetKey() {
+        return "seckill:lease:skus";
+    }
+
+    /**
+     * 租约持有节点的心跳 Key (带 TTL，过期即视为节点失联，其租约可被回收；不参与 Lua 脚本)
+     */
+    public static String stockLeaseNodeKey(String nodeId) {
+        return "seckill:lease:node:" + nodeId;
+    }
+
+    /**
+     * 订单重分片计划 (JSON)，所有订单节点定时拉取以切换路由
+     */
+    public static String reshardPlanKey() {
+        return "seckill:reshard:plan";
+    }
+
+    /**
+     * 镜像写失败、等待重放的订单ID 集合 (Set)，各节点写入，搬迁节点在切换前后重放
+     */
+    public static String reshardRepairKey() {
+        return "seckill:reshard:repair";
+    }
+
+    /**
+     * 雪花机器标识租约 (value = 持有实例的令牌，带 TTL)，nodeId = datacenterId << 5 | workerId
+     */
+    public static String snowflakeNodeKey(long nodeId) {
+        return "seckill:snowflake:node:" + nodeId;
+    }
+
+    /**
+     * 待关单订单的到期分钟桶 (ZSET: member = orderId, score = 到期时间戳 ms)，用于重启后恢复时间轮
+     * 与索引共用 {timeout} Hash Tag，“桶为空则删索引”可以在一个脚本内原子执行
+     */
+    public static String orderTimeoutBucketKey(long expireMinute) {
+        return "seckill:{timeout}:bucket:" + expireMinute;
+    }
+
+    /**
+     * 非空到期分钟桶的索引 (ZSET: member = score = 到期分钟)
+     */
+    public static String orderTimeoutBucketIndexKey() {
+        return "seckill:{timeout}:buckets";
+    }
+
+    /**
+     * 秒杀异步票据状态 Hash (field = 订单ID，value = 状态码[:说明])，按订单生成分钟分桶，整桶过期
+     */
+    public static String seckillTicketKey(long createMinute) {
+        return "seckill:ticket:" + createMinute;
+    }
+
+    /**
+     * 秒杀活动目录 Hash (field = activityId，value = SeckillActivityDTO JSON)，由商品服务整体发布
+     */
+    public static String activityCatalogKey() {
+        return "seckill:activity:{catalog}";
+    }
+
+    /**
+     * 活动目录版本号，每次发布加一；与目录同槽，发布时在同一个 MULTI 中更新
+     */
+    public static String activityCatalogVersionKey() {
+        return "seckill:activity:{catalog}:version";
+    }
+
+    /**
+     * 库存售罄 / 补货广播频道 (goods 预热、order 扣减与回滚共用)
+     */
+    public static String stockChannel() {
+        return "seckill:channel:stock";
+    }
+
+    /**
+     * 活动目录变更通知频道 (消息体为新版本号)
+     */
+    public static String activityChannel() {
+        return "seckill:channel:activity";
+    }
+}
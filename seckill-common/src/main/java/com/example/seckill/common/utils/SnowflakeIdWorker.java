@@ -1,61 +1,67 @@
 package com.example.seckill.common.utils;
 
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 基因法雪花算法生成器
  * 核心目标：生成的 ID 取模后的值 == userId 取模后的值
+ * 无锁实现：时间戳与毫秒内序列打包在一个 AtomicLong 里，通过 CAS 一次性推进，热点路径上的线程不再争抢同一把锁
  */
 public class SnowflakeIdWorker {
 
     // ==============================Fields===========================================
     /** 开始时间截 (2025-01-01) */
-    private final long twepoch = 1735689600000L;
+    private static final long TWEPOCH = 1735689600000L;
 
-    /** 机器id所占的位数 */
-    private final long workerIdBits = 5L;
+    private final long twepoch = TWEPOCH;
 
-    /** 数据标识id所占的位数 */
-    private final long datacenterIdBits = 5L;
+    /** 机器标识位数 (5 位数据中心 + 5 位机器)，不随基因位数变化 */
+    private static final int NODE_BITS = 10;
 
-    /** 支持的最大机器id，结果是31 */
-    private final long maxWorkerId = -1L ^ (-1L << workerIdBits);
+    /** 序列 + 基因 共享的位数 */
+    private static final int SEQUENCE_AND_GENE_BITS = 12;
 
-    /** 支持的最大数据标识id，结果是31 */
-    private final long maxDatacenterId = -1L ^ (-1L << datacenterIdBits);
+    /** 默认基因位数 (4 个分片，与历史数据保持一致) */
+    public static final int DEFAULT_GENE_BITS = 2;
 
-    /** 序列在id中占的位数 */
-    private final long sequenceBits = 12L;
+    /** 数据中心id 在机器标识中的偏移 (机器标识 = datacenterId << 5 | workerId) */
+    private static final long WORKER_ID_BITS = 5L;
 
-    /** 机器ID向左移12位 */
-    private final long workerIdShift = sequenceBits;
+    /** 机器标识向左移12位，与历史布局一致 */
+    private static final long NODE_SHIFT = SEQUENCE_AND_GENE_BITS;
 
-    /** 数据标识id向左移17位(12+5) */
-    private final long datacenterIdShift = sequenceBits + workerIdBits;
+    /** 时间截向左移22位 (10 + 12) */
+    private static final long TIMESTAMP_LEFT_SHIFT = NODE_BITS + SEQUENCE_AND_GENE_BITS;
 
-    /** 时间截向左移22位(5+5+12) */
-    private final long timestampLeftShift = sequenceBits + workerIdBits + datacenterIdBits;
+    /** 基因位数 (最低位) */
+    private final int geneBits;
 
-    /** 生成序列的掩码，这里为4095 */
-    private final long sequenceMask = -1L ^ (-1L << sequenceBits);
+    /** 序列位数 = 12 - 基因位数 (基因为 2 位时每毫秒 1024 个，与历史上“序列步长为 4”生成的 ID 逐位相同) */
+    private final long sequenceBits;
 
-    /** 工作机器ID(0~31) */
-    private long workerId;
+    /** 生成序列的掩码 */
+    private final long sequenceMask;
 
-    /** 数据中心ID(0~31) */
-    private long datacenterId;
+    /** 机器标识 */
+    private final long nodeId;
 
-    /** 毫秒内序列(0~4095) */
-    private long sequence = 0L;
+    /**
+     * 打包状态：高位 = 上次生成 ID 的时间戳 (相对 twepoch)，低 sequenceBits 位 = 毫秒内序列
+     * 初始为 -1，保证第一次生成时一定视为“新的一毫秒”
+     */
+    private final AtomicLong state = new AtomicLong(-1L);
 
-    /** 上次生成ID的时间截 */
-    private long lastTimestamp = -1L;
+    /**
+     * 机器标识租约的截止时间 (绝对毫秒)，超过后拒绝发号，防止租约丢失后与新持有者撞号
+     * 默认不限制 (静态配置机器标识时)
+     */
+    private volatile long leaseDeadline = Long.MAX_VALUE;
 
     // 单例模式
-    private static SnowflakeIdWorker idWorker;
+    private static volatile SnowflakeIdWorker idWorker;
 
     static {
-        // 这里的参数可以从配置中读取，目前先写死
+        // 默认参数，服务启动后由配置覆盖 (见 configure)
         idWorker = new SnowflakeIdWorker(1, 1);
     }
 
@@ -63,105 +69,131 @@ public class SnowflakeIdWorker {
         return idWorker;
     }
 
+    /**
+     * 按配置替换全局实例 (服务启动时调用一次)
+     */
+    public static void configure(long workerId, long datacenterId, int geneBits) {
+        idWorker = new SnowflakeIdWorker(workerId, datacenterId, geneBits);
+    }
+
+    /**
+     * 按租到的机器标识替换全局实例，租约生效前不会被其它线程看到
+     */
+    public static void configure(long workerId, long datacenterId, int geneBits, long leaseDeadline) {
+        SnowflakeIdWorker worker = new SnowflakeIdWorker(workerId, datacenterId, geneBits);
+        worker.leaseDeadline = leaseDeadline;
+        idWorker = worker;
+    }
+
     public SnowflakeIdWorker(long workerId, long datacenterId) {
+        this(workerId, datacenterId, DEFAULT_GENE_BITS);
+    }
+
+    /**
+     * ID 布局: 1 位符号 | 41 位时间戳 | 10 位机器标识 | (12 - geneBits) 位序列 | geneBits 位基因
+     * 机器标识的位置与位数不随基因位数变化：滚动发布 / 调整基因位数期间，新旧节点只要机器标识不同就不会撞号
+     */
+    public SnowflakeIdWorker(long workerId, long datacenterId, int geneBits) {
+        if (geneBits < 0 || geneBits > OrderGene.MAX_GENE_BITS) {
+            throw new IllegalArgumentException(String.format("gene bits must be between 0 and %d", OrderGene.MAX_GENE_BITS));
+        }
+        long maxWorkerId = -1L ^ (-1L << WORKER_ID_BITS);
         if (workerId > maxWorkerId || workerId < 0) {
             throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", maxWorkerId));
         }
+        long maxDatacenterId = -1L ^ (-1L << (NODE_BITS - WORKER_ID_BITS));
         if (datacenterId > maxDatacenterId || datacenterId < 0) {
             throw new IllegalArgumentException(String.format("datacenter Id can't be greater than %d or less than 0", maxDatacenterId));
         }
-        this.workerId = workerId;
-        this.datacenterId = datacenterId;
+        this.geneBits = geneBits;
+        this.sequenceBits = SEQUENCE_AND_GENE_BITS - geneBits;
+        this.sequenceMask = -1L ^ (-1L << sequenceBits);
+        this.nodeId = (datacenterId << WORKER_ID_BITS) | workerId;
     }
 
-    /**
-     * 获得下一个ID (不带基因，普通ID)
-     * @return SnowflakeId
-     */
-    public synchronized long nextId() {
-        long timestamp = timeGen();
-
-        // 如果当前时间小于上一次ID生成的时间戳，说明系统时钟回退过
-        if (timestamp < lastTimestamp) {
-            throw new RuntimeException(String.format("Clock moved backwards. Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
-        }
-
-        // 如果是同一时间生成的，则进行毫秒内序列
-        if (lastTimestamp == timestamp) {
-            sequence = (sequence + 1) & sequenceMask;
-            // 毫秒内序列溢出
-            if (sequence == 0) {
-                // 阻塞到下一个毫秒,获得新的时间戳
-                timestamp = tilNextMillis(lastTimestamp);
-            }
-        } else {
-            // 时间戳改变，毫秒内序列重置
-            sequence = 0L;
-        }
-
-        lastTimestamp = timestamp;
+    public int getGeneBits() {
+        return geneBits;
+    }
 
-        // 移位并通过或运算拼到一起组成64位的ID
-        return ((timestamp - twepoch) << timestampLeftShift) //
-                | (datacenterId << datacenterIdShift) //
-                | (workerId << workerIdShift) //
-                | sequence;
+    public long getNodeId() {
+        return nodeId;
     }
 
     /**
-     * 【核心方法】生成带有用户基因的 ID
-     * 规则：OrderId % 4 == UserId % 4
-     * 实现：将 UserId 的最后 2 bit 强行覆盖到 Sequence 的最后 2 bit
-     * 前提：分片数为 4 (2的2次方)
+     * 续约成功后推后截止时间
      */
+    public void renewLease(long deadline) {
+        this.leaseDeadline = deadline;
+    }
+
     /**
-     * 【已修复】生成带有用户基因的 ID
-     * 解决重复问题：sequence 自增步长改为 4，预留低位空间
+     * 立即停止发号 (租约释放 / 确认丢失)
      */
-    public synchronized long nextId(Long userId) {
-        long timestamp = timeGen();
+    public void revokeLease() {
+        this.leaseDeadline = Long.MIN_VALUE;
+    }
 
-        // 1. 时钟回拨检查
-        if (timestamp < lastTimestamp) {
-            throw new RuntimeException(String.format("Clock moved backwards. Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
-        }
+    /**
+     * 从 ID 中解析生成时间 (毫秒)，与机器标识 / 基因位数无关
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_LEFT_SHIFT) + TWEPOCH;
+    }
 
-        // 2. 序列号生成逻辑 (核心修改点)
-        if (lastTimestamp == timestamp) {
-            // 【关键】步长改为 4！(二进制 100)，保证最后 2 位永远是 00
-            // 这样 0, 4, 8, 12... 对应的二进制结尾都是 00
-            sequence = (sequence + 4) & sequenceMask;
+    /**
+     * 获得下一个ID (不带基因，普通ID，基因位为 0)
+     * @return SnowflakeId
+     */
+    public long nextId() {
+        return nextId(0L);
+    }
 
-            // 溢出处理 (因为步长是4，可能还没到0就溢出了，比如 4092 + 4 = 4096 -> 0)
-            if (sequence == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
+    /**
+     * 【核心方法】生成带有用户基因的 ID
+     * 规则：OrderGene.shardOf(orderId, n) == OrderGene.shardOf(userId, n)，n <= 2^geneBits
+     * 实现：userId 的低 geneBits 位直接作为 ID 的最低位，序列号让出这几位 (每毫秒 2^(12 - geneBits) 个)
+     */
+    public long nextId(Long userId) {
+        long gene = OrderGene.geneOf(userId, geneBits);
+        while (true) {
+            // 先读状态再取时间：状态里的时间戳一定是其它线程在此之前读到的，
+            // 所以 timestamp < lastTimestamp 只可能是真实的时钟回拨，而不是线程间的先后竞争
+            long current = state.get();
+            long now = timeGen();
+            if (now >= leaseDeadline) {
+                throw new IllegalStateException(String.format("Worker id lease of node %d expired, refusing to generate id", nodeId));
             }
-        } else {
-            sequence = 0L;
-        }
+            long timestamp = now - twepoch;
+            long lastTimestamp = current >> sequenceBits;
 
-        lastTimestamp = timestamp;
+            // 1. 时钟回拨检查
+            if (timestamp < lastTimestamp) {
+                throw new RuntimeException(String.format("Clock moved backwards. Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
+            }
 
-        // 3. 组装 ID
-        // 注意：sequence 现在的结尾肯定是 00，所以直接与 (userId % 4) 做或运算即可
-        return ((timestamp - twepoch) << timestampLeftShift)
-                | (datacenterId << datacenterIdShift)
-                | (workerId << workerIdShift)
-                | sequence  // 这一步生成的 ID，最后2位一定是 00
-                | (userId % 4); // 填入最后 2 位 (00 | 01 = 01)
-    }
+            // 2. 毫秒内序列
+            long next;
+            if (timestamp == lastTimestamp) {
+                if ((current & sequenceMask) == sequenceMask) {
+                    // 毫秒内序列溢出，让出 CPU 直到下一个毫秒后重试
+                    // (不用 onSpinWait 空转：虚拟线程下空转会占住载体线程，yield 会把载体让给其它虚拟线程)
+                    Thread.yield();
+                    continue;
+                }
+                next = current + 1;
+            } else {
+                // 时间戳改变，毫秒内序列重置
+                next = timestamp << sequenceBits;
+            }
 
-    /**
-     * 阻塞到下一个毫秒，直到获得新的时间戳
-     * @param lastTimestamp 上次生成ID的时间截
-     * @return 当前时间戳
-     */
-    protected long tilNextMillis(long lastTimestamp) {
-        long timestamp = timeGen();
-        while (timestamp <= lastTimestamp) {
-            timestamp = timeGen();
+            // 3. CAS 推进状态，失败说明被其它线程抢先，重新读取
+            if (state.compareAndSet(current, next)) {
+                return (timestamp << TIMESTAMP_LEFT_SHIFT)
+                        | (nodeId << NODE_SHIFT)
+                        | ((next & sequenceMask) << geneBits)
+                        | gene;
+            }
         }
-        return timestamp;
     }
 
     /**
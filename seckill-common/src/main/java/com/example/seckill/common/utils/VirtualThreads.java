@@ -0,0 +1,83 @@
+package com.example.seckill.common.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程入口 (JDK 21+)
+ * 工程按 Java 17 编译，不能直接引用 Thread.ofVirtual()，这里在运行时反射取得；
+ * 运行在 17 (或未开启 preview 的 19/20) 上时 {@link #isSupported()} 返回 false，调用方退回平台线程
+ *
+ * 使用注意 (JDK 21)：
+ * 1. synchronized 块内做阻塞 I/O 会把虚拟线程钉在载体线程上 (pinning)，载体数 = CPU 核数，钉满即全局停顿，
+ *    业务代码中持锁调用 Redis / MQ 的地方一律使用 ReentrantLock
+ * 2. ThreadLocal (UserContext / TableContext / DataSourceContext) 随虚拟线程创建、随请求结束清理，可以照常使用，
+ *    但不要再用 ThreadLocal 缓存“昂贵对象”，每个请求一个虚拟线程，缓存不会被复用
+ */
+public final class VirtualThreads {
+
+    // Thread.ofVirtual() -> Thread.Builder.OfVirtual
+    private static final Method OF_VIRTUAL;
+    // Thread.Builder#name(String prefix, long start)
+    private static final Method BUILDER_NAME;
+    // Thread.Builder#factory()
+    private static final Method BUILDER_FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            // 19/20 上该 API 属于 preview，未开启时调用即抛 UnsupportedOperationException
+            ofVirtual.invoke(null);
+        } catch (Throwable e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+    }
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 虚拟线程工厂，线程名为 prefix + 序号
+     */
+    public static ThreadFactory newThreadFactory(String prefix) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21+, running on " + Runtime.version());
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, prefix, 0L);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread factory", e);
+        }
+    }
+
+    /**
+     * 每个任务一个虚拟线程 (等价于 Executors.newVirtualThreadPerTaskExecutor，但线程带名字，便于排查)
+     * 不限制并发，需要限流的调用方自己加 Semaphore
+     */
+    public static ExecutorService newPerTaskExecutor(String prefix) {
+        ThreadFactory factory = newThreadFactory(prefix);
+        try {
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+}
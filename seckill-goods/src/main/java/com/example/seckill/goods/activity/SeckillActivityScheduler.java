@@ -0,0 +1,73 @@
+package com.example.seckill.goods.activity;
+
+import com.example.seckill.goods.service.SeckillActivityService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 秒杀活动库存生命周期调度
+ * 每轮先回收已结束活动的剩余库存，再批量预热 N 分钟内开始的活动 (同一 SKU 前后两场活动相邻时，先回收才能预热，
+ * 回收在活动结束 drain-delay-ms 之后进行，两场之间至少留出这段间隔)。
+ * 多个商品节点同时调度时靠 warm_status 的条件更新互斥，抢输的节点整批回滚
+ */
+@Slf4j
+@Component
+public class SeckillActivityScheduler {
+
+    @Autowired
+    private SeckillActivityService seckillActivityService;
+
+    @Value("${app.seckill.activity.schedule-enabled:true}")
+    private boolean enabled;
+
+    // 调度间隔 (ms)
+    @Value("${app.seckill.activity.schedule-ms:10000}")
+    private long scheduleMillis;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seckill-activity-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::tick, scheduleMillis, scheduleMillis, TimeUnit.MILLISECONDS);
+        log.info(">>> [秒杀活动] 库存生命周期调度已启动. intervalMs={}", scheduleMillis);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 一轮调度 (也供运营后台手动触发)
+     */
+    public void tick() {
+        try {
+            seckillActivityService.drainEnded();
+        } catch (Exception e) {
+            log.error(">>> [秒杀活动] 回收已结束活动失败，下一轮重试", e);
+        }
+        try {
+            seckillActivityService.prewarmUpcoming();
+        } catch (Exception e) {
+            log.error(">>> [秒杀活动] 预热即将开始的活动失败，下一轮重试", e);
+        }
+    }
+}
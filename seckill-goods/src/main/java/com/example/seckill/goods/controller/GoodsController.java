@@ -144,11 +144,13 @@ public class GoodsController {
     }
 
     // 原有预热接口
+    // 【新增】segments 参数：热点商品可拆成多段库存，默认 1 段 (单 Key)
     @GetMapping("/prewarm/{skuId}")
-    public Result preWarmStock(@PathVariable Long skuId) {
+    public Result preWarmStock(@PathVariable Long skuId,
+                               @RequestParam(defaultValue = "1") int segments) {
         // ... (保持原有调用逻辑)
         try {
-            boolean success = goodsService.preWarmStock(skuId);
+            boolean success = goodsService.preWarmStock(skuId, segments);
             if (success) {
                 return Result.success("库存预热成功 (DB->Redis)");
             } else {
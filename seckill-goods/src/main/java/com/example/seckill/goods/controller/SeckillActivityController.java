@@ -0,0 +1,87 @@
+package com.example.seckill.goods.controller;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.seckill.common.result.Result;
+import com.example.seckill.goods.activity.SeckillActivityScheduler;
+import com.example.seckill.goods.entity.SeckillActivity;
+import com.example.seckill.goods.service.SeckillActivityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 秒杀活动管理 (运营后台)
+ * 活动上线 / 下线后自动重新发布 Redis 活动目录，订单服务据此校验价格、时间窗口与限购
+ */
+@RestController
+@RequestMapping("/seckill/activity")
+public class SeckillActivityController {
+
+    @Autowired
+    private SeckillActivityService seckillActivityService;
+
+    @Autowired
+    private SeckillActivityScheduler seckillActivityScheduler;
+
+    /**
+     * 新建活动 (下线状态)
+     * POST /seckill/activity/save
+     */
+    @PostMapping("/save")
+    public Result<SeckillActivity> save(@RequestBody SeckillActivity activity) {
+        try {
+            return Result.success(seckillActivityService.createActivity(activity));
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 上线 / 下线
+     * POST /seckill/activity/status/{id}/{status}
+     */
+    @PostMapping("/status/{id}/{status}")
+    public Result<String> updateStatus(@PathVariable Long id, @PathVariable Integer status) {
+        try {
+            seckillActivityService.updateStatus(id, status);
+            return Result.success(status == 1 ? "活动已上线" : "活动已下线");
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 手动重新发布活动目录 (Redis 数据丢失后恢复)
+     * POST /seckill/activity/publish
+     */
+    @PostMapping("/publish")
+    public Result<String> publish() {
+        long version = seckillActivityService.publishCatalog();
+        return Result.success("活动目录已发布, version=" + version);
+    }
+
+    /**
+     * 手动触发一轮库存调度 (回收已结束活动 + 预热即将开始的活动)，不必等下一次定时调度
+     * POST /seckill/activity/schedule
+     */
+    @PostMapping("/schedule")
+    public Result<String> schedule() {
+        seckillActivityScheduler.tick();
+        return Result.success("库存调度已执行");
+    }
+
+    /**
+     * 查询某个商品的活动
+     * GET /seckill/activity/list?skuId=
+     */
+    @GetMapping("/list")
+    public Result<List<SeckillActivity>> list(@RequestParam(value = "skuId", required = false) Long skuId) {
+        LambdaQueryWrapper<SeckillActivity> query = new LambdaQueryWrapper<>();
+        if (skuId != null) {
+            query.eq(SeckillActivity::getSkuId, skuId);
+        }
+        query.orderByDesc(SeckillActivity::getStartTime).last("LIMIT 100");
+        return Result.success(seckillActivityService.list(query));
+    }
+}
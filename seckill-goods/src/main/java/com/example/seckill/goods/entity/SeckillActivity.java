@@ -0,0 +1,45 @@
+package com.example.seckill.goods.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 秒杀活动 (一个活动对应一个 SKU)
+ * 同一 SKU 的上线活动时间段不允许重叠；上线 / 下线后整体发布到 Redis 活动目录
+ * 库存生命周期由 SeckillActivityScheduler 推进：开始前 N 分钟预热到 Redis (warm_status 0 -> 1)，结束后回收 (1 -> 2)
+ *
+ * CREATE TABLE sms_seckill_activity (
+ *   id BIGINT PRIMARY KEY AUTO_INCREMENT, activity_name VARCHAR(128), sku_id BIGINT NOT NULL,
+ *   seckill_price BIGINT NOT NULL, start_time DATETIME NOT NULL, end_time DATETIME NOT NULL,
+ *   per_user_limit INT NOT NULL DEFAULT 1, stock INT NOT NULL, status TINYINT NOT NULL DEFAULT 0,
+ *   warm_status TINYINT NOT NULL DEFAULT 0, create_time DATETIME,
+ *   KEY idx_sku (sku_id), KEY idx_status_end (status, end_time), KEY idx_warm_start (warm_status, start_time)
+ * );
+ */
+@Data
+@TableName("sms_seckill_activity")
+public class SeckillActivity implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    private String activityName;
+    private Long skuId;
+    // 秒杀价 (与下单消息的 orderPrice 同一口径)
+    private Long seckillPrice;
+    private Date startTime;
+    private Date endTime;
+    // 每人限购件数
+    private Integer perUserLimit;
+    // 活动库存 (预热时写入 Redis 的数量)
+    private Integer stock;
+    // 0 = 下线, 1 = 上线
+    private Integer status;
+    // 库存状态：0 = 未预热, 1 = 已预热 (库存在 Redis), 2 = 已回收 (剩余库存已回补 DB)
+    private Integer warmStatus;
+    private Date createTime;
+}
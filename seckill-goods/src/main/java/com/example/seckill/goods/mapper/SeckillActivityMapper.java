@@ -0,0 +1,9 @@
+package com.example.seckill.goods.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.seckill.goods.entity.SeckillActivity;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface SeckillActivityMapper extends BaseMapper<SeckillActivity> {
+}
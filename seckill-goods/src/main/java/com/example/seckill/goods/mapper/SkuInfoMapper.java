@@ -9,6 +9,7 @@ import org.apache.ibatis.annotations.Update;
 import org.springframework.web.bind.annotation.RequestBody;
 
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface SkuInfoMapper extends BaseMapper<SkuInfo> {
@@ -24,4 +25,23 @@ public interface SkuInfoMapper extends BaseMapper<SkuInfo> {
     int reduceStock(@Param("skuId") Long skuId, @Param("count") Integer count);
 
     int reduceStockBatch(@Param("items") List<CartItem> items);
+
+    /**
+     * 数据库原子回补库存 (秒杀结束回收 Redis 剩余库存)
+     * 不能先查再 updateById：两步之间的其它扣减会被覆盖
+     */
+    @Update("UPDATE pms_sku_info SET stock = stock + #{count} WHERE sku_id = #{skuId}")
+    int addStock(@Param("skuId") Long skuId, @Param("count") Integer count);
+
+    /**
+     * 批量扣减 (活动预热，一条 UPDATE)：任一 SKU 库存不足时该行不更新，调用方按影响行数判断
+     * @param deltas skuId -> 扣减数量
+     */
+    int reduceStockByMap(@Param("deltas") Map<Long, Integer> deltas);
+
+    /**
+     * 批量回补 (活动结束，一条 UPDATE)
+     * @param deltas skuId -> 回补数量
+     */
+    int addStockByMap(@Param("deltas") Map<Long, Integer> deltas);
 }
\ No newline at end of file
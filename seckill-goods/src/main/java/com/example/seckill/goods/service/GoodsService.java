@@ -7,6 +7,7 @@ import com.example.seckill.common.entity.SpuInfo;
 import com.example.seckill.common.vo.GoodsDetailVO;
 
 import java.util.List;
+import java.util.Map;
 
 // seckill-goods/src/main/java/com/example/seckill/goods/service/GoodsService.java
 public interface GoodsService extends IService<SpuInfo> {
@@ -56,10 +57,39 @@ public interface GoodsService extends IService<SpuInfo> {
      */
     boolean preWarmStock(Long skuId);
 
+    /**
+     * [新增] 分段库存预热
+     * 热点商品把库存拆成 segments 段写入 Redis，每段落在不同的 Cluster slot，分散单 Key 压力
+     * @param skuId 商品ID
+     * @param segments 分段数 (1 = 单 Key 模式)
+     * @return true 成功
+     */
+    boolean preWarmStock(Long skuId, int segments);
+
     /**
      * [新增] 秒杀结束后，将 Redis 剩余库存回补到数据库
      * @param skuId 商品ID
      * @return 成功与否
      */
     boolean syncStockBack(Long skuId);
+
+    /**
+     * 活动回收第一步：把一批 SKU 的库存 Key 改名为该场活动的暂存 Key 并读出剩余库存 (单 Key / 分段统一处理)
+     * 暂存 Key 在回补 DB 提交后由 {@link #clearStagedRedisStock} 删除；回补失败时留在 Redis，下一轮重试直接读出
+     * @param activities skuId -> activityId
+     * @return skuId -> 剩余库存，既没有库存 Key 也没有暂存 Key 的 SKU 不出现在结果中
+     */
+    Map<Long, Integer> stageRedisStock(Map<Long, Long> activities);
+
+    /**
+     * 活动回收最后一步：回补 DB 提交后删除暂存 Key 与段数记录
+     * @param activities skuId -> activityId
+     */
+    void clearStagedRedisStock(Map<Long, Long> activities);
+
+    /**
+     * 批量写入单 Key 模式的秒杀库存并广播补货 (Pipeline)，调用方负责先扣减 DB 库存
+     * @param stocks skuId -> 库存
+     */
+    void writeRedisStock(Map<Long, Integer> stocks, long ttlSeconds);
 }
\ No newline at end of file
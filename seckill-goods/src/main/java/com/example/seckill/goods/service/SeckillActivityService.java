@@ -0,0 +1,42 @@
+package com.example.seckill.goods.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.seckill.goods.entity.SeckillActivity;
+
+/**
+ * 秒杀活动管理：活动的唯一数据源在商品库，订单服务只读 Redis 中发布的活动目录
+ */
+public interface SeckillActivityService extends IService<SeckillActivity> {
+
+    /**
+     * 新建活动 (默认下线状态，上线后才对订单服务可见)
+     * @throws IllegalArgumentException 参数非法 / SKU 不存在
+     */
+    SeckillActivity createActivity(SeckillActivity activity);
+
+    /**
+     * 修改上线状态并重新发布活动目录
+     * @param status 0 = 下线, 1 = 上线
+     * @throws IllegalArgumentException 活动不存在 / 与同 SKU 的其它上线活动时间重叠
+     */
+    void updateStatus(Long activityId, Integer status);
+
+    /**
+     * 把所有上线且未结束的活动整体发布到 Redis 活动目录，并通知订单服务刷新
+     * @return 新的目录版本号
+     */
+    long publishCatalog();
+
+    /**
+     * 批量预热即将开始的上线活动：一条 UPDATE 扣减全部 SKU 的 DB 库存，事务提交后一次 Pipeline 写入 Redis
+     * 同一 SKU 上一场活动尚未回收时本轮跳过，等回收后再预热
+     * @return 本轮预热的活动数
+     */
+    int prewarmUpcoming();
+
+    /**
+     * 批量回收结束超过 drain-delay-ms 的活动：Redis 剩余库存原子改名为暂存 Key，一条 UPDATE 回补 DB，提交后删除暂存 Key
+     * @return 本轮回收的活动数
+     */
+    int drainEnded();
+}
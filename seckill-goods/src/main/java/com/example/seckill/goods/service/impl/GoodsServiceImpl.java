@@ -8,6 +8,7 @@ import com.example.seckill.common.entity.SkuInfo;
 import com.example.seckill.common.entity.SkuSaleAttrValue;
 import com.example.seckill.common.entity.SpuInfo;
 import com.example.seckill.common.utils.RedisUtil;
+import com.example.seckill.common.utils.SeckillRedisKeys;
 import com.example.seckill.common.vo.CartItem;
 import com.example.seckill.goods.dto.SkuSaleAttrDTO;
 import com.example.seckill.goods.dto.SkuSaveDTO;
@@ -20,6 +21,9 @@ import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -468,9 +472,40 @@ public class GoodsServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implem
     }
     @Autowired
     private RedisUtil redisUtil;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 活动回收时库存 Key -> 暂存 Key 的原子改名
+    private static final DefaultRedisScript<Long> STAGE_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        STAGE_SCRIPT.setResultType(Long.class);
+        STAGE_SCRIPT.setLocation(new ClassPathResource("seckill_stock_stage.lua"));
+    }
+
+    // 暂存 Key 的过期时间 (秒)，回补 DB 一直失败时留给人工核对
+    private static final long STAGED_STOCK_TTL_SECONDS = 7 * 86400;
+
+    // 手动回收 (syncStockBack) 暂存 Key 使用的场次号
+    private static final long MANUAL_DRAIN_ACTIVITY = 0L;
+
+    // 分段库存允许的最大段数
+    @Value("${app.seckill.stock.max-segments:64}")
+    private int maxStockSegments;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean preWarmStock(Long skuId) {
+        return preWarmStock(skuId, 1);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean preWarmStock(Long skuId, int segments) {
+        if (segments < 1 || segments > maxStockSegments) {
+            throw new IllegalArgumentException("库存分段数必须在 1~" + maxStockSegments + " 之间");
+        }
         // 1. 从数据库查询最新的 SKU 信息
         SkuInfo skuInfo = skuInfoMapper.selectById(skuId);
         if (skuInfo == null) {
@@ -484,13 +519,24 @@ public class GoodsServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implem
             return false;
         }
 
-        // Key 格式必须与 Lua 脚本和 Order 服务保持绝对一致
-        String key = "seckill:stock:" + skuId;
+        // Key 格式必须与 Lua 脚本和 Order 服务保持绝对一致 (统一由 SeckillRedisKeys 生成，自带 Redis Cluster Hash Tag)
+        // 段数为 1 时沿用单 Key；否则把库存尽量均匀地拆到 N 个分段 Key 上
+        Map<String, String> stockEntries = new LinkedHashMap<>();
+        if (segments == 1) {
+            stockEntries.put(SeckillRedisKeys.stockKey(skuId), String.valueOf(dbStock));
+        } else {
+            int base = dbStock / segments;
+            int remainder = dbStock % segments;
+            for (int i = 0; i < segments; i++) {
+                int segmentStock = base + (i < remainder ? 1 : 0);
+                stockEntries.put(SeckillRedisKeys.stockSegmentKey(skuId, i), String.valueOf(segmentStock));
+            }
+            stockEntries.put(SeckillRedisKeys.stockSegmentCountKey(skuId), String.valueOf(segments));
+        }
 
         // 3. 先扣减数据库库存 (逻辑上的"锁定"到 Redis)
-        // 这里直接设为 0，代表全部库存都托管给了 Redis
-        skuInfo.setStock(0);
-        int rows = skuInfoMapper.updateById(skuInfo);
+        // 全部库存都托管给 Redis；条件扣减而不是 updateById(stock=0)，查询之后库存被其它交易改过时扣减失败并回滚
+        int rows = skuInfoMapper.reduceStock(skuId, dbStock);
 
         if (rows <= 0) {
             // 极端情况：更新失败，抛出异常回滚，此时还没写 Redis，绝对安全
@@ -502,9 +548,15 @@ public class GoodsServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implem
             @Override
             public void afterCommit() {
                 try {
-                    // 事务提交后写入 Redis (设置过期时间 24小时)
-                    redisUtil.set(key, String.valueOf(dbStock), 86400);
-                    log.info(">>> [事务提交后] 商品 {} 库存预热完成。DB库存已清零，Redis Key: {}， 数量: {}", skuId, key, dbStock);
+                    if (segments == 1) {
+                        // 单 Key 模式：清理可能残留的段数记录，避免订单服务误走分段逻辑
+                        redisUtil.del(SeckillRedisKeys.stockSegmentCountKey(skuId));
+                    }
+                    // 事务提交后写入 Redis (设置过期时间 24小时)，多个分段一次 Pipeline 写完
+                    redisUtil.setAllPipelined(stockEntries, 86400);
+                    log.info(">>> [事务提交后] 商品 {} 库存预热完成。DB库存已清零，分段数: {}， 数量: {}", skuId, segments, dbStock);
+                    // 通知所有订单节点清除本地售罄标记 (频道与 order 服务 SoldOutBroadcaster 保持一致)
+                    redisUtil.publish(SeckillRedisKeys.stockChannel(), SeckillRedisKeys.RESTOCK_PREFIX + skuId);
                 } catch (Exception e) {
                     log.error(">>> [致命异常] 商品 {} 预热写入 Redis 失败，库存已从 DB 扣除但未进入缓存，需人工补偿！数量: {}", skuId, dbStock, e);
                 }
@@ -517,30 +569,118 @@ public class GoodsServiceImpl extends ServiceImpl<SpuInfoMapper, SpuInfo> implem
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean syncStockBack(Long skuId) {
-        String key = "seckill:stock:" + skuId;
-
-        // 1. 获取 Redis 中剩余的库存
-        Object valObj = redisUtil.get(key);
-        if (valObj == null) {
+        // 1. 库存 Key 原子改名为暂存 Key (手动回收不关联活动，场次记为 0)，之后到达的扣减会因 Key 不存在而失败
+        //    回补失败整体回滚时暂存 Key 留在 Redis，下次调用直接读出重试，库存不会丢
+        Map<Long, Long> staged = Map.of(skuId, MANUAL_DRAIN_ACTIVITY);
+        Integer remainingStock = stageRedisStock(staged).get(skuId);
+        if (remainingStock == null) {
             log.info(">>> 商品 {} Redis 库存 Key 不存在，无需回补", skuId);
             return true;
         }
-
-        int remainingStock = Integer.parseInt(valObj.toString());
         log.info(">>> 商品 {} 活动结束，Redis 剩余库存: {}", skuId, remainingStock);
 
-        // 2. 回补到数据库
+        // 2. 原子回补到数据库 (stock = stock + ?)
         if (remainingStock > 0) {
-            SkuInfo skuInfo = skuInfoMapper.selectById(skuId);
-            if (skuInfo != null) {
-                skuInfo.setStock(skuInfo.getStock() + remainingStock);
-                skuInfoMapper.updateById(skuInfo);
-                log.info(">>> 商品 {} 数据库库存回补成功，当前 DB 库存: {}", skuId, skuInfo.getStock());
+            try {
+                skuInfoMapper.addStock(skuId, remainingStock);
+            } catch (Exception e) {
+                log.error(">>> 商品 {} 回补 DB 失败，剩余库存保留在暂存 Key，重新调用即可重试. 数量: {}", skuId, remainingStock, e);
+                throw e;
             }
+            log.info(">>> 商品 {} 数据库库存回补成功，回补数量: {}", skuId, remainingStock);
         }
 
-        // 3. 删除 Redis Key (防止脏数据)
-        redisUtil.del(key);
+        // 3. 提交后删除暂存 Key
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    clearStagedRedisStock(staged);
+                } catch (Exception e) {
+                    // 场次固定为 0，残留的暂存 Key 会被下次手动回收再次回补
+                    log.error(">>> [致命异常] 商品 {} 库存已回补 DB 但暂存 Key 删除失败，需人工删除后再手动回收！", skuId, e);
+                }
+            }
+        });
         return true;
     }
-}
\ No newline at end of file
+
+    @Override
+    public Map<Long, Integer> stageRedisStock(Map<Long, Long> activities) {
+        Map<Long, Integer> remaining = new LinkedHashMap<>();
+        Map<Long, List<String>> stockKeys = stockKeysOf(activities.keySet());
+        String ttl = String.valueOf(STAGED_STOCK_TTL_SECONDS);
+        stockKeys.forEach((skuId, keys) -> {
+            long activityId = activities.get(skuId);
+            for (String key : keys) {
+                // 库存 Key 与暂存 Key 同一 Hash Tag，逐段执行 (不同段在不同槽)
+                Long staged = stringRedisTemplate.execute(STAGE_SCRIPT,
+                        List.of(key, SeckillRedisKeys.stockDrainKey(key, activityId)), ttl);
+                if (staged != null && staged >= 0) {
+                    remaining.merge(skuId, staged.intValue(), Integer::sum);
+                }
+            }
+        });
+        return remaining;
+    }
+
+    @Override
+    public void clearStagedRedisStock(Map<Long, Long> activities) {
+        List<String> keys = new ArrayList<>();
+        stockKeysOf(activities.keySet()).forEach((skuId, stockKeys) -> {
+            long activityId = activities.get(skuId);
+            for (String key : stockKeys) {
+                keys.add(SeckillRedisKeys.stockDrainKey(key, activityId));
+            }
+            keys.add(SeckillRedisKeys.stockSegmentCountKey(skuId));
+        });
+        redisUtil.del(keys);
+    }
+
+    /**
+     * 一次 Pipeline 读出各 SKU 的段数，展开为全部库存 Key (单 Key 或全部分段)
+     */
+    private Map<Long, List<String>> stockKeysOf(Collection<Long> skuIds) {
+        List<Long> skuList = new ArrayList<>(skuIds);
+        List<String> segmentCountKeys = new ArrayList<>(skuList.size());
+        for (Long skuId : skuList) {
+            segmentCountKeys.add(SeckillRedisKeys.stockSegmentCountKey(skuId));
+        }
+        List<String> segmentVals = redisUtil.getAllPipelined(segmentCountKeys);
+        Map<Long, List<String>> keys = new LinkedHashMap<>();
+        for (int i = 0; i < skuList.size(); i++) {
+            Long skuId = skuList.get(i);
+            String segmentVal = segmentVals.get(i);
+            int segments = segmentVal == null ? 1 : Integer.parseInt(segmentVal);
+            List<String> skuKeys = new ArrayList<>(segments);
+            if (segments <= 1) {
+                skuKeys.add(SeckillRedisKeys.stockKey(skuId));
+            } else {
+                for (int seg = 0; seg < segments; seg++) {
+                    skuKeys.add(SeckillRedisKeys.stockSegmentKey(skuId, seg));
+                }
+            }
+            keys.put(skuId, skuKeys);
+        }
+        return keys;
+    }
+
+    @Override
+    public void writeRedisStock(Map<Long, Integer> stocks, long ttlSeconds) {
+        if (stocks.isEmpty()) {
+            return;
+        }
+        Map<String, String> entries = new LinkedHashMap<>();
+        List<String> segmentCountKeys = new ArrayList<>(stocks.size());
+        List<String> restocks = new ArrayList<>(stocks.size());
+        stocks.forEach((skuId, stock) -> {
+            entries.put(SeckillRedisKeys.stockKey(skuId), String.valueOf(stock));
+            segmentCountKeys.add(SeckillRedisKeys.stockSegmentCountKey(skuId));
+            restocks.add(SeckillRedisKeys.RESTOCK_PREFIX + skuId);
+        });
+        // 单 Key 模式：清理可能残留的段数记录；写库存、发补货广播各一次 Pipeline
+        redisUtil.del(segmentCountKeys);
+        redisUtil.setAllPipelined(entries, ttlSeconds);
+        redisUtil.publishAllPipelined(SeckillRedisKeys.stockChannel(), restocks);
+    }
+}
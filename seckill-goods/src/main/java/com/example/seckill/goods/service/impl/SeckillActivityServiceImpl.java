@@ -0,0 +1,339 @@
+package com.example.seckill.goods.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.seckill.common.dto.SeckillActivityDTO;
+import com.example.seckill.common.entity.SkuInfo;
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import com.example.seckill.goods.entity.SeckillActivity;
+import com.example.seckill.goods.mapper.SeckillActivityMapper;
+import com.example.seckill.goods.mapper.SkuInfoMapper;
+import com.example.seckill.goods.service.GoodsService;
+import com.example.seckill.goods.service.SeckillActivityService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class SeckillActivityServiceImpl extends ServiceImpl<SeckillActivityMapper, SeckillActivity> implements SeckillActivityService {
+
+    @Autowired
+    private SkuInfoMapper skuInfoMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private GoodsService goodsService;
+
+    // 活动开始前多少分钟预热库存
+    @Value("${app.seckill.activity.prewarm-lead-minutes:10}")
+    private long prewarmLeadMinutes;
+
+    // 活动结束多久之后回收库存 (ms)：需覆盖订单服务的超时关单窗口 (见 validateDrainDelay)，窗口内的关单归还仍回到 Redis、随回收一起回补 DB
+    @Value("${app.seckill.activity.drain-delay-ms:420000}")
+    private long drainDelayMillis;
+
+    // 订单服务的超时关单参数 (与订单服务 app.seckill.timeout 保持一致，只用于校验回收延迟)
+    @Value("${app.seckill.timeout.close-after-ms:10000}")
+    private long closeAfterMillis;
+
+    @Value("${app.seckill.timeout.orphan-grace-ms:300000}")
+    private long orphanGraceMillis;
+
+    @Value("${app.seckill.timeout.retry-delay-ms:30000}")
+    private long retryDelayMillis;
+
+    // 回收前给支付状态未知的订单留出的关单重试次数
+    @Value("${app.seckill.activity.drain-retry-budget:3}")
+    private int drainRetryBudget;
+
+    /**
+     * 活动最后一刻下的单：close-after-ms 后到期，持有节点宕机时再过 orphan-grace-ms 由其它节点接管，
+     * 支付状态未知时每 retry-delay-ms 重试一次。回收必须晚于这些关单，否则归还的库存回不到 DB
+     */
+    @PostConstruct
+    public void validateDrainDelay() {
+        long closeWindow = closeAfterMillis + orphanGraceMillis + retryDelayMillis * drainRetryBudget;
+        if (drainDelayMillis < closeWindow) {
+            throw new IllegalStateException("app.seckill.activity.drain-delay-ms (" + drainDelayMillis
+                    + ") 必须不小于 close-after-ms + orphan-grace-ms + retry-delay-ms × drain-retry-budget (" + closeWindow + ")");
+        }
+    }
+
+    // 单轮最多处理的活动数 (一条 UPDATE 的 CASE 分支数)
+    @Value("${app.seckill.activity.batch-size:1000}")
+    private int batchSize;
+
+    @Override
+    public SeckillActivity createActivity(SeckillActivity activity) {
+        if (activity.getSkuId() == null || activity.getStartTime() == null || activity.getEndTime() == null) {
+            throw new IllegalArgumentException("商品与活动时间不能为空");
+        }
+        if (!activity.getEndTime().after(activity.getStartTime())) {
+            throw new IllegalArgumentException("结束时间必须晚于开始时间");
+        }
+        if (activity.getSeckillPrice() == null || activity.getSeckillPrice() <= 0) {
+            throw new IllegalArgumentException("秒杀价必须大于 0");
+        }
+        if (activity.getStock() == null || activity.getStock() <= 0) {
+            throw new IllegalArgumentException("活动库存必须大于 0");
+        }
+        if (activity.getPerUserLimit() == null || activity.getPerUserLimit() <= 0) {
+            activity.setPerUserLimit(1);
+        }
+        SkuInfo skuInfo = skuInfoMapper.selectById(activity.getSkuId());
+        if (skuInfo == null) {
+            throw new IllegalArgumentException("商品不存在: " + activity.getSkuId());
+        }
+        activity.setId(null);
+        activity.setStatus(0);
+        activity.setWarmStatus(0);
+        activity.setCreateTime(new Date());
+        save(activity);
+        return activity;
+    }
+
+    @Override
+    public void updateStatus(Long activityId, Integer status) {
+        SeckillActivity activity = getById(activityId);
+        if (activity == null) {
+            throw new IllegalArgumentException("活动不存在: " + activityId);
+        }
+        if (Integer.valueOf(1).equals(status)) {
+            // 同一 SKU 同一时刻只能有一个上线活动 (订单服务在同一 SKU 的活动中按当前时间选取，时间窗口不能重叠)
+            long overlapping = count(new LambdaQueryWrapper<SeckillActivity>()
+                    .eq(SeckillActivity::getSkuId, activity.getSkuId())
+                    .eq(SeckillActivity::getStatus, 1)
+                    .ne(SeckillActivity::getId, activityId)
+                    .lt(SeckillActivity::getStartTime, activity.getEndTime())
+                    .gt(SeckillActivity::getEndTime, activity.getStartTime()));
+            if (overlapping > 0) {
+                throw new IllegalArgumentException("该商品已有时间重叠的上线活动");
+            }
+        }
+        activity.setStatus(status);
+        updateById(activity);
+        publishCatalog();
+    }
+
+    /**
+     * 目录整体替换：DEL + HSET + INCR 版本号在同一个 MULTI 中执行 (目录与版本号同槽)，提交后再 PUBLISH 通知，
+     * 订单节点不会读到“删了一半”的目录
+     * field 为 activityId：同一 SKU 的当前场次与后续场次都发布，由订单节点按时间选取，不会互相覆盖
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public long publishCatalog() {
+        List<SeckillActivity> activities = list(new LambdaQueryWrapper<SeckillActivity>()
+                .eq(SeckillActivity::getStatus, 1)
+                .gt(SeckillActivity::getEndTime, new Date()));
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (SeckillActivity activity : activities) {
+            try {
+                entries.put(String.valueOf(activity.getId()), objectMapper.writeValueAsString(toDTO(activity)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("活动序列化失败: " + activity.getId(), e);
+            }
+        }
+
+        List<Object> results = stringRedisTemplate.execute(new SessionCallback<List<Object>>() {
+            @Override
+            public <K, V> List<Object> execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.multi();
+                ops.delete(SeckillRedisKeys.activityCatalogKey());
+                if (!entries.isEmpty()) {
+                    ops.opsForHash().putAll(SeckillRedisKeys.activityCatalogKey(), entries);
+                }
+                ops.opsForValue().increment(SeckillRedisKeys.activityCatalogVersionKey());
+                return ops.exec();
+            }
+        });
+        // exec 结果依次为 DEL, [HSET], INCR
+        long version = results == null || results.isEmpty() ? -1 : ((Number) results.get(results.size() - 1)).longValue();
+        stringRedisTemplate.convertAndSend(SeckillRedisKeys.activityChannel(), String.valueOf(version));
+        log.info(">>> [秒杀活动] 活动目录已发布. version={}, activities={}", version, entries.size());
+        return version;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int prewarmUpcoming() {
+        Date now = new Date();
+        List<SeckillActivity> upcoming = list(new LambdaQueryWrapper<SeckillActivity>()
+                .eq(SeckillActivity::getStatus, 1)
+                .eq(SeckillActivity::getWarmStatus, 0)
+                .le(SeckillActivity::getStartTime, new Date(now.getTime() + TimeUnit.MINUTES.toMillis(prewarmLeadMinutes)))
+                .gt(SeckillActivity::getEndTime, now)
+                .orderByAsc(SeckillActivity::getStartTime)
+                .last("LIMIT " + batchSize));
+        if (upcoming.isEmpty()) {
+            return 0;
+        }
+
+        // 1. 一次查询取回所有 SKU 的 DB 库存，以及仍占着 Redis 库存 Key 的上一场活动
+        Set<Long> skuIds = upcoming.stream().map(SeckillActivity::getSkuId).collect(Collectors.toSet());
+        Map<Long, Integer> dbStocks = new HashMap<>();
+        for (SkuInfo skuInfo : skuInfoMapper.selectList(new LambdaQueryWrapper<SkuInfo>().in(SkuInfo::getSkuId, skuIds))) {
+            dbStocks.put(skuInfo.getSkuId(), skuInfo.getStock() == null ? 0 : skuInfo.getStock());
+        }
+        Set<Long> busySkus = list(new LambdaQueryWrapper<SeckillActivity>()
+                .select(SeckillActivity::getSkuId)
+                .in(SeckillActivity::getSkuId, skuIds)
+                .eq(SeckillActivity::getWarmStatus, 1))
+                .stream().map(SeckillActivity::getSkuId).collect(Collectors.toSet());
+
+        List<Long> activityIds = new ArrayList<>();
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        long latestEnd = now.getTime();
+        for (SeckillActivity activity : upcoming) {
+            Long skuId = activity.getSkuId();
+            if (busySkus.contains(skuId) || deltas.containsKey(skuId)) {
+                log.info(">>> [秒杀活动] 商品 {} 上一场活动库存尚未回收，活动 {} 延后预热", skuId, activity.getId());
+                continue;
+            }
+            int dbStock = dbStocks.getOrDefault(skuId, 0);
+            if (dbStock < activity.getStock()) {
+                log.warn(">>> [秒杀活动] 活动 {} 预热跳过：商品 {} DB 库存不足. 需要={}, 现有={}", activity.getId(), skuId, activity.getStock(), dbStock);
+                continue;
+            }
+            activityIds.add(activity.getId());
+            deltas.put(skuId, activity.getStock());
+            latestEnd = Math.max(latestEnd, activity.getEndTime().getTime());
+        }
+        if (activityIds.isEmpty()) {
+            return 0;
+        }
+
+        // 2. 先抢占状态 0 -> 1 (多节点同时调度时只有一个能全部更新成功，其余回滚)，再一条 UPDATE 扣减 DB 库存
+        int claimed = baseMapper.update(null, new LambdaUpdateWrapper<SeckillActivity>()
+                .set(SeckillActivity::getWarmStatus, 1)
+                .in(SeckillActivity::getId, activityIds)
+                .eq(SeckillActivity::getWarmStatus, 0));
+        if (claimed != activityIds.size()) {
+            throw new IllegalStateException("活动预热状态已被其它节点修改，本轮回滚");
+        }
+        int rows = skuInfoMapper.reduceStockByMap(deltas);
+        if (rows != deltas.size()) {
+            // 查询之后库存被其它交易扣减，条件不满足的行未更新：整体回滚，下一轮重新计算
+            throw new IllegalStateException("预热扣减 DB 库存失败，期望 " + deltas.size() + " 行，实际 " + rows + " 行");
+        }
+
+        // 3. 事务提交后一次 Pipeline 写入 Redis 并广播补货，TTL 覆盖到本批最晚结束的活动之后一天
+        long ttlSeconds = TimeUnit.MILLISECONDS.toSeconds(latestEnd - now.getTime()) + 86400;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    long start = System.nanoTime();
+                    goodsService.writeRedisStock(deltas, ttlSeconds);
+                    log.info(">>> [秒杀活动] 批量预热完成. activities={}, skus={}, redisCost={}ms",
+                            activityIds.size(), deltas.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                } catch (Exception e) {
+                    log.error(">>> [致命异常] 活动预热写入 Redis 失败，库存已从 DB 扣除但未进入缓存，需人工补偿！activities={}, deltas={}",
+                            activityIds, deltas, e);
+                }
+            }
+        });
+        return activityIds.size();
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int drainEnded() {
+        List<SeckillActivity> ended = list(new LambdaQueryWrapper<SeckillActivity>()
+                .eq(SeckillActivity::getWarmStatus, 1)
+                .le(SeckillActivity::getEndTime, new Date(System.currentTimeMillis() - drainDelayMillis))
+                .last("LIMIT " + batchSize));
+        if (ended.isEmpty()) {
+            return 0;
+        }
+        List<Long> activityIds = ended.stream().map(SeckillActivity::getId).collect(Collectors.toList());
+        // 同一 SKU 同时只有一场已预热的活动
+        Map<Long, Long> activityBySku = ended.stream()
+                .collect(Collectors.toMap(SeckillActivity::getSkuId, SeckillActivity::getId, (a, b) -> a, LinkedHashMap::new));
+
+        // 1. 先抢占状态 1 -> 2，保证剩余库存只被一个节点取走
+        int claimed = baseMapper.update(null, new LambdaUpdateWrapper<SeckillActivity>()
+                .set(SeckillActivity::getWarmStatus, 2)
+                .in(SeckillActivity::getId, activityIds)
+                .eq(SeckillActivity::getWarmStatus, 1));
+        if (claimed != activityIds.size()) {
+            throw new IllegalStateException("活动回收状态已被其它节点修改，本轮回滚");
+        }
+
+        // 2. 库存 Key 原子改名为本场的暂存 Key (之后到达的扣减因 Key 不存在而失败，关单归还不再回补)，再一条 UPDATE 回补
+        //    暂存 Key 提交后才删除：回补失败整体回滚，状态回到 1，下一轮重新读出暂存库存，不会丢
+        Map<Long, Integer> remaining = goodsService.stageRedisStock(activityBySku);
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        remaining.forEach((skuId, stock) -> {
+            if (stock > 0) {
+                deltas.put(skuId, stock);
+            }
+        });
+        if (!deltas.isEmpty()) {
+            try {
+                skuInfoMapper.addStockByMap(deltas);
+            } catch (Exception e) {
+                log.error(">>> [秒杀活动] 回补 DB 失败，剩余库存保留在暂存 Key，下一轮重试. activities={}, deltas={}", activityIds, deltas, e);
+                throw e;
+            }
+        }
+        log.info(">>> [秒杀活动] 批量回收完成. activities={}, 回补={}", activityIds.size(), deltas);
+
+        // 3. 提交后删除暂存 Key，并重新发布活动目录，订单服务尽快摘掉已结束的活动
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    goodsService.clearStagedRedisStock(activityBySku);
+                } catch (Exception e) {
+                    // 暂存 Key 带 activityId 与过期时间，残留不影响下一场活动
+                    log.warn(">>> [秒杀活动] 删除暂存库存 Key 失败，等待过期. activities={}", activityIds, e);
+                }
+                publishCatalog();
+            }
+        });
+        return activityIds.size();
+    }
+
+    private static SeckillActivityDTO toDTO(SeckillActivity activity) {
+        SeckillActivityDTO dto = new SeckillActivityDTO();
+        dto.setActivityId(activity.getId());
+        dto.setSkuId(activity.getSkuId());
+        dto.setSeckillPrice(activity.getSeckillPrice());
+        dto.setStartTime(activity.getStartTime().getTime());
+        dto.setEndTime(activity.getEndTime().getTime());
+        dto.setPerUserLimit(activity.getPerUserLimit());
+        dto.setStock(activity.getStock());
+        return dto;
+    }
+}
@@ -0,0 +1,21 @@
+-- 活动回收第一步：把库存 Key 原子改名为本场活动的暂存 Key (同一 Hash Tag，同槽)，剩余库存在回补 DB 提交前不会离开 Redis
+-- KEYS[1]: 库存 Key (单 Key 或某一段), KEYS[2]: 暂存 Key
+-- ARGV[1]: 暂存 Key 过期时间 (秒)
+-- 返回: 暂存 Key 中的库存 (上一轮回补失败时已改过名，直接读出；分段超卖回退成负数时按 0)，两个 Key 都不存在返回 -1
+
+if (redis.call('exists', KEYS[1]) == 1) then
+    if (redis.call('exists', KEYS[2]) == 1) then
+        -- 上一轮改名后库存 Key 又被写回 (只可能是关单归还前的同一场库存)，合并
+        redis.call('incrby', KEYS[2], tonumber(redis.call('get', KEYS[1])))
+        redis.call('del', KEYS[1])
+    else
+        redis.call('rename', KEYS[1], KEYS[2])
+    end
+    redis.call('expire', KEYS[2], tonumber(ARGV[1]))
+end
+
+local staged = redis.call('get', KEYS[2])
+if (staged == false) then
+    return -1
+end
+return math.max(0, tonumber(staged))
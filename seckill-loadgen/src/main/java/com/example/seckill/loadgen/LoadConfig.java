@@ -0,0 +1,128 @@
+package com.example.seckill.loadgen;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测参数 (命令行 --key=value)
+ */
+@Getter
+public class LoadConfig {
+
+    static final String USAGE = String.join("\n",
+            "用法: java -jar loadgen.jar [--key=value ...]",
+            "  --target=http://localhost:8077        网关地址",
+            "  --path=/seckill/do_seckill            下单接口 (异步票据: /seckill/do_seckill_async)",
+            "  --sku-ids=1001                         商品ID，多个用逗号分隔，按请求序号轮转",
+            "  --users=10000                          虚拟用户数，每个用户一个独立 Token",
+            "  --user-id-start=1000000                虚拟用户ID 起点",
+            "  --jwt-secret=...                       与网关 seckill.jwt.secret 一致 (也可用环境变量 SECKILL_JWT_SECRET)",
+            "  --phases=ramp:10s:0->1000,steady:30s:1000,spike:5s:5000,steady:15s:1000",
+            "                                         阶段 name:duration:rps 或 name:duration:from->to",
+            "  --timeout-ms=5000                      单请求超时",
+            "  --max-in-flight=20000                  压测机在途请求上限，超出的请求记为 dropped",
+            "  --out=loadgen-report                   报告目录 (report.json / report.html / *.hgrm)",
+            "  --label=local                          本次压测标识 (如 git 提交号)，写入报告",
+            "  --baseline=old/report.json             对比基线报告，输出各分位数的变化");
+
+    private String target = "http://localhost:8077";
+    private String path = "/seckill/do_seckill";
+    private List<Long> skuIds = List.of(1001L);
+    private int users = 10_000;
+    private long userIdStart = 1_000_000L;
+    private String jwtSecret = System.getenv("SECKILL_JWT_SECRET");
+    private long jwtExpirationMs = 86_400_000L;
+    private List<Phase> phases = parsePhases("ramp:10s:0->1000,steady:30s:1000,spike:5s:5000,steady:15s:1000");
+    private long timeoutMs = 5000;
+    private long connectTimeoutMs = 2000;
+    private int maxInFlight = 20_000;
+    private String out = "loadgen-report";
+    private String label = "local";
+    private String baseline;
+
+    public static LoadConfig parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("无法识别的参数: " + arg + "\n" + USAGE);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+
+        LoadConfig config = new LoadConfig();
+        for (Map.Entry<String, String> e : options.entrySet()) {
+            String v = e.getValue();
+            switch (e.getKey()) {
+                case "target" -> config.target = v.endsWith("/") ? v.substring(0, v.length() - 1) : v;
+                case "path" -> config.path = v.startsWith("/") ? v : "/" + v;
+                case "sku-ids" -> config.skuIds = parseLongs(v);
+                case "users" -> config.users = Integer.parseInt(v);
+                case "user-id-start" -> config.userIdStart = Long.parseLong(v);
+                case "jwt-secret" -> config.jwtSecret = v;
+                case "jwt-expiration-ms" -> config.jwtExpirationMs = Long.parseLong(v);
+                case "phases" -> config.phases = parsePhases(v);
+                case "timeout-ms" -> config.timeoutMs = Long.parseLong(v);
+                case "connect-timeout-ms" -> config.connectTimeoutMs = Long.parseLong(v);
+                case "max-in-flight" -> config.maxInFlight = Integer.parseInt(v);
+                case "out" -> config.out = v;
+                case "label" -> config.label = v;
+                case "baseline" -> config.baseline = v;
+                default -> throw new IllegalArgumentException("未知参数: --" + e.getKey() + "\n" + USAGE);
+            }
+        }
+        if (config.jwtSecret == null || config.jwtSecret.isEmpty()) {
+            throw new IllegalArgumentException("缺少 --jwt-secret (或环境变量 SECKILL_JWT_SECRET)\n" + USAGE);
+        }
+        if (config.users <= 0 || config.skuIds.isEmpty()) {
+            throw new IllegalArgumentException("users / sku-ids 不能为空\n" + USAGE);
+        }
+        return config;
+    }
+
+    private static List<Phase> parsePhases(String spec) {
+        List<Phase> phases = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            if (!part.isBlank()) {
+                phases.add(Phase.parse(part));
+            }
+        }
+        if (phases.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个压测阶段");
+        }
+        return phases;
+    }
+
+    private static List<Long> parseLongs(String csv) {
+        List<Long> values = new ArrayList<>();
+        for (String part : csv.split(",")) {
+            if (!part.isBlank()) {
+                values.add(Long.parseLong(part.trim()));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 写入报告的参数快照 (不含密钥)
+     */
+    public Map<String, Object> toReportMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("target", target + path);
+        map.put("skuIds", skuIds);
+        map.put("users", users);
+        map.put("userIdStart", userIdStart);
+        List<String> phaseSpecs = new ArrayList<>();
+        for (Phase phase : phases) {
+            phaseSpecs.add(phase.toString());
+        }
+        map.put("phases", phaseSpecs);
+        map.put("timeoutMs", timeoutMs);
+        map.put("maxInFlight", maxInFlight);
+        return map;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.seckill.loadgen;
+
+import com.example.seckill.common.utils.JwtUtil;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 秒杀开环压测 (Open-Loop, 恒定到达率)
+ *
+ * 与原 SeckillBenchmarkController (固定线程池 + 单一 Token + 毫秒计时 + 排序 List 算分位) 的区别：
+ * 1. 开环：请求按计划时刻发出，不等前一个返回；服务端变慢时不会自动降低压力，从而暴露真实尾延迟
+ * 2. 延迟从计划发出时刻算起 (修正协调遗漏)，用 HdrHistogram 记录，µs 精度
+ * 3. 每个虚拟用户一个独立 JWT (JwtUtil 签发)，重复购买 / 限购逻辑按真实用户分布触发
+ * 4. 多阶段：爬坡 / 稳态 / 尖峰，分阶段输出成功 / 售罄 / 重复 / 拒绝 / 错误计数
+ * 5. 报告输出 JSON + HTML + hgrm，可用 --baseline 对比两次构建
+ *
+ * 单线程调度 + JDK HttpClient 异步发送 (Java 17，不依赖虚拟线程)
+ */
+public class LoadGenerator {
+
+    private final LoadConfig config;
+    private final HttpClient httpClient;
+    private final ExecutorService callbackExecutor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // 在途请求 (序号 -> 计划时刻)，压测结束时仍未返回的请求据此计入响应时间；回调与放弃以 remove 成功者为准，只记一次
+    private final Map<Long, InFlightRequest> pending = new ConcurrentHashMap<>();
+    private String[] authHeaders;
+
+    private record InFlightRequest(PhaseStats stats, long intended) {
+    }
+
+    public LoadGenerator(LoadConfig config) {
+        this.config = config;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.callbackExecutor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "loadgen-http-" + threadIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()))
+                .executor(callbackExecutor)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if ("--help".equals(arg) || "-h".equals(arg)) {
+                System.out.println(LoadConfig.USAGE);
+                return;
+            }
+        }
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        Path report = new LoadGenerator(config).run();
+        System.out.println(">>> [压测] 报告已生成: " + report.toAbsolutePath());
+    }
+
+    public Path run() throws Exception {
+        issueTokens();
+
+        List<PhaseStats> allStats = new ArrayList<>();
+        for (Phase phase : config.getPhases()) {
+            allStats.add(new PhaseStats(phase));
+        }
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "loadgen-progress");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long sequence = 0;
+        // 预留 200ms 让调度线程就绪，第一个请求不至于一开始就滞后
+        long phaseStart = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        try {
+            for (PhaseStats stats : allStats) {
+                Phase phase = stats.getPhase();
+                long total = phase.totalRequests();
+                stats.markStart(phaseStart);
+                System.out.printf(">>> [压测] 阶段开始 %s，计划请求 %d%n", phase, total);
+                var task = progress.scheduleAtFixedRate(() -> printProgress(stats), 1, 1, TimeUnit.SECONDS);
+
+                for (long i = 0; i < total; i++) {
+                    long intended = phaseStart + phase.offsetNanos(i);
+                    waitUntil(intended);
+                    fire(stats, sequence++, intended);
+                }
+                phaseStart += TimeUnit.MILLISECONDS.toNanos(phase.getDurationMs());
+                // 阶段内请求发完但时长未到 (取整误差)，等到阶段结束再进入下一阶段
+                waitUntil(phaseStart);
+                task.cancel(false);
+                printProgress(stats);
+            }
+            awaitDrain();
+        } finally {
+            progress.shutdownNow();
+        }
+
+        Path report = new ReportWriter().write(config, allStats);
+        callbackExecutor.shutdown();
+        return report;
+    }
+
+    /**
+     * 为每个虚拟用户签发独立 Token (与网关共用密钥，网关解析后透传 X-User-Id)
+     */
+    private void issueTokens() {
+        JwtUtil jwtUtil = new JwtUtil(config.getJwtSecret(), config.getJwtExpirationMs());
+        authHeaders = new String[config.getUsers()];
+        long start = System.nanoTime();
+        for (int i = 0; i < authHeaders.length; i++) {
+            authHeaders[i] = "Bearer " + jwtUtil.createToken(config.getUserIdStart() + i);
+        }
+        System.out.printf(">>> [压测] 已签发 %d 个用户 Token，耗时 %d ms%n",
+                authHeaders.length, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void fire(PhaseStats stats, long sequence, long intended) {
+        if (inFlight.get() >= config.getMaxInFlight()) {
+            stats.onDropped(TimeUnit.MILLISECONDS.toNanos(config.getTimeoutMs()));
+            return;
+        }
+        String auth = authHeaders[(int) (sequence % authHeaders.length)];
+        long skuId = config.getSkuIds().get((int) (sequence % config.getSkuIds().size()));
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(config.getTarget() + config.getPath()))
+                .timeout(Duration.ofMillis(config.getTimeoutMs()))
+                .header("Content-Type", "application/json")
+                .header("Authorization", auth)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"skuId\":\"" + skuId + "\"}"))
+                .build();
+
+        inFlight.incrementAndGet();
+        pending.put(sequence, new InFlightRequest(stats, intended));
+        long sent = System.nanoTime();
+        stats.onScheduled(sent - intended);
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, e) -> {
+                    long done = System.nanoTime();
+                    if (pending.remove(sequence) != null) {
+                        Outcome outcome = e != null ? Outcome.ERROR : Outcome.classify(response.statusCode(), response.body());
+                        stats.onComplete(outcome, intended, sent, done);
+                    }
+                    inFlight.decrementAndGet();
+                });
+    }
+
+    /**
+     * 精确等到计划时刻：远的 park，近的自旋 (park 的唤醒误差在 50µs 量级)
+     */
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > 200_000) {
+                LockSupport.parkNanos(remaining - 100_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * 所有阶段发完后等待在途请求返回 (最多一个请求超时 + 1s)，仍未返回的按放弃时刻计入响应时间
+     */
+    private void awaitDrain() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getTimeoutMs() + 1000);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        long abandon = System.nanoTime();
+        int abandoned = 0;
+        for (Long sequence : pending.keySet()) {
+            InFlightRequest request = pending.remove(sequence);
+            if (request != null) {
+                request.stats().onUnfinished(request.intended(), abandon);
+                abandoned++;
+            }
+        }
+        if (abandoned > 0) {
+            System.out.printf(">>> [压测] 仍有 %d 个请求未返回，按超时计入响应时间 (unfinished)%n", abandoned);
+        }
+    }
+
+    private void printProgress(PhaseStats stats) {
+        System.out.printf(">>> [压测] %s 已发出=%d 已完成=%d 在途=%d 成功=%d 售罄=%d 错误=%d dropped=%d%n",
+                stats.getPhase().getName(), stats.getScheduled(), stats.getCompleted(), inFlight.get(),
+                stats.count(Outcome.SUCCESS), stats.count(Outcome.SOLD_OUT), stats.count(Outcome.ERROR),
+                stats.getDropped());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.seckill.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 单个请求的结果分类 (按 Result.code / message 判定)
+ * 注意：逐单事务消息路径把库存不足和重复购买都返回 "抢购失败"，这里归到 SOLD_OUT
+ */
+public enum Outcome {
+
+    /** code == 200，拿到订单号 / 票据 */
+    SUCCESS,
+    /** 本地售罄标记拦截或 Redis 库存不足 */
+    SOLD_OUT,
+    /** 同一用户重复购买 / 超出限购 */
+    DUPLICATE,
+    /** 其它业务失败 (系统繁忙、活动未开始、被限流等) */
+    REJECTED,
+    /** HTTP 非 200、超时、连接失败、响应无法解析 */
+    ERROR;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static Outcome classify(int httpStatus, String body) {
+        if (httpStatus != 200 || body == null || body.isEmpty()) {
+            return ERROR;
+        }
+        try {
+            JsonNode root = MAPPER.readTree(body);
+            if (root.path("code").asInt() == 200) {
+                return SUCCESS;
+            }
+            String message = root.path("message").asText("");
+            if (message.contains("售罄") || message.contains("库存不足") || message.contains("抢购失败")) {
+                return SOLD_OUT;
+            }
+            if (message.contains("重复") || message.contains("已购买") || message.contains("限购")) {
+                return DUPLICATE;
+            }
+            return REJECTED;
+        } catch (Exception e) {
+            return ERROR;
+        }
+    }
+}
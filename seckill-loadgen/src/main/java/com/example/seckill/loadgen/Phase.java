@@ -0,0 +1,97 @@
+package com.example.seckill.loadgen;
+
+import lombok.Getter;
+
+/**
+ * 压测阶段：在 durationMs 内把到达率从 startRps 线性变化到 endRps
+ * startRps == endRps 即恒定速率 (steady / spike)，不等即爬坡 (ramp)
+ *
+ * 开环调度：第 i 个请求的计划发出时刻只由到达率决定，与前面的请求是否返回无关
+ * 到达率 r(t) = a + k*t，累计请求数 N(t) = a*t + k*t^2/2，第 i 个请求在 N(t) = i 时发出
+ */
+@Getter
+public class Phase {
+
+    private final String name;
+    private final long durationMs;
+    private final double startRps;
+    private final double endRps;
+
+    public Phase(String name, long durationMs, double startRps, double endRps) {
+        if (durationMs <= 0) {
+            throw new IllegalArgumentException("阶段时长必须大于 0: " + name);
+        }
+        if (startRps < 0 || endRps < 0 || startRps + endRps == 0) {
+            throw new IllegalArgumentException("阶段到达率非法: " + name);
+        }
+        this.name = name;
+        this.durationMs = durationMs;
+        this.startRps = startRps;
+        this.endRps = endRps;
+    }
+
+    /**
+     * 解析 "name:duration:rps" 或 "name:duration:startRps->endRps"
+     * duration 支持 ms / s / m 后缀，例如 ramp:30s:0->2000、steady:60s:2000、spike:10s:10000
+     */
+    public static Phase parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("阶段格式应为 name:duration:rps 或 name:duration:from->to，实际: " + spec);
+        }
+        long durationMs = parseDurationMs(parts[1]);
+        String rate = parts[2];
+        int arrow = rate.indexOf("->");
+        if (arrow < 0) {
+            double rps = Double.parseDouble(rate);
+            return new Phase(parts[0], durationMs, rps, rps);
+        }
+        return new Phase(parts[0], durationMs,
+                Double.parseDouble(rate.substring(0, arrow)), Double.parseDouble(rate.substring(arrow + 2)));
+    }
+
+    static long parseDurationMs(String text) {
+        String s = text.trim().toLowerCase();
+        if (s.endsWith("ms")) {
+            return Long.parseLong(s.substring(0, s.length() - 2));
+        }
+        if (s.endsWith("s")) {
+            return Math.round(Double.parseDouble(s.substring(0, s.length() - 1)) * 1000);
+        }
+        if (s.endsWith("m")) {
+            return Math.round(Double.parseDouble(s.substring(0, s.length() - 1)) * 60_000);
+        }
+        return Long.parseLong(s);
+    }
+
+    /**
+     * 本阶段计划发出的请求总数
+     */
+    public long totalRequests() {
+        return (long) Math.floor((startRps + endRps) / 2 * durationMs / 1000.0);
+    }
+
+    /**
+     * 第 i 个请求 (从 0 开始) 相对阶段开始的计划发出时刻 (ns)
+     */
+    public long offsetNanos(long i) {
+        double seconds = durationMs / 1000.0;
+        double k = (endRps - startRps) / seconds;
+        double t;
+        if (Math.abs(k) < 1e-9) {
+            t = i / startRps;
+        } else {
+            // 解 k/2 * t^2 + a*t - i = 0 取正根
+            double disc = startRps * startRps + 2 * k * i;
+            t = (-startRps + Math.sqrt(Math.max(disc, 0))) / k;
+        }
+        return (long) (Math.min(t, seconds) * 1_000_000_000L);
+    }
+
+    @Override
+    public String toString() {
+        return startRps == endRps
+                ? String.format("%s:%dms:%.0f", name, durationMs, startRps)
+                : String.format("%s:%dms:%.0f->%.0f", name, durationMs, startRps, endRps);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.seckill.loadgen;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个阶段的统计 (由 HTTP 回调线程并发写入)
+ *
+ * responseTime：从“计划发出时刻”算起，修正协调遗漏 (Coordinated Omission) ——
+ *               服务端卡顿导致请求晚发出时，排队等待的时间也计入延迟
+ * serviceTime ：从“实际发出时刻”算起，即传统压测工具看到的延迟，两者对比可以看出压测机自身是否跟不上
+ *
+ * 没有拿到响应的请求同样计入 responseTime，否则最慢的那部分请求恰好从分位数中消失：
+ * 在途上限丢弃的请求按一次请求超时记录，压测结束时仍未返回的请求按“计划时刻至放弃时刻”记录
+ */
+public class PhaseStats {
+
+    // 单位 µs，最大 5 分钟，3 位有效数字
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Phase phase;
+    private final Histogram responseTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder unfinished = new LongAdder();
+    // 实际发出相对计划时刻的最大滞后 (压测机调度能力)
+    private volatile long maxSendLagNanos;
+
+    private volatile long startNanos;
+    private final LongAccumulator lastDoneNanos = new LongAccumulator(Long::max, Long.MIN_VALUE);
+
+    public PhaseStats(Phase phase) {
+        this.phase = phase;
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+    }
+
+    void markStart(long nanos) {
+        startNanos = nanos;
+    }
+
+    void onScheduled(long sendLagNanos) {
+        scheduled.increment();
+        if (sendLagNanos > maxSendLagNanos) {
+            // 只由调度线程写入，无需 CAS
+            maxSendLagNanos = sendLagNanos;
+        }
+    }
+
+    /**
+     * 压测机在途请求已达上限，本请求未发出 (说明压测机成了瓶颈，结果不可信)，按超时计入响应时间
+     */
+    void onDropped(long timeoutNanos) {
+        dropped.increment();
+        responseTime.recordValue(clamp(timeoutNanos / 1000));
+    }
+
+    /**
+     * 压测结束时仍未返回 (放弃等待)，响应时间至少为计划时刻到放弃时刻
+     */
+    void onUnfinished(long intendedNanos, long abandonNanos) {
+        unfinished.increment();
+        responseTime.recordValue(clamp((abandonNanos - intendedNanos) / 1000));
+    }
+
+    void onComplete(Outcome outcome, long intendedNanos, long sentNanos, long doneNanos) {
+        outcomes.get(outcome).increment();
+        lastDoneNanos.accumulate(doneNanos);
+        responseTime.recordValue(clamp((doneNanos - intendedNanos) / 1000));
+        serviceTime.recordValue(clamp((doneNanos - sentNanos) / 1000));
+    }
+
+    private static long clamp(long micros) {
+        return Math.max(0, Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public Histogram getResponseTime() {
+        return responseTime;
+    }
+
+    public Histogram getServiceTime() {
+        return serviceTime;
+    }
+
+    public long count(Outcome outcome) {
+        return outcomes.get(outcome).sum();
+    }
+
+    public long getScheduled() {
+        return scheduled.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getUnfinished() {
+        return unfinished.sum();
+    }
+
+    public long getCompleted() {
+        long total = 0;
+        for (LongAdder adder : outcomes.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    public long getMaxSendLagNanos() {
+        return maxSendLagNanos;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * 本阶段最后一个请求返回的时刻，尚无返回时为 Long.MIN_VALUE
+     */
+    public long getLastDoneNanos() {
+        return lastDoneNanos.get();
+    }
+
+    /**
+     * 阶段实际耗时 (从第一个请求计划时刻到最后一个请求返回)
+     */
+    public long getElapsedNanos() {
+        long lastDone = lastDoneNanos.get();
+        return lastDone == Long.MIN_VALUE ? 1 : Math.max(lastDone - startNanos, 1);
+    }
+}
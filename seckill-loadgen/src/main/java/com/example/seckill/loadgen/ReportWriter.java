@@ -0,0 +1,324 @@
+package com.example.seckill.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测报告：report.json (机器可读，键名稳定，便于跨版本 diff)、report.html (自包含，无外部脚本)、
+ * 每个阶段一份 HdrHistogram 百分位分布 (*.hgrm，可直接喂给 HdrHistogram 官方绘图页)
+ */
+public class ReportWriter {
+
+    // 分布曲线采样点 (百分位)
+    private static final double[] PERCENTILES = {0, 50, 75, 90, 95, 99, 99.5, 99.9, 99.95, 99.99, 99.999, 100};
+
+    // 与基线对比的指标：{报告字段, 展示名, 越小越好}
+    private static final String[][] COMPARED = {
+            {"achievedRps", "吞吐 (rps)", "false"},
+            {"p50", "P50 (ms)", "true"},
+            {"p90", "P90 (ms)", "true"},
+            {"p99", "P99 (ms)", "true"},
+            {"p999", "P99.9 (ms)", "true"},
+            {"max", "Max (ms)", "true"},
+    };
+
+    private static final String[] COLORS = {"#1f77b4", "#ff7f0e", "#2ca02c", "#d62728", "#9467bd", "#8c564b", "#e377c2", "#7f7f7f"};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public Path write(LoadConfig config, List<PhaseStats> phases) throws IOException {
+        Path dir = Path.of(config.getOut());
+        Files.createDirectories(dir);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", config.getLabel());
+        report.put("generatedAt", OffsetDateTime.now().toString());
+        report.put("config", config.toReportMap());
+
+        List<Map<String, Object>> phaseSummaries = new ArrayList<>();
+        Histogram totalResponse = new Histogram(3);
+        Histogram totalService = new Histogram(3);
+        Map<Outcome, Long> totalOutcomes = new LinkedHashMap<>();
+        long totalScheduled = 0;
+        long totalDropped = 0;
+        long totalUnfinished = 0;
+        long lastDone = Long.MIN_VALUE;
+        for (int i = 0; i < phases.size(); i++) {
+            PhaseStats stats = phases.get(i);
+            Map<Outcome, Long> outcomes = new LinkedHashMap<>();
+            for (Outcome outcome : Outcome.values()) {
+                outcomes.put(outcome, stats.count(outcome));
+                totalOutcomes.merge(outcome, stats.count(outcome), Long::sum);
+            }
+            Map<String, Object> summary = summarize(stats.getPhase().getName(), stats.getPhase().toString(),
+                    stats.getScheduled(), stats.getDropped(), stats.getUnfinished(), outcomes, stats.getElapsedNanos(),
+                    stats.getResponseTime(), stats.getServiceTime());
+            summary.put("maxSendLagMs", stats.getMaxSendLagNanos() / 1_000_000.0);
+            phaseSummaries.add(summary);
+
+            totalResponse.add(stats.getResponseTime());
+            totalService.add(stats.getServiceTime());
+            totalScheduled += stats.getScheduled();
+            totalDropped += stats.getDropped();
+            totalUnfinished += stats.getUnfinished();
+            lastDone = Math.max(lastDone, stats.getLastDoneNanos());
+            writeHgrm(dir.resolve(String.format("%02d-%s.hgrm", i, stats.getPhase().getName())), stats.getResponseTime());
+        }
+        report.put("phases", phaseSummaries);
+        long totalElapsed = phases.isEmpty() || lastDone == Long.MIN_VALUE
+                ? 1 : Math.max(lastDone - phases.get(0).getStartNanos(), 1);
+        report.put("total", summarize("total", "all phases", totalScheduled, totalDropped, totalUnfinished, totalOutcomes,
+                totalElapsed, totalResponse, totalService));
+
+        if (config.getBaseline() != null) {
+            report.put("baseline", compare(mapper.readTree(Path.of(config.getBaseline()).toFile()), report));
+        }
+
+        Path json = dir.resolve("report.json");
+        mapper.writerWithDefaultPrettyPrinter().writeValue(json.toFile(), report);
+        Files.writeString(dir.resolve("report.html"), renderHtml(mapper.valueToTree(report)), StandardCharsets.UTF_8);
+        return json;
+    }
+
+    private Map<String, Object> summarize(String name, String spec, long scheduled, long dropped, long unfinished,
+                                          Map<Outcome, Long> outcomes, long elapsedNanos,
+                                          Histogram responseTime, Histogram serviceTime) {
+        long completed = outcomes.values().stream().mapToLong(Long::longValue).sum();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("name", name);
+        summary.put("spec", spec);
+        summary.put("scheduled", scheduled);
+        summary.put("completed", completed);
+        summary.put("dropped", dropped);
+        summary.put("unfinished", unfinished);
+        summary.put("achievedRps", round(completed * 1_000_000_000.0 / elapsedNanos));
+        summary.put("outcomes", outcomes);
+        summary.put("responseTimeMs", latency(responseTime));
+        summary.put("serviceTimeMs", latency(serviceTime));
+        return summary;
+    }
+
+    private static Map<String, Object> latency(Histogram h) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("mean", toMs(h.getMean()));
+        m.put("p50", toMs(h.getValueAtPercentile(50)));
+        m.put("p90", toMs(h.getValueAtPercentile(90)));
+        m.put("p99", toMs(h.getValueAtPercentile(99)));
+        m.put("p999", toMs(h.getValueAtPercentile(99.9)));
+        m.put("p9999", toMs(h.getValueAtPercentile(99.99)));
+        m.put("max", toMs(h.getMaxValue()));
+        List<double[]> distribution = new ArrayList<>();
+        for (double p : PERCENTILES) {
+            distribution.add(new double[]{p, toMs(h.getValueAtPercentile(p))});
+        }
+        m.put("distribution", distribution);
+        return m;
+    }
+
+    /**
+     * 与基线逐阶段对比 (按阶段名 + 序号匹配)，正的 deltaPct 表示数值变大
+     */
+    private Map<String, Object> compare(JsonNode baseline, Map<String, Object> report) {
+        JsonNode current = mapper.valueToTree(report);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("label", baseline.path("label").asText());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        JsonNode basePhases = baseline.path("phases");
+        JsonNode curPhases = current.path("phases");
+        for (int i = 0; i < curPhases.size(); i++) {
+            JsonNode cur = curPhases.get(i);
+            JsonNode base = basePhases.path(i);
+            if (base.isMissingNode() || !base.path("name").asText().equals(cur.path("name").asText())) {
+                continue;
+            }
+            rows.add(compareOne(base, cur));
+        }
+        rows.add(compareOne(baseline.path("total"), current.path("total")));
+        result.put("phases", rows);
+        return result;
+    }
+
+    private static Map<String, Object> compareOne(JsonNode base, JsonNode cur) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("name", cur.path("name").asText());
+        for (String[] metric : COMPARED) {
+            double b = metricOf(base, metric[0]);
+            double c = metricOf(cur, metric[0]);
+            Map<String, Object> cell = new LinkedHashMap<>();
+            cell.put("baseline", b);
+            cell.put("current", c);
+            cell.put("deltaPct", b == 0 ? null : round((c - b) / b * 100));
+            row.put(metric[0], cell);
+        }
+        return row;
+    }
+
+    private static double metricOf(JsonNode summary, String metric) {
+        return "achievedRps".equals(metric)
+                ? summary.path(metric).asDouble()
+                : summary.path("responseTimeMs").path(metric).asDouble();
+    }
+
+    private static void writeHgrm(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            // 记录单位是 µs，按 ms 输出
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    // ================= HTML =================
+
+    private String renderHtml(JsonNode report) {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>秒杀压测报告 - ")
+                .append(escape(report.path("label").asText())).append("</title><style>")
+                .append("body{font-family:sans-serif;margin:24px;color:#222}")
+                .append("table{border-collapse:collapse;margin:12px 0}")
+                .append("th,td{border:1px solid #ccc;padding:4px 10px;text-align:right}")
+                .append("th:first-child,td:first-child{text-align:left}")
+                .append(".worse{color:#c00}.better{color:#080}")
+                .append("</style></head><body>");
+        html.append("<h2>秒杀压测报告: ").append(escape(report.path("label").asText())).append("</h2>");
+        html.append("<p>").append(escape(report.path("generatedAt").asText())).append(" &middot; ")
+                .append(escape(report.path("config").path("target").asText())).append(" &middot; ")
+                .append(report.path("config").path("users").asInt()).append(" users</p>");
+
+        html.append("<h3>阶段汇总</h3><table><tr><th>阶段</th><th>计划</th><th>完成</th><th>dropped</th><th>unfinished</th><th>吞吐 (rps)</th>");
+        for (Outcome outcome : Outcome.values()) {
+            html.append("<th>").append(outcome).append("</th>");
+        }
+        html.append("<th>P50</th><th>P90</th><th>P99</th><th>P99.9</th><th>Max</th><th>服务时间 P99</th><th>最大发送滞后</th></tr>");
+        List<JsonNode> rows = new ArrayList<>();
+        report.path("phases").forEach(rows::add);
+        rows.add(report.path("total"));
+        for (JsonNode row : rows) {
+            JsonNode rt = row.path("responseTimeMs");
+            html.append("<tr><td>").append(escape(row.path("spec").asText())).append("</td>")
+                    .append(td(row.path("scheduled").asLong()))
+                    .append(td(row.path("completed").asLong()))
+                    .append(td(row.path("dropped").asLong()))
+                    .append(td(row.path("unfinished").asLong()))
+                    .append(td(row.path("achievedRps").asDouble()));
+            for (Outcome outcome : Outcome.values()) {
+                html.append(td(row.path("outcomes").path(outcome.name()).asLong()));
+            }
+            html.append(td(rt.path("p50").asDouble())).append(td(rt.path("p90").asDouble()))
+                    .append(td(rt.path("p99").asDouble())).append(td(rt.path("p999").asDouble()))
+                    .append(td(rt.path("max").asDouble()))
+                    .append(td(row.path("serviceTimeMs").path("p99").asDouble()))
+                    .append(row.has("maxSendLagMs") ? td(row.path("maxSendLagMs").asDouble()) : "<td></td>")
+                    .append("</tr>");
+        }
+        html.append("</table><p>延迟单位 ms，均为从计划发出时刻算起的响应时间 (已修正协调遗漏)，")
+                .append("dropped 按一次请求超时、unfinished 按计划时刻至放弃等待时刻计入；")
+                .append("服务时间从实际发出时刻算起。dropped 或最大发送滞后明显偏大时说明压测机本身已成瓶颈。</p>");
+
+        JsonNode baseline = report.path("baseline");
+        if (!baseline.isMissingNode()) {
+            html.append("<h3>对比基线: ").append(escape(baseline.path("label").asText())).append("</h3>");
+            html.append("<table><tr><th>阶段</th>");
+            for (String[] metric : COMPARED) {
+                html.append("<th>").append(metric[1]).append("</th>");
+            }
+            html.append("</tr>");
+            for (JsonNode row : baseline.path("phases")) {
+                html.append("<tr><td>").append(escape(row.path("name").asText())).append("</td>");
+                for (String[] metric : COMPARED) {
+                    JsonNode cell = row.path(metric[0]);
+                    html.append(deltaCell(cell, Boolean.parseBoolean(metric[2])));
+                }
+                html.append("</tr>");
+            }
+            html.append("</table>");
+        }
+
+        html.append("<h3>响应时间分布</h3>").append(renderChart(report.path("phases")));
+        html.append("</body></html>");
+        return html.toString();
+    }
+
+    private static String deltaCell(JsonNode cell, boolean lowerIsBetter) {
+        String text = String.format("%.2f &rarr; %.2f", cell.path("baseline").asDouble(), cell.path("current").asDouble());
+        JsonNode delta = cell.path("deltaPct");
+        if (delta.isNull() || delta.isMissingNode()) {
+            return "<td>" + text + "</td>";
+        }
+        double d = delta.asDouble();
+        boolean worse = lowerIsBetter ? d > 0 : d < 0;
+        String cls = Math.abs(d) < 5 ? "" : (worse ? " class=\"worse\"" : " class=\"better\"");
+        return String.format("<td%s>%s (%+.1f%%)</td>", cls, text, d);
+    }
+
+    /**
+     * 百分位分布曲线 (SVG)：横轴为 1/(1-p) 的对数刻度，尾部延迟一目了然
+     */
+    private static String renderChart(JsonNode phases) {
+        int width = 760, height = 360, left = 60, bottom = 40, top = 10, right = 20;
+        double maxX = 5; // 99.999%
+        double maxY = 1;
+        for (JsonNode phase : phases) {
+            for (JsonNode point : phase.path("responseTimeMs").path("distribution")) {
+                maxY = Math.max(maxY, point.get(1).asDouble());
+            }
+        }
+        StringBuilder svg = new StringBuilder();
+        svg.append(String.format("<svg width=\"%d\" height=\"%d\" style=\"border:1px solid #ddd\">", width, height));
+        String[] ticks = {"0%", "90%", "99%", "99.9%", "99.99%", "99.999%"};
+        for (int i = 0; i < ticks.length; i++) {
+            double x = left + (width - left - right) * i / maxX;
+            svg.append(String.format("<line x1=\"%.1f\" y1=\"%d\" x2=\"%.1f\" y2=\"%d\" stroke=\"#eee\"/>", x, top, x, height - bottom))
+                    .append(String.format("<text x=\"%.1f\" y=\"%d\" font-size=\"11\" text-anchor=\"middle\">%s</text>", x, height - bottom + 16, ticks[i]));
+        }
+        svg.append(String.format("<text x=\"4\" y=\"%d\" font-size=\"11\">%.0f ms</text>", top + 10, maxY))
+                .append(String.format("<text x=\"4\" y=\"%d\" font-size=\"11\">0</text>", height - bottom));
+        int index = 0;
+        for (JsonNode phase : phases) {
+            String color = COLORS[index % COLORS.length];
+            StringBuilder points = new StringBuilder();
+            for (JsonNode point : phase.path("responseTimeMs").path("distribution")) {
+                double p = Math.min(point.get(0).asDouble(), 99.999);
+                double xv = Math.min(Math.log10(100 / (100 - p)), maxX);
+                double x = left + (width - left - right) * xv / maxX;
+                double y = height - bottom - (height - bottom - top) * point.get(1).asDouble() / maxY;
+                points.append(String.format("%.1f,%.1f ", x, y));
+            }
+            svg.append(String.format("<polyline fill=\"none\" stroke=\"%s\" stroke-width=\"2\" points=\"%s\"/>", color, points))
+                    .append(String.format("<text x=\"%d\" y=\"%d\" font-size=\"12\" fill=\"%s\">%s</text>",
+                            left + 10, top + 16 * (index + 1), color, escape(phase.path("spec").asText())));
+            index++;
+        }
+        return svg.append("</svg>").toString();
+    }
+
+    private static String td(long value) {
+        return "<td>" + value + "</td>";
+    }
+
+    private static String td(double value) {
+        return String.format("<td>%.2f</td>", value);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static double toMs(double micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.seckill.order.activity;
+
+import cn.hutool.json.JSONUtil;
+import com.example.seckill.common.dto.SeckillActivityDTO;
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 秒杀活动目录 (本地只读快照)
+ * 商品服务把上线活动整体发布到 Redis Hash (field = activityId) 并递增版本号，这里按版本号整体加载为不可变 Map，整体替换引用：
+ * 1. 收到活动频道通知立即刷新；另有后台线程定时比对版本号，兜底漏收的通知
+ * 2. 热路径 {@link #get} / {@link #check} 只读本地快照，价格、时间窗口与限购零远程调用
+ * 3. Redis 不可用时沿用旧快照 (活动时间在快照里，过期活动照样会被拒绝)
+ * 4. 同一 SKU 可以有多场时间不重叠的活动，快照按开始时间排好，{@link #get} 按当前时间选取，上一场结束后无需重新发布即可切到下一场
+ * 5. require-activity = false 时，目录中没有的 SKU 视为一场不限时的默认活动 (activityId = 0，价格为 fallback-price，限购取默认值)，
+ *    兼容不建活动、直接 /goods/prewarm 预热库存的流程与 engine=local 本地压测
+ */
+@Slf4j
+@Component
+public class SeckillActivityCatalog implements MessageListener {
+
+    /**
+     * 活动校验结果
+     */
+    public enum Eligibility {
+        OK(null),
+        NO_ACTIVITY("该商品未参加秒杀活动"),
+        NOT_STARTED("活动未开始"),
+        ENDED("活动已结束"),
+        PRICE_CHANGED("活动价格已变动，请刷新后重试");
+
+        private final String message;
+
+        Eligibility(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 版本号比对间隔 (ms)，兜底 Pub/Sub 丢消息
+    @Value("${app.seckill.activity.refresh-ms:5000}")
+    private long refreshMillis;
+
+    // 是否只允许目录中的 SKU 参与秒杀 (false = 目录外的 SKU 按默认活动放行)
+    @Value("${app.seckill.activity.require-activity:true}")
+    private boolean requireActivity;
+
+    // 默认活动的秒杀价 (与活动的 seckillPrice 同单位)
+    @Value("${app.seckill.activity.fallback-price:2899}")
+    private long fallbackPrice;
+
+    // 快照与版本号一起替换，读者永远看到一致的一对
+    private record Snapshot(long version, Map<Long, List<SeckillActivityDTO>> activities) {
+    }
+
+    private volatile Snapshot snapshot = new Snapshot(-1, Map.of());
+
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    public void init() {
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seckill-activity-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+        // 启动时同步加载一次，保证开门前快照已就绪
+        refresh();
+        refresher.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * 热点路径：校验活动当前是否可抢、客户端价格是否与活动价一致 (clientPrice 为空时不校验价格)
+     * activity 由调用方先 {@link #get} 取出，校验与下单使用同一份活动数据，不受中途快照替换影响
+     */
+    public Eligibility check(SeckillActivityDTO activity, Long clientPrice, long now) {
+        if (activity == null) {
+            return Eligibility.NO_ACTIVITY;
+        }
+        if (now < activity.getStartTime()) {
+            return Eligibility.NOT_STARTED;
+        }
+        if (now >= activity.getEndTime()) {
+            return Eligibility.ENDED;
+        }
+        if (clientPrice != null && !clientPrice.equals(activity.getSeckillPrice())) {
+            return Eligibility.PRICE_CHANGED;
+        }
+        return Eligibility.OK;
+    }
+
+    /**
+     * 商品当前的活动：进行中的一场，否则最早开始的下一场，都没有时返回最后结束的一场 (校验时返回“已结束”)
+     * 不在目录中返回 null (require-activity = false 时返回默认活动)
+     */
+    public SeckillActivityDTO get(long skuId) {
+        return get(skuId, System.currentTimeMillis());
+    }
+
+    /**
+     * 指定时刻的活动 (选取规则同 {@link #get(long)})，用于按订单生成时间找回下单时的场次
+     */
+    public SeckillActivityDTO get(long skuId, long at) {
+        List<SeckillActivityDTO> activities = snapshot.activities().get(skuId);
+        if (activities == null && !requireActivity) {
+            return fallbackActivity(skuId);
+        }
+        return select(activities, at);
+    }
+
+    /**
+     * 目录外 SKU 的默认活动：activityId = 0 (与商品服务手动回收库存使用的场次一致)，不限时，限购为空即取默认值
+     */
+    private SeckillActivityDTO fallbackActivity(long skuId) {
+        SeckillActivityDTO activity = new SeckillActivityDTO();
+        activity.setActivityId(0L);
+        activity.setSkuId(skuId);
+        activity.setSeckillPrice(fallbackPrice);
+        activity.setStartTime(0L);
+        activity.setEndTime(Long.MAX_VALUE);
+        return activity;
+    }
+
+    /**
+     * activities 按开始时间升序且互不重叠：第一场尚未结束的即为进行中或最早的下一场
+     */
+    static SeckillActivityDTO select(List<SeckillActivityDTO> activities, long now) {
+        if (activities == null || activities.isEmpty()) {
+            return null;
+        }
+        for (SeckillActivityDTO activity : activities) {
+            if (now < activity.getEndTime()) {
+                return activity;
+            }
+        }
+        return activities.get(activities.size() - 1);
+    }
+
+    public long getVersion() {
+        return snapshot.version();
+    }
+
+    /**
+     * 活动目录变更通知：切到刷新线程上加载，不阻塞监听容器
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        refresher.execute(this::refresh);
+    }
+
+    private void refresh() {
+        try {
+            String versionVal = stringRedisTemplate.opsForValue().get(SeckillRedisKeys.activityCatalogVersionKey());
+            long version = versionVal == null ? 0 : Long.parseLong(versionVal);
+            if (version == snapshot.version()) {
+                return;
+            }
+            // 先读版本号再读目录：目录只会比版本号新，下一轮发现版本号变化会再加载一次
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(SeckillRedisKeys.activityCatalogKey());
+            Map<Long, List<SeckillActivityDTO>> activities = new HashMap<>(entries.size() * 2);
+            for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+                SeckillActivityDTO activity = JSONUtil.toBean((String) entry.getValue(), SeckillActivityDTO.class);
+                activities.computeIfAbsent(activity.getSkuId(), k -> new ArrayList<>(1)).add(activity);
+            }
+            activities.replaceAll((skuId, list) -> {
+                list.sort(Comparator.comparingLong(SeckillActivityDTO::getStartTime));
+                return List.copyOf(list);
+            });
+            snapshot = new Snapshot(version, Map.copyOf(activities));
+            log.info(">>> [秒杀活动] 活动目录已加载. version={}, skus={}, activities={}", version, activities.size(), entries.size());
+        } catch (Exception e) {
+            log.warn(">>> [秒杀活动] 活动目录加载失败，沿用旧快照. version={}", snapshot.version(), e);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.seckill.order.admission;
+
+import com.example.seckill.order.stock.StockEngine;
+import com.example.seckill.order.stock.StockLeaseManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按库存准入 (每个 SKU 一个在途窗口)
+ * 100 万人抢 1000 件时，绝大多数请求注定失败，却仍要各自打一次 Redis、发一次事务消息。
+ * 这里给每个 SKU 维护一个在途上限 = ceil(剩余库存 × window-factor)，超出的请求在进入扣减前直接拒绝，
+ * 后端压力随库存而不是随流量增长：
+ * 1. 剩余库存由后台线程定时从 StockEngine 刷新 (请求线程从不访问 Redis)；开启库存租约时加上各节点租走未卖的余额，
+ *    否则库存被租空后窗口会收缩到 min-window，租约里的库存卖不出去
+ * 2. 本节点每扣减成功一单就把本地估计减一，窗口随之收缩，不必等下一次刷新
+ * 3. 尚未取到库存的 SKU 放行 (首次请求触发刷新)，剩余库存未知 (未预热 / 读取失败) 时同样放行，由扣减环节给出结果
+ *
+ * 窗口按节点独立计算，集群总在途上限约为 节点数 × window-factor × 剩余库存
+ */
+@Slf4j
+@Component
+public class SkuAdmissionGate {
+
+    @Autowired
+    private StockEngine stockEngine;
+
+    @Autowired
+    private StockLeaseManager stockLeaseManager;
+
+    @Value("${app.seckill.admission.enabled:false}")
+    private boolean enabled;
+
+    // 在途窗口 = 剩余库存 × 该系数 (向上取整)
+    @Value("${app.seckill.admission.window-factor:1.5}")
+    private double windowFactor;
+
+    // 窗口下限：库存估计为 0 时仍放少量请求进入，及时发现关单回补的库存
+    @Value("${app.seckill.admission.min-window:10}")
+    private int minWindow;
+
+    // 剩余库存的刷新间隔 (ms)
+    @Value("${app.seckill.admission.refresh-ms:200}")
+    private long refreshMillis;
+
+    // SKU 闲置多久后移出窗口表 (ms)
+    @Value("${app.seckill.admission.idle-evict-ms:60000}")
+    private long idleEvictMillis;
+
+    private static final class Window {
+        // 本节点在途请求数
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // 剩余库存估计，-1 = 未知 (未取到 / 未预热)
+        private final AtomicLong remaining = new AtomicLong(-1);
+        private volatile long lastAccess = System.currentTimeMillis();
+    }
+
+    private final ConcurrentHashMap<Long, Window> windows = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seckill-admission-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshAll, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+        log.info(">>> [准入控制] 已启用. windowFactor={}, minWindow={}, refreshMs={}", windowFactor, minWindow, refreshMillis);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * 申请进入扣减环节，返回 false 时调用方直接拒绝 (稍后再试)
+     * 返回 true 的调用方必须在扣减结束后调用且只调用一次 {@link #release}
+     */
+    public boolean tryAcquire(long skuId) {
+        if (!enabled) {
+            return true;
+        }
+        Window window = windows.computeIfAbsent(skuId, id -> {
+            Window created = new Window();
+            // 新 SKU 立即异步取一次库存，取到之前放行
+            refresher.execute(() -> refresh(id, created));
+            return created;
+        });
+        window.lastAccess = System.currentTimeMillis();
+        long remaining = window.remaining.get();
+        if (remaining < 0) {
+            window.inFlight.incrementAndGet();
+            return true;
+        }
+        long limit = Math.max(minWindow, (long) Math.ceil(remaining * windowFactor));
+        while (true) {
+            int current = window.inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (window.inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 扣减结束 (成功 / 失败 / 异常)，reserved = 是否扣到了库存
+     */
+    public void release(long skuId, boolean reserved) {
+        if (!enabled) {
+            return;
+        }
+        Window window = windows.get(skuId);
+        if (window == null) {
+            return;
+        }
+        // 窗口闲置淘汰后重建时可能少记一次，不减到负数
+        window.inFlight.getAndUpdate(v -> v > 0 ? v - 1 : 0);
+        if (reserved) {
+            // 本节点卖出一件，先收缩本地估计，等下一次刷新校正 (其它节点的扣减)
+            window.remaining.getAndUpdate(v -> v > 0 ? v - 1 : v);
+        }
+    }
+
+    // ================= 后台刷新 =================
+
+    private void refreshAll() {
+        long now = System.currentTimeMillis();
+        windows.forEach((skuId, window) -> {
+            if (now - window.lastAccess > idleEvictMillis && window.inFlight.get() == 0) {
+                windows.remove(skuId, window);
+                return;
+            }
+            refresh(skuId, window);
+        });
+    }
+
+    private void refresh(long skuId, Window window) {
+        try {
+            long remaining = stockEngine.remaining(skuId);
+            if (remaining >= 0 && stockLeaseManager.isEnabled()) {
+                remaining += stockLeaseManager.leasedBalance(skuId);
+            }
+            window.remaining.set(remaining);
+        } catch (Exception e) {
+            // 读取失败时沿用旧估计，避免窗口抖动
+            log.warn(">>> [准入控制] 读取剩余库存失败. skuId={}", skuId, e);
+        }
+    }
+}
@@ -2,32 +2,87 @@ package com.example.seckill.order.config;
 
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.example.seckill.order.sharding.ShardingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.seata.rm.datasource.DataSourceProxy;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * 暴力解决数据库连接问题：手动配置 DataSource
+ * 手动配置 DataSource：每个物理库一个 Hikari 连接池，外层套分库路由
+ * 拓扑来自 app.sharding.databases；未配置时退化为 spring.datasource 单库
  */
+@Slf4j
 @Configuration
 public class DataSourceConfig {
 
-    // 1. 手动创建数据源 (替代 YAML 里的 spring.datasource 配置)
+    @Value("${spring.datasource.url}")
+    private String defaultUrl;
+
+    @Value("${spring.datasource.username}")
+    private String defaultUsername;
+
+    @Value("${spring.datasource.password}")
+    private String defaultPassword;
+
+    // 自动代理已关闭 (路由数据源无法被 Seata 正确代理)，这里给每个物理库单独套 DataSourceProxy
+    @Value("${seata.enabled:true}")
+    private boolean seataEnabled;
+
+    // 1. 分库路由数据源 (替代 YAML 里的 spring.datasource 自动配置)
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        // 注意：这里硬编码你的配置，确保绝对正确
-        dataSource.setUrl("jdbc:mysql://localhost:3306/seckill_db?useUnicode=true&characterEncoding=utf-8&serverTimezone=Asia/Shanghai");
-        dataSource.setUsername("root");
-        dataSource.setPassword("Hzj760322");
-        System.out.println(">>> 🚀 [强制配置] DataSource 已手动创建连接: " + dataSource.getUrl());
+    public ShardingDataSource dataSource(ShardingProperties shardingProperties) {
+        List<ShardingProperties.Node> nodes = shardingProperties.getDatabases();
+        if (nodes.isEmpty()) {
+            ShardingProperties.Node node = new ShardingProperties.Node();
+            node.setName(ShardingDataSource.DEFAULT_KEY);
+            node.setUrl(defaultUrl);
+            node.setUsername(defaultUsername);
+            node.setPassword(defaultPassword);
+            nodes = new ArrayList<>(List.of(node));
+        }
+
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        for (ShardingProperties.Node node : nodes) {
+            HikariDataSource pool = createPool(node);
+            pools.put(node.getName(), pool);
+            targets.put(node.getName(), seataEnabled ? new DataSourceProxy(pool) : pool);
+            log.info(">>> [分库] 数据源 {} 已创建连接池: {}", node.getName(), node.getUrl());
+        }
+
+        ShardingDataSource dataSource = new ShardingDataSource(pools);
+        dataSource.setTargetDataSources(targets);
+        // 未绑定分片的访问 (如非分片表) 走第一个库
+        dataSource.setDefaultTargetDataSource(targets.get(nodes.get(0).getName()));
         return dataSource;
     }
 
+    private HikariDataSource createPool(ShardingProperties.Node node) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("seckill-order-" + node.getName());
+        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        config.setJdbcUrl(node.getUrl());
+        config.setUsername(node.getUsername());
+        config.setPassword(node.getPassword());
+        config.setMaximumPoolSize(node.getMaxPoolSize());
+        config.setMinimumIdle(node.getMinIdle());
+        config.setConnectionTimeout(node.getConnectionTimeoutMs());
+        // 通过 JMX 暴露连接池指标 (com.zaxxer.hikari:type=Pool (seckill-order-dsX))
+        config.setRegisterMbeans(true);
+        return new HikariDataSource(config);
+    }
+
     // 2. 手动创建 SqlSessionFactory (替代 MyBatis-Plus 自动配置)
     // 【修改点】添加 MybatisPlusInterceptor 参数，Spring 会自动注入我们在 MybatisPlusConfig 定义的那个 Bean
     @Bean
@@ -49,4 +104,4 @@ public class DataSourceConfig {
 
         return sessionFactory.getObject();
     }
-}
\ No newline at end of file
+}
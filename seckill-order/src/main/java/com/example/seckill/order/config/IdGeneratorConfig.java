@@ -0,0 +1,42 @@
+package com.example.seckill.order.config;
+
+import com.example.seckill.common.utils.SnowflakeIdWorker;
+import com.example.seckill.order.idgen.WorkerIdLeaseManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 订单ID 生成器配置：基因位数与分片拓扑共用 app.sharding.gene-bits
+ * 默认从 Redis 租用机器标识 (见 WorkerIdLeaseManager)；关闭租约时使用下面的静态配置
+ */
+@Slf4j
+@Configuration
+public class IdGeneratorConfig {
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Autowired
+    private WorkerIdLeaseManager workerIdLeaseManager;
+
+    // 机器标识 = datacenterId << 5 | workerId (0 ~ 1023)，与基因位数无关
+    @Value("${app.snowflake.worker-id:1}")
+    private long workerId;
+
+    @Value("${app.snowflake.datacenter-id:1}")
+    private long datacenterId;
+
+    @PostConstruct
+    public void init() {
+        if (workerIdLeaseManager.isEnabled()) {
+            workerIdLeaseManager.start(shardingProperties.getGeneBits());
+            return;
+        }
+        SnowflakeIdWorker.configure(workerId, datacenterId, shardingProperties.getGeneBits());
+        log.info(">>> [ID生成器] workerId={}, datacenterId={}, geneBits={}", workerId, datacenterId, shardingProperties.getGeneBits());
+    }
+}
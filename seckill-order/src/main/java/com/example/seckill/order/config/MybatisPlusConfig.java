@@ -1,6 +1,7 @@
 package com.example.seckill.order.config;
 
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.handler.TableNameHandler;
 import com.baomidou.mybatisplus.extension.plugins.inner.DynamicTableNameInnerInterceptor;
 import com.example.seckill.order.context.TableContext;
 import org.springframework.context.annotation.Bean;
@@ -9,6 +10,21 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class MybatisPlusConfig {
 
+    /**
+     * 逻辑表 order_tbl -> 当前线程绑定的物理分表 (seckill-benchmarks 直接复用此处理器压测改写开销)
+     */
+    public static final TableNameHandler ORDER_TABLE_NAME_HANDLER = (sql, tableName) -> {
+        // 只处理 order_tbl，其它表直接放行
+        if (!"order_tbl".equals(tableName)) {
+            return tableName;
+        }
+
+        String dynamicTableName = TableContext.get();
+
+        // fail-fast：上下文为空时仍返回原表名，便于尽早暴露问题
+        return dynamicTableName != null ? dynamicTableName : tableName;
+    };
+
     @Bean
     public MybatisPlusInterceptor mybatisPlusInterceptor() {
         MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
@@ -17,17 +33,7 @@ public class MybatisPlusConfig {
         DynamicTableNameInnerInterceptor dynamicTableInterceptor =
                 new DynamicTableNameInnerInterceptor();
 
-        dynamicTableInterceptor.setTableNameHandler((sql, tableName) -> {
-            // 只处理 order_tbl，其它表直接放行
-            if (!"order_tbl".equals(tableName)) {
-                return tableName;
-            }
-
-            String dynamicTableName = TableContext.get();
-
-            // fail-fast：上下文为空时仍返回原表名，便于尽早暴露问题
-            return dynamicTableName != null ? dynamicTableName : tableName;
-        });
+        dynamicTableInterceptor.setTableNameHandler(ORDER_TABLE_NAME_HANDLER);
 
         interceptor.addInnerInterceptor(dynamicTableInterceptor);
         return interceptor;
@@ -0,0 +1,71 @@
+package com.example.seckill.order.config;
+
+import com.example.seckill.common.utils.RedisSlots;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultScriptExecutor;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.script.ScriptExecutor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import jakarta.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * Lua 脚本的 Redis Cluster 适配
+ * 1. 路由：脚本仍走 EVALSHA，NOSCRIPT 时回退 EVAL (DefaultScriptExecutor)；集群连接按 KEYS[1] 的槽把两条命令都发往同一个主节点，
+ *    脚本在每个节点上首次执行时各自缓存一次，不需要预先 SCRIPT LOAD 到所有节点
+ * 2. 校验：脚本内的所有 Key 必须在同一个槽，否则集群直接报 CROSSSLOT，而单节点开发环境不会报错。
+ *    开启 verify-slots 后在客户端按集群算法预先校验，单节点即可模拟多节点集群的约束，提前暴露 Key 布局问题
+ */
+@Slf4j
+@Configuration
+public class RedisClusterScriptConfig {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 执行脚本前校验 Key 是否同槽 (开发 / 压测环境建议开启，每次调用多一次 CRC16 计算)
+    @Value("${app.redis.verify-slots:false}")
+    private boolean verifySlots;
+
+    @PostConstruct
+    public void init() {
+        if (!verifySlots) {
+            return;
+        }
+        stringRedisTemplate.setScriptExecutor(new SlotCheckingScriptExecutor(new DefaultScriptExecutor<>(stringRedisTemplate)));
+        log.info(">>> [Redis集群] 已开启脚本 Key 同槽校验");
+    }
+
+    static final class SlotCheckingScriptExecutor implements ScriptExecutor<String> {
+
+        private final ScriptExecutor<String> delegate;
+
+        SlotCheckingScriptExecutor(ScriptExecutor<String> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            verify(keys);
+            return delegate.execute(script, keys, args);
+        }
+
+        @Override
+        public <T> T execute(RedisScript<T> script, RedisSerializer<?> argsSerializer, RedisSerializer<T> resultSerializer,
+                             List<String> keys, Object... args) {
+            verify(keys);
+            return delegate.execute(script, argsSerializer, resultSerializer, keys, args);
+        }
+
+        private static void verify(List<String> keys) {
+            if (keys != null && !RedisSlots.sameSlot(keys)) {
+                throw new IllegalStateException("CROSSSLOT Keys in script don't hash to the same slot: " + keys);
+            }
+        }
+    }
+}
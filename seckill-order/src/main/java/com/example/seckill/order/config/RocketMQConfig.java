@@ -1,22 +1,32 @@
 package com.example.seckill.order.config;
 
+import cn.hutool.json.JSONUtil;
+import com.example.seckill.common.dto.SeckillOrderMsgDTO;
+import com.example.seckill.common.utils.SeckillOrderMsgCodec;
 import com.example.seckill.order.listener.SeckillTransactionListener;
 import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.rocketmq.client.producer.TransactionListener;
 import org.apache.rocketmq.client.producer.TransactionMQProducer;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * RocketMQ 配置类
  * 作用：初始化生产者实例，并将其注册为 Spring Bean
  */
+@Slf4j
 @Data // 【重要】自动生成 Getter/Setter，否则 service 无法调用 getOrderTopic()
 @Configuration // 标识这是一个 Spring 配置类，相当于 XML 配置文件
 public class RocketMQConfig {
@@ -31,4 +41,56 @@ public class RocketMQConfig {
     @Value("${app.rocketmq.producer-group}")
     private String producerGroup;
 
+    // 秒杀下单消息使用二进制编码 (SeckillOrderMsgCodec)
+    // 消费端两种格式都能解析；从旧版本滚动升级时先关闭，全部节点升级后再打开
+    @Value("${app.rocketmq.binary-payload:true}")
+    private boolean binaryPayload;
+
+    // 二进制消息版本：2 携带 activityId；从 v1 滚动升级时先置为 1，全部节点升级后再改为 2
+    @Value("${app.rocketmq.binary-version:2}")
+    private byte binaryVersion;
+
+    /**
+     * 秒杀下单消息体编码 (逐单事务消息和组提交批量消息共用)
+     */
+    public byte[] encodeOrderMsg(SeckillOrderMsgDTO msgDTO) {
+        if (binaryPayload) {
+            return SeckillOrderMsgCodec.encode(msgDTO, binaryVersion);
+        }
+        return JSONUtil.toJsonStr(msgDTO).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 事务回查线程池
+     * 客户端默认只有 1 个回查线程 + 2000 的队列，broker 恢复后成千上万的回查排队串行执行，溢出的直接丢弃等下一轮，
+     * 回查积压期间还会拖慢新的事务消息发送。这里在 RocketMQTemplate 启动生产者之前换成独立、可配置大小的线程池
+     * (生产者在 start 时读取，之后设置不生效，所以用 BeanPostProcessor 而不是启动完成后再改)。
+     * 回查线程大部分时间阻塞在 {@link com.example.seckill.order.listener.TransactionCheckBatcher} 上等批次结果，线程数即攒批上限
+     * static：BeanPostProcessor 需要早于普通 Bean 创建，不能依赖本配置类的 @Value 字段
+     */
+    @Bean
+    public static BeanPostProcessor transactionCheckExecutorInstaller(Environment env) {
+        int threads = env.getProperty("app.rocketmq.check.threads", Integer.class, 64);
+        int queueCapacity = env.getProperty("app.rocketmq.check.executor-queue", Integer.class, 20000);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RocketMQTemplate template && template.getProducer() instanceof TransactionMQProducer producer) {
+                    producer.setExecutorService(newCheckExecutor(threads, queueCapacity));
+                    log.info(">>> [事务回查] 回查线程池已注册. threads={}, queue={}", threads, queueCapacity);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static ExecutorService newCheckExecutor(int threads, int queueCapacity) {
+        AtomicInteger index = new AtomicInteger();
+        // 队列满时丢弃：回查请求不需要应答，broker 会在下一个回查周期重新发起
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread t = new Thread(r, "seckill-tx-check-" + index.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
 }
\ No newline at end of file
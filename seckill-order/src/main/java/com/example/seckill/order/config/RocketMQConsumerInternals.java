@@ -0,0 +1,54 @@
+package com.example.seckill.order.config;
+
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.impl.consumer.ConsumeMessageService;
+import org.apache.rocketmq.client.impl.consumer.DefaultMQPushConsumerImpl;
+import org.apache.rocketmq.client.impl.consumer.ProcessQueue;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * RocketMQ 推模式消费者内部结构的唯一访问入口
+ * 客户端的公开 API 只有 updateCorePoolSize (只能在启动时的 consumeThreadMax 以内调 core，积压时缩小 core 并不会让多出的线程退出)
+ * 与 suspend / resume，拿不到消费线程池本身和本地 ProcessQueue。自适应并发与虚拟线程切换都需要这两样，
+ * 只能经由已标记 @Deprecated 的 getDefaultMQPushConsumerImpl()；集中在这里，升级客户端时只需核对这一个类
+ */
+public final class RocketMQConsumerInternals {
+
+    private RocketMQConsumerInternals() {
+    }
+
+    /**
+     * 客户端内部的消费线程池 (ConsumeMessage*Service.consumeExecutor，consumer.start() 之后才存在)
+     */
+    public static ThreadPoolExecutor consumeExecutor(DefaultMQPushConsumer consumer) throws ReflectiveOperationException {
+        ConsumeMessageService service = impl(consumer).getConsumeMessageService();
+        if (service == null) {
+            throw new IllegalStateException("consumer " + consumer.getConsumerGroup() + " is not started");
+        }
+        for (Class<?> type = service.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField("consumeExecutor");
+                field.setAccessible(true);
+                return (ThreadPoolExecutor) field.get(service);
+            } catch (NoSuchFieldException ignored) {
+                // 继续找父类
+            }
+        }
+        throw new NoSuchFieldException(service.getClass().getName() + ".consumeExecutor");
+    }
+
+    /**
+     * 本地已分配队列的 ProcessQueue (已拉取未消费的消息数 / broker 上未拉取的差值都在这里)
+     */
+    public static Collection<ProcessQueue> processQueues(DefaultMQPushConsumer consumer) {
+        return impl(consumer).getRebalanceImpl().getProcessQueueTable().values();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static DefaultMQPushConsumerImpl impl(DefaultMQPushConsumer consumer) {
+        return consumer.getDefaultMQPushConsumerImpl();
+    }
+}
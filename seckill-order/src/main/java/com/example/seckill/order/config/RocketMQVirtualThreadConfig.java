@@ -0,0 +1,82 @@
+package com.example.seckill.order.config;
+
+import com.example.seckill.common.utils.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.spring.support.DefaultRocketMQListenerContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 虚拟线程模式下把 RocketMQ 消费线程切换为虚拟线程
+ * 客户端的消费线程池 (ConsumeMessage*Service.consumeExecutor) 在 consumer.start() 时内部创建，没有注入入口，
+ * 这里经 RocketMQConsumerInternals 取到线程池并替换其 ThreadFactory：之后新建的消费线程都是虚拟线程，启动期间已创建的平台线程在空闲 keepAlive (60s) 后退出，由虚拟线程补上
+ * 1. @RocketMQMessageListener 容器：应用启动完成后统一切换
+ * 2. 手动创建的消费者 (SeckillConsumer / DLQConsumer)：各自在 start() 之后调用 {@link #switchConsumer}
+ * 线程池仍是原来的 ThreadPoolExecutor，AdaptiveConsumeLimiter 在切换之后照常调整 core / max
+ *
+ * 替换失败 (客户端升级改了内部结构) 只告警，不影响消费
+ */
+@Slf4j
+@Component
+public class RocketMQVirtualThreadConfig {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${app.virtual-threads.enabled:false}")
+    private boolean enabled;
+
+    // 切换后每个消费组的消费线程数 (0 = 保持 @RocketMQMessageListener 中的配置)
+    @Value("${app.virtual-threads.consumer-threads:0}")
+    private int consumerThreads;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void switchConsumers() {
+        if (!enabled) {
+            return;
+        }
+        if (!VirtualThreads.isSupported()) {
+            log.warn(">>> [虚拟线程] 当前 JDK {} 不支持虚拟线程，RocketMQ 消费继续使用平台线程", Runtime.version());
+            return;
+        }
+        Map<String, DefaultRocketMQListenerContainer> containers =
+                applicationContext.getBeansOfType(DefaultRocketMQListenerContainer.class);
+        for (DefaultRocketMQListenerContainer container : containers.values()) {
+            switchConsumer(container.getConsumer());
+        }
+    }
+
+    /**
+     * 把一个已启动的消费者切换为虚拟线程 (未开启虚拟线程模式 / JDK 不支持时什么也不做)
+     * 受 AdaptiveConsumeLimiter 管理的消费者应在 attach 之前调用，consumer-threads 只作为初始线程数，之后由限流器调整
+     */
+    public void switchConsumer(DefaultMQPushConsumer consumer) {
+        if (!enabled || !VirtualThreads.isSupported()) {
+            return;
+        }
+        if (consumer == null) {
+            return;
+        }
+        try {
+            ThreadPoolExecutor executor = RocketMQConsumerInternals.consumeExecutor(consumer);
+            executor.setThreadFactory(VirtualThreads.newThreadFactory("mq-" + consumer.getConsumerGroup() + "-vt-"));
+            if (consumerThreads > 0) {
+                // 先调 max 再调 core，避免 core > max 抛异常
+                executor.setMaximumPoolSize(Math.max(consumerThreads, executor.getMaximumPoolSize()));
+                executor.setCorePoolSize(consumerThreads);
+            }
+            executor.allowCoreThreadTimeOut(true);
+            log.info(">>> [虚拟线程] 消费组 {} 已切换为虚拟线程. threads={}", consumer.getConsumerGroup(), executor.getCorePoolSize());
+        } catch (Exception e) {
+            log.warn(">>> [虚拟线程] 消费组 {} 切换失败，继续使用平台线程", consumer.getConsumerGroup(), e);
+        }
+    }
+}
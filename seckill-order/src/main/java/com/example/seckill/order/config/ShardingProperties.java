@@ -0,0 +1,56 @@
+package com.example.seckill.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单分库分表拓扑 (app.sharding)
+ * 分表总数 = 订单ID 基因的模数 (2 的幂)；分表按编号轮询分配到各个物理库 (库号 = 表号 % 库数)：
+ * 例如 4 张表 2 个库 -> ds0: order_tbl_0, order_tbl_2；ds1: order_tbl_1, order_tbl_3
+ * 轮询分配保证分表数翻倍 (order_tbl_n 拆出 order_tbl_{n+N}) 时，新表与源表仍在同一个库
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingProperties {
+
+    /**
+     * 订单ID 中携带的用户基因位数 (最多 6 位 / 64 个分片)，分表总数不能超过 2^geneBits
+     */
+    private int geneBits = 2;
+
+    /**
+     * 订单物理分表总数 (所有库加起来)，必须是 2 的幂且能被库数整除
+     */
+    private int tableCount = 4;
+
+    /**
+     * 参与路由的物理库数量 (<= 0 表示 databases 全部参与)
+     * 可以预先配置好新库的连接池但暂不启用，由重分片工具迁移完成后再切换
+     */
+    private int activeDatabases = 0;
+
+    /**
+     * 物理库列表，顺序即库编号；为空时退化为 spring.datasource 单库
+     */
+    private List<Node> databases = new ArrayList<>();
+
+    @Data
+    public static class Node {
+        /** 数据源名称 (路由 Key)，如 ds0 */
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        /** 连接池最大连接数 */
+        private int maxPoolSize = 20;
+        /** 连接池最小空闲连接数 */
+        private int minIdle = 5;
+        /** 获取连接超时 (ms) */
+        private long connectionTimeoutMs = 3000;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.seckill.order.config;
+
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import com.example.seckill.order.activity.SeckillActivityCatalog;
+import com.example.seckill.order.stock.SoldOutBroadcaster;
+import com.example.seckill.order.ticket.SeckillTicketService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 售罄广播订阅配置
+ * 每个订单节点都订阅库存频道，收到 SOLD_OUT / RESTOCK 后翻转本地标记
+ * 同一个监听容器还订阅秒杀票据频道，收到落库通知后唤醒本节点等待中的客户端；
+ * 以及活动目录频道，商品服务发布新目录后立即刷新本地活动快照
+ */
+@Configuration
+public class StockBroadcastConfig {
+
+    @Bean
+    public RedisMessageListenerContainer stockBroadcastListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                         SoldOutBroadcaster soldOutBroadcaster,
+                                                                         SeckillTicketService seckillTicketService,
+                                                                         SeckillActivityCatalog seckillActivityCatalog) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(soldOutBroadcaster, new ChannelTopic(SeckillRedisKeys.stockChannel()));
+        container.addMessageListener(seckillTicketService, new ChannelTopic(SeckillTicketService.TICKET_CHANNEL));
+        container.addMessageListener(seckillActivityCatalog, new ChannelTopic(SeckillRedisKeys.activityChannel()));
+        return container;
+    }
+}
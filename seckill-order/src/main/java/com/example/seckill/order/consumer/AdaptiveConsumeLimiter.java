@@ -0,0 +1,271 @@
+package com.example.seckill.order.consumer;
+
+import com.example.seckill.order.config.RocketMQConsumerInternals;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.impl.consumer.ProcessQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 秒杀下单消费的自适应并发 (AIMD)
+ * 固定 100 个消费线程在数据库变慢时只会把 MySQL 压得更慢，空闲时又用不满。这里按窗口统计每次 INSERT 的耗时与失败率：
+ * 1. 失败率超阈值 / 平均耗时超过 基线 × 容忍倍数 (基线为慢慢上漂的历史最小值) / 有在途消费却一条都没完成 -> 乘性减小并发
+ * 2. 未劣化且有积压 (本地缓存 + broker 上未拉取的消息) 且线程已用满 -> 加性增大并发
+ * 3. 已降到最小并发仍连续劣化 -> 暂停拉取 suspend-ms，之后恢复拉取按最小并发试探
+ *
+ * 并发通过直接调整客户端内部消费线程池的 core / max 实现 (消费线程池队列无界，只调 core 时积压期间线程不会退出，
+ * 所以不能用公开的 updateCorePoolSize；线程池经 RocketMQConsumerInternals 取得)，
+ * 暂停 / 恢复拉取用公开的 suspend / resume。取不到线程池 (客户端升级改了内部结构) 时只告警，消费按启动时的固定线程数继续
+ */
+@Slf4j
+@Component
+public class AdaptiveConsumeLimiter {
+
+    @Value("${app.seckill.consumer.adaptive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.seckill.consumer.adaptive.min-limit:5}")
+    private int minLimit;
+
+    @Value("${app.seckill.consumer.adaptive.max-limit:100}")
+    private int maxLimit;
+
+    @Value("${app.seckill.consumer.adaptive.initial-limit:20}")
+    private int initialLimit;
+
+    // 统计窗口 (ms)，每个窗口调整一次
+    @Value("${app.seckill.consumer.adaptive.window-ms:1000}")
+    private long windowMillis;
+
+    // 窗口内样本数不足时不按耗时判断
+    @Value("${app.seckill.consumer.adaptive.min-samples:10}")
+    private int minSamples;
+
+    // 耗时上限 = max(基线 × 容忍倍数, 下限)
+    @Value("${app.seckill.consumer.adaptive.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    @Value("${app.seckill.consumer.adaptive.latency-floor-ms:20}")
+    private double latencyFloorMillis;
+
+    @Value("${app.seckill.consumer.adaptive.error-threshold:0.1}")
+    private double errorThreshold;
+
+    // 乘性减小系数
+    @Value("${app.seckill.consumer.adaptive.backoff-ratio:0.7}")
+    private double backoffRatio;
+
+    // 加性增大步长
+    @Value("${app.seckill.consumer.adaptive.increase-step:2}")
+    private int increaseStep;
+
+    // 积压超过多少条才扩大并发
+    @Value("${app.seckill.consumer.adaptive.lag-threshold:100}")
+    private long lagThreshold;
+
+    // 最小并发下连续劣化多少个窗口后暂停拉取
+    @Value("${app.seckill.consumer.adaptive.suspend-after-windows:3}")
+    private int suspendAfterWindows;
+
+    @Value("${app.seckill.consumer.adaptive.suspend-ms:5000}")
+    private long suspendMillis;
+
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+
+    private DefaultMQPushConsumer consumer;
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService adjuster;
+
+    // 以下只在调整线程上写，volatile 供监控读取
+    private volatile int limit;
+    private volatile boolean suspended;
+    private volatile long suspendedUntil;
+    private volatile double lastLatencyMillis;
+    private volatile double lastErrorRate;
+    private volatile long lastLag;
+    private volatile double baselineMillis = -1;
+    private int degradedWindows;
+
+    /**
+     * 消费者 start() 之后调用：接管消费线程池并启动调整线程
+     */
+    public void attach(DefaultMQPushConsumer consumer) {
+        this.consumer = consumer;
+        if (!enabled) {
+            return;
+        }
+        try {
+            executor = RocketMQConsumerInternals.consumeExecutor(consumer);
+        } catch (Exception e) {
+            log.warn(">>> [自适应并发] 取不到消费线程池，按固定线程数消费. group={}", consumer.getConsumerGroup(), e);
+            return;
+        }
+        resize(Math.max(minLimit, Math.min(maxLimit, initialLimit)));
+        adjuster = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seckill-consume-limiter");
+            t.setDaemon(true);
+            return t;
+        });
+        adjuster.scheduleWithFixedDelay(this::adjust, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        log.info(">>> [自适应并发] 已启用. group={}, limit={}, range=[{}, {}]", consumer.getConsumerGroup(), limit, minLimit, maxLimit);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (adjuster != null) {
+            adjuster.shutdownNow();
+        }
+    }
+
+    /**
+     * 执行一次数据库写入并记录耗时 / 成败 (主键冲突是重复消息，不算失败)
+     */
+    public <T> T measure(Supplier<T> insert) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = insert.get();
+            failed = false;
+            return result;
+        } catch (DuplicateKeyException e) {
+            failed = false;
+            throw e;
+        } finally {
+            samples.increment();
+            latencyNanos.add(System.nanoTime() - start);
+            if (failed) {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * 当前并发上限与最近一个窗口的统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled && executor != null);
+        stats.put("limit", limit);
+        stats.put("minLimit", minLimit);
+        stats.put("maxLimit", maxLimit);
+        stats.put("suspended", suspended);
+        stats.put("latencyMs", lastLatencyMillis);
+        stats.put("baselineMs", baselineMillis);
+        stats.put("latencyLimitMs", latencyLimitMillis());
+        stats.put("errorRate", lastErrorRate);
+        stats.put("lag", lastLag);
+        if (executor != null) {
+            stats.put("poolSize", executor.getPoolSize());
+            stats.put("active", executor.getActiveCount());
+        }
+        return stats;
+    }
+
+    // ================= 调整循环 =================
+
+    private void adjust() {
+        try {
+            long n = samples.sumThenReset();
+            long failed = errors.sumThenReset();
+            long nanos = latencyNanos.sumThenReset();
+            double latency = n == 0 ? 0 : nanos / (double) n / 1_000_000;
+            double errorRate = n == 0 ? 0 : failed / (double) n;
+            long lag = lag();
+            int active = executor.getActiveCount();
+            lastLatencyMillis = latency;
+            lastErrorRate = errorRate;
+            lastLag = lag;
+
+            long now = System.currentTimeMillis();
+            if (suspended) {
+                if (now < suspendedUntil) {
+                    return;
+                }
+                // 暂停到期：恢复拉取，按当前 (最小) 并发试探
+                consumer.resume();
+                suspended = false;
+                log.info(">>> [自适应并发] 恢复拉取，试探数据库. limit={}", limit);
+                return;
+            }
+
+            boolean degraded = (failed > 0 && errorRate > errorThreshold)
+                    || (n >= minSamples && latency > latencyLimitMillis())
+                    // 有在途写入却整个窗口一条都没完成：数据库卡住了
+                    || (n == 0 && active > 0 && lag > 0);
+
+            if (degraded) {
+                degradedWindows++;
+                int next = Math.max(minLimit, (int) (limit * backoffRatio));
+                if (next < limit) {
+                    log.warn(">>> [自适应并发] 数据库劣化，降低并发 {} -> {}. latencyMs={}, errorRate={}, lag={}",
+                            limit, next, String.format("%.1f", latency), String.format("%.2f", errorRate), lag);
+                    resize(next);
+                } else if (degradedWindows >= suspendAfterWindows) {
+                    consumer.suspend();
+                    suspended = true;
+                    suspendedUntil = now + suspendMillis;
+                    log.warn(">>> [自适应并发] 最小并发下持续劣化，暂停拉取 {}ms. latencyMs={}, errorRate={}",
+                            suspendMillis, String.format("%.1f", latency), String.format("%.2f", errorRate));
+                }
+                return;
+            }
+
+            degradedWindows = 0;
+            if (n >= minSamples) {
+                // 基线取历史最小值并缓慢上漂，数据库整体变快 / 变慢后能重新学到
+                baselineMillis = baselineMillis < 0 || latency < baselineMillis
+                        ? latency : baselineMillis * 0.99 + latency * 0.01;
+            }
+            // 只有积压且线程已用满时才扩，空闲时扩了也用不上
+            if (lag > lagThreshold && active >= limit && limit < maxLimit) {
+                resize(Math.min(maxLimit, limit + increaseStep));
+            }
+        } catch (Exception e) {
+            log.warn(">>> [自适应并发] 调整失败", e);
+        }
+    }
+
+    private double latencyLimitMillis() {
+        return baselineMillis < 0 ? Double.MAX_VALUE : Math.max(baselineMillis * latencyTolerance, latencyFloorMillis);
+    }
+
+    /**
+     * 积压 = 本地已拉取未消费 + broker 上尚未拉取 (客户端随每次拉取记录的 maxOffset 差值，无额外 RPC)
+     */
+    private long lag() {
+        long lag = 0;
+        for (ProcessQueue pq : RocketMQConsumerInternals.processQueues(consumer)) {
+            lag += pq.getMsgCount().get() + pq.getMsgAccCnt();
+        }
+        return lag;
+    }
+
+    /**
+     * core / max 一起调：缩小时多出的线程跑完手上的消息即退出，扩大时立即补齐线程去取积压
+     */
+    private void resize(int newLimit) {
+        if (newLimit < executor.getCorePoolSize()) {
+            executor.setCorePoolSize(newLimit);
+            executor.setMaximumPoolSize(newLimit);
+        } else {
+            executor.setMaximumPoolSize(newLimit);
+            executor.setCorePoolSize(newLimit);
+            executor.prestartAllCoreThreads();
+        }
+        limit = newLimit;
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.seckill.order.consumer;
 
+import com.example.seckill.order.config.RocketMQVirtualThreadConfig;
 import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
 import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
 import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
 import org.apache.rocketmq.common.message.MessageExt;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -19,6 +21,10 @@ public class DLQConsumer {
     @Value("${app.rocketmq.namesrv-addr}")
     private String namesrvAddr;
 
+    // 虚拟线程模式下切换消费线程
+    @Autowired
+    private RocketMQVirtualThreadConfig rocketMQVirtualThreadConfig;
+
     // 死信 Topic 的名字是固定的： %DLQ% + 原来的消费组名
     private static final String DLQ_TOPIC = "%DLQ%consumer_group_seckill_sql";
 
@@ -51,6 +57,7 @@ public class DLQConsumer {
             });
 
             dlqConsumer.start();
+            rocketMQVirtualThreadConfig.switchConsumer(dlqConsumer);
             System.out.println(">>> 💀 死信消费者(DLQ Consumer) 已启动，正在监控: " + DLQ_TOPIC);
 
         } catch (Exception e) {
@@ -3,20 +3,21 @@ package com.example.seckill.order.consumer;
 import com.example.seckill.common.entity.Order;
 import com.example.seckill.common.result.Result;
 import com.example.seckill.common.utils.RedisUtil;
-import com.example.seckill.order.context.TableContext;
 import com.example.seckill.order.feign.GoodsFeignClient;
 import com.example.seckill.order.feign.PayFeignClient;
 import com.example.seckill.order.mapper.OrderMapper;
+import com.example.seckill.order.sharding.OrderShardRouter;
+import com.example.seckill.order.stock.StockEngine;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
 import org.apache.rocketmq.spring.core.RocketMQListener;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
 /**
  * 订单超时自动取消消费者
  * 监听 Topic: trade-order-delay-topic
+ * 开启批量关单时间轮 (app.seckill.timeout.wheel-enabled) 后不再产生新的延时消息，这里只消费切换前遗留的消息
  */
 @Slf4j
 @Component
@@ -32,22 +33,22 @@ public class OrderTimeoutConsumer implements RocketMQListener<String> {
     @Autowired
     private RedisUtil redisUtil;
 
-    @Autowired
-    private StringRedisTemplate stringRedisTemplate;
-
     // 【新增】注入支付 Feign 客户端
     @Autowired
     private PayFeignClient payFeignClient;
     @Autowired
     private GoodsFeignClient goodsFeignClient; // 用于扣减库存
+    @Autowired
+    private StockEngine stockEngine;
+    @Autowired
+    private OrderShardRouter orderShardRouter;
     @Override
     public void onMessage(String orderIdStr) {
         Long orderId = Long.valueOf(orderIdStr);
         log.info(">>> [延时关单] 收到关单请求，OrderId: {}", orderId);
 
-        // 1. 路由分表逻辑 (假设 orderId 包含分片键或算法与 userId 一致)
-        // 注意：生产环境如果按 UserId 分表，这里必须解析出 UserId 才能找到正确的表
-        TableContext.set("order_tbl_" + orderId % 4);
+        // 1. 路由分库分表 (orderId 低位携带 userId 基因，直接按 orderId 路由即可)
+        orderShardRouter.bind(orderId);
 
         try {
             Order order = orderMapper.selectById(orderId);
@@ -86,6 +87,7 @@ public class OrderTimeoutConsumer implements RocketMQListener<String> {
                     updateOrder.setId(orderId);
                     updateOrder.setStatus(2); // 2-已支付
                     orderMapper.updateById(updateOrder);
+                    orderShardRouter.mirrorWrite(orderId, () -> orderMapper.updateById(updateOrder));
                 } else {
                     // B. 如果第三方也说“未支付” -> 真的超时了，执行关单 + 回滚库存
                     performCloseOrder(order);
@@ -96,7 +98,7 @@ public class OrderTimeoutConsumer implements RocketMQListener<String> {
             }
         } finally {
             // 【必须】清理 ThreadLocal
-            TableContext.clear();
+            orderShardRouter.clear();
         }
     }
 
@@ -109,19 +111,14 @@ public class OrderTimeoutConsumer implements RocketMQListener<String> {
         updateOrder.setId(order.getId());
         updateOrder.setStatus(5);
         orderMapper.updateById(updateOrder);
+        orderShardRouter.mirrorWrite(order.getId(), () -> orderMapper.updateById(updateOrder));
         log.info(">>> [延时关单] 订单超时未支付，已执行关闭. OrderId: {}", order.getId());
 
-        // 2. 【核心步骤】回补 Redis 库存
-        // 既然下单只扣了 Redis，关单时必须把 Redis 补回来
-        String stockKey = "seckill:stock:" + order.getSkuId();
-
-        // 2.1 库存 +1
-        stringRedisTemplate.opsForValue().increment(stockKey);
-
-        // 2.2 移除“用户已购买”标记 (Allow user to buy again)
-        String dupKey = "seckill:order:done:" + order.getUserId() + ":" + order.getSkuId() + ":" + order.getId();
-        stringRedisTemplate.delete(dupKey);
+        // 2. 【核心步骤】回补库存
+        // 既然下单只扣了库存引擎 (Redis)，关单时必须补回来：库存 +1、删除扣减记录、退回限购额度、广播补货
+        stockEngine.release(order.getSkuId(), order.getUserId(), order.getId(),
+                order.getCount() == null ? 1 : order.getCount());
 
-        log.info(">>> [延时关单] Redis 库存回滚成功, Key: {}, DupKey已移除", stockKey);
+        log.info(">>> [延时关单] 库存回滚成功, skuId: {}", order.getSkuId());
     }
 }
\ No newline at end of file
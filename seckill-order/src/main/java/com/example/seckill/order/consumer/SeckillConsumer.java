@@ -1,17 +1,22 @@
 package com.example.seckill.order.consumer;
 
-import cn.hutool.json.JSONUtil;
 import com.example.seckill.common.dto.SeckillOrderMsgDTO;
 import com.example.seckill.common.entity.Order;
 import com.example.seckill.common.entity.SkuInfo;
 import com.example.seckill.common.result.Result;
-import com.example.seckill.order.context.TableContext;
+import com.example.seckill.common.utils.SeckillOrderMsgCodec;
+import com.example.seckill.order.config.RocketMQVirtualThreadConfig;
 import com.example.seckill.order.feign.GoodsFeignClient;
 import com.example.seckill.order.mapper.OrderMapper;
+import com.example.seckill.order.sharding.OrderShardRouter;
+import com.example.seckill.order.ticket.SeckillTicketService;
+import com.example.seckill.order.timeout.OrderTimeoutWheel;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
 import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
 import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
 import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,8 +27,14 @@ import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
 import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 秒杀下单消费者
@@ -42,13 +53,40 @@ public class SeckillConsumer {
     @Autowired
     private OrderMapper orderMapper;
 
+    // 分库分表路由 (订单ID 基因 -> 物理库 + 物理表)
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
 
     @Autowired
     private RocketMQTemplate rocketMQTemplate;
 
+    // 批量超时关单 (开启时不再发送逐单延时消息)
+    @Autowired
+    private OrderTimeoutWheel orderTimeoutWheel;
+
+    // 异步票据 (落库后推进为 PERSISTED)
+    @Autowired
+    private SeckillTicketService seckillTicketService;
+
+    // 按数据库耗时 / 失败率 / 积压自适应调整消费并发
+    @Autowired
+    private AdaptiveConsumeLimiter adaptiveConsumeLimiter;
+
+    // 虚拟线程模式下切换消费线程
+    @Autowired
+    private RocketMQVirtualThreadConfig rocketMQVirtualThreadConfig;
+
     // 延时关单 Topic
     private static final String DELAY_TOPIC = "trade-order-delay-topic";
 
+    // 延时关单级别 (逐条 / 批量模式共用)：Level 3 = 10s (1s 5s 10s 30s 1m ...)，与时间轮模式的 close-after-ms 默认值一致
+    private static final int DELAY_LEVEL = 3;
+
+    // 单次消费的最大消息数，<= 1 时使用逐条消费模式
+    @Value("${app.seckill.consumer.batch-size:1}")
+    private int consumeBatchSize;
+
     private DefaultMQPushConsumer consumer;
 
     @PostConstruct
@@ -58,29 +96,40 @@ public class SeckillConsumer {
             consumer.setNamesrvAddr(namesrvAddr);
             consumer.subscribe(topic, "*");
 
-            // 设置并发线程数 (保护数据库)
+            // 设置并发线程数 (保护数据库)，启动后由 AdaptiveConsumeLimiter 接管
             consumer.setConsumeThreadMin(5);
             consumer.setConsumeThreadMax(100);
 
+            // 【批量消费】按分表合并为多行 INSERT IGNORE
+            if (consumeBatchSize > 1) {
+                consumer.setConsumeMessageBatchMaxSize(consumeBatchSize);
+                consumer.setPullBatchSize(Math.max(consumer.getPullBatchSize(), consumeBatchSize));
+                consumer.registerMessageListener((MessageListenerConcurrently) (msgs, context) -> consumeBatch(msgs));
+                consumer.start();
+                rocketMQVirtualThreadConfig.switchConsumer(consumer);
+                adaptiveConsumeLimiter.attach(consumer);
+                log.info(">>> 秒杀下单消费者启动成功 (批量模式, batchSize={})", consumeBatchSize);
+                return;
+            }
+
             consumer.registerMessageListener((MessageListenerConcurrently) (msgs, context) -> {
                 for (MessageExt msg : msgs) {
                     try {
-                        String bodyJson = new String(msg.getBody(), StandardCharsets.UTF_8);
-                        log.info(">>> [秒杀消费者] 收到消息: {}", bodyJson);
+                        // 1. 解析消息对象 (二进制编码，兼容旧版 JSON)
+                        SeckillOrderMsgDTO msgDTO = SeckillOrderMsgCodec.decode(msg.getBody());
+                        log.info(">>> [秒杀消费者] 收到消息: {}", msgDTO);
 
-                        // 1. 解析消息对象
-                        SeckillOrderMsgDTO msgDTO = JSONUtil.toBean(bodyJson, SeckillOrderMsgDTO.class);
                         Long orderId = msgDTO.getOrderId();
                         Long userId = msgDTO.getUserId();
                         Long skuId = msgDTO.getSkuId();
                         Long price = msgDTO.getOrderPrice();
                         // -------------------------------------------------------
-                        // 【核心路由逻辑】计算分表名：order_tbl_0 ~ order_tbl_3
+                        // 【核心路由逻辑】按订单ID 基因选择物理库 + 分表
                         // -------------------------------------------------------
-                        long tableIndex = orderId % 4; // 也可以用 orderId % 4，结果是一样的
-                        String tableName = "order_tbl_" + tableIndex;
-                        TableContext.set(tableName); // 【关键】设置 ThreadLocal
-                        log.info(">>> 路由到分表: {}", tableName);
+                        int shard = orderShardRouter.shardOf(orderId);
+                        String tableName = orderShardRouter.tableName(shard);
+                        orderShardRouter.bindShard(shard); // 【关键】设置 ThreadLocal
+                        log.info(">>> 路由到分片: {}.{}", orderShardRouter.databaseKey(shard), tableName);
 
                         try {
                             // 2. 【幂等性检查】
@@ -88,6 +137,7 @@ public class SeckillConsumer {
                             Order existOrder = orderMapper.selectById(orderId);
                             if (existOrder != null) {
                                 log.warn(">>> 订单已存在，触发幂等逻辑，跳过。orderId={}", orderId);
+                                seckillTicketService.markPersisted(List.of(orderId));
                                 return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
                             }
 
@@ -105,18 +155,24 @@ public class SeckillConsumer {
                             order.setUpdateTime(new Date());
 
                             // 执行插入 (MP 会拦截并替换表名)
-                            orderMapper.insert(order);
+                            adaptiveConsumeLimiter.measure(() -> orderMapper.insert(order));
+                            // 重分片双写阶段：镜像写入新分片
+                            orderShardRouter.mirrorWrite(orderId, () -> orderMapper.insertIgnoreBatch(List.of(order)));
                             log.info(">>> 秒杀订单落库成功: orderId={}, table={}", orderId, tableName);
+                            seckillTicketService.markPersisted(List.of(orderId));
 
-                            // 5. 【发送延时消息】(用于超时自动关单)
-                            // 30分钟 = Level 16 (1s 5s ... 10m 20m 30m)
-                            try {
-                                MessageBuilder<?> builder = MessageBuilder.withPayload(String.valueOf(orderId));
-                                rocketMQTemplate.syncSend(DELAY_TOPIC, builder.build(), 3000, 3);
-                                log.info(">>> 延时关单消息已发送");
-                            } catch (Exception e) {
-                                log.error(">>> 延时消息发送失败，可能导致无法自动关单", e);
-                                // 这里可以不阻断主流程，依靠定时任务兜底
+                            // 5. 【超时关单登记】时间轮模式下批量关单，否则发送逐单延时消息 (延时见 DELAY_LEVEL)
+                            if (orderTimeoutWheel.isEnabled()) {
+                                orderTimeoutWheel.schedule(List.of(order));
+                            } else {
+                                try {
+                                    MessageBuilder<?> builder = MessageBuilder.withPayload(String.valueOf(orderId));
+                                    rocketMQTemplate.syncSend(DELAY_TOPIC, builder.build(), 3000, DELAY_LEVEL);
+                                    log.info(">>> 延时关单消息已发送");
+                                } catch (Exception e) {
+                                    log.error(">>> 延时消息发送失败，可能导致无法自动关单", e);
+                                    // 这里可以不阻断主流程，依靠定时任务兜底
+                                }
                             }
 
                         } catch (DuplicateKeyException e) {
@@ -127,7 +183,7 @@ public class SeckillConsumer {
                         }
                         finally {
                             // 【必须】清理 ThreadLocal，防止线程复用导致数据污染
-                            TableContext.clear();
+                            orderShardRouter.clear();
                         }
 
                     } catch (Exception e) {
@@ -140,10 +196,163 @@ public class SeckillConsumer {
             });
 
             consumer.start();
+            // 先切换虚拟线程再交给自适应并发调整线程数 (切换只换 ThreadFactory，不影响调整)
+            rocketMQVirtualThreadConfig.switchConsumer(consumer);
+            adaptiveConsumeLimiter.attach(consumer);
             log.info(">>> 秒杀下单消费者启动成功");
 
         } catch (Exception e) {
             log.error("启动消费者失败", e);
         }
     }
+
+    /**
+     * 批量消费
+     * 1. 按目标分片 (库 + 表) 分组，每组一条多行 INSERT IGNORE (主键冲突即重复消息，直接忽略)
+     * 2. 整组插入失败时退化为逐条插入，正常消息照常落库；仍有失败的消息时整批交给 Broker 重试 (重试时已落库的被 INSERT IGNORE 忽略)
+     * 3. 延时关单消息并发异步发送，整批只等待一次
+     */
+    private ConsumeConcurrentlyStatus consumeBatch(List<MessageExt> msgs) {
+        List<MessageExt> failed = new ArrayList<>();
+        Map<Long, MessageExt> msgByOrderId = new HashMap<>();
+        Map<Integer, List<Order>> ordersByShard = new LinkedHashMap<>();
+
+        // 1. 解析 & 按分表分组 (整批使用同一个路由快照)
+        OrderShardRouter.Routing routing = orderShardRouter.routing();
+        Date now = new Date();
+        for (MessageExt msg : msgs) {
+            try {
+                SeckillOrderMsgDTO msgDTO = SeckillOrderMsgCodec.decode(msg.getBody());
+
+                Order order = new Order();
+                order.setId(msgDTO.getOrderId());
+                order.setUserId(msgDTO.getUserId());
+                order.setSkuId(msgDTO.getSkuId());
+                order.setCount(1);
+                order.setMoney(BigDecimal.valueOf(msgDTO.getOrderPrice()));
+                order.setStatus(1); // 1-待支付
+                order.setOrderType(1); // 1-秒杀订单
+                order.setCreateTime(now);
+                order.setUpdateTime(now);
+
+                int shard = routing.shardOf(order.getId());
+                ordersByShard.computeIfAbsent(shard, k -> new ArrayList<>()).add(order);
+                msgByOrderId.put(order.getId(), msg);
+            } catch (Exception e) {
+                log.error(">>> [批量消费] 消息解析失败. msgId={}", msg.getMsgId(), e);
+                failed.add(msg);
+            }
+        }
+
+        // 2. 每张分表一条多行 INSERT IGNORE
+        List<Order> persisted = new ArrayList<>(msgs.size());
+        for (Map.Entry<Integer, List<Order>> entry : ordersByShard.entrySet()) {
+            String tableName = orderShardRouter.tableName(entry.getKey());
+            List<Order> orders = entry.getValue();
+            routing.bindShard(entry.getKey());
+            try {
+                int inserted = adaptiveConsumeLimiter.measure(() -> orderMapper.insertIgnoreBatch(orders));
+                persisted.addAll(orders);
+                mirrorBatch(routing, orders);
+                log.info(">>> [批量消费] 落库成功. table={}, size={}, inserted={}", tableName, orders.size(), inserted);
+            } catch (Exception e) {
+                log.warn(">>> [批量消费] 整组插入失败，逐条隔离. table={}, size={}", tableName, orders.size(), e);
+                for (Order order : orders) {
+                    try {
+                        adaptiveConsumeLimiter.measure(() -> orderMapper.insertIgnoreBatch(List.of(order)));
+                        persisted.add(order);
+                        orderShardRouter.mirrorWrite(order.getId(), () -> orderMapper.insertIgnoreBatch(List.of(order)));
+                    } catch (Exception ex) {
+                        log.error(">>> [批量消费] 单条插入失败. orderId={}", order.getId(), ex);
+                        failed.add(msgByOrderId.get(order.getId()));
+                    }
+                }
+            } finally {
+                // 【必须】清理 ThreadLocal，防止线程复用导致数据污染
+                orderShardRouter.clear();
+            }
+        }
+
+        // 3. 异步票据推进为 PERSISTED (整批一次 Lua)
+        List<Long> persistedIds = new ArrayList<>(persisted.size());
+        for (Order order : persisted) {
+            persistedIds.add(order.getId());
+        }
+        seckillTicketService.markPersisted(persistedIds);
+
+        // 4. 超时关单登记 (时间轮 / 延时消息)
+        // 重复消息 (INSERT IGNORE 忽略的行) 也会再登记一次，关单按订单状态幂等，
+        // 反而能补上“上次落库成功但关单登记失败”的情况
+        if (orderTimeoutWheel.isEnabled()) {
+            orderTimeoutWheel.schedule(persisted);
+        } else {
+            sendDelayMessages(persisted);
+        }
+
+        // 5. 有消息落库失败则整批重试：INSERT IGNORE 保证已落库的消息重复消费无副作用，
+        // 关单登记与票据推进也都幂等 (逐条隔离后失败的通常只是极少数，重复的只是一次批量插入)
+        if (!failed.isEmpty()) {
+            log.error(">>> [批量消费] {} 条消息落库失败，整批重试. firstMsgId={}", failed.size(), failed.get(0).getMsgId());
+            return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+        }
+        return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+    }
+
+    /**
+     * 重分片双写阶段：把已落库的一组订单按新拓扑再分组，镜像写入新分片
+     */
+    private void mirrorBatch(OrderShardRouter.Routing routing, List<Order> orders) {
+        Map<Integer, List<Order>> byMirror = new LinkedHashMap<>();
+        for (Order order : orders) {
+            int mirrorShard = routing.mirrorShardOf(order.getId());
+            if (mirrorShard >= 0) {
+                byMirror.computeIfAbsent(mirrorShard, k -> new ArrayList<>()).add(order);
+            }
+        }
+        for (List<Order> group : byMirror.values()) {
+            List<Long> ids = new ArrayList<>(group.size());
+            for (Order order : group) {
+                ids.add(order.getId());
+            }
+            orderShardRouter.mirrorWrite(group.get(0).getId(), ids, () -> orderMapper.insertIgnoreBatch(group));
+        }
+    }
+
+    /**
+     * 延时消息不支持 RocketMQ 批量发送，这里改为并发异步发送、整批统一等待，把 N 次往返压缩为一次
+     */
+    private void sendDelayMessages(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        CountDownLatch latch = new CountDownLatch(orders.size());
+        for (Order order : orders) {
+            Long orderId = order.getId();
+            try {
+                rocketMQTemplate.asyncSend(DELAY_TOPIC, MessageBuilder.withPayload(String.valueOf(orderId)).build(),
+                        new SendCallback() {
+                            @Override
+                            public void onSuccess(SendResult sendResult) {
+                                latch.countDown();
+                            }
+
+                            @Override
+                            public void onException(Throwable e) {
+                                log.error(">>> 延时消息发送失败，可能导致无法自动关单. orderId={}", orderId, e);
+                                latch.countDown();
+                            }
+                        }, 3000, DELAY_LEVEL);
+            } catch (Exception e) {
+                log.error(">>> 延时消息发送失败，可能导致无法自动关单. orderId={}", orderId, e);
+                latch.countDown();
+            }
+        }
+        try {
+            if (!latch.await(3000, TimeUnit.MILLISECONDS)) {
+                log.warn(">>> [批量消费] 等待延时消息发送超时. size={}", orders.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
\ No newline at end of file
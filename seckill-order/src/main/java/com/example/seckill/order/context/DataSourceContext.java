@@ -0,0 +1,24 @@
+package com.example.seckill.order.context;
+
+/**
+ * 当前线程要访问的物理库 (与 TableContext 配合：DataSourceContext 选库，TableContext 选表)
+ */
+public class DataSourceContext {
+    private static final ThreadLocal<String> DATA_SOURCE_HOLDER = new ThreadLocal<>();
+
+    /**
+     * 设置当前线程要操作的物理库
+     * @param dataSourceKey e.g., ds0
+     */
+    public static void set(String dataSourceKey) {
+        DATA_SOURCE_HOLDER.set(dataSourceKey);
+    }
+
+    public static String get() {
+        return DATA_SOURCE_HOLDER.get();
+    }
+
+    public static void clear() {
+        DATA_SOURCE_HOLDER.remove();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.seckill.order.controller;
+
+import com.example.seckill.order.consumer.AdaptiveConsumeLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 秒杀下单消费并发监控
+ * GET /admin/consumer/concurrency
+ */
+@RestController
+@RequestMapping("/admin/consumer")
+public class ConsumerMetricsController {
+
+    @Autowired
+    private AdaptiveConsumeLimiter adaptiveConsumeLimiter;
+
+    /**
+     * 当前并发上限、线程池大小、是否暂停拉取，以及最近一个窗口的写入耗时 / 失败率 / 积压
+     */
+    @GetMapping("/concurrency")
+    public Map<String, Object> concurrency() {
+        return adaptiveConsumeLimiter.stats();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.seckill.order.controller;
+
+import com.example.seckill.order.sharding.ShardingDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 分库连接池监控
+ * GET /admin/datasource/pools
+ */
+@RestController
+@RequestMapping("/admin/datasource")
+public class DataSourceMetricsController {
+
+    @Autowired
+    private ShardingDataSource shardingDataSource;
+
+    /**
+     * 每个物理库连接池的活跃 / 空闲 / 总连接数与等待线程数
+     */
+    @GetMapping("/pools")
+    public Map<String, Map<String, Object>> pools() {
+        return shardingDataSource.poolStats();
+    }
+}
@@ -2,9 +2,14 @@ package com.example.seckill.order.controller;
 
 import com.example.seckill.common.result.Result;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -17,6 +22,18 @@ public class PayMockController {
 
     private final Random random = new Random();
 
+    // 批量查询单次最多订单数
+    @Value("${app.pay.mock.max-batch:5000}")
+    private int maxBatch;
+
+    // 批量查询的固定开销 (一次网络往返 + 网关处理)
+    @Value("${app.pay.mock.batch-base-latency-ms:40}")
+    private long batchBaseLatencyMillis;
+
+    // 批量查询中每个订单的边际开销 (微秒)
+    @Value("${app.pay.mock.batch-per-order-micros:100}")
+    private long batchPerOrderMicros;
+
     /**
      * 模拟查询订单支付状态
      * 供延时关单消费者调用，用于判断是否需要真正关单
@@ -48,6 +65,40 @@ public class PayMockController {
         }
     }
 
+    /**
+     * 模拟批量查询订单支付状态
+     * 延时模型：固定开销 + 每单边际开销，再叠加 0~50% 的抖动 (远小于逐单查询的 N 次往返)
+     *
+     * @param orderIds 订单ID 列表，最多 app.pay.mock.max-batch 个
+     * @return 订单ID -> 是否已支付
+     */
+    @PostMapping("/check/batch")
+    public Result<Map<Long, Boolean>> checkPayStatusBatch(@RequestBody List<Long> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return Result.success(new HashMap<>());
+        }
+        if (orderIds.size() > maxBatch) {
+            return Result.error("单次最多查询 " + maxBatch + " 个订单");
+        }
+        try {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            long latencyMicros = batchBaseLatencyMillis * 1000 + batchPerOrderMicros * orderIds.size();
+            latencyMicros += (long) (latencyMicros * 0.5 * rnd.nextDouble());
+            TimeUnit.MICROSECONDS.sleep(latencyMicros);
+
+            // 与逐单查询一致：20% 已支付
+            Map<Long, Boolean> status = new HashMap<>(orderIds.size() * 2);
+            for (Long orderId : orderIds) {
+                status.put(orderId, rnd.nextInt(10) > 7);
+            }
+            log.info(">>> [模拟支付网关] 批量查询完成. size={}, 耗时: {}ms", orderIds.size(), latencyMicros / 1000);
+            return Result.success(status);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.error("500");
+        }
+    }
+
     /**
      * 手动强制标记为已支付 (方便手动测试)
      */
@@ -0,0 +1,77 @@
+package com.example.seckill.order.controller;
+
+import com.example.seckill.common.result.Result;
+import com.example.seckill.order.sharding.ReshardPlan;
+import com.example.seckill.order.sharding.ReshardingService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 订单在线重分片运维接口
+ * 流程: POST /admin/reshard/start -> GET status 直到 readyForCutover -> POST cutover (异步终检，status 中 stage 变为 CUTOVER 即已切换) -> POST cleanup
+ *      -> 修改 app.sharding 配置并滚动重启 -> POST finish
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin/reshard")
+public class ReshardingController {
+
+    @Autowired
+    private ReshardingService reshardingService;
+
+    @PostMapping("/start")
+    public Result<ReshardPlan> start(@RequestParam int tableCount, @RequestParam int databaseCount) {
+        try {
+            return Result.success(reshardingService.start(tableCount, databaseCount));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/status")
+    public Result<Map<String, Object>> status() {
+        return Result.success(reshardingService.status());
+    }
+
+    @PostMapping("/cutover")
+    public Result<ReshardPlan> cutover(@RequestParam(defaultValue = "false") boolean force) {
+        try {
+            return Result.success(reshardingService.cutover(force));
+        } catch (IllegalStateException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @PostMapping("/cleanup")
+    public Result<String> cleanup() {
+        try {
+            reshardingService.cleanup();
+            return Result.success("清理任务已提交");
+        } catch (IllegalStateException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @PostMapping("/finish")
+    public Result<String> finish() {
+        try {
+            reshardingService.finish();
+            return Result.success("重分片已结束");
+        } catch (IllegalStateException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @PostMapping("/abort")
+    public Result<String> abort() {
+        try {
+            reshardingService.abort();
+            return Result.success("重分片已放弃");
+        } catch (IllegalStateException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+}
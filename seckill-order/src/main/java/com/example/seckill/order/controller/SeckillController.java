@@ -1,10 +1,20 @@
 package com.example.seckill.order.controller;
 
+import com.example.seckill.common.context.ReactiveUserContext;
+import com.example.seckill.common.context.UserContext;
 import com.example.seckill.common.dto.SeckillSubmitDTO;
 import com.example.seckill.common.result.Result;
 import com.example.seckill.order.service.SeckillService;
+import com.example.seckill.order.ticket.SeckillTicketService;
+import com.example.seckill.order.vo.SeckillTicketVo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 秒杀核心接口 (生产者)
@@ -16,6 +26,9 @@ public class SeckillController {
     @Autowired
     private SeckillService seckillService;
 
+    @Autowired
+    private SeckillTicketService seckillTicketService;
+
     /**
      * 执行秒杀 (异步排队)
      * POST /seckill/do_seckill
@@ -23,13 +36,85 @@ public class SeckillController {
      * @return 订单ID (用于轮询) 或 错误信息
      */
     @PostMapping("/do_seckill")
-    public Result<String> doSeckill(@RequestBody SeckillSubmitDTO submitDTO) {
+    public CompletableFuture<Result<String>> doSeckill(@RequestBody SeckillSubmitDTO submitDTO) {
         // 参数校验
+        if (submitDTO.getSkuId() == null) {
+            return CompletableFuture.completedFuture(Result.error("商品信息不能为空"));
+        }
+
+        // 调用 Service (开启组提交时返回未完成的 Future，Tomcat 线程立即释放，结果由攒批线程异步写回)
+        return seckillService.submitSeckillAsync(submitDTO);
+    }
+
+    /**
+     * 执行秒杀 (非阻塞)
+     * POST /seckill/do_seckill_reactive
+     * 返回 Mono，Tomcat 线程在进入异步处理后立即释放；Lua 扣减、消息发送均为非阻塞调用，结果由回调线程写回
+     * 用户ID 取网关校验 JWT 后透传的 X-User-Id，放入 Reactor Context 传递，不依赖 UserContext (ThreadLocal)
+     */
+    @PostMapping("/do_seckill_reactive")
+    public Mono<Result<String>> doSeckillReactive(@RequestBody SeckillSubmitDTO submitDTO,
+                                                  @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        if (submitDTO.getSkuId() == null) {
+            return Mono.just(Result.error("商品信息不能为空"));
+        }
+        return seckillService.submitSeckillReactive(submitDTO)
+                .contextWrite(ReactiveUserContext.withUserId(userId));
+    }
+
+    /**
+     * 执行秒杀 (异步票据)
+     * POST /seckill/do_seckill_async
+     * 受理后立即返回票据，不等待扣减结果；结果通过 /seckill/result/{ticket} 查询
+     */
+    @PostMapping("/do_seckill_async")
+    public Result<String> doSeckillAsync(@RequestBody SeckillSubmitDTO submitDTO) {
         if (submitDTO.getSkuId() == null) {
             return Result.error("商品信息不能为空");
         }
+        return seckillService.submitSeckillTicket(submitDTO);
+    }
 
-        // 调用 Service
-        return seckillService.processSeckillRequest(submitDTO);
+    /**
+     * 查询票据结果 (长轮询)
+     * GET /seckill/result/{ticket}?waitMs=10000
+     * 已是最终状态 (PERSISTED / FAILED) 时立即返回；否则最多挂起 waitMs，期间状态结束则提前返回
+     * 只能查询本人的票据
+     */
+    @GetMapping("/result/{ticket}")
+    public DeferredResult<Result<SeckillTicketVo>> result(@PathVariable("ticket") Long ticket,
+                                                          @RequestParam(defaultValue = "10000") long waitMs) {
+        if (!seckillTicketService.isEnabled()) {
+            DeferredResult<Result<SeckillTicketVo>> disabled = new DeferredResult<>();
+            disabled.setResult(Result.error("异步秒杀未开启"));
+            return disabled;
+        }
+        Long userId = UserContext.getUserId();
+        if (userId == null) {
+            DeferredResult<Result<SeckillTicketVo>> anonymous = new DeferredResult<>();
+            anonymous.setResult(Result.error("用户未登录"));
+            return anonymous;
+        }
+        return seckillTicketService.awaitResult(ticket, userId, waitMs);
+    }
+
+    /**
+     * 查询票据结果 (SSE)
+     * GET /seckill/result/{ticket}/stream，每次状态变化推送一个 state 事件，最终状态后关闭
+     */
+    @GetMapping(value = "/result/{ticket}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter resultStream(@PathVariable("ticket") Long ticket) {
+        if (!seckillTicketService.isEnabled()) {
+            SseEmitter disabled = new SseEmitter();
+            disabled.completeWithError(new IllegalStateException("异步秒杀未开启"));
+            return disabled;
+        }
+        Long userId = UserContext.getUserId();
+        if (userId == null) {
+            SseEmitter anonymous = new SseEmitter();
+            anonymous.completeWithError(new IllegalStateException("用户未登录"));
+            return anonymous;
+        }
+        return seckillTicketService.stream(ticket, userId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package com.example.seckill.order.controller;
+
+import com.example.seckill.common.result.Result;
+import com.example.seckill.order.stock.StockEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 库存引擎运维接口
+ * 进程内引擎 (app.seckill.stock.engine=local) 的库存只能通过这里预热；
+ * Redis 引擎的正式预热仍走 goods 服务 /goods/prewarm (同时划转 DB 库存)，这里只用于压测环境直接写 Redis
+ */
+@RestController
+@RequestMapping("/admin/stock")
+public class StockAdminController {
+
+    @Autowired
+    private StockEngine stockEngine;
+
+    @PostMapping("/prewarm/{skuId}")
+    public Result<Long> prewarm(@PathVariable Long skuId, @RequestParam int stock,
+                                @RequestParam(defaultValue = "1") int segments) {
+        try {
+            stockEngine.prewarm(skuId, stock, segments);
+            return Result.success(stockEngine.remaining(skuId));
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/remaining/{skuId}")
+    public Result<Long> remaining(@PathVariable Long skuId) {
+        return Result.success(stockEngine.remaining(skuId));
+    }
+
+    @PostMapping("/drain/{skuId}")
+    public Result<Long> drain(@PathVariable Long skuId) {
+        return Result.success(stockEngine.drain(skuId));
+    }
+}
@@ -4,6 +4,11 @@ import com.example.seckill.common.result.Result;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * 支付服务远程调用客户端
@@ -19,4 +24,11 @@ public interface PayFeignClient {
      */
     @GetMapping("/pay/mock/check/{orderId}")
     Result<Boolean> checkPayStatus(@PathVariable("orderId") Long orderId);
-}
\ No newline at end of file
+
+    /**
+     * 批量查询订单支付状态 (单次最多 app.pay.mock.max-batch 个)
+     * @return 订单ID -> 是否已支付
+     */
+    @PostMapping("/pay/mock/check/batch")
+    Result<Map<Long, Boolean>> checkPayStatusBatch(@RequestBody List<Long> orderIds);
+}
@@ -0,0 +1,187 @@
+package com.example.seckill.order.idgen;
+
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import com.example.seckill.common.utils.SnowflakeIdWorker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 雪花机器标识租约
+ * 1. 启动时从 Redis 抢占一个空闲的机器标识 (SET NX PX)，换算成 workerId / datacenterId 配置全局 SnowflakeIdWorker
+ * 2. 定时续约；续约成功才推后发号截止时间，Redis 不可用时本地按截止时间自动停止发号 (fail-safe)
+ * 3. 发现租约被占用 / 已过期时立即停止发号并重新抢占一个新的机器标识
+ * 4. 关闭时停止发号并释放租约 (保留安全余量时长)，之后新扩容的节点即可复用
+ *
+ * 截止时间 = 续约前的本地时间 + TTL - 安全余量，保证旧持有者一定先于 Key 过期停止发号
+ * (安全余量用于覆盖节点间的时钟偏差)
+ */
+@Slf4j
+@Component
+public class WorkerIdLeaseManager {
+
+    // 机器标识 = datacenterId << 5 | workerId
+    private static final int WORKER_ID_BITS = 5;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.snowflake.lease.enabled:true}")
+    private boolean enabled;
+
+    // 租约 TTL
+    @Value("${app.snowflake.lease.ttl-ms:30000}")
+    private long ttlMillis;
+
+    // 续约间隔 (应明显小于 TTL，允许连续失败几次)
+    @Value("${app.snowflake.lease.renew-interval-ms:5000}")
+    private long renewIntervalMillis;
+
+    // 截止时间相对 Key 过期提前的余量 (覆盖时钟偏差)
+    @Value("${app.snowflake.lease.safety-margin-ms:3000}")
+    private long safetyMarginMillis;
+
+    private final String token = ManagementFactory.getRuntimeMXBean().getName()
+            + ":" + UUID.randomUUID().toString().substring(0, 8);
+
+    private DefaultRedisScript<Long> renewScript;
+    private DefaultRedisScript<Long> releaseScript;
+
+    private ScheduledExecutorService renewExecutor;
+    private int geneBits;
+    private volatile long leasedNodeId = -1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 抢占机器标识并开始续约，抢不到直接启动失败 (宁可少一个节点也不能撞号)
+     */
+    public synchronized void start(int geneBits) {
+        if (ttlMillis <= safetyMarginMillis + renewIntervalMillis) {
+            throw new IllegalStateException("app.snowflake.lease.ttl-ms 必须大于 renew-interval-ms + safety-margin-ms");
+        }
+        this.geneBits = geneBits;
+        renewScript = loadScript("snowflake_lease_renew.lua");
+        releaseScript = loadScript("snowflake_lease_release.lua");
+
+        if (!acquire()) {
+            throw new IllegalStateException("没有空闲的雪花机器标识 (共 " + nodeCapacity() + " 个)，请检查节点数或基因位数");
+        }
+
+        renewExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snowflake-lease-renewer");
+            t.setDaemon(true);
+            return t;
+        });
+        renewExecutor.scheduleWithFixedDelay(this::renew, renewIntervalMillis, renewIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public long getLeasedNodeId() {
+        return leasedNodeId;
+    }
+
+    private DefaultRedisScript<Long> loadScript(String path) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setResultType(Long.class);
+        script.setLocation(new ClassPathResource(path));
+        return script;
+    }
+
+    private int nodeCapacity() {
+        return 1 << 10;
+    }
+
+    /**
+     * 从随机位置开始逐个尝试，避免多个节点同时启动时挤在同一个标识上
+     */
+    private boolean acquire() {
+        int capacity = nodeCapacity();
+        int start = ThreadLocalRandom.current().nextInt(capacity);
+        for (int i = 0; i < capacity; i++) {
+            long nodeId = (start + i) % capacity;
+            long requestedAt = System.currentTimeMillis();
+            Boolean ok = stringRedisTemplate.opsForValue().setIfAbsent(
+                    SeckillRedisKeys.snowflakeNodeKey(nodeId), token, ttlMillis, TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(ok)) {
+                long workerId = nodeId & ((1L << WORKER_ID_BITS) - 1);
+                long datacenterId = nodeId >> WORKER_ID_BITS;
+                SnowflakeIdWorker.configure(workerId, datacenterId, geneBits, deadlineFrom(requestedAt));
+                leasedNodeId = nodeId;
+                log.info(">>> [ID生成器] 租到机器标识. nodeId={}, workerId={}, datacenterId={}, token={}",
+                        nodeId, workerId, datacenterId, token);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long deadlineFrom(long requestedAt) {
+        return requestedAt + ttlMillis - safetyMarginMillis;
+    }
+
+    private void renew() {
+        long nodeId = leasedNodeId;
+        try {
+            if (nodeId < 0) {
+                // 上次重新抢占失败，继续尝试
+                if (acquire()) {
+                    log.info(">>> [ID生成器] 重新租到机器标识，恢复发号. nodeId={}", leasedNodeId);
+                }
+                return;
+            }
+            long requestedAt = System.currentTimeMillis();
+            Long result = stringRedisTemplate.execute(renewScript,
+                    List.of(SeckillRedisKeys.snowflakeNodeKey(nodeId)), token, String.valueOf(ttlMillis));
+            if (result != null && result == 1) {
+                SnowflakeIdWorker.getInstance().renewLease(deadlineFrom(requestedAt));
+                return;
+            }
+            // 租约已过期或被其它实例占用：立即停止发号，换一个新的机器标识
+            log.error(">>> [ID生成器] 机器标识租约丢失，停止发号并重新抢占. nodeId={}", nodeId);
+            SnowflakeIdWorker.getInstance().revokeLease();
+            leasedNodeId = -1;
+            if (acquire()) {
+                log.info(">>> [ID生成器] 重新租到机器标识，恢复发号. nodeId={}", leasedNodeId);
+            }
+        } catch (Exception e) {
+            // Redis 暂时不可用：不动截止时间，持续失败超过 TTL - 安全余量后自动停止发号
+            log.warn(">>> [ID生成器] 机器标识续约失败. nodeId={}", nodeId, e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (renewExecutor == null) {
+            return;
+        }
+        renewExecutor.shutdownNow();
+        long nodeId = leasedNodeId;
+        if (nodeId < 0) {
+            return;
+        }
+        // 先停止本地发号再释放，保证释放之后本实例不会再用这个标识
+        SnowflakeIdWorker.getInstance().revokeLease();
+        try {
+            stringRedisTemplate.execute(releaseScript, List.of(SeckillRedisKeys.snowflakeNodeKey(nodeId)),
+                    token, String.valueOf(safetyMarginMillis));
+            log.info(">>> [ID生成器] 已释放机器标识. nodeId={}", nodeId);
+        } catch (Exception e) {
+            log.warn(">>> [ID生成器] 释放机器标识失败，等待 TTL 过期. nodeId={}", nodeId, e);
+        }
+    }
+}
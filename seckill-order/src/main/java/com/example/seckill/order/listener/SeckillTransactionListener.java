@@ -1,25 +1,20 @@
 package com.example.seckill.order.listener;
 
-import cn.hutool.json.JSONUtil;
 import com.example.seckill.common.dto.SeckillOrderMsgDTO;
+import com.example.seckill.common.utils.SeckillOrderMsgCodec;
+import com.example.seckill.order.stock.SoldOutBroadcaster;
+import com.example.seckill.order.stock.StockEngine;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.rocketmq.spring.annotation.RocketMQTransactionListener;
 import org.apache.rocketmq.spring.core.RocketMQLocalTransactionListener;
 import org.apache.rocketmq.spring.core.RocketMQLocalTransactionState;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
-import jakarta.annotation.PostConstruct;
-import java.nio.charset.StandardCharsets;
-import java.util.List;
-
 /**
  * 秒杀事务消息监听器
- * 核心作用：将 Redis 扣减与 MQ 发送绑定为原子操作
+ * 核心作用：将库存扣减与 MQ 发送绑定为原子操作 (扣减逻辑见 {@link StockEngine})
  */
 @Slf4j
 @Component
@@ -27,52 +22,47 @@ import java.util.List;
 public class SeckillTransactionListener implements RocketMQLocalTransactionListener {
 
     @Autowired
-    private StringRedisTemplate stringRedisTemplate;
+    private StockEngine stockEngine;
 
-    private DefaultRedisScript<Long> seckillScript;
+    @Autowired
+    private SoldOutBroadcaster soldOutBroadcaster;
 
-    @PostConstruct
-    public void init() {
-        seckillScript = new DefaultRedisScript<>();
-        seckillScript.setResultType(Long.class);
-        seckillScript.setLocation(new ClassPathResource("seckill_stock.lua"));
-    }
+    @Autowired
+    private TransactionCheckBatcher transactionCheckBatcher;
 
     /**
      * 【阶段一：执行本地事务】
-     * 收到 Half Message 后回调此方法。在这里执行 Redis 扣减。
+     * 收到 Half Message 后回调此方法。在这里扣减库存。
      */
     @Override
     public RocketMQLocalTransactionState executeLocalTransaction(Message msg, Object arg) {
         try {
-            // 1. 解析消息
-            String bodyJson = new String((byte[]) msg.getPayload(), StandardCharsets.UTF_8);
-            SeckillOrderMsgDTO msgDTO = JSONUtil.toBean(bodyJson, SeckillOrderMsgDTO.class);
-            Long userId = msgDTO.getUserId();
-            Long skuId = msgDTO.getSkuId();
-            Long orderId = msgDTO.getOrderId();
-            // 2. 准备 Redis Key
-            String stockKey = "seckill:stock:" + skuId;
-            String dupKey = "seckill:order:done:" + userId + ':' + skuId + ':' + orderId;
-            List<String> keys = List.of(stockKey, dupKey);
-
-            // 3. 执行 Lua 脚本
-            // 返回值: 1=成功, -1=无库存, -2=重复购买, -3=Key不存在
-            Long result = stringRedisTemplate.execute(seckillScript, keys);
+            // 1. 取消息对象：生产者通过 arg 直接传入，拿不到时才解码消息体
+            SeckillOrderMsgDTO msgDTO = arg instanceof SeckillOrderMsgDTO
+                    ? (SeckillOrderMsgDTO) arg
+                    : SeckillOrderMsgCodec.decode((byte[]) msg.getPayload());
 
-            if (result != null && result != -1) {
-                // log.info("✅ [本地事务] Redis扣减成功, 提交消息. orderId={}", msgDTO.getOrderId());
-                return RocketMQLocalTransactionState.COMMIT;
-            } else {
-                if (result != null && result == -1) {
-                    log.warn("❌ [本地事务] 库存不足. skuId={}", skuId);
-                }
-                // 为了压测，允许重复下单
-                // else if (result != null && result == -2) {
-                //     log.warn("❌ [本地事务] 重复下单. userId={}", userId);
-                // }
-                // 扣减失败，回滚消息 (MQ 不会把消息发给 Consumer)
-                return RocketMQLocalTransactionState.ROLLBACK;
+            // 2. 扣减库存 (分段 / 租约 / 单 Key 由库存引擎决定)
+            StockEngine.Reservation reservation = stockEngine.reserve(
+                    msgDTO.getSkuId(), msgDTO.getUserId(), msgDTO.getOrderId());
+            switch (reservation) {
+                case RESERVED:
+                    // log.info("✅ [本地事务] 库存扣减成功, 提交消息. orderId={}", msgDTO.getOrderId());
+                    return RocketMQLocalTransactionState.COMMIT;
+                case UNKNOWN:
+                    return RocketMQLocalTransactionState.UNKNOWN;
+                case SOLD_OUT:
+                    // 本节点立即置位，不等 Pub/Sub 回环
+                    soldOutBroadcaster.markSoldOutLocal(msgDTO.getSkuId());
+                    log.warn("❌ [本地事务] 库存不足. skuId={}", msgDTO.getSkuId());
+                    return RocketMQLocalTransactionState.ROLLBACK;
+                case LIMIT_EXCEEDED:
+                    log.warn("❌ [本地事务] 超过限购. skuId={}, userId={}", msgDTO.getSkuId(), msgDTO.getUserId());
+                    return RocketMQLocalTransactionState.ROLLBACK;
+                default:
+                    // 库存未预热：回滚消息 (MQ 不会把消息发给 Consumer)
+                    log.warn("❌ [本地事务] 库存未预热. skuId={}", msgDTO.getSkuId());
+                    return RocketMQLocalTransactionState.ROLLBACK;
             }
 
         } catch (Exception e) {
@@ -86,24 +76,26 @@ public class SeckillTransactionListener implements RocketMQLocalTransactionListe
     /**
      * 【阶段二：事务回查】
      * 如果 executeLocalTransaction 返回 UNKNOWN，或者超时未响应，MQ 会调用此方法。
-     * 检查 Redis 中是否有“购买成功标记”，以确定当时到底扣没扣成功。
+     * 检查库存引擎中是否有扣减记录，以确定当时到底扣没扣成功。
+     * 运行在 RocketMQConfig 注册的回查线程池上，并发回查经 {@link TransactionCheckBatcher} 合并为批量查询。
      */
     @Override
     public RocketMQLocalTransactionState checkLocalTransaction(Message msg) {
         try {
-            String bodyJson = new String((byte[]) msg.getPayload(), StandardCharsets.UTF_8);
-            SeckillOrderMsgDTO msgDTO = JSONUtil.toBean(bodyJson, SeckillOrderMsgDTO.class);
-
-            // 检查重复购买 Key 是否存在
-            // 这个 Key 是 Lua 脚本中扣减成功后写入的
-            String dupKey = "seckill:order:done:" + msgDTO.getUserId() + ':' + msgDTO.getSkuId() + ':' + msgDTO.getOrderId();
-            Boolean hasBought = stringRedisTemplate.hasKey(dupKey);
+            // 回查时没有 arg (可能已换了进程)，只能解码消息体
+            SeckillOrderMsgDTO msgDTO = SeckillOrderMsgCodec.decode((byte[]) msg.getPayload());
 
-            if (Boolean.TRUE.equals(hasBought)) {
-                // log.info("🔍 [事务回查] 订单标记存在，提交消息. orderId={}", msgDTO.getOrderId());
+            // 检查扣减记录 (Redis 引擎即 Lua 扣减成功后写入的扣减记录)
+            StockEngine.Reservation reservation = transactionCheckBatcher.check(
+                    msgDTO.getSkuId(), msgDTO.getUserId(), msgDTO.getOrderId());
+            if (reservation == StockEngine.Reservation.RESERVED) {
+                // log.info("🔍 [事务回查] 扣减记录存在，提交消息. orderId={}", msgDTO.getOrderId());
                 return RocketMQLocalTransactionState.COMMIT;
+            } else if (reservation == StockEngine.Reservation.UNKNOWN) {
+                // 租约模式下订单已在本地扣减、标记尚未批量落地 (或回查排队超时)，稍后再查
+                return RocketMQLocalTransactionState.UNKNOWN;
             } else {
-                // log.warn("🔍 [事务回查] 订单标记不存在，回滚消息. orderId={}", msgDTO.getOrderId());
+                // log.warn("🔍 [事务回查] 扣减记录不存在，回滚消息. orderId={}", msgDTO.getOrderId());
                 return RocketMQLocalTransactionState.ROLLBACK;
             }
         } catch (Exception e) {
@@ -111,4 +103,4 @@ public class SeckillTransactionListener implements RocketMQLocalTransactionListe
             return RocketMQLocalTransactionState.UNKNOWN;
         }
     }
-}
\ No newline at end of file
+}
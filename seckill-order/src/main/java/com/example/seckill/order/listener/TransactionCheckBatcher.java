@@ -0,0 +1,181 @@
+package com.example.seckill.order.listener;
+
+import com.example.seckill.order.stock.StockEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事务回查攒批
+ * broker 抖动恢复后会一次性回查数万条半消息，逐条 SISMEMBER 时回查线程全部卡在各自的网络往返上。
+ * 这里让并发的回查请求排队，后台线程攒到 max-batch 条或 max-wait-ms 后调用一次 {@link StockEngine#checkAll}
+ * (Redis 引擎为一次 Pipeline)，回查线程 (RocketMQConfig 中的回查线程池) 只等待自己的结果。
+ *
+ * 攒批的上限实际由回查线程数决定 (每个线程同一时刻只有一条在途回查)，两者应一起调整。
+ * 排队满 / 等待超时 / 批量回查异常一律回答 UNKNOWN，broker 稍后会再次回查，不会误判
+ */
+@Slf4j
+@Component
+public class TransactionCheckBatcher {
+
+    @Autowired
+    private StockEngine stockEngine;
+
+    @Value("${app.rocketmq.check.batch-enabled:true}")
+    private boolean enabled;
+
+    // 单批最多回查条数
+    @Value("${app.rocketmq.check.max-batch:256}")
+    private int maxBatch;
+
+    // 从收到第一条回查起最多等待多久发车
+    @Value("${app.rocketmq.check.max-wait-ms:2}")
+    private long maxWaitMillis;
+
+    // 排队上限，满了直接回答 UNKNOWN
+    @Value("${app.rocketmq.check.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // 攒批线程数
+    @Value("${app.rocketmq.check.workers:2}")
+    private int workers;
+
+    // 回查线程等待结果的上限 (ms)
+    @Value("${app.rocketmq.check.timeout-ms:3000}")
+    private long timeoutMillis;
+
+    /**
+     * 一条排队中的回查
+     */
+    private static final class Pending {
+        private final StockEngine.Claim claim;
+        private final CompletableFuture<StockEngine.Reservation> future = new CompletableFuture<>();
+
+        private Pending(StockEngine.Claim claim) {
+            this.claim = claim;
+        }
+    }
+
+    private BlockingQueue<Pending> queue;
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread t = new Thread(this::batchLoop, "seckill-tx-check-batch-" + i);
+            t.setDaemon(true);
+            t.start();
+            workerThreads.add(t);
+        }
+        log.info(">>> [事务回查] 攒批已启用. workers={}, maxBatch={}, maxWaitMs={}", workers, maxBatch, maxWaitMillis);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        for (Thread t : workerThreads) {
+            t.interrupt();
+        }
+        if (queue != null) {
+            // 未处理的回查交给 broker 下一轮
+            Pending pending;
+            while ((pending = queue.poll()) != null) {
+                pending.future.complete(StockEngine.Reservation.UNKNOWN);
+            }
+        }
+    }
+
+    /**
+     * 回查一笔订单 (阻塞调用线程直到所在批次完成)，未启用攒批时直接逐单回查
+     */
+    public StockEngine.Reservation check(long skuId, long userId, long orderId) {
+        if (!enabled) {
+            return stockEngine.check(skuId, userId, orderId);
+        }
+        Pending pending = new Pending(new StockEngine.Claim(skuId, userId, orderId, 1));
+        if (!running || !queue.offer(pending)) {
+            return StockEngine.Reservation.UNKNOWN;
+        }
+        try {
+            return pending.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return StockEngine.Reservation.UNKNOWN;
+        } catch (Exception e) {
+            return StockEngine.Reservation.UNKNOWN;
+        }
+    }
+
+    // ================= 攒批循环 =================
+
+    private void batchLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (batch.size() < maxBatch) {
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                checkBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                // 异常 / 中断时未完成的回查一律 UNKNOWN
+                for (Pending p : batch) {
+                    p.future.complete(StockEngine.Reservation.UNKNOWN);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void checkBatch(List<Pending> batch) {
+        List<StockEngine.Claim> claims = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            claims.add(p.claim);
+        }
+        try {
+            List<StockEngine.Reservation> results = stockEngine.checkAll(claims);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(results.get(i));
+            }
+        } catch (Exception e) {
+            log.warn(">>> [事务回查] 批量回查异常，本批回答 UNKNOWN. size={}", batch.size(), e);
+        }
+    }
+}
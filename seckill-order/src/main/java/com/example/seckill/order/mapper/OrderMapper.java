@@ -2,10 +2,69 @@ package com.example.seckill.order.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.seckill.common.entity.Order;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 @Mapper
 public interface OrderMapper extends BaseMapper<Order> {
     // 继承 BaseMapper 后，你自动拥有了 insert, selectById 等 CRUD 方法
     // 不需要写一行 SQL
-}
\ No newline at end of file
+
+    /**
+     * 多行 INSERT IGNORE (批量消费使用)
+     * 表名写逻辑表 order_tbl，由动态表名插件按 TableContext 替换为 order_tbl_x，所以同一批必须属于同一张分表
+     * 主键冲突的行被忽略，替代“先查再插”的幂等检查
+     * @return 实际插入的行数
+     */
+    @Insert({"<script>",
+            "INSERT IGNORE INTO order_tbl (id, user_id, sku_id, count, money, status, order_type, create_time, update_time) VALUES ",
+            "<foreach collection='orders' item='o' separator=','>",
+            "(#{o.id}, #{o.userId}, #{o.skuId}, #{o.count}, #{o.money}, #{o.status}, #{o.orderType}, #{o.createTime}, #{o.updateTime})",
+            "</foreach>",
+            "</script>"})
+    int insertIgnoreBatch(@Param("orders") List<Order> orders);
+
+    /**
+     * 按主键顺序流式扫描当前分表 (重分片搬迁使用，keyset 分页避免深翻页)
+     */
+    @Select("SELECT * FROM order_tbl WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Order> scanAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 多行 UPSERT (重分片对账使用，以源表数据覆盖目标表)
+     */
+    @Insert({"<script>",
+            "INSERT INTO order_tbl (id, user_id, sku_id, count, money, status, order_type, create_time, update_time) VALUES ",
+            "<foreach collection='orders' item='o' separator=','>",
+            "(#{o.id}, #{o.userId}, #{o.skuId}, #{o.count}, #{o.money}, #{o.status}, #{o.orderType}, #{o.createTime}, #{o.updateTime})",
+            "</foreach>",
+            " ON DUPLICATE KEY UPDATE user_id = VALUES(user_id), sku_id = VALUES(sku_id), count = VALUES(count),",
+            " money = VALUES(money), status = VALUES(status), order_type = VALUES(order_type),",
+            " create_time = VALUES(create_time), update_time = VALUES(update_time)",
+            "</script>"})
+    int upsertBatch(@Param("orders") List<Order> orders);
+
+    /**
+     * 批量查询仍处于待支付的订单 (批量关单使用，同一批必须属于同一张分表)
+     */
+    @Select({"<script>",
+            "SELECT id, user_id, sku_id, count, status FROM order_tbl WHERE status = 1 AND id IN ",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"})
+    List<Order> selectPendingByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 条件批量改状态：只有仍处于待支付的订单才会被修改，已支付 / 已关闭的订单不受影响
+     * @return 实际修改的行数
+     */
+    @Update({"<script>",
+            "UPDATE order_tbl SET status = #{status}, update_time = NOW() WHERE status = 1 AND id IN ",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"})
+    int updatePendingStatus(@Param("ids") List<Long> ids, @Param("status") int status);
+}
@@ -2,6 +2,9 @@ package com.example.seckill.order.service;
 
 import com.example.seckill.common.dto.SeckillSubmitDTO;
 import com.example.seckill.common.result.Result;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
 
 public interface SeckillService {
 
@@ -14,4 +17,28 @@ public interface SeckillService {
      * @return 结果
      */
     Result<String> processSeckillRequest(SeckillSubmitDTO submitDTO);
-}
\ No newline at end of file
+
+    /**
+     * 异步处理秒杀请求
+     * 开启组提交时请求进入攒批队列，由后台线程批量扣减、批量发送；否则退化为同步的 processSeckillRequest
+     * * @param submitDTO 秒杀提交参数
+     * @return 结果 Future (Controller 直接返回，由 Spring MVC 异步写回)
+     */
+    CompletableFuture<Result<String>> submitSeckillAsync(SeckillSubmitDTO submitDTO);
+
+    /**
+     * 异步票据模式：受理后立即返回票据 (即订单ID)，扣减与落库在后台进行
+     * 进度通过 SeckillTicketService 记录 (QUEUED -> STOCK_OK -> PERSISTED / FAILED)，客户端长轮询 / SSE 查询
+     * * @param submitDTO 秒杀提交参数
+     * @return 票据
+     */
+    Result<String> submitSeckillTicket(SeckillSubmitDTO submitDTO);
+
+    /**
+     * 非阻塞秒杀：用户ID 从 Reactor Context 读取 (ReactiveUserContext)，Lua 扣减走 Lettuce 响应式连接，
+     * 扣减成功后异步发送普通下单消息，全程不占用请求线程；消息发送失败时补偿库存
+     * * @param submitDTO 秒杀提交参数
+     * @return 结果 (Controller 直接返回，由 Spring MVC 订阅并异步写回)
+     */
+    Mono<Result<String>> submitSeckillReactive(SeckillSubmitDTO submitDTO);
+}
@@ -5,11 +5,13 @@ import com.example.seckill.common.context.UserContext;
 import com.example.seckill.common.entity.OrderTrade;
 import com.example.seckill.common.entity.UserAddr; // 引入 UserAddr
 import com.example.seckill.common.result.Result;
+import com.example.seckill.common.utils.SnowflakeIdWorker;
 import com.example.seckill.order.feign.CartFeignClient;
 import com.example.seckill.order.feign.GoodsFeignClient;
 import com.example.seckill.order.feign.UserFeignClient; // 引入 UserFeignClient
 import com.example.seckill.order.mapper.OrderTradeMapper;
 import com.example.seckill.order.service.OrderTradeService;
+import com.example.seckill.order.sharding.OrderShardRouter;
 import com.example.seckill.order.vo.OrderSubmitVo;
 import io.seata.spring.annotation.GlobalTransactional;
 import lombok.extern.slf4j.Slf4j;
@@ -38,6 +40,10 @@ public class OrderTradeServiceImpl implements OrderTradeService {
     @Autowired
     private UserFeignClient userFeignClient;
 
+    // 分库路由：交易订单按用户基因落到对应的物理库
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
     @Override
     @GlobalTransactional(name = "create-order-tx", rollbackFor = Exception.class)
     public Result<String> createOrder(OrderSubmitVo submitVo) {
@@ -85,41 +91,48 @@ public class OrderTradeServiceImpl implements OrderTradeService {
         }
         // 4. 循环处理每一个【选中的】购物项
         List<String> orderIds = new ArrayList<>();
-        for (CartItem item : selectedItems) { // 遍历 selectedItems 而不是 allCartItems
-            // --- B. 远程扣减库存 ---
-            // Result<String> reduceRes = goodsFeignClient.reduceStockDB(item.getSkuId(), item.getCount());
-            // --- C. 创建订单对象 ---
-            OrderTrade order = new OrderTrade();
-            order.setUserId(userId);
-            order.setSkuId(item.getSkuId());
-            order.setCount(item.getCount());
-
-            BigDecimal price = item.getPrice() != null ? item.getPrice() : BigDecimal.ZERO;
-            BigDecimal amount = price.multiply(new BigDecimal(item.getCount()));
-            order.setTotalAmount(amount);
-            order.setPayAmount(amount);
-            order.setFreightAmount(BigDecimal.ZERO);
-
-            order.setStatus(0);
-            order.setOrderType(0);
-            order.setCreateTime(new Date());
-            order.setModifyTime(new Date());
-
-            // 填入真实收货信息
-            order.setReceiverName(userAddr.getReceiverName());
-            order.setReceiverPhone(userAddr.getReceiverPhone());
-            String fullAddress = (userAddr.getProvince() == null ? "" : userAddr.getProvince()) + " " +
-                    (userAddr.getCity() == null ? "" : userAddr.getCity()) + " " +
-                    (userAddr.getArea() == null ? "" : userAddr.getArea()) + " " + // 注意这里用 Area
-                    userAddr.getDetailAddr();
-            order.setReceiverDetailAddress(fullAddress);
-
-            order.setNote(submitVo.getRemark());
-
-            // 插入数据库
-            orderTradeMapper.insert(order);
-            log.info("商品[{}]生成订单成功, 订单ID: {}", item.getSkuId(), order.getId());
-            orderIds.add(String.valueOf(order.getId()));
+        // 同一用户的订单都落在其基因对应的库，订单ID 也带上同样的基因，后续按订单ID 即可路由
+        orderShardRouter.bindDatabase(userId);
+        try {
+            for (CartItem item : selectedItems) { // 遍历 selectedItems 而不是 allCartItems
+                // --- B. 远程扣减库存 ---
+                // Result<String> reduceRes = goodsFeignClient.reduceStockDB(item.getSkuId(), item.getCount());
+                // --- C. 创建订单对象 ---
+                OrderTrade order = new OrderTrade();
+                order.setUserId(userId);
+                order.setSkuId(item.getSkuId());
+                order.setCount(item.getCount());
+
+                BigDecimal price = item.getPrice() != null ? item.getPrice() : BigDecimal.ZERO;
+                BigDecimal amount = price.multiply(new BigDecimal(item.getCount()));
+                order.setTotalAmount(amount);
+                order.setPayAmount(amount);
+                order.setFreightAmount(BigDecimal.ZERO);
+
+                order.setStatus(0);
+                order.setOrderType(0);
+                order.setCreateTime(new Date());
+                order.setModifyTime(new Date());
+
+                // 填入真实收货信息
+                order.setReceiverName(userAddr.getReceiverName());
+                order.setReceiverPhone(userAddr.getReceiverPhone());
+                String fullAddress = (userAddr.getProvince() == null ? "" : userAddr.getProvince()) + " " +
+                        (userAddr.getCity() == null ? "" : userAddr.getCity()) + " " +
+                        (userAddr.getArea() == null ? "" : userAddr.getArea()) + " " + // 注意这里用 Area
+                        userAddr.getDetailAddr();
+                order.setReceiverDetailAddress(fullAddress);
+
+                order.setNote(submitVo.getRemark());
+
+                // 插入数据库
+                order.setId(SnowflakeIdWorker.getInstance().nextId(userId));
+                orderTradeMapper.insert(order);
+                log.info("商品[{}]生成订单成功, 订单ID: {}", item.getSkuId(), order.getId());
+                orderIds.add(String.valueOf(order.getId()));
+            }
+        } finally {
+            orderShardRouter.clear();
         }
 
         // 5. 清理购物车 (只清理选中的商品，没选的留着)
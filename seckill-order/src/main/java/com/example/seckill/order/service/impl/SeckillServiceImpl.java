@@ -1,25 +1,47 @@
 package com.example.seckill.order.service.impl;
 
-import cn.hutool.json.JSONUtil;
+import com.example.seckill.common.context.ReactiveUserContext;
 import com.example.seckill.common.context.UserContext;
+import com.example.seckill.common.dto.SeckillActivityDTO;
 import com.example.seckill.common.dto.SeckillOrderMsgDTO;
 import com.example.seckill.common.dto.SeckillSubmitDTO;
 import com.example.seckill.common.result.Result;
 import com.example.seckill.common.utils.SnowflakeIdWorker;
+import com.example.seckill.order.activity.SeckillActivityCatalog;
+import com.example.seckill.order.admission.SkuAdmissionGate;
 import com.example.seckill.order.config.RocketMQConfig;
 import com.example.seckill.order.service.SeckillService;
+import com.example.seckill.order.stock.SoldOutBroadcaster;
+import com.example.seckill.order.stock.StockEngine;
+import com.example.seckill.order.submit.OrderMessageRedelivery;
+import com.example.seckill.order.submit.SeckillGroupCommitter;
+import com.example.seckill.order.ticket.SeckillTicketService;
+import com.example.seckill.order.ticket.TicketState;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.rocketmq.client.producer.LocalTransactionState;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
 import org.apache.rocketmq.client.producer.TransactionSendResult;
 import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.math.BigDecimal;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
@@ -32,8 +54,107 @@ public class SeckillServiceImpl implements SeckillService {
     private RocketMQConfig rocketMQConfig;
     @Autowired
     private StringRedisTemplate stringRedisTemplate;
-    // JVM 本地库存标记 (降级开关)
-    private final ConcurrentHashMap<Long, Boolean> stockMap = new ConcurrentHashMap<>();
+    // JVM 本地售罄标记 (由集群售罄广播驱动)
+    @Autowired
+    private SoldOutBroadcaster soldOutBroadcaster;
+    // 组提交 (攒批扣减 + 批量发送)
+    @Autowired
+    private SeckillGroupCommitter seckillGroupCommitter;
+    // 响应式入口发送结果未知时重投
+    @Autowired
+    private OrderMessageRedelivery orderMessageRedelivery;
+    @Autowired
+    private StockEngine stockEngine;
+    // 按库存准入：在途请求超过 剩余库存 × 系数 时直接拒绝
+    @Autowired
+    private SkuAdmissionGate skuAdmissionGate;
+    // 异步票据 (受理即返回，结果通过长轮询 / SSE 查询)
+    @Autowired
+    private SeckillTicketService seckillTicketService;
+    // 秒杀活动本地快照 (价格、时间窗口、限购)
+    @Autowired
+    private SeckillActivityCatalog seckillActivityCatalog;
+
+    // 非组提交模式下，异步票据在此线程池中发送事务消息
+    @Value("${app.seckill.ticket.workers:64}")
+    private int ticketWorkers;
+
+    // 票据线程池排队上限，满了直接失败
+    @Value("${app.seckill.ticket.queue-capacity:10000}")
+    private int ticketQueueCapacity;
+
+    // 非阻塞秒杀入口的异步发送超时 (ms)
+    @Value("${app.seckill.reactive.send-timeout-ms:3000}")
+    private long reactiveSendTimeoutMillis;
+
+    private ThreadPoolExecutor ticketExecutor;
+
+    private static final String ADMISSION_REJECTED = "当前抢购人数过多，请稍后再试";
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ticketExecutor = new ThreadPoolExecutor(ticketWorkers, ticketWorkers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(ticketQueueCapacity), r -> {
+            Thread t = new Thread(r, "seckill-ticket-worker-" + threadIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ticketExecutor.shutdown();
+    }
+
+    @Override
+    public CompletableFuture<Result<String>> submitSeckillAsync(SeckillSubmitDTO submitDTO) {
+        // 不支持批量扣减的 SKU (Redis 引擎下的分段库存) 仍走逐单事务消息
+        if (!seckillGroupCommitter.isEnabled() || !stockEngine.supportsBatch(submitDTO.getSkuId())) {
+            return CompletableFuture.completedFuture(processSeckillRequest(submitDTO));
+        }
+
+        // UserContext 是 ThreadLocal，必须在请求线程里取出
+        Long userId = UserContext.getUserId();
+        if (userId == null) {
+            return CompletableFuture.completedFuture(Result.error("用户未登录"));
+        }
+        Long skuId = submitDTO.getSkuId();
+
+        // 0. 【活动校验】本地快照，零远程调用
+        SeckillActivityDTO activity = seckillActivityCatalog.get(skuId);
+        String rejected = checkActivity(activity, submitDTO);
+        if (rejected != null) {
+            return CompletableFuture.completedFuture(Result.error(rejected));
+        }
+
+        // 1. 【JVM 内存拦截】快速失败
+        if (soldOutBroadcaster.isSoldOut(skuId)) {
+            return CompletableFuture.completedFuture(Result.error("商品已售罄 (Local)"));
+        }
+
+        // 2. 【准入控制】在途窗口已满直接拒绝
+        if (!skuAdmissionGate.tryAcquire(skuId)) {
+            return CompletableFuture.completedFuture(Result.error(ADMISSION_REJECTED));
+        }
+
+        // 3. 进入攒批队列 (交给攒批之前的任何异常都要归还准入名额)
+        long orderId;
+        CompletableFuture<Result<String>> future;
+        try {
+            orderId = SnowflakeIdWorker.getInstance().nextId(userId);
+            future = seckillGroupCommitter.submit(buildOrderMsg(userId, activity, orderId));
+        } catch (IllegalStateException e) {
+            // 机器标识租约失效，本节点暂停发号
+            log.error(">>> [秒杀] 订单ID 生成失败: {}", e.getMessage());
+            skuAdmissionGate.release(skuId, false);
+            return CompletableFuture.completedFuture(Result.error("系统繁忙，请重试"));
+        } catch (RuntimeException e) {
+            skuAdmissionGate.release(skuId, false);
+            throw e;
+        }
+        return future.whenComplete((result, e) -> skuAdmissionGate.release(skuId, e == null && isSuccess(result)));
+    }
 
     @Override
     public Result<String> processSeckillRequest(SeckillSubmitDTO submitDTO) {
@@ -43,31 +164,58 @@ public class SeckillServiceImpl implements SeckillService {
         }
         Long skuId = submitDTO.getSkuId();
 
+        // 0. 【活动校验】活动未开始 / 已结束 / 价格不符在 JVM 内直接拒绝
+        SeckillActivityDTO activity = seckillActivityCatalog.get(skuId);
+        String rejected = checkActivity(activity, submitDTO);
+        if (rejected != null) {
+            return Result.error(rejected);
+        }
+
         // 1. 【JVM 内存拦截】快速失败
-        if (stockMap.containsKey(skuId) && !stockMap.get(skuId)) {
+        if (soldOutBroadcaster.isSoldOut(skuId)) {
             return Result.error("商品已售罄 (Local)");
         }
 
-        // 2. 准备消息数据
-        // 生成订单ID
-        long orderId = SnowflakeIdWorker.getInstance().nextId(userId);
+        // 2. 【准入控制】在途窗口已满直接拒绝，不再打 Redis / Broker
+        if (!skuAdmissionGate.tryAcquire(skuId)) {
+            return Result.error(ADMISSION_REJECTED);
+        }
 
-        // 构建消息体 (包含价格，避免Consumer查库)
-        SeckillOrderMsgDTO msgDTO = new SeckillOrderMsgDTO();
-        msgDTO.setUserId(userId);
-        msgDTO.setSkuId(skuId);
-        msgDTO.setOrderId(orderId);
-        // TODO: 实际项目中，价格应从 Redis 缓存获取或通过签名参数传入，此处模拟固定价格
-        // msgDTO.setPrice(redisService.getPrice(skuId));
-        msgDTO.setOrderPrice(2899L);
-        // System.out.println("success");
+        // 准入名额在 finally 中归还，发号 / 组装消息 / 发送任何一步抛异常都不会泄漏窗口
+        boolean reserved = false;
+        try {
+            // 3. 准备消息数据
+            // 生成订单ID (机器标识租约失效时本节点暂停发号)
+            long orderId;
+            try {
+                orderId = SnowflakeIdWorker.getInstance().nextId(userId);
+            } catch (IllegalStateException e) {
+                log.error(">>> [秒杀] 订单ID 生成失败: {}", e.getMessage());
+                return Result.error("系统繁忙，请重试");
+            }
+
+            // 构建消息体 (包含价格，避免Consumer查库)
+            SeckillOrderMsgDTO msgDTO = buildOrderMsg(userId, activity, orderId);
+            Result<String> result = sendInTransaction(msgDTO);
+            reserved = isSuccess(result);
+            return result;
+        } finally {
+            skuAdmissionGate.release(skuId, reserved);
+        }
+    }
+
+    /**
+     * 发送事务消息 (阻塞等待本地事务即 Redis 扣减完成)
+     */
+    private Result<String> sendInTransaction(SeckillOrderMsgDTO msgDTO) {
+        long orderId = msgDTO.getOrderId();
         String topic = rocketMQConfig.getOrderTopic();
-        Message<String> message = MessageBuilder.withPayload(JSONUtil.toJsonStr(msgDTO)).build();
+        Message<byte[]> message = MessageBuilder.withPayload(rocketMQConfig.encodeOrderMsg(msgDTO)).build();
 
         try {
             // 3. 【发送事务消息】
-            // 这里的第三个参数 arg 可以传递给 listener，我们传 null 即可，因为信息都在 msgDTO 里
-            TransactionSendResult sendResult = rocketMQTemplate.sendMessageInTransaction(topic, message, null);
+            // 第三个参数 arg 原样交给 listener 的 executeLocalTransaction，直接传对象省掉一次解码
+            TransactionSendResult sendResult = rocketMQTemplate.sendMessageInTransaction(topic, message, msgDTO);
 
             // 4. 【判断结果】
             // sendMessageInTransaction 会等待 executeLocalTransaction 执行完毕
@@ -77,8 +225,7 @@ public class SeckillServiceImpl implements SeckillService {
             } else {
                 // ROLLBACK 可能是库存不足，也可能是重复购买
                 log.warn(">>> 秒杀失败 (库存不足或重复下单). orderId={}", orderId);
-                // 标记本地库存可能售罄 (这里可以做得更细，根据 header 区分是无货还是重购)
-                // stockMap.put(skuId, false);
+                // 售罄标记由 Lua 脚本广播 + Listener 本地置位完成，这里无需再处理
                 return Result.error("抢购失败");
             }
 
@@ -88,4 +235,225 @@ public class SeckillServiceImpl implements SeckillService {
         }
         // return Result.success("success");
     }
+
+    @Override
+    public Result<String> submitSeckillTicket(SeckillSubmitDTO submitDTO) {
+        if (!seckillTicketService.isEnabled()) {
+            return Result.error("异步秒杀未开启");
+        }
+        Long userId = UserContext.getUserId();
+        if (userId == null) {
+            return Result.error("用户未登录");
+        }
+        Long skuId = submitDTO.getSkuId();
+
+        // 0. 【活动校验】不通过不发票据
+        SeckillActivityDTO activity = seckillActivityCatalog.get(skuId);
+        String rejected = checkActivity(activity, submitDTO);
+        if (rejected != null) {
+            return Result.error(rejected);
+        }
+
+        // 1. 【JVM 内存拦截】快速失败 (不发票据)
+        if (soldOutBroadcaster.isSoldOut(skuId)) {
+            return Result.error("商品已售罄 (Local)");
+        }
+        // 【准入控制】窗口已满同样不发票据
+        if (!skuAdmissionGate.tryAcquire(skuId)) {
+            return Result.error(ADMISSION_REJECTED);
+        }
+
+        // 2. 生成订单ID 并登记票据 (票据即订单ID)
+        long orderId;
+        try {
+            orderId = SnowflakeIdWorker.getInstance().nextId(userId);
+            seckillTicketService.create(orderId, userId);
+        } catch (Exception e) {
+            log.error(">>> [秒杀票据] 受理失败: {}", e.getMessage());
+            skuAdmissionGate.release(skuId, false);
+            return Result.error("系统繁忙，请重试");
+        }
+
+        // 3. 后台扣减：组提交模式进攒批队列，否则交给票据线程池发送事务消息
+        // 交出去之前的异常 (线程池满等) 同样走下面的回调：归还准入名额并把票据置为失败
+        CompletableFuture<Result<String>> future;
+        try {
+            SeckillOrderMsgDTO msgDTO = buildOrderMsg(userId, activity, orderId);
+            if (seckillGroupCommitter.isEnabled() && stockEngine.supportsBatch(skuId)) {
+                future = seckillGroupCommitter.submit(msgDTO);
+            } else {
+                future = CompletableFuture.supplyAsync(() -> sendInTransaction(msgDTO), ticketExecutor);
+            }
+        } catch (RuntimeException e) {
+            if (!(e instanceof RejectedExecutionException)) {
+                log.error(">>> [秒杀票据] 提交扣减失败. ticket={}", orderId, e);
+            }
+            future = CompletableFuture.completedFuture(Result.error("系统繁忙，请重试"));
+        }
+        future.whenComplete((result, e) -> {
+            skuAdmissionGate.release(skuId, e == null && isSuccess(result));
+            if (e == null && isSuccess(result)) {
+                seckillTicketService.advance(orderId, TicketState.STOCK_OK, null);
+            } else {
+                seckillTicketService.advance(orderId, TicketState.FAILED,
+                        e != null || result == null ? "系统繁忙，请重试" : result.getMessage());
+            }
+        });
+
+        // 4. 立即返回票据
+        return Result.success(String.valueOf(orderId));
+    }
+
+    @Override
+    public Mono<Result<String>> submitSeckillReactive(SeckillSubmitDTO submitDTO) {
+        Long skuId = submitDTO.getSkuId();
+        return ReactiveUserContext.getUserId()
+                .flatMap(userId -> {
+                    // 0. 【活动校验】本地快照，不阻塞
+                    SeckillActivityDTO activity = seckillActivityCatalog.get(skuId);
+                    String rejected = checkActivity(activity, submitDTO);
+                    if (rejected != null) {
+                        return Mono.just(Result.<String>error(rejected));
+                    }
+                    // 1. 【JVM 内存拦截】快速失败
+                    if (soldOutBroadcaster.isSoldOut(skuId)) {
+                        return Mono.just(Result.<String>error("商品已售罄 (Local)"));
+                    }
+                    // 【准入控制】在途窗口已满直接拒绝
+                    if (!skuAdmissionGate.tryAcquire(skuId)) {
+                        return Mono.just(Result.<String>error(ADMISSION_REJECTED));
+                    }
+                    long orderId;
+                    try {
+                        orderId = SnowflakeIdWorker.getInstance().nextId(userId);
+                    } catch (IllegalStateException e) {
+                        log.error(">>> [响应式秒杀] 订单ID 生成失败: {}", e.getMessage());
+                        skuAdmissionGate.release(skuId, false);
+                        return Mono.just(Result.<String>error("系统繁忙，请重试"));
+                    }
+                    SeckillOrderMsgDTO msgDTO = buildOrderMsg(userId, activity, orderId);
+
+                    // 2. 【非阻塞扣减】结果就绪后在 Lettuce I/O 线程上继续
+                    return stockEngine.reserveReactive(skuId, userId, orderId)
+                            .flatMap(reservation -> {
+                                if (reservation == StockEngine.Reservation.RESERVED) {
+                                    // 3. 【异步发送】扣减已成功，发送普通下单消息
+                                    return sendReactive(msgDTO);
+                                }
+                                if (reservation == StockEngine.Reservation.SOLD_OUT) {
+                                    return Mono.just(Result.<String>error("商品已售罄"));
+                                }
+                                if (reservation == StockEngine.Reservation.LIMIT_EXCEEDED) {
+                                    return Mono.just(Result.<String>error("已达到限购数量"));
+                                }
+                                if (reservation == StockEngine.Reservation.UNKNOWN) {
+                                    // 租约结算超时：普通消息没有事务回查兜底，这里主动回查一次
+                                    return recheckReactive(msgDTO);
+                                }
+                                return Mono.just(Result.<String>error("抢购失败"));
+                            })
+                            .onErrorResume(e -> {
+                                log.error(">>> [响应式秒杀] 系统异常. orderId={}", orderId, e);
+                                return Mono.just(Result.error("系统繁忙，请重试"));
+                            })
+                            .doOnNext(result -> skuAdmissionGate.release(skuId, isSuccess(result)))
+                            // 客户端断开时订阅被取消，同样归还窗口
+                            .doOnCancel(() -> skuAdmissionGate.release(skuId, false));
+                })
+                .defaultIfEmpty(Result.error("用户未登录"))
+                .onErrorResume(e -> {
+                    log.error(">>> [响应式秒杀] 系统异常. skuId={}", skuId, e);
+                    return Mono.just(Result.error("系统繁忙，请重试"));
+                });
+    }
+
+    /**
+     * 异步发送下单消息：不阻塞调用线程，回调在 RocketMQ 客户端的回调线程上完成 Mono
+     * 与组提交一致，库存已在发送前扣减，这里发普通消息即可；确定没有写入 Broker 时补偿库存，
+     * 结果不确定 (超时等) 时保留预扣并交给 {@link OrderMessageRedelivery} 重投 (退库存可能超卖)
+     */
+    private Mono<Result<String>> sendReactive(SeckillOrderMsgDTO msgDTO) {
+        long orderId = msgDTO.getOrderId();
+        Message<byte[]> message = MessageBuilder.withPayload(rocketMQConfig.encodeOrderMsg(msgDTO)).build();
+        return Mono.<Result<String>>create(sink -> rocketMQTemplate.asyncSend(rocketMQConfig.getOrderTopic(), message,
+                        new SendCallback() {
+                            @Override
+                            public void onSuccess(SendResult sendResult) {
+                                log.info(">>> [响应式秒杀] 秒杀成功，下单消息已发送. orderId={}", orderId);
+                                sink.success(Result.success(String.valueOf(orderId)));
+                            }
+
+                            @Override
+                            public void onException(Throwable e) {
+                                sink.error(e);
+                            }
+                        }, reactiveSendTimeoutMillis))
+                .onErrorResume(e -> {
+                    if (OrderMessageRedelivery.isDefiniteFailure(e)) {
+                        log.error(">>> [响应式秒杀] 下单消息未发出，执行库存补偿. orderId={}", orderId, e);
+                        compensateReactive(msgDTO);
+                        return Mono.just(Result.error("系统繁忙，请重试"));
+                    }
+                    log.warn(">>> [响应式秒杀] 下单消息发送结果未知，保留预扣并重投. orderId={}", orderId, e);
+                    return Mono.fromFuture(orderMessageRedelivery.redeliver(List.of(message)))
+                            .map(delivered -> delivered
+                                    ? Result.success(String.valueOf(orderId))
+                                    : Result.<String>error("下单结果确认中，请稍后在订单列表查看"));
+                });
+    }
+
+    /**
+     * 扣减结果未知时回查一次 (check 为阻塞调用，放到 boundedElastic 上执行)
+     * 确认已扣减则照常发送；仍未知时放弃本单 (之后若结算成功，该件库存少卖，但不会超卖)
+     */
+    private Mono<Result<String>> recheckReactive(SeckillOrderMsgDTO msgDTO) {
+        return Mono.fromCallable(() -> stockEngine.check(msgDTO.getSkuId(), msgDTO.getUserId(), msgDTO.getOrderId()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(reservation -> {
+                    if (reservation == StockEngine.Reservation.RESERVED) {
+                        return sendReactive(msgDTO);
+                    }
+                    if (reservation == StockEngine.Reservation.UNKNOWN) {
+                        log.warn(">>> [响应式秒杀] 扣减结果仍未知，放弃本单. orderId={}", msgDTO.getOrderId());
+                    }
+                    return Mono.just(Result.<String>error("系统繁忙，请重试"));
+                });
+    }
+
+    /**
+     * 退回库存、删除扣减记录并退回限购额度；补偿是低频路径，直接复用阻塞的 releaseAll，放到 boundedElastic 上执行
+     */
+    private void compensateReactive(SeckillOrderMsgDTO msgDTO) {
+        StockEngine.Claim claim = new StockEngine.Claim(msgDTO.getSkuId(), msgDTO.getUserId(), msgDTO.getOrderId(), 1);
+        Mono.fromRunnable(() -> stockEngine.releaseAll(List.of(claim)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(null, e -> log.error(">>> [响应式秒杀] 库存补偿失败 (少卖). orderId={}", msgDTO.getOrderId(), e));
+    }
+
+    private static boolean isSuccess(Result<String> result) {
+        return result != null && Integer.valueOf(200).equals(result.getCode());
+    }
+
+    /**
+     * 活动校验：返回拒绝原因，通过返回 null
+     * 客户端带了价格时必须与活动价一致 (页面缓存了旧价格)，不带价格时以活动价为准
+     */
+    private String checkActivity(SeckillActivityDTO activity, SeckillSubmitDTO submitDTO) {
+        SeckillActivityCatalog.Eligibility eligibility =
+                seckillActivityCatalog.check(activity, submitDTO.getOrderPrice(), System.currentTimeMillis());
+        return eligibility == SeckillActivityCatalog.Eligibility.OK ? null : eligibility.getMessage();
+    }
+
+    /**
+     * 下单价格取自活动快照，不信任客户端传入的价格
+     */
+    private SeckillOrderMsgDTO buildOrderMsg(Long userId, SeckillActivityDTO activity, long orderId) {
+        SeckillOrderMsgDTO msgDTO = new SeckillOrderMsgDTO();
+        msgDTO.setUserId(userId);
+        msgDTO.setSkuId(activity.getSkuId());
+        msgDTO.setOrderId(orderId);
+        msgDTO.setOrderPrice(activity.getSeckillPrice());
+        msgDTO.setActivityId(activity.getActivityId());
+        return msgDTO;
+    }
 }
\ No newline at end of file
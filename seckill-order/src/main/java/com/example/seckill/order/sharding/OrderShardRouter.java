@@ -0,0 +1,322 @@
+package com.example.seckill.order.sharding;
+
+import cn.hutool.json.JSONUtil;
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import com.example.seckill.order.config.ShardingProperties;
+import com.example.seckill.order.context.DataSourceContext;
+import com.example.seckill.order.context.TableContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单分片路由
+ * 订单ID 与用户ID 共享低位基因 (见 SnowflakeIdWorker#nextId(Long))，因此二者都可以作为分片键：
+ * 分片号 = OrderGene.shardOf(基因, 分表总数)，物理表 = order_tbl_{分片号}，物理库 = 分片号 % 库数
+ *
+ * 重分片期间 (见 {@link ReshardingService})，路由拓扑由 Redis 中的计划决定：
+ * DOUBLE_WRITE 阶段按旧拓扑读写并把写操作镜像到新拓扑；CUTOVER 之后按新拓扑读写
+ */
+@Slf4j
+@Component
+public class OrderShardRouter {
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 重分片计划的拉取间隔，也是切换阶段时各节点生效的最大延迟
+    @Value("${app.sharding.plan-refresh-ms:1000}")
+    private long planRefreshMillis;
+
+    /**
+     * 一次路由决策所用的拓扑快照 (主拓扑 + 可选的镜像拓扑)，不可变
+     */
+    public final class Routing {
+        private final ShardTopology primary;
+        private final ShardTopology mirror;
+
+        private Routing(ShardTopology primary, ShardTopology mirror) {
+            this.primary = primary;
+            this.mirror = mirror;
+        }
+
+        public int shardOf(long shardKey) {
+            return primary.shardOf(shardKey);
+        }
+
+        public String databaseKey(int shard) {
+            return databaseKeys[primary.databaseIndex(shard)];
+        }
+
+        /**
+         * 需要镜像写入的分片号；不在双写阶段或新旧位置相同时返回 -1
+         */
+        public int mirrorShardOf(long shardKey) {
+            if (mirror == null) {
+                return -1;
+            }
+            int from = primary.shardOf(shardKey);
+            int to = mirror.shardOf(shardKey);
+            if (from == to && primary.databaseIndex(from) == mirror.databaseIndex(to)) {
+                return -1;
+            }
+            return to;
+        }
+
+        public void bindShard(int shard) {
+            TableContext.set(ShardTopology.tableName(shard));
+            DataSourceContext.set(databaseKey(shard));
+        }
+
+        private void bindMirror(int shard) {
+            TableContext.set(ShardTopology.tableName(shard));
+            DataSourceContext.set(databaseKeys[mirror.databaseIndex(shard)]);
+        }
+    }
+
+    private String[] databaseKeys;
+    private ShardTopology configured;
+    private volatile Routing routing;
+    private volatile ReshardPlan plan;
+    private ScheduledExecutorService planRefresher;
+
+    // 镜像写失败、且登记到 Redis 也失败的订单ID，随计划拉取一起重试登记
+    private final Set<Long> unflushedRepairs = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        int poolCount = Math.max(1, shardingProperties.getDatabases().size());
+        databaseKeys = new String[poolCount];
+        for (int i = 0; i < poolCount; i++) {
+            databaseKeys[i] = shardingProperties.getDatabases().isEmpty()
+                    ? ShardingDataSource.DEFAULT_KEY
+                    : shardingProperties.getDatabases().get(i).getName();
+        }
+        int activeDatabases = shardingProperties.getActiveDatabases() <= 0
+                ? poolCount : Math.min(poolCount, shardingProperties.getActiveDatabases());
+        configured = topology(shardingProperties.getTableCount(), activeDatabases);
+        routing = new Routing(configured, null);
+
+        refreshPlan();
+        planRefresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-shard-plan-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+        planRefresher.scheduleWithFixedDelay(() -> {
+            refreshPlan();
+            flushRepairs();
+        }, planRefreshMillis, planRefreshMillis, TimeUnit.MILLISECONDS);
+        log.info(">>> [分片路由] 当前拓扑: {}", configured);
+    }
+
+    /**
+     * 按配置的基因位数与连接池数量构造拓扑 (校验不通过直接抛异常)
+     */
+    public ShardTopology topology(int tableCount, int databaseCount) {
+        if (databaseCount > databaseKeys.length) {
+            throw new IllegalArgumentException("库数 " + databaseCount + " 超过已配置的连接池数量 " + databaseKeys.length);
+        }
+        return new ShardTopology(tableCount, databaseCount, shardingProperties.getGeneBits());
+    }
+
+    /**
+     * 配置文件中的拓扑 (不受重分片计划影响)
+     */
+    public ShardTopology configuredTopology() {
+        return configured;
+    }
+
+    public String databaseKeyAt(int databaseIndex) {
+        return databaseKeys[databaseIndex];
+    }
+
+    public ReshardPlan currentPlan() {
+        return plan;
+    }
+
+    /**
+     * 当前路由快照；需要对一批数据做一致路由时 (批量消费) 使用
+     */
+    public Routing routing() {
+        return routing;
+    }
+
+    /**
+     * 分片号 (orderId 或 userId 均可)
+     */
+    public int shardOf(long shardKey) {
+        return routing.shardOf(shardKey);
+    }
+
+    public String tableName(int shard) {
+        return ShardTopology.tableName(shard);
+    }
+
+    public String databaseKey(int shard) {
+        return routing.databaseKey(shard);
+    }
+
+    /**
+     * 绑定当前线程的库 + 表，用完必须调用 {@link #clear()}
+     */
+    public void bind(long shardKey) {
+        Routing current = routing;
+        current.bindShard(current.shardOf(shardKey));
+    }
+
+    public void bindShard(int shard) {
+        routing.bindShard(shard);
+    }
+
+    /**
+     * 只选库 (不分表的表，如 seckill_trade_order 按用户基因分库)
+     */
+    public void bindDatabase(long shardKey) {
+        Routing current = routing;
+        DataSourceContext.set(current.databaseKey(current.shardOf(shardKey)));
+    }
+
+    public void clear() {
+        TableContext.clear();
+        DataSourceContext.clear();
+    }
+
+    /**
+     * 双写阶段把写操作镜像到新拓扑 (写操作只涉及 shardKey 这一个订单)
+     */
+    public void mirrorWrite(long shardKey, Runnable write) {
+        mirrorWrite(shardKey, List.of(shardKey), write);
+    }
+
+    /**
+     * 双写阶段把写操作镜像到新拓扑
+     * 镜像写失败不影响主流程 (旧拓扑仍是权威数据)，涉及的订单ID 登记到 Redis 重放集合，
+     * 搬迁任务在切换前后按旧表重放，保证切换时新表不缺行
+     * 执行完恢复调用前的库 / 表绑定
+     * @param shardKey 决定镜像分片的订单ID
+     * @param orderIds 本次写操作涉及的全部订单ID (同一镜像分片)
+     */
+    public void mirrorWrite(long shardKey, Collection<Long> orderIds, Runnable write) {
+        Routing current = routing;
+        int shard = current.mirrorShardOf(shardKey);
+        if (shard < 0) {
+            return;
+        }
+        String table = TableContext.get();
+        String dataSource = DataSourceContext.get();
+        try {
+            current.bindMirror(shard);
+            write.run();
+        } catch (Exception e) {
+            log.warn(">>> [重分片] 镜像写失败，登记重放. key={}, mirrorShard={}, orders={}", shardKey, shard, orderIds.size(), e);
+            queueRepairs(orderIds);
+        } finally {
+            restore(table, dataSource);
+        }
+    }
+
+    /**
+     * 本节点尚未登记到 Redis 的重放订单数
+     */
+    public int unflushedRepairs() {
+        return unflushedRepairs.size();
+    }
+
+    private void queueRepairs(Collection<Long> orderIds) {
+        try {
+            String[] ids = orderIds.stream().map(String::valueOf).toArray(String[]::new);
+            stringRedisTemplate.opsForSet().add(SeckillRedisKeys.reshardRepairKey(), ids);
+        } catch (Exception e) {
+            log.error(">>> [重分片] 登记重放失败，稍后重试. orders={}", orderIds.size(), e);
+            unflushedRepairs.addAll(orderIds);
+        }
+    }
+
+    private void flushRepairs() {
+        if (unflushedRepairs.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(unflushedRepairs);
+        try {
+            stringRedisTemplate.opsForSet().add(SeckillRedisKeys.reshardRepairKey(),
+                    ids.stream().map(String::valueOf).toArray(String[]::new));
+            ids.forEach(unflushedRepairs::remove);
+        } catch (Exception e) {
+            log.warn(">>> [重分片] 补登记重放失败. orders={}", ids.size(), e);
+        }
+    }
+
+    private void restore(String table, String dataSource) {
+        if (table != null) {
+            TableContext.set(table);
+        } else {
+            TableContext.clear();
+        }
+        if (dataSource != null) {
+            DataSourceContext.set(dataSource);
+        } else {
+            DataSourceContext.clear();
+        }
+    }
+
+    /**
+     * 拉取 Redis 中的重分片计划并切换路由
+     */
+    public void refreshPlan() {
+        try {
+            String json = stringRedisTemplate.opsForValue().get(SeckillRedisKeys.reshardPlanKey());
+            applyPlan(json == null ? null : JSONUtil.toBean(json, ReshardPlan.class));
+        } catch (Exception e) {
+            // 读取失败沿用当前路由，避免抖动
+            log.warn(">>> [分片路由] 拉取重分片计划失败", e);
+        }
+    }
+
+    private synchronized void applyPlan(ReshardPlan newPlan) {
+        ReshardPlan old = plan;
+        if (newPlan == null) {
+            if (old != null) {
+                log.info(">>> [分片路由] 重分片计划已结束，使用配置拓扑: {}", configured);
+            }
+            plan = null;
+            routing = new Routing(configured, null);
+            return;
+        }
+        if (old != null && old.getPhase() == newPlan.getPhase() && old.getCreatedAt() == newPlan.getCreatedAt()) {
+            return;
+        }
+        ShardTopology from = topology(newPlan.getFromTableCount(), newPlan.getFromDatabaseCount());
+        ShardTopology to = topology(newPlan.getToTableCount(), newPlan.getToDatabaseCount());
+        if (newPlan.getPhase() == ReshardPlan.Phase.DOUBLE_WRITE) {
+            routing = new Routing(from, to);
+        } else {
+            routing = new Routing(to, null);
+        }
+        plan = newPlan;
+        log.info(">>> [分片路由] 重分片阶段: {}, {} -> {}", newPlan.getPhase(), from, to);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (planRefresher != null) {
+            planRefresher.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.seckill.order.sharding;
+
+import lombok.Data;
+
+/**
+ * 重分片计划 (存放在 Redis，所有订单节点定时拉取)
+ * IDLE -> DOUBLE_WRITE (按旧拓扑读写，同时镜像写新拓扑；后台搬迁存量) -> CUTOVER (按新拓扑读写)
+ */
+@Data
+public class ReshardPlan {
+
+    public enum Phase {
+        /** 旧拓扑读写，写操作同时镜像到新拓扑；存量数据搬迁中 */
+        DOUBLE_WRITE,
+        /** 已切换到新拓扑；等待运维修改配置后结束计划 */
+        CUTOVER
+    }
+
+    private Phase phase;
+
+    private int fromTableCount;
+    private int fromDatabaseCount;
+
+    private int toTableCount;
+    private int toDatabaseCount;
+
+    private long createdAt;
+}
@@ -0,0 +1,492 @@
+package com.example.seckill.order.sharding;
+
+import cn.hutool.json.JSONUtil;
+import com.example.seckill.common.entity.Order;
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import com.example.seckill.order.context.DataSourceContext;
+import com.example.seckill.order.context.TableContext;
+import com.example.seckill.order.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单在线重分片工具 (把 order_tbl_n 拆分到更多的分表 / 库)
+ * 1. start    : 写入 DOUBLE_WRITE 计划，所有节点按旧拓扑读写并镜像写新拓扑；后台建表、流式搬迁存量、多轮对账
+ * 2. cutover  : 对账无差异后，切换前再重放失败的镜像写并做一轮终检对账，通过后切换到新拓扑 (各节点在 plan-refresh-ms 内生效)；
+ *               切换生效窗口内仍在双写的节点若镜像失败，切换后再补一次重放 (只补缺行，不覆盖新拓扑上的新写入)
+ * 3. cleanup  : 重放集合清空后删除旧表中已迁走的数据
+ * 4. finish   : 所有节点的配置都改成新拓扑后结束计划
+ * 同一时间只允许一个计划；搬迁任务在收到 start 请求的节点上执行
+ */
+@Slf4j
+@Service
+public class ReshardingService {
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ShardingDataSource shardingDataSource;
+
+    // 每次流式读取的行数
+    @Value("${app.sharding.reshard.batch-size:1000}")
+    private int batchSize;
+
+    // 对账最多轮数 (每轮都无差异才允许切换)
+    @Value("${app.sharding.reshard.reconcile-rounds:3}")
+    private int reconcileRounds;
+
+    @Value("${app.sharding.plan-refresh-ms:1000}")
+    private long planRefreshMillis;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "order-reshard-worker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // ================= 进度 (仅执行搬迁的节点可见) =================
+    private volatile String stage = "IDLE";
+    private volatile boolean readyForCutover;
+    private volatile String lastError;
+    private final AtomicLong copiedRows = new AtomicLong();
+    private final AtomicLong repairedRows = new AtomicLong();
+    private final AtomicLong deletedRows = new AtomicLong();
+
+    /**
+     * 开始重分片：只支持分表数按整数倍扩容 (order_tbl_n 拆出 order_tbl_{n + k*N})
+     */
+    public synchronized ReshardPlan start(int toTableCount, int toDatabaseCount) {
+        if (orderShardRouter.currentPlan() != null) {
+            throw new IllegalStateException("已有进行中的重分片计划");
+        }
+        ShardTopology from = orderShardRouter.configuredTopology();
+        ShardTopology to = orderShardRouter.topology(toTableCount, toDatabaseCount);
+        if (to.getTableCount() < from.getTableCount() || to.getTableCount() % from.getTableCount() != 0) {
+            throw new IllegalArgumentException("新分表数必须是当前分表数的整数倍: " + from + " -> " + to);
+        }
+
+        // 先建好新表再发布计划，保证各节点开始镜像写时目标表已存在
+        createTargetTables(from, to);
+
+        ReshardPlan plan = new ReshardPlan();
+        plan.setPhase(ReshardPlan.Phase.DOUBLE_WRITE);
+        plan.setFromTableCount(from.getTableCount());
+        plan.setFromDatabaseCount(from.getDatabaseCount());
+        plan.setToTableCount(to.getTableCount());
+        plan.setToDatabaseCount(to.getDatabaseCount());
+        plan.setCreatedAt(System.currentTimeMillis());
+        savePlan(plan);
+
+        readyForCutover = false;
+        lastError = null;
+        copiedRows.set(0);
+        repairedRows.set(0);
+        deletedRows.set(0);
+        worker.submit(() -> migrate(from, to));
+        log.info(">>> [重分片] 计划已启动: {} -> {}", from, to);
+        return plan;
+    }
+
+    /**
+     * 切换到新拓扑 (force=true 时跳过对账结果检查，立即切换)
+     * 正常切换在搬迁线程上异步执行：重放失败的镜像写 + 终检对账，全部通过才切换，进度见 status 的 stage
+     */
+    public synchronized ReshardPlan cutover(boolean force) {
+        ReshardPlan plan = requirePlan(ReshardPlan.Phase.DOUBLE_WRITE);
+        if (force) {
+            switchToNewTopology(plan);
+            return plan;
+        }
+        if (!readyForCutover) {
+            throw new IllegalStateException("搬迁或对账尚未完成，当前阶段: " + stage);
+        }
+        readyForCutover = false;
+        stage = "VERIFYING_CUTOVER";
+        ShardTopology from = orderShardRouter.topology(plan.getFromTableCount(), plan.getFromDatabaseCount());
+        ShardTopology to = orderShardRouter.topology(plan.getToTableCount(), plan.getToDatabaseCount());
+        worker.submit(() -> verifyAndCutover(plan, from, to));
+        return plan;
+    }
+
+    private void switchToNewTopology(ReshardPlan plan) {
+        plan.setPhase(ReshardPlan.Phase.CUTOVER);
+        savePlan(plan);
+        stage = "CUTOVER";
+        log.info(">>> [重分片] 已切换到新拓扑: {} tables / {} databases", plan.getToTableCount(), plan.getToDatabaseCount());
+    }
+
+    /**
+     * 切换前终检：对账结果只代表当时，之后的镜像写失败会让新表缺行，切换前必须重新确认
+     */
+    private void verifyAndCutover(ReshardPlan plan, ShardTopology from, ShardTopology to) {
+        try {
+            // 1. 重放失败的镜像写 (旧拓扑仍是权威，以源表覆盖)
+            replayRepairs(from, to, true);
+            // 2. 终检对账：再全量比对一轮，修复的行数记录在 repairedRows 中
+            long repaired = 0;
+            for (int shard = 0; shard < from.getTableCount(); shard++) {
+                repaired += streamShard(from, to, shard, true);
+            }
+            // 3. 对账期间新产生的失败也要重放干净才能切换
+            replayRepairs(from, to, true);
+            long pending = pendingRepairs();
+            if (pending > 0) {
+                stage = "VERIFY_FAILED";
+                lastError = "仍有 " + pending + " 个订单的镜像写待重放";
+                readyForCutover = true;
+                log.warn(">>> [重分片] 终检未通过，暂不切换: {}", lastError);
+                return;
+            }
+            log.info(">>> [重分片] 终检通过，对账修复 {} 行", repaired);
+            synchronized (this) {
+                switchToNewTopology(plan);
+            }
+
+            // 4. 切换生效窗口内仍在双写的节点可能镜像失败：等所有节点生效后补缺行 (不覆盖新拓扑上的新写入)
+            Thread.sleep(planRefreshMillis * 3);
+            replayRepairs(from, to, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            lastError = e.toString();
+            stage = "VERIFY_FAILED";
+            readyForCutover = true;
+            log.error(">>> [重分片] 切换前终检失败", e);
+        }
+    }
+
+    /**
+     * 删除旧表中已迁走的数据 (切换后执行，需等待所有节点生效)
+     */
+    public synchronized void cleanup() {
+        ReshardPlan plan = requirePlan(ReshardPlan.Phase.CUTOVER);
+        ShardTopology from = orderShardRouter.topology(plan.getFromTableCount(), plan.getFromDatabaseCount());
+        ShardTopology to = orderShardRouter.topology(plan.getToTableCount(), plan.getToDatabaseCount());
+        worker.submit(() -> purgeMovedRows(from, to));
+    }
+
+    /**
+     * 结束计划：要求本节点配置已是新拓扑 (其它节点须已滚动重启到新配置)
+     */
+    public synchronized void finish() {
+        ReshardPlan plan = requirePlan(ReshardPlan.Phase.CUTOVER);
+        ShardTopology configured = orderShardRouter.configuredTopology();
+        if (configured.getTableCount() != plan.getToTableCount() || configured.getDatabaseCount() != plan.getToDatabaseCount()) {
+            throw new IllegalStateException("请先把 app.sharding 配置改为新拓扑并滚动重启所有节点，当前配置: " + configured);
+        }
+        stringRedisTemplate.delete(SeckillRedisKeys.reshardPlanKey());
+        orderShardRouter.refreshPlan();
+        stage = "IDLE";
+        log.info(">>> [重分片] 计划已结束");
+    }
+
+    /**
+     * 放弃计划 (仅双写阶段允许，旧拓扑一直是权威数据，新表中的数据可直接丢弃)
+     */
+    public synchronized void abort() {
+        requirePlan(ReshardPlan.Phase.DOUBLE_WRITE);
+        stringRedisTemplate.delete(List.of(SeckillRedisKeys.reshardPlanKey(), SeckillRedisKeys.reshardRepairKey()));
+        orderShardRouter.refreshPlan();
+        stage = "ABORTED";
+        log.warn(">>> [重分片] 计划已放弃");
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("plan", orderShardRouter.currentPlan());
+        status.put("stage", stage);
+        status.put("readyForCutover", readyForCutover);
+        status.put("copiedRows", copiedRows.get());
+        status.put("repairedRows", repairedRows.get());
+        status.put("deletedRows", deletedRows.get());
+        status.put("pendingRepairs", pendingRepairs());
+        status.put("unflushedRepairs", orderShardRouter.unflushedRepairs());
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    private ReshardPlan requirePlan(ReshardPlan.Phase phase) {
+        orderShardRouter.refreshPlan();
+        ReshardPlan plan = orderShardRouter.currentPlan();
+        if (plan == null || plan.getPhase() != phase) {
+            throw new IllegalStateException("当前没有处于 " + phase + " 阶段的重分片计划");
+        }
+        return plan;
+    }
+
+    private void savePlan(ReshardPlan plan) {
+        stringRedisTemplate.opsForValue().set(SeckillRedisKeys.reshardPlanKey(), JSONUtil.toJsonStr(plan));
+        orderShardRouter.refreshPlan();
+    }
+
+    // ================= 搬迁任务 =================
+
+    private void migrate(ShardTopology from, ShardTopology to) {
+        try {
+            // 1. 等所有节点都拉到计划、开始双写，之后新增的写入不会漏到新表之外
+            stage = "WAITING_DOUBLE_WRITE";
+            Thread.sleep(planRefreshMillis * 3);
+
+            // 2. 存量搬迁 (INSERT IGNORE，双写已经写入的行以双写为准)
+            stage = "COPYING";
+            for (int shard = 0; shard < from.getTableCount(); shard++) {
+                streamShard(from, to, shard, false);
+            }
+
+            // 3. 对账：以源表为准修复差异 (搬迁期间发生的更新可能被旧快照覆盖)，直到一整轮无差异
+            for (int round = 1; round <= reconcileRounds; round++) {
+                stage = "RECONCILING_" + round;
+                long repaired = 0;
+                for (int shard = 0; shard < from.getTableCount(); shard++) {
+                    repaired += streamShard(from, to, shard, true);
+                }
+                log.info(">>> [重分片] 第 {} 轮对账修复 {} 行", round, repaired);
+                if (repaired == 0) {
+                    readyForCutover = true;
+                    stage = "READY_FOR_CUTOVER";
+                    return;
+                }
+            }
+            stage = "RECONCILE_NOT_CONVERGED";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            lastError = e.toString();
+            stage = "FAILED";
+            log.error(">>> [重分片] 搬迁任务失败", e);
+        }
+    }
+
+    /**
+     * 新表 order_tbl_t 复制源表 order_tbl_{t % N} 的结构 (SHOW CREATE TABLE，支持跨库)
+     */
+    private void createTargetTables(ShardTopology from, ShardTopology to) {
+        for (int target = 0; target < to.getTableCount(); target++) {
+            int source = target % from.getTableCount();
+            String sourceDb = orderShardRouter.databaseKeyAt(from.databaseIndex(source));
+            String targetDb = orderShardRouter.databaseKeyAt(to.databaseIndex(target));
+            if (source == target && sourceDb.equals(targetDb)) {
+                continue;
+            }
+            String sourceTable = ShardTopology.tableName(source);
+            String targetTable = ShardTopology.tableName(target);
+            Map<String, Object> row = new JdbcTemplate(shardingDataSource.physical(sourceDb))
+                    .queryForMap("SHOW CREATE TABLE `" + sourceTable + "`");
+            String ddl = String.valueOf(row.get("Create Table"))
+                    .replaceFirst("CREATE TABLE `" + sourceTable + "`", "CREATE TABLE IF NOT EXISTS `" + targetTable + "`");
+            new JdbcTemplate(shardingDataSource.physical(targetDb)).execute(ddl);
+            log.info(">>> [重分片] 已创建 {}.{}", targetDb, targetTable);
+        }
+    }
+
+    /**
+     * 流式扫描一个源分表，把需要迁走的行写到新位置
+     * @param reconcile false=INSERT IGNORE 搬迁；true=与目标比对，差异行以源表覆盖
+     * @return 对账模式下修复的行数
+     */
+    private long streamShard(ShardTopology from, ShardTopology to, int sourceShard, boolean reconcile) {
+        long repaired = 0;
+        long afterId = 0;
+        while (true) {
+            List<Order> rows;
+            bind(from, sourceShard);
+            try {
+                rows = orderMapper.scanAfter(afterId, batchSize);
+            } finally {
+                orderShardRouter.clear();
+            }
+            if (rows.isEmpty()) {
+                return repaired;
+            }
+            afterId = rows.get(rows.size() - 1).getId();
+
+            Map<Integer, List<Order>> byTarget = new LinkedHashMap<>();
+            for (Order row : rows) {
+                int target = to.shardOf(row.getId());
+                if (target == sourceShard && to.databaseIndex(target) == from.databaseIndex(sourceShard)) {
+                    continue;
+                }
+                byTarget.computeIfAbsent(target, k -> new ArrayList<>()).add(row);
+            }
+
+            for (Map.Entry<Integer, List<Order>> entry : byTarget.entrySet()) {
+                bind(to, entry.getKey());
+                try {
+                    if (reconcile) {
+                        repaired += repair(entry.getValue());
+                    } else {
+                        copiedRows.addAndGet(orderMapper.insertIgnoreBatch(entry.getValue()));
+                    }
+                } finally {
+                    orderShardRouter.clear();
+                }
+            }
+        }
+    }
+
+    private long pendingRepairs() {
+        Long size = stringRedisTemplate.opsForSet().size(SeckillRedisKeys.reshardRepairKey());
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * 重放镜像写失败的订单：按旧拓扑读出源行写到新位置，成功后移出重放集合
+     * @param overwrite true=以源表覆盖 (切换前，旧拓扑是权威)；false=只补缺行 (切换后，新拓扑上可能已有更新的写入)
+     * @return 重放的订单数
+     */
+    private long replayRepairs(ShardTopology from, ShardTopology to, boolean overwrite) {
+        Set<String> members = stringRedisTemplate.opsForSet().members(SeckillRedisKeys.reshardRepairKey());
+        if (members == null || members.isEmpty()) {
+            return 0;
+        }
+        Map<Integer, List<Long>> bySource = new LinkedHashMap<>();
+        for (String member : members) {
+            long id = Long.parseLong(member);
+            bySource.computeIfAbsent(from.shardOf(id), k -> new ArrayList<>()).add(id);
+        }
+        long replayed = 0;
+        for (Map.Entry<Integer, List<Long>> entry : bySource.entrySet()) {
+            List<Long> ids = entry.getValue();
+            for (int i = 0; i < ids.size(); i += batchSize) {
+                List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + batchSize));
+                List<Order> rows;
+                bind(from, entry.getKey());
+                try {
+                    rows = orderMapper.selectBatchIds(chunk);
+                } finally {
+                    orderShardRouter.clear();
+                }
+                Map<Integer, List<Order>> byTarget = new LinkedHashMap<>();
+                for (Order row : rows) {
+                    byTarget.computeIfAbsent(to.shardOf(row.getId()), k -> new ArrayList<>()).add(row);
+                }
+                for (Map.Entry<Integer, List<Order>> target : byTarget.entrySet()) {
+                    bind(to, target.getKey());
+                    try {
+                        if (overwrite) {
+                            orderMapper.upsertBatch(target.getValue());
+                        } else {
+                            orderMapper.insertIgnoreBatch(target.getValue());
+                        }
+                    } finally {
+                        orderShardRouter.clear();
+                    }
+                }
+                // 源表中不存在的订单 (主写本身也失败了) 无需重放，一并移出
+                stringRedisTemplate.opsForSet().remove(SeckillRedisKeys.reshardRepairKey(),
+                        chunk.stream().map(String::valueOf).toArray());
+                replayed += rows.size();
+            }
+        }
+        log.info(">>> [重分片] 重放镜像写 {} 个订单 (overwrite={})", replayed, overwrite);
+        return replayed;
+    }
+
+    private int repair(List<Order> sourceRows) {
+        List<Long> ids = new ArrayList<>(sourceRows.size());
+        for (Order row : sourceRows) {
+            ids.add(row.getId());
+        }
+        Map<Long, Order> targetRows = new HashMap<>();
+        for (Order row : orderMapper.selectBatchIds(ids)) {
+            targetRows.put(row.getId(), row);
+        }
+        List<Order> diff = new ArrayList<>();
+        for (Order row : sourceRows) {
+            if (!Objects.equals(row, targetRows.get(row.getId()))) {
+                diff.add(row);
+            }
+        }
+        if (!diff.isEmpty()) {
+            orderMapper.upsertBatch(diff);
+            repairedRows.addAndGet(diff.size());
+        }
+        return diff.size();
+    }
+
+    private void purgeMovedRows(ShardTopology from, ShardTopology to) {
+        try {
+            // 等所有节点都切到新拓扑，不再读旧表
+            stage = "WAITING_CUTOVER";
+            Thread.sleep(planRefreshMillis * 3);
+            // 旧表是这些订单唯一的完整副本，重放干净之前不能删
+            replayRepairs(from, to, false);
+            long pending = pendingRepairs();
+            if (pending > 0) {
+                lastError = "仍有 " + pending + " 个订单的镜像写待重放";
+                stage = "CLEAN_BLOCKED";
+                log.warn(">>> [重分片] 暂不清理旧数据: {}", lastError);
+                return;
+            }
+            stage = "CLEANING";
+            for (int shard = 0; shard < from.getTableCount(); shard++) {
+                long afterId = 0;
+                while (true) {
+                    bind(from, shard);
+                    try {
+                        List<Order> rows = orderMapper.scanAfter(afterId, batchSize);
+                        if (rows.isEmpty()) {
+                            break;
+                        }
+                        afterId = rows.get(rows.size() - 1).getId();
+                        List<Long> moved = new ArrayList<>();
+                        for (Order row : rows) {
+                            int target = to.shardOf(row.getId());
+                            if (target != shard || to.databaseIndex(target) != from.databaseIndex(shard)) {
+                                moved.add(row.getId());
+                            }
+                        }
+                        if (!moved.isEmpty()) {
+                            deletedRows.addAndGet(orderMapper.deleteBatchIds(moved));
+                        }
+                    } finally {
+                        orderShardRouter.clear();
+                    }
+                }
+            }
+            stage = "CLEANED";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            lastError = e.toString();
+            stage = "CLEAN_FAILED";
+            log.error(">>> [重分片] 清理旧数据失败", e);
+        }
+    }
+
+    /**
+     * 按指定拓扑绑定库 + 表 (不经过路由快照，搬迁任务需要同时访问新旧两套拓扑)
+     */
+    private void bind(ShardTopology topology, int shard) {
+        TableContext.set(ShardTopology.tableName(shard));
+        DataSourceContext.set(orderShardRouter.databaseKeyAt(topology.databaseIndex(shard)));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        worker.shutdownNow();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.seckill.order.sharding;
+
+import com.example.seckill.common.utils.OrderGene;
+
+/**
+ * 一套分片拓扑 (分表总数 + 参与路由的库数)，不可变
+ * 表号 = OrderGene.shardOf(key, tableCount)，物理表 = order_tbl_{表号}，库号 = 表号 % databaseCount
+ */
+public final class ShardTopology {
+
+    private static final String TABLE_PREFIX = "order_tbl_";
+
+    private final int tableCount;
+    private final int databaseCount;
+
+    public ShardTopology(int tableCount, int databaseCount, int geneBits) {
+        OrderGene.checkShardCount(tableCount, geneBits);
+        if (databaseCount <= 0 || tableCount % databaseCount != 0) {
+            throw new IllegalArgumentException("分表总数必须能被库数整除: tableCount="
+                    + tableCount + ", databases=" + databaseCount);
+        }
+        this.tableCount = tableCount;
+        this.databaseCount = databaseCount;
+    }
+
+    public int getTableCount() {
+        return tableCount;
+    }
+
+    public int getDatabaseCount() {
+        return databaseCount;
+    }
+
+    /**
+     * 分片号 (orderId 或 userId 均可)
+     */
+    public int shardOf(long shardKey) {
+        return OrderGene.shardOf(shardKey, tableCount);
+    }
+
+    public int databaseIndex(int shard) {
+        return shard % databaseCount;
+    }
+
+    public static String tableName(int shard) {
+        return TABLE_PREFIX + shard;
+    }
+
+    @Override
+    public String toString() {
+        return tableCount + " tables / " + databaseCount + " databases";
+    }
+}
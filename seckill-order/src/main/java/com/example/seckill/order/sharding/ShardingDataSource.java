@@ -0,0 +1,75 @@
+package com.example.seckill.order.sharding;
+
+import com.example.seckill.order.context.DataSourceContext;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 分库路由数据源
+ * 每个物理库一个 Hikari 连接池，按 DataSourceContext 选择目标库 (未设置时走默认库)
+ */
+public class ShardingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    /**
+     * 未配置 app.sharding.databases 时，单库的数据源名称
+     */
+    public static final String DEFAULT_KEY = "ds0";
+
+    // 物理连接池 (用于监控与关闭；路由目标可能是它们的 Seata 代理)
+    private final Map<String, HikariDataSource> pools;
+
+    public ShardingDataSource(Map<String, HikariDataSource> pools) {
+        this.pools = pools;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return DataSourceContext.get();
+    }
+
+    /**
+     * 物理连接池 (绕过路由与 Seata 代理，仅供 DDL / 运维工具使用)
+     */
+    public DataSource physical(String key) {
+        HikariDataSource pool = pools.get(key);
+        if (pool == null) {
+            throw new IllegalArgumentException("未知的数据源: " + key);
+        }
+        return pool;
+    }
+
+    /**
+     * 各连接池的实时指标
+     */
+    public Map<String, Map<String, Object>> poolStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, HikariDataSource> entry : pools.entrySet()) {
+            HikariDataSource pool = entry.getValue();
+            HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("jdbcUrl", pool.getJdbcUrl());
+            item.put("maxPoolSize", pool.getMaximumPoolSize());
+            if (mxBean != null) {
+                item.put("active", mxBean.getActiveConnections());
+                item.put("idle", mxBean.getIdleConnections());
+                item.put("total", mxBean.getTotalConnections());
+                item.put("threadsAwaiting", mxBean.getThreadsAwaitingConnection());
+            }
+            stats.put(entry.getKey(), item);
+        }
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        for (HikariDataSource pool : pools.values()) {
+            pool.close();
+        }
+    }
+}
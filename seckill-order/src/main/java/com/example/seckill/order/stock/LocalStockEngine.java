@@ -0,0 +1,160 @@
+package com.example.seckill.order.stock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JVM 内库存引擎 (app.seckill.stock.engine=local)
+ * 库存放在本进程内存中，扣减是一次 CAS，不经过网络：
+ * 1. 单节点小规模活动：库存检查在亚微秒级完成
+ * 2. 压测下单链路的其余部分 (事务消息 / 组提交 / 消费落库) 时排除 Redis 的影响
+ *
+ * 注意：库存不跨节点共享、不持久化，多节点部署或进程重启会导致超卖 / 库存丢失，生产集群必须使用 redis 引擎
+ * 库存通过 POST /admin/stock/prewarm 写入 (goods 服务的预热只写 Redis，不会同步到这里)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.seckill.stock.engine", havingValue = "local")
+public class LocalStockEngine implements StockEngine {
+
+    @Autowired
+    private SoldOutBroadcaster soldOutBroadcaster;
+
+    // 每人限购件数与 redis 引擎共用同一配置
+    @Autowired
+    private PurchaseLedger purchaseLedger;
+
+    private static final class Slot {
+        // 剩余库存
+        private final AtomicInteger available;
+        // 已扣减成功的订单 (事务回查 / 关单回补使用)
+        private final Set<Long> reserved = ConcurrentHashMap.newKeySet();
+        // 限购账本：userId -> 已购件数
+        private final ConcurrentHashMap<Long, Integer> purchases = new ConcurrentHashMap<>();
+
+        private Slot(int stock) {
+            this.available = new AtomicInteger(stock);
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    @Override
+    public Reservation reserve(long skuId, long userId, long orderId) {
+        Slot slot = slots.get(skuId);
+        if (slot == null) {
+            return Reservation.NOT_STARTED;
+        }
+        // 先占限购额度，重复购买的用户不碰库存
+        if (!takeQuota(skuId, slot, userId)) {
+            return Reservation.LIMIT_EXCEEDED;
+        }
+        int current;
+        do {
+            current = slot.available.get();
+            if (current <= 0) {
+                // 售罄后的请求由调用方刷新本地标记，这里保持无锁
+                returnQuota(slot, userId, 1);
+                return Reservation.SOLD_OUT;
+            }
+        } while (!slot.available.compareAndSet(current, current - 1));
+
+        slot.reserved.add(orderId);
+        if (current == 1) {
+            // 最后一件被抢走，立即置位，不必等下一个请求撞到 SOLD_OUT
+            soldOutBroadcaster.markSoldOutLocal(skuId);
+        }
+        return Reservation.RESERVED;
+    }
+
+    /**
+     * 扣减本身就是一次 CAS，直接在订阅线程上完成，无需切线程
+     */
+    @Override
+    public Mono<Reservation> reserveReactive(long skuId, long userId, long orderId) {
+        return Mono.fromSupplier(() -> reserve(skuId, userId, orderId));
+    }
+
+    @Override
+    public Reservation check(long skuId, long userId, long orderId) {
+        Slot slot = slots.get(skuId);
+        return slot != null && slot.reserved.contains(orderId) ? Reservation.RESERVED : Reservation.NONE;
+    }
+
+    /**
+     * 只归还确实扣减过的订单，重复调用不会多补
+     */
+    @Override
+    public void release(long skuId, long userId, long orderId, int count) {
+        Slot slot = slots.get(skuId);
+        if (slot == null || !slot.reserved.remove(orderId)) {
+            return;
+        }
+        returnQuota(slot, userId, count);
+        if (slot.available.getAndAdd(count) <= 0) {
+            // 从售罄恢复才需要清标记 (清除要加锁)
+            soldOutBroadcaster.clearSoldOutLocal(skuId);
+        }
+    }
+
+    private boolean takeQuota(long skuId, Slot slot, long userId) {
+        int limit = purchaseLedger.getPerUserLimit(skuId);
+        boolean[] taken = new boolean[1];
+        slot.purchases.compute(userId, (k, bought) -> {
+            int n = bought == null ? 0 : bought;
+            if (n >= limit) {
+                return bought;
+            }
+            taken[0] = true;
+            return n + 1;
+        });
+        return taken[0];
+    }
+
+    private void returnQuota(Slot slot, long userId, int count) {
+        slot.purchases.computeIfPresent(userId, (k, bought) -> bought > count ? bought - count : null);
+    }
+
+    @Override
+    public long remaining(long skuId) {
+        Slot slot = slots.get(skuId);
+        return slot == null ? -1 : Math.max(0, slot.available.get());
+    }
+
+    /**
+     * 进程内没有热点 Key 问题，忽略分段数；重复预热只覆盖剩余库存，保留已扣减记录
+     */
+    @Override
+    public void prewarm(long skuId, int stock, int segments) {
+        if (stock < 0) {
+            throw new IllegalArgumentException("库存不能为负");
+        }
+        slots.compute(skuId, (k, old) -> {
+            if (old == null) {
+                return new Slot(stock);
+            }
+            old.available.set(stock);
+            return old;
+        });
+        soldOutBroadcaster.clearSoldOutLocal(skuId);
+        log.info(">>> [库存引擎-本地] 预热完成. skuId={}, stock={}", skuId, stock);
+    }
+
+    /**
+     * 活动结束后调用，之后的关单回补不再计入
+     */
+    @Override
+    public long drain(long skuId) {
+        Slot slot = slots.remove(skuId);
+        long left = slot == null ? 0 : Math.max(0, slot.available.getAndSet(0));
+        log.info(">>> [库存引擎-本地] 回收剩余库存. skuId={}, remaining={}", skuId, left);
+        return left;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.seckill.order.stock;
+
+import com.example.seckill.common.dto.SeckillActivityDTO;
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import com.example.seckill.common.utils.SnowflakeIdWorker;
+import com.example.seckill.order.activity.SeckillActivityCatalog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 限购账本与订单扣减记录的 Key 布局 (Redis 引擎 / 库存租约共用)
+ * 原先每笔订单一个 seckill:order:done:{userId}:{skuId}:{orderId} (带 orderId，实际上从不去重，且每单一个带 TTL 的 Key)，
+ * 现拆成两份紧凑结构，都按桶分散，使单个桶保持在 Redis 的紧凑编码 (listpack / intset) 内：
+ * 1. 限购账本：每个 SKU 每场活动若干个 Hash，field = userId，value = 已购件数，Lua 内按 per-user-limit 原子校验，先于扣库存
+ * 2. 扣减记录：按订单生成分钟 + orderId 取模分桶的 Set (member = orderId)，只供事务回查使用，整桶过期
+ *
+ * 单桶条目数超过 hash-max-listpack-entries (默认 128) / set-max-intset-entries (默认 512) 后退化为哈希表，
+ * 大促前按 购买人数 / 每分钟订单数 调大 buckets / state-buckets 或 Redis 的对应阈值
+ *
+ * 两份记录都带 Hash Tag (见 {@link #tagOf})，只由 skuId + userId 决定，与库存当前是否分段、分几段无关：
+ * 重新预热改段数、段数缓存过期或活动回收后，回查 / 归还仍能找到扣减时写下的记录
+ * 与库存 Key 同槽时 (单 Key 模式且 slots = 1，或分段数恰好等于 slots 的主段) 扣减在一个脚本内原子执行，否则分两步
+ */
+@Component
+public class PurchaseLedger {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    @Autowired
+    private SeckillActivityCatalog seckillActivityCatalog;
+
+    @Autowired
+    private StockSegmentRouter stockSegmentRouter;
+
+    // 每个用户对同一 SKU 的默认限购件数 (活动未配置限购时使用)
+    @Value("${app.seckill.ledger.per-user-limit:1}")
+    private int perUserLimit;
+
+    // 每个 SKU 的限购账本桶数 (上线后不要修改，否则已购记录按新桶号查不到)
+    @Value("${app.seckill.ledger.buckets:256}")
+    private int buckets;
+
+    // 每个 SKU 的用户记录分布在几个槽 (上线后不要修改，原因同 buckets)；1 = 全部落在 {skuId}
+    @Value("${app.seckill.ledger.slots:1}")
+    private int slots;
+
+    // 每分钟扣减记录的桶数
+    @Value("${app.seckill.ledger.state-buckets:16}")
+    private int stateBuckets;
+
+    // 限购账本过期时间 (秒)，需大于活动持续时间，与预热库存保持一致
+    @Value("${app.seckill.ledger.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    // 扣减记录过期时间 (秒)，需覆盖事务回查窗口与超时关单时间
+    @Value("${app.seckill.ledger.state-ttl-seconds:7200}")
+    private long stateTtlSeconds;
+
+    /**
+     * 该 SKU 的每人限购件数：优先取本地活动快照中的配置
+     */
+    public int getPerUserLimit(long skuId) {
+        SeckillActivityDTO activity = seckillActivityCatalog.get(skuId);
+        if (activity != null && activity.getPerUserLimit() != null && activity.getPerUserLimit() > 0) {
+            return activity.getPerUserLimit();
+        }
+        return perUserLimit;
+    }
+
+    /**
+     * 用户在该 SKU 下的记录所在的 Hash Tag：slots = 1 时为 {skuId}，否则为 {skuId:home}，home 按 slots 取用户主段
+     */
+    public String tagOf(long skuId, long userId) {
+        return slots > 1
+                ? SeckillRedisKeys.segmentTag(skuId, stockSegmentRouter.homeSegment(userId, slots))
+                : SeckillRedisKeys.skuTag(skuId);
+    }
+
+    public int getSlots() {
+        return Math.max(1, slots);
+    }
+
+    /**
+     * 限购账本按场次区分：同一 SKU 前后两场活动各自计数，上一场的购买不占下一场的额度
+     * 场次取订单生成时刻所在的活动 (由 orderId 推出)，扣减、结算与归还找到的是同一份账本；不在活动目录中的 SKU 记为 0
+     */
+    public String ledgerKey(String tag, long skuId, long userId, long orderId) {
+        return SeckillRedisKeys.purchaseLedgerKey(tag, activityOf(skuId, orderId), (int) Math.floorMod(userId, (long) buckets));
+    }
+
+    private long activityOf(long skuId, long orderId) {
+        SeckillActivityDTO activity = seckillActivityCatalog.get(skuId, SnowflakeIdWorker.timestampOf(orderId));
+        return activity == null || activity.getActivityId() == null ? 0 : activity.getActivityId();
+    }
+
+    public String stateKey(String tag, long orderId) {
+        long minute = SnowflakeIdWorker.timestampOf(orderId) / MINUTE_MILLIS;
+        return SeckillRedisKeys.orderStateKey(tag, minute, (int) Math.floorMod(orderId, (long) stateBuckets));
+    }
+
+    public String ttlArg() {
+        return String.valueOf(ttlSeconds);
+    }
+
+    public String stateTtlArg() {
+        return String.valueOf(stateTtlSeconds);
+    }
+}
@@ -0,0 +1,494 @@
+package com.example.seckill.order.stock;
+
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis + Lua 库存引擎 (默认实现，多节点共享库存)
+ * 1. 单 Key 模式：seckill_stock.lua 原子校验限购、扣减并写扣减记录，开启库存租约时优先从本节点租约扣减
+ * 2. 分段模式：先扣用户主段，主段空了依次回退到兄弟段
+ * 3. 售罄 / 补货通过 {@link SoldOutBroadcaster} 广播到所有订单节点
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.seckill.stock.engine", havingValue = "redis", matchIfMissing = true)
+public class RedisStockEngine implements StockEngine {
+
+    // 预热库存的过期时间，与 goods 服务预热保持一致
+    private static final long STOCK_TTL_SECONDS = 86400;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // Lettuce 响应式客户端 (非阻塞扣减使用)
+    @Autowired
+    private ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    @Autowired
+    private SoldOutBroadcaster soldOutBroadcaster;
+
+    @Autowired
+    private StockSegmentRouter stockSegmentRouter;
+
+    @Autowired
+    private StockLeaseManager stockLeaseManager;
+
+    // 限购账本 / 扣减记录的 Key 与参数
+    @Autowired
+    private PurchaseLedger purchaseLedger;
+
+    private DefaultRedisScript<Long> seckillScript;
+    private DefaultRedisScript<List> batchScript;
+    private DefaultRedisScript<Long> ledgerTakeScript;
+    private DefaultRedisScript<Long> stockTakeScript;
+    private DefaultRedisScript<Long> stateRecordScript;
+    private DefaultRedisScript<Long> releaseScript;
+    private DefaultRedisScript<Long> restockScript;
+
+    @PostConstruct
+    public void init() {
+        seckillScript = new DefaultRedisScript<>();
+        seckillScript.setResultType(Long.class);
+        seckillScript.setLocation(new ClassPathResource("seckill_stock.lua"));
+
+        batchScript = new DefaultRedisScript<>();
+        batchScript.setResultType(List.class);
+        batchScript.setLocation(new ClassPathResource("seckill_stock_batch.lua"));
+
+        ledgerTakeScript = new DefaultRedisScript<>();
+        ledgerTakeScript.setResultType(Long.class);
+        ledgerTakeScript.setLocation(new ClassPathResource("seckill_ledger_take.lua"));
+
+        stockTakeScript = new DefaultRedisScript<>();
+        stockTakeScript.setResultType(Long.class);
+        stockTakeScript.setLocation(new ClassPathResource("seckill_stock_take.lua"));
+
+        stateRecordScript = new DefaultRedisScript<>();
+        stateRecordScript.setResultType(Long.class);
+        stateRecordScript.setLocation(new ClassPathResource("seckill_state_record.lua"));
+
+        releaseScript = new DefaultRedisScript<>();
+        releaseScript.setResultType(Long.class);
+        releaseScript.setLocation(new ClassPathResource("seckill_stock_release.lua"));
+
+        restockScript = new DefaultRedisScript<>();
+        restockScript.setResultType(Long.class);
+        restockScript.setLocation(new ClassPathResource("seckill_stock_restock.lua"));
+    }
+
+    @Override
+    public Reservation reserve(long skuId, long userId, long orderId) {
+        // 【分段库存】热点 SKU 走分段扣减
+        int segmentCount = stockSegmentRouter.segmentCount(skuId);
+        if (segmentCount > 1) {
+            return reserveSegmented(skuId, userId, orderId, segmentCount);
+        }
+
+        // 用户记录不在 {skuId} (ledger.slots > 1)：与库存不同槽，分两步扣减
+        if (purchaseLedger.getSlots() > 1) {
+            return reserveSplit(skuId, userId, orderId, List.of(SeckillRedisKeys.stockKey(skuId)));
+        }
+
+        // 【库存租约】单 Key 模式下优先从本节点租到的库存里扣减
+        if (stockLeaseManager.isEnabled()) {
+            StockLeaseManager.Outcome outcome = stockLeaseManager.reserve(skuId, userId, orderId);
+            if (outcome == StockLeaseManager.Outcome.ACQUIRED) {
+                return Reservation.RESERVED;
+            }
+            if (outcome == StockLeaseManager.Outcome.SOLD_OUT) {
+                return Reservation.SOLD_OUT;
+            }
+            if (outcome == StockLeaseManager.Outcome.LIMIT_EXCEEDED) {
+                return Reservation.LIMIT_EXCEEDED;
+            }
+            if (outcome == StockLeaseManager.Outcome.TIMEOUT) {
+                return Reservation.UNKNOWN;
+            }
+            // BYPASS: 租约不可用，退回逐单 Lua 扣减
+        }
+
+        // 售罄时脚本内直接 PUBLISH 广播
+        // 返回值: 1=成功, -1=无库存, -2=超过限购, -3=Key不存在
+        Long result = stringRedisTemplate.execute(seckillScript,
+                scriptKeys(SeckillRedisKeys.stockKey(skuId), SeckillRedisKeys.skuTag(skuId), skuId, userId, orderId),
+                scriptArgs(skuId, SeckillRedisKeys.stockChannel(), userId, orderId).toArray());
+        return toReservation(result == null ? -3 : result, skuId);
+    }
+
+    /**
+     * 非阻塞扣减：单 Key 模式直接通过 Lettuce 响应式连接执行 seckill_stock.lua
+     * 分段库存 (多次脚本 + 段间回退)、记录与库存不同槽 (两步扣减) 与库存租约 (本地结算等待) 本身是阻塞流程，
+     * 段数尚未缓存时也需要先同步读取一次，这些情况退回默认实现，在 boundedElastic 上执行
+     */
+    @Override
+    public Mono<Reservation> reserveReactive(long skuId, long userId, long orderId) {
+        if (stockSegmentRouter.cachedSegmentCount(skuId) != 1 || purchaseLedger.getSlots() > 1
+                || stockLeaseManager.isEnabled()) {
+            return StockEngine.super.reserveReactive(skuId, userId, orderId);
+        }
+        List<String> keys = scriptKeys(SeckillRedisKeys.stockKey(skuId), SeckillRedisKeys.skuTag(skuId), skuId, userId, orderId);
+        List<String> args = scriptArgs(skuId, SeckillRedisKeys.stockChannel(), userId, orderId);
+        return reactiveStringRedisTemplate.execute(seckillScript, keys, args)
+                .next()
+                .map(code -> toReservation(code, skuId))
+                .defaultIfEmpty(Reservation.NOT_STARTED);
+    }
+
+    /**
+     * 分段扣减：先扣用户主段，主段空了依次回退到兄弟段
+     * 用户的限购账本 / 扣减记录在 {@link PurchaseLedger#tagOf} 的槽：
+     * 1. 段数等于 ledger.slots 时用户主段与记录同槽，主段有货时一次 seckill_stock.lua 原子完成 (限购 + 扣减 + 记录)
+     * 2. 其余情况 (回退到兄弟段 / 段数与 slots 不同) 无法与记录同脚本执行，走 {@link #reserveSplit}
+     * 单段售罄不代表商品售罄，所以脚本内不广播 (频道传空)，全部段都扣不动时才广播
+     */
+    private Reservation reserveSegmented(long skuId, long userId, long orderId, int segmentCount) {
+        int home = stockSegmentRouter.homeSegment(userId, segmentCount);
+        int firstAttempt = 0;
+        if (segmentCount == purchaseLedger.getSlots()) {
+            Long result = stringRedisTemplate.execute(seckillScript,
+                    scriptKeys(SeckillRedisKeys.stockSegmentKey(skuId, home), purchaseLedger.tagOf(skuId, userId), skuId, userId, orderId),
+                    scriptArgs(skuId, "", userId, orderId).toArray());
+            if (result != null && result == 1) {
+                return Reservation.RESERVED;
+            }
+            if (result != null && result == -2) {
+                return Reservation.LIMIT_EXCEEDED;
+            }
+            // -1 (主段无库存) / -3 (主段不存在) -> 回退到兄弟段
+            firstAttempt = 1;
+        }
+
+        List<String> stockKeys = new ArrayList<>(segmentCount - firstAttempt);
+        for (int attempt = firstAttempt; attempt < segmentCount; attempt++) {
+            stockKeys.add(SeckillRedisKeys.stockSegmentKey(skuId, stockSegmentRouter.segmentAt(home, attempt, segmentCount)));
+        }
+        Reservation reservation = reserveSplit(skuId, userId, orderId, stockKeys);
+        if (reservation == Reservation.SOLD_OUT) {
+            log.warn("❌ [库存引擎] 所有库存段均已售罄. skuId={}, segments={}", skuId, segmentCount);
+        }
+        return reservation;
+    }
+
+    /**
+     * 两步扣减 (记录与库存不同槽)：先在记录所在的槽占额度，再依次尝试 stockKeys，扣成功后才写扣减记录，全部扣不动则退回额度
+     * 1. 额度先于库存占用，任何时刻都不会超过限购
+     * 2. 扣减记录最后写：事务回查查到记录时库存一定已扣，不会超卖
+     * 中途宕机 / 超时最多让该用户少买或少卖一件 (额度或库存未退回)，不会多卖
+     */
+    private Reservation reserveSplit(long skuId, long userId, long orderId, List<String> stockKeys) {
+        String tag = purchaseLedger.tagOf(skuId, userId);
+        String ledgerKey = purchaseLedger.ledgerKey(tag, skuId, userId, orderId);
+        Long taken = stringRedisTemplate.execute(ledgerTakeScript, List.of(ledgerKey),
+                String.valueOf(userId), String.valueOf(purchaseLedger.getPerUserLimit(skuId)), purchaseLedger.ttlArg());
+        if (taken != null && taken == -2) {
+            return Reservation.LIMIT_EXCEEDED;
+        }
+        boolean exists = false;
+        for (String stockKey : stockKeys) {
+            Long code = stringRedisTemplate.execute(stockTakeScript, List.of(stockKey));
+            if (code != null && code == 1) {
+                stringRedisTemplate.execute(stateRecordScript, List.of(purchaseLedger.stateKey(tag, orderId)),
+                        String.valueOf(orderId), purchaseLedger.stateTtlArg());
+                return Reservation.RESERVED;
+            }
+            exists |= code != null && code == -1;
+        }
+        stringRedisTemplate.opsForHash().increment(ledgerKey, String.valueOf(userId), -1);
+        if (!exists) {
+            // 所有库存 Key 都不存在：未预热 / 已回收
+            return Reservation.NOT_STARTED;
+        }
+        // 分段扣减脚本不广播，由发现全部段售罄的节点广播一次；本节点已置位说明广播过 (或已收到)，不再重复
+        if (!soldOutBroadcaster.isSoldOut(skuId)) {
+            soldOutBroadcaster.publishSoldOut(skuId);
+        }
+        return Reservation.SOLD_OUT;
+    }
+
+    /**
+     * 批量脚本只处理与记录同槽的单 Key 库存，分段 SKU / ledger.slots > 1 由调用方走逐单路径
+     */
+    @Override
+    public boolean supportsBatch(long skuId) {
+        return purchaseLedger.getSlots() == 1 && stockSegmentRouter.segmentCount(skuId) <= 1;
+    }
+
+    @Override
+    public List<Reservation> reserveBatch(long skuId, List<Claim> claims) {
+        if (!supportsBatch(skuId)) {
+            return StockEngine.super.reserveBatch(skuId, claims);
+        }
+        List<String> keys = new ArrayList<>(claims.size() * 2 + 1);
+        keys.add(SeckillRedisKeys.stockKey(skuId));
+        List<String> args = new ArrayList<>(claims.size() * 2 + 5);
+        args.add(String.valueOf(skuId));
+        args.add(SeckillRedisKeys.stockChannel());
+        args.add(String.valueOf(purchaseLedger.getPerUserLimit(skuId)));
+        args.add(purchaseLedger.ttlArg());
+        args.add(purchaseLedger.stateTtlArg());
+        // 单 Key 模式：库存与本批所有账本 / 记录桶共用 {skuId}，一个槽内原子执行
+        String tag = SeckillRedisKeys.skuTag(skuId);
+        for (Claim claim : claims) {
+            keys.add(purchaseLedger.ledgerKey(tag, skuId, claim.userId(), claim.orderId()));
+            keys.add(purchaseLedger.stateKey(tag, claim.orderId()));
+            args.add(String.valueOf(claim.userId()));
+            args.add(String.valueOf(claim.orderId()));
+        }
+        List<?> codes = stringRedisTemplate.execute(batchScript, keys, args.toArray());
+
+        List<Reservation> results = new ArrayList<>(claims.size());
+        for (int i = 0; i < claims.size(); i++) {
+            long code = codes != null && i < codes.size() ? ((Number) codes.get(i)).longValue() : -3;
+            results.add(toReservation(code, skuId));
+        }
+        return results;
+    }
+
+    /**
+     * seckill_stock.lua 的 KEYS：库存 Key (单 Key / 某一段) + 限购账本桶 + 扣减记录桶
+     */
+    private List<String> scriptKeys(String stockKey, String tag, long skuId, long userId, long orderId) {
+        return List.of(stockKey, purchaseLedger.ledgerKey(tag, skuId, userId, orderId), purchaseLedger.stateKey(tag, orderId));
+    }
+
+    private List<String> scriptArgs(long skuId, String channel, long userId, long orderId) {
+        return List.of(String.valueOf(skuId), channel, String.valueOf(userId), String.valueOf(orderId),
+                String.valueOf(purchaseLedger.getPerUserLimit(skuId)), purchaseLedger.ttlArg(), purchaseLedger.stateTtlArg());
+    }
+
+    private Reservation toReservation(long code, long skuId) {
+        if (code == 1) {
+            return Reservation.RESERVED;
+        }
+        if (code == -1) {
+            // 本节点立即置位，不等 Pub/Sub 回环
+            soldOutBroadcaster.markSoldOutLocal(skuId);
+            return Reservation.SOLD_OUT;
+        }
+        if (code == -2) {
+            return Reservation.LIMIT_EXCEEDED;
+        }
+        // -3: 库存 Key 不存在 (未预热 / 已回收)
+        return Reservation.NOT_STARTED;
+    }
+
+    /**
+     * 回查扣减记录 (Lua 扣减成功 / 租约结算时写入，位置只取决于 skuId + userId，不受段数变化影响)
+     */
+    @Override
+    public Reservation check(long skuId, long userId, long orderId) {
+        String stateKey = purchaseLedger.stateKey(purchaseLedger.tagOf(skuId, userId), orderId);
+        if (Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(stateKey, String.valueOf(orderId)))) {
+            return Reservation.RESERVED;
+        }
+        // 租约模式下订单可能已在某个节点本地扣减、记录尚未批量落地，结算截止之前稍后再查
+        return stockLeaseManager.mayStillSettle(orderId) ? Reservation.UNKNOWN : Reservation.NONE;
+    }
+
+    /**
+     * 一次 Pipeline 发出全部 SISMEMBER (每条命令只涉及一个 Key，Redis Cluster 下由客户端按槽分发)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Reservation> checkAll(List<Claim> claims) {
+        if (claims.isEmpty()) {
+            return List.of();
+        }
+        List<String> stateKeys = new ArrayList<>(claims.size());
+        for (Claim claim : claims) {
+            stateKeys.add(purchaseLedger.stateKey(purchaseLedger.tagOf(claim.skuId(), claim.userId()), claim.orderId()));
+        }
+        List<Object> found = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (int i = 0; i < claims.size(); i++) {
+                    ops.opsForSet().isMember(stateKeys.get(i), String.valueOf(claims.get(i).orderId()));
+                }
+                return null;
+            }
+        });
+        List<Reservation> results = new ArrayList<>(claims.size());
+        for (int i = 0; i < claims.size(); i++) {
+            long orderId = claims.get(i).orderId();
+            if (Boolean.TRUE.equals(found.get(i))) {
+                results.add(Reservation.RESERVED);
+            } else {
+                results.add(stockLeaseManager.mayStillSettle(orderId) ? Reservation.UNKNOWN : Reservation.NONE);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void release(long skuId, long userId, long orderId, int count) {
+        releaseAll(List.of(new Claim(skuId, userId, orderId, count)));
+    }
+
+    /**
+     * 按槽分组，每组一次 seckill_stock_release.lua：删除扣减记录 + 退回限购额度，只有确实删掉扣减记录的订单才回补 (重复归还无副作用)
+     * 1. 库存 Key 与记录同槽时回补在同一脚本内完成
+     * 2. 不同槽时脚本返回删掉记录的件数，再由 seckill_stock_restock.lua 回补 (两步之间宕机最多少补，不会多补)
+     * 库存 Key 已回收时不重建；分段模式补回用户的主段 (不必是当初扣减的那一段，总量一致即可)
+     */
+    @Override
+    public void releaseAll(List<Claim> claims) {
+        if (claims.isEmpty()) {
+            return;
+        }
+        // 记录 Tag -> 要回补的库存 Key 与该槽内的订单 (同一 Tag 只属于一个 SKU)
+        Map<String, String> stockKeys = new LinkedHashMap<>();
+        Map<String, List<Claim>> byTag = new LinkedHashMap<>();
+        Map<Long, Integer> segmentCounts = new HashMap<>();
+        for (Claim claim : claims) {
+            long skuId = claim.skuId();
+            int segmentCount = segmentCounts.computeIfAbsent(skuId, stockSegmentRouter::segmentCount);
+            String tag = purchaseLedger.tagOf(skuId, claim.userId());
+            stockKeys.computeIfAbsent(tag, k -> segmentCount > 1
+                    ? SeckillRedisKeys.stockSegmentKey(skuId, stockSegmentRouter.homeSegment(claim.userId(), segmentCount))
+                    : SeckillRedisKeys.stockKey(skuId));
+            byTag.computeIfAbsent(tag, k -> new ArrayList<>()).add(claim);
+        }
+
+        Set<Long> restocked = new HashSet<>();
+        for (Map.Entry<String, List<Claim>> entry : byTag.entrySet()) {
+            String tag = entry.getKey();
+            List<Claim> group = entry.getValue();
+            String stockKey = stockKeys.get(tag);
+            // 库存 Key 形如 seckill:stock:{tag}，与记录同槽当且仅当 Hash Tag 相同
+            boolean sameSlot = stockKey.endsWith(tag);
+            List<String> keys = new ArrayList<>(group.size() * 2 + 1);
+            if (sameSlot) {
+                keys.add(stockKey);
+            }
+            List<String> args = new ArrayList<>(group.size() * 3);
+            for (Claim claim : group) {
+                keys.add(purchaseLedger.stateKey(tag, claim.orderId()));
+                keys.add(purchaseLedger.ledgerKey(tag, claim.skuId(), claim.userId(), claim.orderId()));
+                args.add(String.valueOf(claim.orderId()));
+                args.add(String.valueOf(claim.userId()));
+                args.add(String.valueOf(claim.count()));
+            }
+            Long returned = stringRedisTemplate.execute(releaseScript, keys, args.toArray());
+            if (!sameSlot && returned != null && returned > 0) {
+                returned = stringRedisTemplate.execute(restockScript, List.of(stockKey), String.valueOf(returned));
+            }
+            if (returned != null && returned > 0) {
+                restocked.add(group.get(0).skuId());
+            }
+        }
+
+        for (Long skuId : restocked) {
+            // 本节点立即清除售罄标记并广播补货
+            soldOutBroadcaster.publishRestock(skuId);
+        }
+    }
+
+    /**
+     * 所有段求和 (分段可能被回退成负数，按 0 计)
+     */
+    @Override
+    public long remaining(long skuId) {
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(stockKeys(skuId));
+        long total = 0;
+        boolean exists = false;
+        if (values != null) {
+            for (String val : values) {
+                if (val != null) {
+                    exists = true;
+                    total += Math.max(0, Long.parseLong(val));
+                }
+            }
+        }
+        return exists ? total : -1;
+    }
+
+    /**
+     * Key 布局与 goods 服务预热完全一致 (goods 预热还负责 DB 库存划转，这里只写 Redis)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void prewarm(long skuId, int stock, int segments) {
+        if (stock < 0 || segments < 1) {
+            throw new IllegalArgumentException("库存不能为负，分段数至少为 1");
+        }
+        Map<String, String> entries = new LinkedHashMap<>();
+        if (segments == 1) {
+            entries.put(SeckillRedisKeys.stockKey(skuId), String.valueOf(stock));
+        } else {
+            int base = stock / segments;
+            int remainder = stock % segments;
+            for (int i = 0; i < segments; i++) {
+                entries.put(SeckillRedisKeys.stockSegmentKey(skuId, i), String.valueOf(base + (i < remainder ? 1 : 0)));
+            }
+            entries.put(SeckillRedisKeys.stockSegmentCountKey(skuId), String.valueOf(segments));
+        }
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                if (segments == 1) {
+                    // 清理可能残留的段数记录，避免误走分段逻辑
+                    ops.delete(SeckillRedisKeys.stockSegmentCountKey(skuId));
+                }
+                entries.forEach((key, val) -> ops.opsForValue().set(key, val, STOCK_TTL_SECONDS, TimeUnit.SECONDS));
+                return null;
+            }
+        });
+        stockSegmentRouter.invalidate(skuId);
+        soldOutBroadcaster.publishRestock(skuId);
+        log.info(">>> [库存引擎] 预热完成. skuId={}, stock={}, segments={}", skuId, stock, segments);
+    }
+
+    /**
+     * 活动结束后调用：读出所有段的剩余库存后删除 Key (与 goods 服务 syncStockBack 一致，不与下单并发)
+     */
+    @Override
+    public long drain(long skuId) {
+        List<String> keys = stockKeys(skuId);
+        long left = remaining(skuId);
+        keys.add(SeckillRedisKeys.stockSegmentCountKey(skuId));
+        stringRedisTemplate.delete(keys);
+        stockSegmentRouter.invalidate(skuId);
+        log.info(">>> [库存引擎] 回收剩余库存. skuId={}, remaining={}", skuId, Math.max(0, left));
+        return Math.max(0, left);
+    }
+
+    /**
+     * 该 SKU 的全部库存 Key (直接读段数记录，不走本地缓存)
+     */
+    private List<String> stockKeys(long skuId) {
+        String segmentVal = stringRedisTemplate.opsForValue().get(SeckillRedisKeys.stockSegmentCountKey(skuId));
+        int segments = segmentVal == null ? 1 : Math.max(1, Integer.parseInt(segmentVal));
+        List<String> keys = new ArrayList<>(segments + 1);
+        if (segments == 1) {
+            keys.add(SeckillRedisKeys.stockKey(skuId));
+        } else {
+            for (int i = 0; i < segments; i++) {
+                keys.add(SeckillRedisKeys.stockSegmentKey(skuId, i));
+            }
+        }
+        return keys;
+    }
+}
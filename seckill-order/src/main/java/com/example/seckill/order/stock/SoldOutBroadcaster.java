@@ -0,0 +1,112 @@
+package com.example.seckill.order.stock;
+
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 集群售罄广播
+ * 1. 库存被扣到 0 的那一次 -> Redis Pub/Sub 广播 SOLD_OUT；之后 Lua 返回 -1 的节点只置位本地标记，不再重复广播
+ * 2. 关单回滚库存 / 商品重新预热 -> 广播 RESTOCK
+ * 3. 所有订单节点订阅同一频道 ({@link SeckillRedisKeys#stockChannel()}，消息格式与 Lua 脚本、goods 预热共用)，翻转本地 {@link SoldOutFlags}，售罄后的流量在 JVM 内直接拒绝
+ */
+@Slf4j
+@Component
+public class SoldOutBroadcaster implements MessageListener {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private StockSegmentRouter stockSegmentRouter;
+
+    // 标记有效期，兜底漏收的补货广播 (<=0 表示永不过期)
+    @Value("${app.seckill.sold-out.ttl-ms:10000}")
+    private long soldOutTtlMillis;
+
+    private SoldOutFlags soldOutFlags;
+
+    @PostConstruct
+    public void init() {
+        soldOutFlags = new SoldOutFlags(soldOutTtlMillis);
+    }
+
+    /**
+     * 热点路径：JVM 内判断是否售罄
+     */
+    public boolean isSoldOut(long skuId) {
+        return soldOutFlags.isSoldOut(skuId);
+    }
+
+    /**
+     * 仅标记本节点 (Lua 已经负责广播时使用，避免重复发布)
+     */
+    public void markSoldOutLocal(long skuId) {
+        soldOutFlags.mark(skuId);
+    }
+
+    /**
+     * 仅清除本节点标记 (补货广播已在 Pipeline 中发出，或单节点进程内库存无需广播)
+     */
+    public void clearSoldOutLocal(long skuId) {
+        soldOutFlags.clear(skuId);
+    }
+
+    /**
+     * 标记本节点并广播售罄
+     */
+    public void publishSoldOut(long skuId) {
+        soldOutFlags.mark(skuId);
+        publish(SeckillRedisKeys.SOLD_OUT_PREFIX + skuId);
+    }
+
+    /**
+     * 清除本节点标记并广播补货
+     */
+    public void publishRestock(long skuId) {
+        soldOutFlags.clear(skuId);
+        publish(SeckillRedisKeys.RESTOCK_PREFIX + skuId);
+    }
+
+    private void publish(String payload) {
+        try {
+            stringRedisTemplate.convertAndSend(SeckillRedisKeys.stockChannel(), payload);
+        } catch (Exception e) {
+            // 广播失败不影响主流程，其它节点靠标记过期或自身 Lua 结果兜底
+            log.warn(">>> [售罄广播] 发布失败: {}", payload, e);
+        }
+    }
+
+    /**
+     * 订阅回调 (RedisMessageListenerContainer 线程)
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (payload.startsWith(SeckillRedisKeys.SOLD_OUT_PREFIX)) {
+                long skuId = Long.parseLong(payload.substring(SeckillRedisKeys.SOLD_OUT_PREFIX.length()));
+                soldOutFlags.mark(skuId);
+                log.info(">>> [售罄广播] 商品 {} 已售罄，本地标记已置位", skuId);
+            } else if (payload.startsWith(SeckillRedisKeys.RESTOCK_PREFIX)) {
+                long skuId = Long.parseLong(payload.substring(SeckillRedisKeys.RESTOCK_PREFIX.length()));
+                soldOutFlags.clear(skuId);
+                // 重新预热可能改变了分段数，顺带失效段数缓存
+                stockSegmentRouter.invalidate(skuId);
+                log.info(">>> [售罄广播] 商品 {} 已补货，本地标记已清除", skuId);
+            } else {
+                log.warn(">>> [售罄广播] 未知消息: {}", payload);
+            }
+        } catch (NumberFormatException e) {
+            log.warn(">>> [售罄广播] 消息格式错误: {}", payload);
+        }
+    }
+}
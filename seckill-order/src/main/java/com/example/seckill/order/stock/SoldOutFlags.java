@@ -0,0 +1,103 @@
+package com.example.seckill.order.stock;
+
+import java.util.Arrays;
+
+/**
+ * JVM 本地售罄标记表
+ * 读多写极少：读路径无锁 (volatile 快照 + 二分查找)，写路径 copy-on-write
+ * Key 直接使用原生 long，避免 ConcurrentHashMap<Long, Boolean> 在热点路径上的装箱开销
+ */
+public class SoldOutFlags {
+
+    /**
+     * 不可变快照：skuIds 升序排列，markedAt 与之一一对应 (标记时间，毫秒)
+     */
+    private static final class Snapshot {
+        private final long[] skuIds;
+        private final long[] markedAt;
+
+        private Snapshot(long[] skuIds, long[] markedAt) {
+            this.skuIds = skuIds;
+            this.markedAt = markedAt;
+        }
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(new long[0], new long[0]);
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    /**
+     * 标记有效期 (毫秒)
+     * 广播是 fire-and-forget 的，如果漏收了“补货”消息，标记过期后会放行请求重新去 Redis 校验一次
+     */
+    private final long ttlMillis;
+
+    public SoldOutFlags(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 热点路径：判断商品是否已售罄
+     */
+    public boolean isSoldOut(long skuId) {
+        Snapshot s = snapshot;
+        int idx = Arrays.binarySearch(s.skuIds, skuId);
+        if (idx < 0) {
+            return false;
+        }
+        return ttlMillis <= 0 || System.currentTimeMillis() - s.markedAt[idx] < ttlMillis;
+    }
+
+    /**
+     * 标记售罄 (重复标记只刷新时间)
+     */
+    public synchronized void mark(long skuId) {
+        Snapshot s = snapshot;
+        long now = System.currentTimeMillis();
+        int idx = Arrays.binarySearch(s.skuIds, skuId);
+        if (idx >= 0) {
+            long[] markedAt = s.markedAt.clone();
+            markedAt[idx] = now;
+            snapshot = new Snapshot(s.skuIds, markedAt);
+            return;
+        }
+        int insertAt = -idx - 1;
+        int n = s.skuIds.length;
+        long[] skuIds = new long[n + 1];
+        long[] markedAt = new long[n + 1];
+        System.arraycopy(s.skuIds, 0, skuIds, 0, insertAt);
+        System.arraycopy(s.markedAt, 0, markedAt, 0, insertAt);
+        skuIds[insertAt] = skuId;
+        markedAt[insertAt] = now;
+        System.arraycopy(s.skuIds, insertAt, skuIds, insertAt + 1, n - insertAt);
+        System.arraycopy(s.markedAt, insertAt, markedAt, insertAt + 1, n - insertAt);
+        snapshot = new Snapshot(skuIds, markedAt);
+    }
+
+    /**
+     * 清除售罄标记 (补货/回滚库存时调用)
+     */
+    public synchronized void clear(long skuId) {
+        Snapshot s = snapshot;
+        int idx = Arrays.binarySearch(s.skuIds, skuId);
+        if (idx < 0) {
+            return;
+        }
+        int n = s.skuIds.length;
+        long[] skuIds = new long[n - 1];
+        long[] markedAt = new long[n - 1];
+        System.arraycopy(s.skuIds, 0, skuIds, 0, idx);
+        System.arraycopy(s.markedAt, 0, markedAt, 0, idx);
+        System.arraycopy(s.skuIds, idx + 1, skuIds, idx, n - idx - 1);
+        System.arraycopy(s.markedAt, idx + 1, markedAt, idx, n - idx - 1);
+        snapshot = new Snapshot(skuIds, markedAt);
+    }
+
+    public synchronized void clearAll() {
+        snapshot = EMPTY;
+    }
+
+    public int size() {
+        return snapshot.skuIds.length;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.seckill.order.stock;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 秒杀库存引擎 SPI
+ * 事务消息监听器、组提交、关单回滚只通过本接口操作库存，不再直接拼 Redis Key / 调 Lua
+ * 实现由 app.seckill.stock.engine 选择：
+ * 1. redis (默认)：{@link RedisStockEngine}，Lua 原子扣减，支持分段库存与库存租约，多节点共享
+ * 2. local：{@link LocalStockEngine}，JVM 内 CAS 扣减，仅用于单节点小规模活动与脱离 Redis 的压测
+ *
+ * 约定 (两个实现都必须满足)：
+ * - reserve 成功即写下扣减记录，check 据此回答事务回查；同一订单只会被 reserve 一次 (订单ID 全局唯一)
+ * - 同一用户对同一 SKU 累计扣减成功的件数不超过 app.seckill.ledger.per-user-limit，超出返回 LIMIT_EXCEEDED 且不动库存
+ * - release 按订单幂等：只归还确实扣减过的订单，重复调用不会多补，调用后 check 不再返回 RESERVED
+ * - drain 之后的 release 只退限购额度，不再计入库存 (也不会让该 SKU 重新变成“已预热”)
+ * - 剩余库存永不为负；prewarm 覆盖旧库存，drain 取走剩余库存并使该 SKU 回到“未预热”状态
+ */
+public interface StockEngine {
+
+    /**
+     * 扣减 / 回查结果
+     */
+    enum Reservation {
+        /** 扣减成功 (回查：存在扣减记录) */
+        RESERVED,
+        /** 无库存 */
+        SOLD_OUT,
+        /** 超过每人限购件数 (重复购买) */
+        LIMIT_EXCEEDED,
+        /** 库存未预热 (活动未开始或已结束) */
+        NOT_STARTED,
+        /** 结果未知 (结算超时 / 异常)，交给事务回查 */
+        UNKNOWN,
+        /** 回查：没有扣减记录 */
+        NONE
+    }
+
+    /**
+     * 一笔占用的库存 (组提交批量扣减、批量关单回补使用)
+     */
+    record Claim(long skuId, long userId, long orderId, int count) {
+    }
+
+    /**
+     * 为订单扣减一件库存
+     */
+    Reservation reserve(long skuId, long userId, long orderId);
+
+    /**
+     * 非阻塞扣减 (响应式秒杀入口使用)，语义与 {@link #reserve} 相同
+     * 默认把阻塞的 reserve 放到 boundedElastic 线程上执行，能真正异步扣减的实现应覆盖本方法
+     */
+    default Mono<Reservation> reserveReactive(long skuId, long userId, long orderId) {
+        return Mono.fromCallable(() -> reserve(skuId, userId, orderId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 同一 SKU 的一批订单一次扣减，结果与 claims 一一对应，先到先得
+     */
+    default List<Reservation> reserveBatch(long skuId, List<Claim> claims) {
+        List<Reservation> results = new ArrayList<>(claims.size());
+        for (Claim claim : claims) {
+            results.add(reserve(skuId, claim.userId(), claim.orderId()));
+        }
+        return results;
+    }
+
+    /**
+     * 该 SKU 能否走组提交的批量扣减 (否则调用方退回逐单事务消息)
+     */
+    default boolean supportsBatch(long skuId) {
+        return true;
+    }
+
+    /**
+     * 事务回查：订单是否已扣减成功 (RESERVED / NONE / UNKNOWN)
+     */
+    Reservation check(long skuId, long userId, long orderId);
+
+    /**
+     * 批量事务回查，结果与 claims 一一对应 (broker 恢复后的回查风暴由监听器攒批后调用)
+     * 默认逐单 check，远程实现应覆盖为一次往返
+     */
+    default List<Reservation> checkAll(List<Claim> claims) {
+        List<Reservation> results = new ArrayList<>(claims.size());
+        for (Claim claim : claims) {
+            results.add(check(claim.skuId(), claim.userId(), claim.orderId()));
+        }
+        return results;
+    }
+
+    /**
+     * 归还订单占用的库存、清除扣减记录并退回限购额度 (关单回滚 / 发送失败补偿)
+     */
+    void release(long skuId, long userId, long orderId, int count);
+
+    /**
+     * 批量归还
+     */
+    default void releaseAll(List<Claim> claims) {
+        for (Claim claim : claims) {
+            release(claim.skuId(), claim.userId(), claim.orderId(), claim.count());
+        }
+    }
+
+    /**
+     * 当前剩余库存，未预热返回 -1
+     */
+    long remaining(long skuId);
+
+    /**
+     * 预热库存 (覆盖旧值)，segments > 1 时拆成多段 (不支持分段的实现忽略该参数)
+     */
+    void prewarm(long skuId, int stock, int segments);
+
+    /**
+     * 活动结束：取走剩余库存 (用于回补 DB)，未预热返回 0
+     */
+    long drain(long skuId);
+}
@@ -0,0 +1,519 @@
+package com.example.seckill.order.stock;
+
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import com.example.seckill.common.utils.SnowflakeIdWorker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JVM 内库存租约引擎
+ * 1. 本节点一次从 seckill:stock:{skuId} 租走一整块库存 (默认 50 件)，之后的购买在本地无锁 CAS 扣减
+ * 2. 本地卖出的订单由后台线程按批结算：一次 Lua 把整批订单记入限购账本与扣减记录并扣减租约余额，
+ *    事务消息只有在结算成功后才 COMMIT，因此回查逻辑与非租约模式完全一致
+ * 3. 闲置的租约定时归还，节点关闭时全部归还；节点失联 (心跳过期) 后其租约由其它节点回收
+ */
+@Slf4j
+@Component
+public class StockLeaseManager {
+
+    /**
+     * 本地扣减结果
+     */
+    public enum Outcome {
+        /** 扣减成功且已结算，可以 COMMIT */
+        ACQUIRED,
+        /** 无库存 */
+        SOLD_OUT,
+        /** 结算时发现超过限购，本地扣走的库存已放回租约 */
+        LIMIT_EXCEEDED,
+        /** 结算超时，结果未知，交给事务回查 */
+        TIMEOUT,
+        /** 租约不可用 (未开启 / 心跳异常 / 租约被回收 / Key 不存在)，走逐单 Lua 扣减 */
+        BYPASS
+    }
+
+    // 单次结算的最大订单数，防止单个 Lua 脚本过大阻塞 Redis
+    private static final int MAX_SETTLE_BATCH = 500;
+
+    // 结算异常后的重试间隔
+    private static final long SETTLE_RETRY_MILLIS = 200;
+
+    // 回查判断“可能仍在结算”时额外放宽的时间，覆盖订单节点、回查节点与 Redis 之间的时钟偏差
+    private static final long CLOCK_SKEW_MARGIN_MILLIS = 3000;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private SoldOutBroadcaster soldOutBroadcaster;
+
+    // 限购账本 / 扣减记录的 Key 与参数
+    @Autowired
+    private PurchaseLedger purchaseLedger;
+
+    @Value("${app.seckill.lease.enabled:false}")
+    private boolean enabled;
+
+    // 每次租借的库存块大小
+    @Value("${app.seckill.lease.block-size:50}")
+    private int blockSize;
+
+    // 结算批次的攒批间隔
+    @Value("${app.seckill.lease.flush-interval-ms:2}")
+    private long flushIntervalMillis;
+
+    // 下单线程等待结算的最长时间
+    @Value("${app.seckill.lease.settle-timeout-ms:3000}")
+    private long settleTimeoutMillis;
+
+    // 订单生成后最晚多久必须结算落地，超过即放弃 (库存留在租约中)；回查在此之前对未落地的订单返回 UNKNOWN
+    @Value("${app.seckill.lease.settle-deadline-ms:10000}")
+    private long settleDeadlineMillis;
+
+    // 租约闲置多久后归还 Redis
+    @Value("${app.seckill.lease.idle-return-ms:5000}")
+    private long idleReturnMillis;
+
+    // 节点心跳 TTL，超过该时间未续约的节点租约会被回收
+    @Value("${app.seckill.lease.node-ttl-ms:15000}")
+    private long nodeTtlMillis;
+
+    private static final class PendingSale {
+        private final long userId;
+        private final long orderId;
+        // 结算结果: 1=成功, -2=超过限购, -3=已过结算截止时间, -1=租约已被回收
+        private final CompletableFuture<Integer> settled = new CompletableFuture<>();
+
+        private PendingSale(long userId, long orderId) {
+            this.userId = userId;
+            this.orderId = orderId;
+        }
+    }
+
+    private static final class LeaseSlot {
+        private final long skuId;
+        // 本地可售数量 (已租到、尚未卖出)
+        private final AtomicInteger available = new AtomicInteger();
+        // 已卖出、等待结算的订单
+        private final ConcurrentLinkedQueue<PendingSale> pending = new ConcurrentLinkedQueue<>();
+        // 已从本地可售中撤下、等待归还 Redis 的数量 (心跳异常时撤下 / 归还失败后重试)
+        private final AtomicInteger stranded = new AtomicInteger();
+        // 续租锁：持锁期间要访问 Redis，用 ReentrantLock 而不是 synchronized，虚拟线程下不会钉住载体线程
+        private final ReentrantLock renewLock = new ReentrantLock();
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        // 结算异常后，在此之前不再结算 (只由结算线程读写)
+        private long settleRetryAt;
+
+        private LeaseSlot(long skuId) {
+            this.skuId = skuId;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, LeaseSlot> slots = new ConcurrentHashMap<>();
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName()
+            + ":" + UUID.randomUUID().toString().substring(0, 8);
+
+    private DefaultRedisScript<Long> acquireScript;
+    private DefaultRedisScript<List> settleScript;
+    private DefaultRedisScript<Long> returnScript;
+    private DefaultRedisScript<Long> reclaimScript;
+
+    private Thread settleThread;
+    private ScheduledExecutorService maintenanceExecutor;
+    private volatile boolean running;
+    private volatile long lastHeartbeatOkAt;
+
+    @PostConstruct
+    public void init() {
+        acquireScript = loadScript("stock_lease_acquire.lua");
+        settleScript = new DefaultRedisScript<>();
+        settleScript.setResultType(List.class);
+        settleScript.setLocation(new ClassPathResource("stock_lease_settle.lua"));
+        returnScript = loadScript("stock_lease_return.lua");
+        reclaimScript = loadScript("stock_lease_reclaim.lua");
+        if (enabled && purchaseLedger.getSlots() > 1) {
+            // 结算脚本要求账本 / 记录与租约 Hash 同在 {skuId}
+            log.warn(">>> [库存租约] app.seckill.ledger.slots > 1 时不支持库存租约，已停用");
+            enabled = false;
+        }
+        if (!enabled) {
+            return;
+        }
+        if (settleDeadlineMillis < settleTimeoutMillis) {
+            throw new IllegalStateException("app.seckill.lease.settle-deadline-ms (" + settleDeadlineMillis
+                    + ") 不能小于 settle-timeout-ms (" + settleTimeoutMillis + ")");
+        }
+
+        running = true;
+        heartbeat();
+
+        settleThread = new Thread(this::settleLoop, "stock-lease-settler");
+        settleThread.setDaemon(true);
+        settleThread.start();
+
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-lease-maintainer");
+            t.setDaemon(true);
+            return t;
+        });
+        long heartbeatPeriod = Math.max(1000, nodeTtlMillis / 3);
+        maintenanceExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatPeriod, heartbeatPeriod, TimeUnit.MILLISECONDS);
+        maintenanceExecutor.scheduleWithFixedDelay(this::returnIdleLeases, 1000, 1000, TimeUnit.MILLISECONDS);
+        maintenanceExecutor.scheduleWithFixedDelay(this::reclaimDeadNodes, nodeTtlMillis, nodeTtlMillis, TimeUnit.MILLISECONDS);
+        log.info(">>> [库存租约] 已启用. nodeId={}, blockSize={}", nodeId, blockSize);
+    }
+
+    private DefaultRedisScript<Long> loadScript(String path) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setResultType(Long.class);
+        script.setLocation(new ClassPathResource(path));
+        return script;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 从本地租约扣减一件库存，并等待该订单记入限购账本 / 扣减记录 (结算落地)
+     * 限购在结算时校验：超过限购的订单把库存放回本地租约，返回 LIMIT_EXCEEDED
+     */
+    public Outcome reserve(long skuId, long userId, long orderId) {
+        if (!enabled || !isLeaseHealthy()) {
+            return Outcome.BYPASS;
+        }
+        LeaseSlot slot = slots.computeIfAbsent(skuId, LeaseSlot::new);
+        slot.lastUsedAt = System.currentTimeMillis();
+
+        int taken = takeUnit(slot);
+        if (taken == -3) {
+            return Outcome.BYPASS;
+        }
+        if (taken <= 0) {
+            return Outcome.SOLD_OUT;
+        }
+
+        PendingSale sale = new PendingSale(userId, orderId);
+        slot.pending.add(sale);
+        try {
+            int code = sale.settled.get(settleTimeoutMillis, TimeUnit.MILLISECONDS);
+            if (code == 1) {
+                return Outcome.ACQUIRED;
+            }
+            // -1 / -3 (租约被回收 / Redis 与本机时钟偏差导致提前过了截止时间)：订单未落地，改走逐单扣减
+            return code == -2 ? Outcome.LIMIT_EXCEEDED : Outcome.BYPASS;
+        } catch (TimeoutException e) {
+            log.warn(">>> [库存租约] 结算超时，交给事务回查. orderId={}", orderId);
+            return Outcome.TIMEOUT;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.TIMEOUT;
+        } catch (Exception e) {
+            // 结算异常时无法确定 Lua 是否已执行，交给回查根据标记判断
+            return Outcome.TIMEOUT;
+        }
+    }
+
+    /**
+     * 没有扣减记录的订单是否仍可能由某个节点的租约结算落地 (事务回查使用)
+     * 只看订单ID 中的时间戳，不依赖本节点状态：回查落到任何节点都得到同样的答案。
+     * 结算脚本按 Redis 时间拒绝过了截止时间的订单，回查在截止时间加时钟余量之后才返回“未扣减”
+     */
+    public boolean mayStillSettle(long orderId) {
+        return enabled && System.currentTimeMillis() - SnowflakeIdWorker.timestampOf(orderId)
+                <= settleDeadlineMillis + CLOCK_SKEW_MARGIN_MILLIS;
+    }
+
+    /**
+     * 所有节点租走但尚未卖出的库存 (租约 Hash 各节点余额之和)，这部分不在 seckill:stock 中，但仍可售
+     */
+    public long leasedBalance(long skuId) {
+        long held = 0;
+        for (Object val : stringRedisTemplate.opsForHash().values(SeckillRedisKeys.stockLeaseKey(skuId))) {
+            held += Math.max(0, Long.parseLong(val.toString()));
+        }
+        return held;
+    }
+
+    /**
+     * 取一件库存：本地有货直接 CAS；没货则加锁向 Redis 续租一块
+     * @return 1=成功, 0=无库存, -3=库存 Key 不存在
+     */
+    private int takeUnit(LeaseSlot slot) {
+        if (tryTake(slot.available)) {
+            return 1;
+        }
+        slot.renewLock.lock();
+        try {
+            // 双重检查：等锁期间可能已有其它线程续租成功
+            if (tryTake(slot.available)) {
+                return 1;
+            }
+            // 先登记 SKU 再租借 (全局集合与库存不在同一个槽，不能放进脚本)，保证租出去的库存一定能被回收任务找到
+            stringRedisTemplate.opsForSet().add(SeckillRedisKeys.stockLeaseSkuSetKey(), String.valueOf(slot.skuId));
+            Long granted = stringRedisTemplate.execute(acquireScript,
+                    List.of(SeckillRedisKeys.stockKey(slot.skuId), SeckillRedisKeys.stockLeaseKey(slot.skuId)),
+                    nodeId, String.valueOf(blockSize), String.valueOf(slot.skuId), SeckillRedisKeys.stockChannel());
+            if (granted == null || granted == 0) {
+                return 0;
+            }
+            if (granted < 0) {
+                return granted.intValue();
+            }
+            // 租到 N 件，本次请求直接拿走 1 件
+            slot.available.addAndGet(granted.intValue() - 1);
+            log.debug(">>> [库存租约] 续租成功. skuId={}, granted={}", slot.skuId, granted);
+            return 1;
+        } finally {
+            slot.renewLock.unlock();
+        }
+    }
+
+    private static boolean tryTake(AtomicInteger available) {
+        int current;
+        while ((current = available.get()) > 0) {
+            if (available.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ================= 结算线程 =================
+
+    private void settleLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        while (running) {
+            LockSupport.parkNanos(intervalNanos);
+            settleAll();
+        }
+        // 退出前把剩余的订单结算完
+        settleAll();
+    }
+
+    private void settleAll() {
+        long now = System.currentTimeMillis();
+        for (LeaseSlot slot : slots.values()) {
+            if (now < slot.settleRetryAt) {
+                continue;
+            }
+            while (!slot.pending.isEmpty()) {
+                if (!settle(slot)) {
+                    slot.settleRetryAt = now + SETTLE_RETRY_MILLIS;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 结算一批订单
+     * @return false = 结算异常，本批已放回队列等待重试
+     */
+    private boolean settle(LeaseSlot slot) {
+        List<PendingSale> batch = new ArrayList<>();
+        PendingSale sale;
+        while (batch.size() < MAX_SETTLE_BATCH && (sale = slot.pending.poll()) != null) {
+            batch.add(sale);
+        }
+        if (batch.isEmpty()) {
+            return true;
+        }
+
+        List<String> keys = new ArrayList<>(batch.size() * 2 + 1);
+        keys.add(SeckillRedisKeys.stockLeaseKey(slot.skuId));
+        List<String> args = new ArrayList<>(batch.size() * 3 + 4);
+        args.add(nodeId);
+        args.add(String.valueOf(purchaseLedger.getPerUserLimit(slot.skuId)));
+        args.add(purchaseLedger.ttlArg());
+        args.add(purchaseLedger.stateTtlArg());
+        // 租约只用于单 Key 模式且 slots = 1，租约 Hash 与账本 / 记录桶共用 {skuId}
+        String tag = SeckillRedisKeys.skuTag(slot.skuId);
+        for (PendingSale s : batch) {
+            keys.add(purchaseLedger.ledgerKey(tag, slot.skuId, s.userId, s.orderId));
+            keys.add(purchaseLedger.stateKey(tag, s.orderId));
+            args.add(String.valueOf(s.userId));
+            args.add(String.valueOf(s.orderId));
+            args.add(String.valueOf(SnowflakeIdWorker.timestampOf(s.orderId) + settleDeadlineMillis));
+        }
+
+        try {
+            List<?> codes = stringRedisTemplate.execute(settleScript, keys, args.toArray());
+            // 逐单结果只有 1 / -2 / -3，首元素为 -1 即整批因租约被回收而失败
+            boolean reclaimed = codes == null || codes.isEmpty() || ((Number) codes.get(0)).intValue() == -1;
+            if (reclaimed) {
+                // 租约已被其它节点回收 (本节点曾被判定失联)，本地剩余库存作废
+                int dropped = slot.available.getAndSet(0);
+                log.error(">>> [库存租约] 租约已被回收，本批订单回滚. skuId={}, batch={}, dropped={}", slot.skuId, batch.size(), dropped);
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                PendingSale s = batch.get(i);
+                int code = reclaimed ? -1 : ((Number) codes.get(i)).intValue();
+                if (code == -2 || code == -3) {
+                    // 超过限购 / 已过结算截止时间：这件库存仍在本节点租约余额中，放回本地可售
+                    slot.available.incrementAndGet();
+                }
+                if (code == -3) {
+                    log.warn(">>> [库存租约] 订单超过结算截止时间，放弃结算. skuId={}, orderId={}", slot.skuId, s.orderId);
+                }
+                s.settled.complete(code);
+            }
+            return true;
+        } catch (Exception e) {
+            // 无法确定脚本是否已执行：本地扣走的库存既不能放回 (可能已结算) 也不能丢弃 (可能未结算)。
+            // 整批放回队列重试，结算脚本按扣减记录幂等，已结算的订单重试时直接返回成功，不会重复扣减租约。
+            // 下单线程超时后交给事务回查 (结算截止时间之前回查返回 UNKNOWN)；
+            // 重试时已过截止时间的订单返回 -3，期间租约被其它节点回收则整批返回 -1，两者都按未扣减回滚
+            log.error(">>> [库存租约] 结算异常，{}ms 后重试. skuId={}, batch={}", SETTLE_RETRY_MILLIS, slot.skuId, batch.size(), e);
+            slot.pending.addAll(batch);
+            return false;
+        }
+    }
+
+    // ================= 维护任务 =================
+
+    private void heartbeat() {
+        try {
+            stringRedisTemplate.opsForValue().set(SeckillRedisKeys.stockLeaseNodeKey(nodeId), "1",
+                    nodeTtlMillis, TimeUnit.MILLISECONDS);
+            lastHeartbeatOkAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            log.error(">>> [库存租约] 心跳续约失败. nodeId={}", nodeId, e);
+        }
+    }
+
+    /**
+     * 心跳超过半个 TTL 未成功，认为租约可能即将被回收，停止本地扣减 (fail-safe)
+     * 本地未卖出的库存撤下为“待归还”，由维护线程用归还脚本还给 Redis：
+     * 租约仍在则归还 (否则心跳恢复后没有节点能回收这部分余额)，已被其它节点回收则脚本返回 -1，什么也不做
+     */
+    private boolean isLeaseHealthy() {
+        boolean healthy = System.currentTimeMillis() - lastHeartbeatOkAt < nodeTtlMillis / 2;
+        if (!healthy) {
+            for (LeaseSlot slot : slots.values()) {
+                int unsold = slot.available.getAndSet(0);
+                if (unsold > 0) {
+                    slot.stranded.addAndGet(unsold);
+                }
+            }
+        }
+        return healthy;
+    }
+
+    private void returnIdleLeases() {
+        long now = System.currentTimeMillis();
+        for (LeaseSlot slot : slots.values()) {
+            if (now - slot.lastUsedAt >= idleReturnMillis) {
+                returnLease(slot);
+            } else if (slot.stranded.get() > 0) {
+                returnUnits(slot, slot.stranded.getAndSet(0));
+            }
+        }
+    }
+
+    private void returnLease(LeaseSlot slot) {
+        returnUnits(slot, slot.available.getAndSet(0) + slot.stranded.getAndSet(0));
+    }
+
+    private void returnUnits(LeaseSlot slot, int unsold) {
+        if (unsold <= 0) {
+            return;
+        }
+        try {
+            Long returned = stringRedisTemplate.execute(returnScript,
+                    List.of(SeckillRedisKeys.stockKey(slot.skuId), SeckillRedisKeys.stockLeaseKey(slot.skuId)),
+                    nodeId, String.valueOf(unsold));
+            if (returned != null && returned > 0) {
+                soldOutBroadcaster.publishRestock(slot.skuId);
+                log.info(">>> [库存租约] 归还未售库存. skuId={}, returned={}", slot.skuId, returned);
+            }
+        } catch (Exception e) {
+            // 归还失败记为待归还，下一轮维护再试 (不放回本地可售：心跳可能正是因为 Redis 异常而中断)
+            slot.stranded.addAndGet(unsold);
+            log.warn(">>> [库存租约] 归还失败. skuId={}, unsold={}", slot.skuId, unsold, e);
+        }
+    }
+
+    /**
+     * 回收失联节点的租约
+     */
+    private void reclaimDeadNodes() {
+        try {
+            Set<String> skuIds = stringRedisTemplate.opsForSet().members(SeckillRedisKeys.stockLeaseSkuSetKey());
+            if (skuIds == null) {
+                return;
+            }
+            for (String skuIdStr : skuIds) {
+                long skuId = Long.parseLong(skuIdStr);
+                String leaseKey = SeckillRedisKeys.stockLeaseKey(skuId);
+                Set<Object> holders = stringRedisTemplate.opsForHash().keys(leaseKey);
+                if (holders == null || holders.isEmpty()) {
+                    stringRedisTemplate.opsForSet().remove(SeckillRedisKeys.stockLeaseSkuSetKey(), skuIdStr);
+                    continue;
+                }
+                for (Object holder : holders) {
+                    String holderId = holder.toString();
+                    if (nodeId.equals(holderId)
+                            || Boolean.TRUE.equals(stringRedisTemplate.hasKey(SeckillRedisKeys.stockLeaseNodeKey(holderId)))) {
+                        continue;
+                    }
+                    // 心跳 Key 与库存不在同一个槽，存活检查在脚本外完成：
+                    // 心跳过期的节点早已因 isLeaseHealthy 停止本地扣减，之后的结算会因租约不存在而整批回滚
+                    Long reclaimed = stringRedisTemplate.execute(reclaimScript,
+                            List.of(SeckillRedisKeys.stockKey(skuId), leaseKey), holderId);
+                    if (reclaimed != null && reclaimed > 0) {
+                        soldOutBroadcaster.publishRestock(skuId);
+                        log.warn(">>> [库存租约] 回收失联节点租约. skuId={}, node={}, reclaimed={}", skuId, holderId, reclaimed);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error(">>> [库存租约] 回收失联节点租约异常", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        maintenanceExecutor.shutdownNow();
+        LockSupport.unpark(settleThread);
+        try {
+            settleThread.join(settleTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (LeaseSlot slot : slots.values()) {
+            returnLease(slot);
+        }
+        // 主动删除心跳，残留的租约余额 (如结算异常泄漏的) 可被其它节点立即回收
+        stringRedisTemplate.delete(SeckillRedisKeys.stockLeaseNodeKey(nodeId));
+        log.info(">>> [库存租约] 节点下线，租约已归还. nodeId={}", nodeId);
+    }
+}
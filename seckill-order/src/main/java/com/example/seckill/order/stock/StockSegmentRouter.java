@@ -0,0 +1,104 @@
+package com.example.seckill.order.stock;
+
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分段库存路由
+ * 热点 SKU 的库存被 goods 服务预热时拆成 N 段 (seckill:stock:{skuId:i})，每段落在不同的 Redis slot。
+ * 本类负责：
+ * 1. 查询并本地缓存每个 SKU 的段数 (段数由预热时写入 Redis)
+ * 2. 按用户哈希选出“主段”，主段售罄时依次回退到兄弟段
+ */
+@Slf4j
+@Component
+public class StockSegmentRouter {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 段数本地缓存有效期 (ms)，补货广播会主动失效
+    @Value("${app.seckill.stock.segment-cache-ms:3000}")
+    private long segmentCacheMillis;
+
+    private static final class CachedCount {
+        private final int count;
+        private final long loadedAt;
+
+        private CachedCount(int count, long loadedAt) {
+            this.count = count;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, CachedCount> segmentCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 获取 SKU 的库存段数 (1 = 传统单 Key 模式)
+     */
+    public int segmentCount(long skuId) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = segmentCounts.get(skuId);
+        if (cached != null && now - cached.loadedAt < segmentCacheMillis) {
+            return cached.count;
+        }
+        int count = 1;
+        try {
+            String val = stringRedisTemplate.opsForValue().get(SeckillRedisKeys.stockSegmentCountKey(skuId));
+            if (val != null) {
+                count = Math.max(1, Integer.parseInt(val));
+            }
+        } catch (Exception e) {
+            // 查询失败时沿用旧值，避免抖动
+            log.warn(">>> [分段库存] 读取段数失败, skuId={}", skuId, e);
+            if (cached != null) {
+                return cached.count;
+            }
+        }
+        segmentCounts.put(skuId, new CachedCount(count, now));
+        return count;
+    }
+
+    /**
+     * 只读本地缓存的段数，未缓存或已过期返回 -1 (不访问 Redis，供非阻塞路径判断)
+     */
+    public int cachedSegmentCount(long skuId) {
+        CachedCount cached = segmentCounts.get(skuId);
+        if (cached == null || System.currentTimeMillis() - cached.loadedAt >= segmentCacheMillis) {
+            return -1;
+        }
+        return cached.count;
+    }
+
+    /**
+     * 商品重新预热后失效本地段数缓存
+     */
+    public void invalidate(long skuId) {
+        segmentCounts.remove(skuId);
+    }
+
+    /**
+     * 用户的主段：同一用户总是优先命中同一段，不同用户均匀打散
+     */
+    public int homeSegment(long userId, int segmentCount) {
+        if (segmentCount <= 1) {
+            return 0;
+        }
+        // 斐波那契散列，避免与订单分表基因 (userId 低位) 产生相关性
+        long mixed = userId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(mixed >>> 32, (long) segmentCount);
+    }
+
+    /**
+     * 第 attempt 次尝试应访问的段 (attempt = 0 为主段，之后依次回退到兄弟段)
+     */
+    public int segmentAt(int homeSegment, int attempt, int segmentCount) {
+        return (homeSegment + attempt) % segmentCount;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.seckill.order.submit;
+
+import com.example.seckill.order.config.RocketMQConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单消息 (普通消息) 发送结果不确定时的重投
+ * 组提交 / 响应式入口先扣库存再发普通消息，发送失败时只有“确定没有写入 Broker”才能退回库存：
+ * 超时、连接中断、客户端内部重试后失败等情况下消息可能已经落盘并会被消费，此时退库存会超卖。
+ * 这类结果一律保留预扣，原样重投同一批消息 (订单ID 不变，消费端按主键幂等，重复投递无副作用)，
+ * 重投全部失败时仍保留预扣 (最坏少卖)，记录错误日志等待对账
+ */
+@Slf4j
+@Component
+public class OrderMessageRedelivery {
+
+    @Autowired
+    private RocketMQTemplate rocketMQTemplate;
+
+    @Autowired
+    private RocketMQConfig rocketMQConfig;
+
+    // 最多重投次数
+    @Value("${app.seckill.redelivery.max-attempts:5}")
+    private int maxAttempts;
+
+    // 首次重投间隔 (ms)，之后每次翻倍
+    @Value("${app.seckill.redelivery.interval-ms:500}")
+    private long intervalMillis;
+
+    @Value("${app.seckill.redelivery.send-timeout-ms:3000}")
+    private long sendTimeoutMillis;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seckill-order-redelivery");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 发送异常是否确定消息没有写入 Broker (可以安全退回库存)
+     * 只认客户端在发出任何请求之前就拒绝的情况 (无路由 / 消息非法 / 生产者未启动：MQClientException 且没有底层原因)；
+     * 客户端内部重试过的失败 (MQClientException 包着最后一次的网络 / Broker 异常) 前几次可能已经写入，按不确定处理
+     */
+    public static boolean isDefiniteFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof MQClientException) {
+                return t.getCause() == null;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 后台重投一批下单消息
+     * @return true = 某次重投成功；false = 全部失败 (预扣库存保留，需对账)
+     */
+    public CompletableFuture<Boolean> redeliver(List<Message<byte[]>> messages) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        schedule(messages, 1, result);
+        return result;
+    }
+
+    private void schedule(List<Message<byte[]>> messages, int attempt, CompletableFuture<Boolean> result) {
+        long delay = intervalMillis << Math.min(attempt - 1, 10);
+        try {
+            scheduler.schedule(() -> attempt(messages, attempt, result), delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // 节点关闭中
+            log.error(">>> [消息重投] 无法调度重投，预扣库存保留待对账. size={}", messages.size(), e);
+            result.complete(false);
+        }
+    }
+
+    private void attempt(List<Message<byte[]>> messages, int attempt, CompletableFuture<Boolean> result) {
+        try {
+            if (messages.size() == 1) {
+                rocketMQTemplate.syncSend(rocketMQConfig.getOrderTopic(), messages.get(0), sendTimeoutMillis);
+            } else {
+                rocketMQTemplate.syncSend(rocketMQConfig.getOrderTopic(), messages, sendTimeoutMillis);
+            }
+            log.info(">>> [消息重投] 第 {} 次重投成功. size={}", attempt, messages.size());
+            result.complete(true);
+        } catch (Exception e) {
+            if (attempt >= maxAttempts) {
+                log.error(">>> [消息重投] 重投 {} 次仍失败，预扣库存保留 (可能少卖)，需对账. size={}", attempt, messages.size(), e);
+                result.complete(false);
+                return;
+            }
+            log.warn(">>> [消息重投] 第 {} 次重投失败. size={}", attempt, messages.size(), e);
+            schedule(messages, attempt + 1, result);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.seckill.order.submit;
+
+import com.example.seckill.common.dto.SeckillOrderMsgDTO;
+import com.example.seckill.common.result.Result;
+import com.example.seckill.order.config.RocketMQConfig;
+import com.example.seckill.order.stock.StockEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.client.producer.SendStatus;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 秒杀组提交 (Group Commit)
+ * 1. 并发请求先进队列，后台线程最多攒 max-wait-ms 或 max-batch 个请求
+ * 2. 同一 SKU 的一批请求只做一次批量扣减 ({@link StockEngine#reserveBatch}，Redis 引擎为一次 Lua)，返回逐个请求的结果
+ * 3. 抢到的请求合并为一次批量消息发送；确定没有写入 Broker 时执行补偿脚本退回库存，
+ *    结果不确定 (超时等) 时保留预扣并交给 {@link OrderMessageRedelivery} 重投
+ * 4. 每个调用方通过 CompletableFuture 拿到自己的结果，Tomcat 线程不再同步等待半消息 + Lua + 提交
+ *
+ * 注意：批量模式用普通批量消息代替事务消息 (RocketMQ 事务消息不支持批量)，
+ * 一致性由“先扣库存、确定失败才补偿”保证；进程在两步之间宕机只会少卖，不会超卖。
+ * 分段库存的 SKU 不走批量脚本，由调用方退回逐单事务消息路径。
+ */
+@Slf4j
+@Component
+public class SeckillGroupCommitter {
+
+    @Autowired
+    private StockEngine stockEngine;
+
+    @Autowired
+    private RocketMQTemplate rocketMQTemplate;
+
+    @Autowired
+    private RocketMQConfig rocketMQConfig;
+
+    @Autowired
+    private OrderMessageRedelivery orderMessageRedelivery;
+
+    @Value("${app.seckill.group-commit.enabled:false}")
+    private boolean enabled;
+
+    // 单批最多请求数 (同时也是单次批量消息的条数上限，需保证总大小 < 4MB)
+    @Value("${app.seckill.group-commit.max-batch:128}")
+    private int maxBatch;
+
+    // 从收到第一个请求起最多等待多久发车
+    @Value("${app.seckill.group-commit.max-wait-ms:2}")
+    private long maxWaitMillis;
+
+    // 队列积压上限，满了直接快速失败，防止 OOM
+    @Value("${app.seckill.group-commit.queue-capacity:20000}")
+    private int queueCapacity;
+
+    // 攒批线程数 (每个线程独立攒批、独立提交)
+    @Value("${app.seckill.group-commit.workers:2}")
+    private int workers;
+
+    // 批量消息发送超时
+    @Value("${app.seckill.group-commit.send-timeout-ms:3000}")
+    private long sendTimeoutMillis;
+
+    /**
+     * 一个排队中的秒杀请求
+     */
+    private static final class Ticket {
+        private final SeckillOrderMsgDTO msg;
+        private final StockEngine.Claim claim;
+        private final CompletableFuture<Result<String>> future = new CompletableFuture<>();
+
+        private Ticket(SeckillOrderMsgDTO msg) {
+            this.msg = msg;
+            this.claim = new StockEngine.Claim(msg.getSkuId(), msg.getUserId(), msg.getOrderId(), 1);
+        }
+    }
+
+    private BlockingQueue<Ticket> queue;
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread t = new Thread(this::batchLoop, "seckill-group-commit-" + i);
+            t.setDaemon(true);
+            t.start();
+            workerThreads.add(t);
+        }
+        log.info(">>> [组提交] 已启用. workers={}, maxBatch={}, maxWaitMs={}", workers, maxBatch, maxWaitMillis);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 提交一个秒杀请求，立即返回 Future，不阻塞调用线程
+     */
+    public CompletableFuture<Result<String>> submit(SeckillOrderMsgDTO msg) {
+        Ticket ticket = new Ticket(msg);
+        if (!running || !queue.offer(ticket)) {
+            // 队列满时快速失败
+            ticket.future.complete(Result.error("系统繁忙，请重试"));
+        }
+        return ticket.future;
+    }
+
+    // ================= 攒批循环 =================
+
+    private void batchLoop() {
+        List<Ticket> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                // 1. 等第一个请求 (带超时，便于关闭时退出)
+                Ticket first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // 2. 从第一个请求开始计时，攒到 maxBatch 或者时间到
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (batch.size() < maxBatch) {
+                    // 先无等待地把已经排队的请求一次捞走
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Ticket next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                // 3. 提交
+                processBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error(">>> [组提交] 攒批循环异常", e);
+                for (Ticket t : batch) {
+                    t.future.complete(Result.error("系统繁忙，请重试"));
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void processBatch(List<Ticket> batch) {
+        // 按 SKU 分组，保持批内先后顺序
+        Map<Long, List<Ticket>> bySku = new LinkedHashMap<>();
+        for (Ticket t : batch) {
+            bySku.computeIfAbsent(t.msg.getSkuId(), k -> new ArrayList<>()).add(t);
+        }
+
+        List<Ticket> winners = new ArrayList<>(batch.size());
+        for (Map.Entry<Long, List<Ticket>> entry : bySku.entrySet()) {
+            deduct(entry.getKey(), entry.getValue(), winners);
+        }
+        if (!winners.isEmpty()) {
+            sendWinners(winners);
+        }
+    }
+
+    /**
+     * 一次批量扣减同一 SKU 的一批请求，抢到的放入 winners，其余直接完成
+     * (售罄时库存引擎已置位本地标记并负责广播)
+     */
+    private void deduct(long skuId, List<Ticket> tickets, List<Ticket> winners) {
+        List<StockEngine.Claim> claims = new ArrayList<>(tickets.size());
+        for (Ticket t : tickets) {
+            claims.add(t.claim);
+        }
+
+        List<StockEngine.Reservation> results;
+        try {
+            results = stockEngine.reserveBatch(skuId, claims);
+        } catch (Exception e) {
+            log.error(">>> [组提交] 批量扣减异常. skuId={}, size={}", skuId, tickets.size(), e);
+            for (Ticket t : tickets) {
+                t.future.complete(Result.error("系统繁忙，请重试"));
+            }
+            return;
+        }
+
+        for (int i = 0; i < tickets.size(); i++) {
+            Ticket t = tickets.get(i);
+            StockEngine.Reservation result = results.get(i);
+            if (result == StockEngine.Reservation.RESERVED) {
+                winners.add(t);
+            } else if (result == StockEngine.Reservation.LIMIT_EXCEEDED) {
+                t.future.complete(Result.error("已达到限购数量"));
+            } else {
+                t.future.complete(Result.error(result == StockEngine.Reservation.NOT_STARTED ? "活动未开始" : "抢购失败"));
+            }
+        }
+    }
+
+    /**
+     * 抢到的请求合并为一次批量消息发送
+     */
+    private void sendWinners(List<Ticket> winners) {
+        List<Message<byte[]>> messages = new ArrayList<>(winners.size());
+        for (Ticket t : winners) {
+            messages.add(MessageBuilder.withPayload(rocketMQConfig.encodeOrderMsg(t.msg)).build());
+        }
+        try {
+            SendResult sendResult = rocketMQTemplate.syncSend(rocketMQConfig.getOrderTopic(), messages, sendTimeoutMillis);
+            if (sendResult == null || sendResult.getSendStatus() != SendStatus.SEND_OK) {
+                // 非 SEND_OK (刷盘/同步从节点超时) 消息已写入 Broker，仍视为成功，只记录告警
+                log.warn(">>> [组提交] 批量消息发送状态异常: {}", sendResult);
+            }
+            for (Ticket t : winners) {
+                t.future.complete(Result.success(String.valueOf(t.msg.getOrderId())));
+            }
+        } catch (Exception e) {
+            if (OrderMessageRedelivery.isDefiniteFailure(e)) {
+                log.error(">>> [组提交] 批量消息未发出，执行库存补偿. size={}", winners.size(), e);
+                compensate(winners);
+                for (Ticket t : winners) {
+                    t.future.complete(Result.error("系统繁忙，请重试"));
+                }
+                return;
+            }
+            // 超时等不确定结果：消息可能已写入并会被消费，退库存会超卖。保留预扣，原样重投 (消费端幂等)
+            log.warn(">>> [组提交] 批量消息发送结果未知，保留预扣并重投. size={}", winners.size(), e);
+            orderMessageRedelivery.redeliver(messages).thenAccept(delivered -> {
+                for (Ticket t : winners) {
+                    t.future.complete(delivered
+                            ? Result.success(String.valueOf(t.msg.getOrderId()))
+                            : Result.error("下单结果确认中，请稍后在订单列表查看"));
+                }
+            });
+        }
+    }
+
+    /**
+     * 消息确定没发出去：退回库存、删除扣减记录、退回限购额度，并广播补货
+     */
+    private void compensate(List<Ticket> winners) {
+        List<StockEngine.Claim> claims = new ArrayList<>(winners.size());
+        for (Ticket t : winners) {
+            claims.add(t.claim);
+        }
+        try {
+            stockEngine.releaseAll(claims);
+        } catch (Exception e) {
+            log.error(">>> [组提交] 库存补偿失败 (少卖). size={}", winners.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (!enabled) {
+            return;
+        }
+        // 停止接单，工作线程把队列中剩余的请求处理完再退出
+        running = false;
+        for (Thread t : workerThreads) {
+            try {
+                t.join(sendTimeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info(">>> [组提交] 已关闭");
+    }
+}
@@ -0,0 +1,460 @@
+package com.example.seckill.order.ticket;
+
+import com.example.seckill.common.result.Result;
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import com.example.seckill.common.utils.SnowflakeIdWorker;
+import com.example.seckill.order.vo.SeckillTicketVo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 秒杀异步票据
+ * 1. 票据即订单ID；状态存放在按订单生成分钟分桶的 Redis Hash 中 (一个字符的状态码)，整桶过期
+ * 2. 受理请求的节点 (票据持有者) 在本地近缓存中维护状态，扣减结果直接在本地推送给等待中的客户端
+ * 3. 消费者落库后批量推进为 PERSISTED，并通过 Redis 频道通知所有节点
+ * 4. 客户端被路由到其它节点时，由该节点定时批量回查 Redis；持有节点上 STOCK_OK 之后的推进来自消费者，
+ *    同样回查 Redis 兜底丢失的落库通知
+ * 5. 票据记录受理用户，只有本人可以查询结果
+ */
+@Slf4j
+@Component
+public class SeckillTicketService implements MessageListener {
+
+    // 票据变更通知频道 (消费者落库后发布)，消息格式: 状态值|订单ID1,订单ID2
+    public static final String TICKET_CHANNEL = "seckill:channel:ticket";
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.seckill.ticket.enabled:true}")
+    private boolean enabled;
+
+    // 票据状态在 Redis 中的保留时间
+    @Value("${app.seckill.ticket.ttl-ms:1800000}")
+    private long ttlMillis;
+
+    // 长轮询 / SSE 单次最长等待
+    @Value("${app.seckill.ticket.max-wait-ms:30000}")
+    private long maxWaitMillis;
+
+    // 非持有节点回查 Redis 的间隔
+    @Value("${app.seckill.ticket.poll-interval-ms:200}")
+    private long pollIntervalMillis;
+
+    // 已结束的票据在近缓存中的保留时间
+    @Value("${app.seckill.ticket.near-cache-ms:60000}")
+    private long nearCacheMillis;
+
+    /**
+     * 本地近缓存中的票据
+     */
+    private static final class LocalTicket {
+        private final long orderId;
+        // true = 本节点受理的票据，Q -> S 由本节点推进；false = 仅为等待的客户端镜像 Redis 状态
+        private final boolean owned;
+        // 受理用户 (已校验过的归属)
+        private final long userId;
+        private volatile String value;
+        private volatile long updatedAt = System.currentTimeMillis();
+        private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+        private LocalTicket(long orderId, boolean owned, long userId, String value) {
+            this.orderId = orderId;
+            this.owned = owned;
+            this.userId = userId;
+            this.value = value;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, LocalTicket> tickets = new ConcurrentHashMap<>();
+
+    private DefaultRedisScript<Long> advanceScript;
+    private ScheduledExecutorService poller;
+    // 通知等待中的客户端 (SSE 写出可能阻塞，不能占用扣减 / 订阅线程；单线程保证同一票据的事件按序送达)
+    private ExecutorService notifier;
+
+    @PostConstruct
+    public void init() {
+        advanceScript = new DefaultRedisScript<>();
+        advanceScript.setResultType(Long.class);
+        advanceScript.setLocation(new ClassPathResource("seckill_ticket_advance.lua"));
+        if (!enabled) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seckill-ticket-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        notifier = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "seckill-ticket-notifier");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::pollRemote, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        poller.scheduleWithFixedDelay(this::evict, nearCacheMillis, nearCacheMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ================= 状态推进 =================
+
+    /**
+     * 受理请求时创建票据 (QUEUED)，Redis 写入失败时抛异常，由调用方拒绝请求 (此时不登记本地票据)
+     */
+    public void create(long orderId, long userId) {
+        String value = TicketState.QUEUED.encode(null);
+        execute(List.of(orderId), value, "", String.valueOf(userId));
+        tickets.put(orderId, new LocalTicket(orderId, true, userId, value));
+    }
+
+    /**
+     * 持有节点推进票据状态 (STOCK_OK / FAILED)
+     */
+    public void advance(long orderId, TicketState state, String message) {
+        String value = state.encode(message);
+        try {
+            execute(List.of(orderId), value, "", "");
+        } catch (Exception e) {
+            // 本地近缓存照常推进，客户端在本节点仍能拿到结果
+            log.warn(">>> [秒杀票据] 状态写入 Redis 失败. ticket={}, state={}", orderId, state, e);
+        }
+        LocalTicket ticket = tickets.get(orderId);
+        if (ticket != null) {
+            update(ticket, value);
+        }
+    }
+
+    /**
+     * 消费者落库后批量推进为 PERSISTED，并通知所有节点
+     */
+    public void markPersisted(List<Long> orderIds) {
+        if (!enabled || orderIds.isEmpty()) {
+            return;
+        }
+        try {
+            execute(orderIds, TicketState.PERSISTED.encode(null), TICKET_CHANNEL, "");
+        } catch (Exception e) {
+            // 不影响落库结果，客户端最终会在票据过期前看到 STOCK_OK，可自行查询订单
+            log.warn(">>> [秒杀票据] 落库状态写入失败. size={}", orderIds.size(), e);
+        }
+    }
+
+    private void execute(List<Long> orderIds, String value, String channel, String owner) {
+        // 同一批订单可能跨分钟桶，各分钟桶在 Redis Cluster 下位于不同的槽，按桶拆开各执行一次脚本
+        Map<String, List<String>> argsByKey = new LinkedHashMap<>();
+        for (Long orderId : orderIds) {
+            argsByKey.computeIfAbsent(ticketKey(orderId), k -> {
+                List<String> args = new ArrayList<>();
+                args.add(value);
+                args.add(String.valueOf(ttlMillis));
+                args.add(channel);
+                args.add(owner);
+                return args;
+            }).add(String.valueOf(orderId));
+        }
+        argsByKey.forEach((key, args) -> {
+            // 脚本按 KEYS[i] 与 ARGV[4 + i] 一一对应
+            List<String> keys = Collections.nCopies(args.size() - 4, key);
+            stringRedisTemplate.execute(advanceScript, keys, args.toArray());
+        });
+    }
+
+    private static String ticketKey(long orderId) {
+        return SeckillRedisKeys.seckillTicketKey(SnowflakeIdWorker.timestampOf(orderId) / MINUTE_MILLIS);
+    }
+
+    private static String ownerField(long orderId) {
+        return orderId + ":u";
+    }
+
+    /**
+     * 本地状态只前进不后退 (落库通知可能先于持有节点的 STOCK_OK 到达)
+     */
+    private void update(LocalTicket ticket, String value) {
+        TicketState next = TicketState.of(value);
+        if (next == null) {
+            return;
+        }
+        synchronized (ticket) {
+            TicketState current = TicketState.of(ticket.value);
+            if (current != null && current.getRank() >= next.getRank()) {
+                return;
+            }
+            ticket.value = value;
+            ticket.updatedAt = System.currentTimeMillis();
+        }
+        for (Consumer<String> listener : ticket.listeners) {
+            notifier.execute(() -> listener.accept(value));
+        }
+    }
+
+    // ================= 查询 / 等待 =================
+
+    /**
+     * 票据是否属于该用户 (票据不存在 / 已过期也返回 false，不区分两种情况，避免探测他人票据)
+     */
+    private boolean isOwner(long orderId, long userId) {
+        LocalTicket ticket = tickets.get(orderId);
+        if (ticket != null) {
+            return ticket.userId == userId;
+        }
+        Object owner = stringRedisTemplate.opsForHash().get(ticketKey(orderId), ownerField(orderId));
+        return owner != null && owner.toString().equals(String.valueOf(userId));
+    }
+
+    /**
+     * 是否只需读近缓存：已结束，或持有节点上仍在 QUEUED (下一步由本节点推进)；
+     * STOCK_OK 之后的推进来自消费者的落库通知，通知可能丢失，必须回查 Redis
+     */
+    private static boolean isLocalAuthoritative(LocalTicket ticket) {
+        TicketState state = TicketState.of(ticket.value);
+        return state != null && (state.isTerminal() || (ticket.owned && state == TicketState.QUEUED));
+    }
+
+    /**
+     * 当前状态值：近缓存权威时直接读，否则读 Redis (Redis 中没有时退回近缓存，持有节点写 Redis 可能失败过)
+     */
+    private String currentValue(long orderId) {
+        LocalTicket ticket = tickets.get(orderId);
+        if (ticket != null && ticket.value != null && isLocalAuthoritative(ticket)) {
+            return ticket.value;
+        }
+        String value = (String) stringRedisTemplate.opsForHash().get(ticketKey(orderId), String.valueOf(orderId));
+        if (ticket == null) {
+            return value;
+        }
+        if (value != null) {
+            update(ticket, value);
+        }
+        return ticket.value;
+    }
+
+    /**
+     * 注册状态监听，返回注册时的状态值 (null 表示票据不存在)
+     */
+    private String watch(long orderId, long userId, Consumer<String> listener) {
+        String value = currentValue(orderId);
+        if (value == null) {
+            return null;
+        }
+        LocalTicket ticket = tickets.computeIfAbsent(orderId, id -> new LocalTicket(id, false, userId, value));
+        ticket.listeners.add(listener);
+        // 注册期间状态可能刚好变化，以近缓存为准再对一次
+        update(ticket, value);
+        return ticket.value;
+    }
+
+    private void unwatch(long orderId, Consumer<String> listener) {
+        LocalTicket ticket = tickets.get(orderId);
+        if (ticket != null) {
+            ticket.listeners.remove(listener);
+        }
+    }
+
+    /**
+     * 长轮询：最终状态立即返回；否则最多等待 waitMs，状态变为最终状态时提前返回，超时返回当前状态
+     */
+    public DeferredResult<Result<SeckillTicketVo>> awaitResult(long orderId, long userId, long waitMs) {
+        long timeout = Math.max(1, Math.min(waitMs, maxWaitMillis));
+        DeferredResult<Result<SeckillTicketVo>> deferred = new DeferredResult<>(timeout + 1000);
+        if (!isOwner(orderId, userId)) {
+            deferred.setResult(Result.error("票据不存在或已过期"));
+            return deferred;
+        }
+        Consumer<String> listener = value -> {
+            if (isTerminal(value)) {
+                deferred.setResult(Result.success(toVo(orderId, value)));
+            }
+        };
+        String value = waitMs > 0 ? watch(orderId, userId, listener) : currentValue(orderId);
+        if (value == null) {
+            unwatch(orderId, listener);
+            deferred.setResult(Result.error("票据不存在或已过期"));
+            return deferred;
+        }
+        if (waitMs <= 0 || isTerminal(value)) {
+            unwatch(orderId, listener);
+            deferred.setResult(Result.success(toVo(orderId, value)));
+            return deferred;
+        }
+        poller.schedule(() -> {
+            LocalTicket ticket = tickets.get(orderId);
+            String latest = ticket != null ? ticket.value : value;
+            deferred.setResult(Result.success(toVo(orderId, latest)));
+        }, timeout, TimeUnit.MILLISECONDS);
+        deferred.onCompletion(() -> unwatch(orderId, listener));
+        return deferred;
+    }
+
+    /**
+     * SSE：推送每一次状态变化，最终状态后关闭连接
+     */
+    public SseEmitter stream(long orderId, long userId) {
+        SseEmitter emitter = new SseEmitter(maxWaitMillis);
+        if (!isOwner(orderId, userId)) {
+            emitter.completeWithError(new IllegalArgumentException("票据不存在或已过期"));
+            return emitter;
+        }
+        Consumer<String> listener = value -> send(emitter, orderId, value);
+        String value = watch(orderId, userId, listener);
+        if (value == null) {
+            unwatch(orderId, listener);
+            emitter.completeWithError(new IllegalArgumentException("票据不存在或已过期"));
+            return emitter;
+        }
+        emitter.onCompletion(() -> unwatch(orderId, listener));
+        emitter.onTimeout(() -> unwatch(orderId, listener));
+        emitter.onError(e -> unwatch(orderId, listener));
+        send(emitter, orderId, value);
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, long orderId, String value) {
+        try {
+            synchronized (emitter) {
+                emitter.send(SseEmitter.event().name("state").data(toVo(orderId, value)));
+                if (isTerminal(value)) {
+                    emitter.complete();
+                }
+            }
+        } catch (Exception e) {
+            // 客户端已断开
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static boolean isTerminal(String value) {
+        TicketState state = TicketState.of(value);
+        return state != null && state.isTerminal();
+    }
+
+    private static SeckillTicketVo toVo(long orderId, String value) {
+        TicketState state = TicketState.of(value);
+        SeckillTicketVo vo = new SeckillTicketVo();
+        vo.setTicket(String.valueOf(orderId));
+        vo.setState(state == null ? null : state.name());
+        vo.setMessage(TicketState.messageOf(value));
+        vo.setFinished(state != null && state.isTerminal());
+        return vo;
+    }
+
+    // ================= 跨节点同步 =================
+
+    /**
+     * 落库通知 (RedisMessageListenerContainer 线程)：只处理本节点近缓存中的票据
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = payload.lastIndexOf('|');
+        if (separator < 0) {
+            log.warn(">>> [秒杀票据] 未知消息: {}", payload);
+            return;
+        }
+        String value = payload.substring(0, separator);
+        for (String id : payload.substring(separator + 1).split(",")) {
+            try {
+                LocalTicket ticket = tickets.get(Long.parseLong(id));
+                if (ticket != null) {
+                    update(ticket, value);
+                }
+            } catch (NumberFormatException e) {
+                log.warn(">>> [秒杀票据] 消息格式错误: {}", payload);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 有客户端等待、近缓存不权威的票据 (非持有节点的镜像 / 持有节点上等待落库的 STOCK_OK)：一次 Pipeline 批量回查 Redis
+     */
+    @SuppressWarnings("unchecked")
+    private void pollRemote() {
+        try {
+            List<LocalTicket> waiting = new ArrayList<>();
+            for (LocalTicket ticket : tickets.values()) {
+                if (!ticket.listeners.isEmpty() && !isLocalAuthoritative(ticket)) {
+                    waiting.add(ticket);
+                }
+            }
+            if (waiting.isEmpty()) {
+                return;
+            }
+            List<Object> values = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    for (LocalTicket ticket : waiting) {
+                        ops.opsForHash().get(ticketKey(ticket.orderId), String.valueOf(ticket.orderId));
+                    }
+                    return null;
+                }
+            });
+            for (int i = 0; i < waiting.size() && i < values.size(); i++) {
+                if (values.get(i) != null) {
+                    update(waiting.get(i), values.get(i).toString());
+                }
+            }
+        } catch (Exception e) {
+            log.warn(">>> [秒杀票据] 回查 Redis 失败", e);
+        }
+    }
+
+    /**
+     * 清理近缓存：无人等待且已结束 (或超过 Redis 保留时间) 的票据
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, LocalTicket> entry : tickets.entrySet()) {
+            LocalTicket ticket = entry.getValue();
+            if (!ticket.listeners.isEmpty()) {
+                continue;
+            }
+            long idle = now - ticket.updatedAt;
+            if ((isTerminal(ticket.value) && idle > nearCacheMillis) || !ticket.owned || idle > ttlMillis) {
+                tickets.remove(entry.getKey(), ticket);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (poller != null) {
+            poller.shutdownNow();
+            notifier.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.seckill.order.ticket;
+
+/**
+ * 秒杀异步票据状态 (只能前进：QUEUED -> STOCK_OK -> PERSISTED / FAILED)
+ * Redis 中只存一个字符的状态码，失败时在冒号后附带原因，例如 "F:商品已售罄"
+ */
+public enum TicketState {
+
+    /** 已受理，排队扣减中 */
+    QUEUED('Q', 0),
+    /** 已扣减库存，订单消息已提交，等待落库 */
+    STOCK_OK('S', 1),
+    /** 订单已落库，可以去支付 */
+    PERSISTED('P', 2),
+    /** 抢购失败 (售罄 / 系统繁忙等)，原因见 message */
+    FAILED('F', 2);
+
+    private final char code;
+    private final int rank;
+
+    TicketState(char code, int rank) {
+        this.code = code;
+        this.rank = rank;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public boolean isTerminal() {
+        return rank == 2;
+    }
+
+    /**
+     * 编码为 Redis 中的状态值
+     */
+    public String encode(String message) {
+        return message == null || message.isEmpty() ? String.valueOf(code) : code + ":" + message;
+    }
+
+    /**
+     * 解析状态值，null 表示票据不存在 / 已过期
+     */
+    public static TicketState of(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        for (TicketState state : values()) {
+            if (state.code == value.charAt(0)) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 状态值中附带的说明 (没有则为 null)
+     */
+    public static String messageOf(String value) {
+        int index = value == null ? -1 : value.indexOf(':');
+        return index < 0 ? null : value.substring(index + 1);
+    }
+}
@@ -0,0 +1,511 @@
+package com.example.seckill.order.timeout;
+
+import com.example.seckill.common.entity.Order;
+import com.example.seckill.common.utils.SeckillRedisKeys;
+import com.example.seckill.order.feign.GoodsFeignClient;
+import com.example.seckill.order.mapper.OrderMapper;
+import com.example.seckill.order.sharding.OrderShardRouter;
+import com.example.seckill.order.stock.StockEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量超时关单引擎 (替代逐单延时消息)
+ * 1. 订单落库后按到期时间放入内存分层时间轮 (秒级格子 + 分钟级上层)，同时按到期分钟写入 Redis ZSET 桶做持久化
+ * 2. 每个 tick 取出到期订单，按 order_tbl_n 分组：一次 IN 查询筛出仍待支付的订单 -> 批量接口核实支付状态 (有界并发) ->
+ *    一条 UPDATE ... WHERE status = 1 AND id IN (...) 关单 -> 一次 Pipeline 回补 Redis 库存
+ * 3. 到期超过 orphan-grace-ms 仍留在 Redis 桶里的订单 (持有节点宕机 / 重启) 由任意节点的孤儿扫描接管，启动时先扫一次
+ *
+ * 关单条件更新保证幂等：同一订单被多个节点 / 旧的延时消息重复处理时，只有真正改到状态的一方回补库存
+ */
+@Slf4j
+@Component
+public class OrderTimeoutWheel {
+
+    // 第一层格数 (tick = 1s 时第二层每格即 1 分钟)
+    private static final int WHEEL_SIZE = 60;
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private PayStatusBatchChecker payStatusBatchChecker;
+
+    @Autowired
+    private GoodsFeignClient goodsFeignClient;
+
+    @Autowired
+    private StockEngine stockEngine;
+
+    @Value("${app.seckill.timeout.wheel-enabled:true}")
+    private boolean enabled;
+
+    // 下单多久未支付自动关闭 (与原延时消息 Level 3 = 10s 一致)
+    @Value("${app.seckill.timeout.close-after-ms:10000}")
+    private long closeAfterMillis;
+
+    // 时间轮精度
+    @Value("${app.seckill.timeout.tick-ms:1000}")
+    private long tickMillis;
+
+    // 单条 IN 查询 / UPDATE 的最大订单数
+    @Value("${app.seckill.timeout.batch-size:500}")
+    private int batchSize;
+
+    // 支付状态未知 (支付服务异常) 的订单多久后重试
+    @Value("${app.seckill.timeout.retry-delay-ms:30000}")
+    private long retryDelayMillis;
+
+    // 到期超过该时长仍留在 Redis 中的订单视为无主 (原节点宕机)，由本节点接管
+    @Value("${app.seckill.timeout.orphan-grace-ms:300000}")
+    private long orphanGraceMillis;
+
+    /**
+     * 时间轮中的一个待关单订单
+     */
+    private static final class Pending {
+        private final long orderId;
+        private final long expireAt;
+
+        private Pending(long orderId, long expireAt) {
+            this.orderId = orderId;
+            this.expireAt = expireAt;
+        }
+    }
+
+    // 其它线程提交的新订单，由推进线程统一放入时间轮 (时间轮本身非线程安全)
+    private final ConcurrentLinkedQueue<Pending> incoming = new ConcurrentLinkedQueue<>();
+
+    // 已在本节点时间轮中的订单，避免孤儿扫描重复加入
+    private final Set<Long> tracked = ConcurrentHashMap.newKeySet();
+
+    private TimingWheel<Pending> wheel;
+    private ScheduledExecutorService ticker;
+    private DefaultRedisScript<Long> indexPruneScript;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        wheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, System.currentTimeMillis());
+        indexPruneScript = new DefaultRedisScript<>();
+        indexPruneScript.setResultType(Long.class);
+        indexPruneScript.setLocation(new ClassPathResource("order_timeout_index_prune.lua"));
+
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-timeout-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        // 启动时与定时扫描一样只接管到期超过 orphan-grace-ms 的订单：其余订单仍在其它节点的时间轮里，
+        // 全量加载会让滚动重启时同一订单被多个节点重复查支付；本节点重启前持有的订单宽限期过后由扫描接管
+        ticker.scheduleWithFixedDelay(() -> recover(System.currentTimeMillis() - orphanGraceMillis),
+                0, MINUTE_MILLIS, TimeUnit.MILLISECONDS);
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        log.info(">>> [批量关单] 时间轮已启动. closeAfterMs={}, tickMs={}, batchSize={}", closeAfterMillis, tickMillis, batchSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 登记新落库的订单 (先持久化到 Redis 分钟桶，再放入内存时间轮)
+     */
+    public void schedule(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<Pending> pendings = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            long createdAt = order.getCreateTime() == null ? System.currentTimeMillis() : order.getCreateTime().getTime();
+            pendings.add(new Pending(order.getId(), createdAt + closeAfterMillis));
+        }
+        try {
+            persist(pendings);
+        } catch (Exception e) {
+            // 只影响重启恢复，内存时间轮照常关单
+            log.error(">>> [批量关单] 到期桶持久化失败，重启前未关闭的订单需人工处理. size={}", pendings.size(), e);
+        }
+        for (Pending pending : pendings) {
+            if (tracked.add(pending.orderId)) {
+                incoming.add(pending);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void persist(List<Pending> pendings) {
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                Set<Long> minutes = new HashSet<>();
+                for (Pending pending : pendings) {
+                    long minute = pending.expireAt / MINUTE_MILLIS;
+                    ops.opsForZSet().add(SeckillRedisKeys.orderTimeoutBucketKey(minute), String.valueOf(pending.orderId), pending.expireAt);
+                    minutes.add(minute);
+                }
+                for (Long minute : minutes) {
+                    ops.opsForZSet().add(SeckillRedisKeys.orderTimeoutBucketIndexKey(), String.valueOf(minute), minute);
+                }
+                return null;
+            }
+        });
+    }
+
+    // ================= 推进线程 =================
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            List<Pending> due = new ArrayList<>();
+            Pending pending;
+            while ((pending = incoming.poll()) != null) {
+                if (!wheel.add(pending.expireAt, pending)) {
+                    due.add(pending);
+                }
+            }
+            wheel.advance(now, due);
+            if (!due.isEmpty()) {
+                closeDue(due);
+            }
+        } catch (Exception e) {
+            log.error(">>> [批量关单] 时间轮推进异常", e);
+        }
+    }
+
+    /**
+     * 同一分表内的一块到期订单
+     */
+    private static final class ShardChunk {
+        private final int shard;
+        private final List<Pending> pendings;
+        private List<Order> candidates;
+
+        private ShardChunk(int shard, List<Pending> pendings) {
+            this.shard = shard;
+            this.pendings = pendings;
+        }
+    }
+
+    /**
+     * 到期订单按分表分组、按 batchSize 切块：
+     * 先逐块筛出待支付订单，再把所有块的待支付订单合并成一次批量查支付 (内部按批并发)，最后逐块条件更新
+     */
+    private void closeDue(List<Pending> due) {
+        OrderShardRouter.Routing routing = orderShardRouter.routing();
+        Map<Integer, List<Pending>> byShard = new LinkedHashMap<>();
+        for (Pending pending : due) {
+            byShard.computeIfAbsent(routing.shardOf(pending.orderId), k -> new ArrayList<>()).add(pending);
+        }
+        List<Pending> done = new ArrayList<>(due.size());
+        List<Pending> retry = new ArrayList<>();
+
+        // 1. 一次 IN 查询筛出仍待支付的订单 (已支付 / 已关闭 / 不存在的直接结束)
+        List<ShardChunk> chunks = new ArrayList<>();
+        List<Long> candidateIds = new ArrayList<>(due.size());
+        for (Map.Entry<Integer, List<Pending>> entry : byShard.entrySet()) {
+            List<Pending> group = entry.getValue();
+            for (int from = 0; from < group.size(); from += batchSize) {
+                ShardChunk chunk = new ShardChunk(entry.getKey(), group.subList(from, Math.min(group.size(), from + batchSize)));
+                try {
+                    chunk.candidates = selectPending(routing, chunk);
+                } catch (Exception e) {
+                    log.error(">>> [批量关单] 查询待支付订单失败，稍后重试. shard={}, size={}", chunk.shard, chunk.pendings.size(), e);
+                    retry.addAll(chunk.pendings);
+                    continue;
+                }
+                for (Order order : chunk.candidates) {
+                    candidateIds.add(order.getId());
+                }
+                chunks.add(chunk);
+            }
+        }
+
+        // 2. 关单前的最终防线：批量核实第三方支付状态，结果未知的稍后重试
+        Map<Long, Boolean> payStatus = payStatusBatchChecker.check(candidateIds);
+
+        // 3. 逐块条件更新 + 库存处理
+        for (ShardChunk chunk : chunks) {
+            try {
+                closeChunk(routing, chunk, payStatus, done, retry);
+            } catch (Exception e) {
+                log.error(">>> [批量关单] 分片处理失败，稍后重试. shard={}, size={}", chunk.shard, chunk.pendings.size(), e);
+                retry.addAll(chunk.pendings);
+            }
+        }
+        forget(done);
+        reschedule(retry);
+    }
+
+    private List<Order> selectPending(OrderShardRouter.Routing routing, ShardChunk chunk) {
+        List<Long> ids = new ArrayList<>(chunk.pendings.size());
+        for (Pending pending : chunk.pendings) {
+            ids.add(pending.orderId);
+        }
+        routing.bindShard(chunk.shard);
+        try {
+            return orderMapper.selectPendingByIds(ids);
+        } finally {
+            orderShardRouter.clear();
+        }
+    }
+
+    private void closeChunk(OrderShardRouter.Routing routing, ShardChunk chunk, Map<Long, Boolean> payStatus,
+                            List<Pending> done, List<Pending> retry) {
+        List<Order> paid = new ArrayList<>();
+        List<Order> unpaid = new ArrayList<>();
+        Set<Long> unknown = new HashSet<>();
+        for (Order order : chunk.candidates) {
+            Boolean isPaid = payStatus.get(order.getId());
+            if (isPaid == null) {
+                unknown.add(order.getId());
+            } else if (isPaid) {
+                paid.add(order);
+            } else {
+                unpaid.add(order);
+            }
+        }
+
+        // 条件批量更新
+        List<Order> markedPaid = updatePending(routing, chunk.shard, paid, 2);
+        List<Order> closed = updatePending(routing, chunk.shard, unpaid, 5);
+
+        // 已支付：修正 DB 库存；已关闭：回补 Redis 库存
+        reduceStockForPaid(markedPaid);
+        returnStock(closed);
+        if (!closed.isEmpty() || !markedPaid.isEmpty()) {
+            log.info(">>> [批量关单] 分表 {} 处理完成. 到期={}, 待支付={}, 关闭={}, 补记已支付={}, 待重试={}",
+                    orderShardRouter.tableName(chunk.shard), chunk.pendings.size(), chunk.candidates.size(),
+                    closed.size(), markedPaid.size(), unknown.size());
+        }
+
+        for (Pending pending : chunk.pendings) {
+            (unknown.contains(pending.orderId) ? retry : done).add(pending);
+        }
+    }
+
+    /**
+     * UPDATE ... WHERE status = 1 AND id IN (...)，返回真正被本次更新改到状态的订单
+     * 影响行数与预期不一致说明有并发修改 (用户刚好支付 / 其它节点重复处理)，此时回查确认
+     */
+    private List<Order> updatePending(OrderShardRouter.Routing routing, int shard, List<Order> orders, int status) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        List<Long> ids = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            ids.add(order.getId());
+        }
+        routing.bindShard(shard);
+        try {
+            int affected = orderMapper.updatePendingStatus(ids, status);
+            mirrorUpdate(routing, ids, status);
+            if (affected == orders.size()) {
+                return orders;
+            }
+            // 回查：状态为目标值的订单数与影响行数一致时，它们就是本次更新改到的订单
+            List<Order> changed = new ArrayList<>(affected);
+            for (Order order : orderMapper.selectBatchIds(ids)) {
+                if (order.getStatus() != null && order.getStatus() == status) {
+                    changed.add(order);
+                }
+            }
+            if (changed.size() != affected) {
+                log.error(">>> [批量关单] 并发修改导致无法确认归属，跳过库存处理，请人工核对. status={}, ids={}", status, ids);
+                return List.of();
+            }
+            return changed;
+        } finally {
+            orderShardRouter.clear();
+        }
+    }
+
+    /**
+     * 重分片双写阶段：把同样的条件更新镜像到新分片
+     */
+    private void mirrorUpdate(OrderShardRouter.Routing routing, List<Long> ids, int status) {
+        Map<Integer, List<Long>> byMirror = new LinkedHashMap<>();
+        for (Long id : ids) {
+            int mirrorShard = routing.mirrorShardOf(id);
+            if (mirrorShard >= 0) {
+                byMirror.computeIfAbsent(mirrorShard, k -> new ArrayList<>()).add(id);
+            }
+        }
+        for (List<Long> group : byMirror.values()) {
+            orderShardRouter.mirrorWrite(group.get(0), group, () -> orderMapper.updatePendingStatus(group, status));
+        }
+    }
+
+    private void reduceStockForPaid(List<Order> orders) {
+        Map<Long, Integer> countBySku = new LinkedHashMap<>();
+        for (Order order : orders) {
+            log.info(">>> [批量关单] 核实发现订单 {} 实际已支付，已修正本地状态", order.getId());
+            countBySku.merge(order.getSkuId(), order.getCount() == null ? 1 : order.getCount(), Integer::sum);
+        }
+        for (Map.Entry<Long, Integer> entry : countBySku.entrySet()) {
+            try {
+                goodsFeignClient.reduceStockDB(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.error(">>> [批量关单] 远程扣减 DB 库存失败. skuId={}, count={}", entry.getKey(), entry.getValue(), e);
+            }
+        }
+    }
+
+    /**
+     * 库存回补 + 删除扣减记录 + 退回限购额度 + 补货广播，由库存引擎一次批量完成 (Redis 引擎为一次 Pipeline)
+     */
+    private void returnStock(List<Order> closed) {
+        if (closed.isEmpty()) {
+            return;
+        }
+        List<StockEngine.Claim> claims = new ArrayList<>(closed.size());
+        for (Order order : closed) {
+            claims.add(new StockEngine.Claim(order.getSkuId(), order.getUserId(), order.getId(),
+                    order.getCount() == null ? 1 : order.getCount()));
+        }
+        stockEngine.releaseAll(claims);
+        log.info(">>> [批量关单] 库存回补完成. orders={}", closed.size());
+    }
+
+    // ================= Redis 持久化维护 =================
+
+    /**
+     * 处理完成：从 Redis 分钟桶中移除
+     */
+    @SuppressWarnings("unchecked")
+    private void forget(List<Pending> done) {
+        if (done.isEmpty()) {
+            return;
+        }
+        for (Pending pending : done) {
+            tracked.remove(pending.orderId);
+        }
+        try {
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    for (Pending pending : done) {
+                        ops.opsForZSet().remove(SeckillRedisKeys.orderTimeoutBucketKey(pending.expireAt / MINUTE_MILLIS),
+                                String.valueOf(pending.orderId));
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // 残留的订单会被孤儿扫描再处理一次，条件更新保证幂等
+            log.warn(">>> [批量关单] 清理到期桶失败. size={}", done.size(), e);
+        }
+    }
+
+    /**
+     * 结果未知的订单延后重试：Redis 中同步挪到新的到期分钟桶，避免被孤儿扫描提前接管
+     */
+    private void reschedule(List<Pending> retry) {
+        if (retry.isEmpty()) {
+            return;
+        }
+        long expireAt = System.currentTimeMillis() + retryDelayMillis;
+        List<Pending> next = new ArrayList<>(retry.size());
+        for (Pending pending : retry) {
+            next.add(new Pending(pending.orderId, expireAt));
+        }
+        try {
+            persist(next);
+            // 新旧分钟桶相同时 ZADD 已覆盖分数，不能再删
+            List<Pending> moved = new ArrayList<>(retry.size());
+            for (Pending pending : retry) {
+                if (pending.expireAt / MINUTE_MILLIS != expireAt / MINUTE_MILLIS) {
+                    moved.add(pending);
+                }
+            }
+            forget(moved);
+        } catch (Exception e) {
+            log.warn(">>> [批量关单] 重试订单持久化失败. size={}", retry.size(), e);
+        }
+        for (Pending pending : next) {
+            tracked.add(pending.orderId);
+            wheel.add(pending.expireAt, pending);
+        }
+        log.warn(">>> [批量关单] {} 个订单支付状态未知，{}ms 后重试", retry.size(), retryDelayMillis);
+    }
+
+    /**
+     * 从 Redis 恢复到期时间不晚于 expireBefore 的订单 (孤儿接管)，并清理已空的分钟桶索引
+     */
+    private void recover(long expireBefore) {
+        try {
+            String indexKey = SeckillRedisKeys.orderTimeoutBucketIndexKey();
+            long maxMinute = expireBefore / MINUTE_MILLIS;
+            Set<String> minutes = stringRedisTemplate.opsForZSet().rangeByScore(indexKey, 0, maxMinute);
+            if (minutes == null || minutes.isEmpty()) {
+                return;
+            }
+            int recovered = 0;
+            for (String minute : minutes) {
+                String bucketKey = SeckillRedisKeys.orderTimeoutBucketKey(Long.parseLong(minute));
+                Set<ZSetOperations.TypedTuple<String>> entries =
+                        stringRedisTemplate.opsForZSet().rangeByScoreWithScores(bucketKey, 0, expireBefore);
+                if (entries == null || entries.isEmpty()) {
+                    // 桶为空时才删索引，检查与删除在脚本内原子执行
+                    stringRedisTemplate.execute(indexPruneScript, List.of(indexKey, bucketKey), minute);
+                    continue;
+                }
+                for (ZSetOperations.TypedTuple<String> entry : entries) {
+                    long orderId = Long.parseLong(entry.getValue());
+                    if (entry.getScore() != null && tracked.add(orderId)) {
+                        incoming.add(new Pending(orderId, entry.getScore().longValue()));
+                        recovered++;
+                    }
+                }
+            }
+            if (recovered > 0) {
+                log.info(">>> [批量关单] 从 Redis 恢复待关单订单 {} 个", recovered);
+            }
+        } catch (Exception e) {
+            log.error(">>> [批量关单] 恢复到期桶失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.seckill.order.timeout;
+
+import com.example.seckill.common.result.Result;
+import com.example.seckill.order.feign.PayFeignClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量核实支付状态
+ * 按 batch-size 切块调用批量查询接口，块与块之间并发执行，并发度受 parallelism 限制
+ */
+@Slf4j
+@Component
+public class PayStatusBatchChecker {
+
+    @Autowired
+    private PayFeignClient payFeignClient;
+
+    // 单次批量查询的订单数 (不能超过支付服务的上限)
+    @Value("${app.seckill.timeout.pay-check-batch-size:1000}")
+    private int batchSize;
+
+    // 同时在途的批量查询数
+    @Value("${app.seckill.timeout.pay-check-parallelism:8}")
+    private int parallelism;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "pay-status-checker-" + threadIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @return 订单ID -> 是否已支付；查询失败或支付服务没有返回的订单不在结果中 (由调用方稍后重试)
+     */
+    public Map<Long, Boolean> check(List<Long> orderIds) {
+        Map<Long, Boolean> result = new ConcurrentHashMap<>(orderIds.size() * 2);
+        if (orderIds.isEmpty()) {
+            return result;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < orderIds.size(); from += batchSize) {
+            List<Long> chunk = orderIds.subList(from, Math.min(orderIds.size(), from + batchSize));
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    Result<Map<Long, Boolean>> payResult = payFeignClient.checkPayStatusBatch(chunk);
+                    if (payResult != null && payResult.getData() != null) {
+                        result.putAll(payResult.getData());
+                    } else {
+                        log.warn(">>> [批量查支付] 支付服务返回异常，稍后重试. size={}, result={}", chunk.size(), payResult);
+                    }
+                } catch (Exception e) {
+                    log.warn(">>> [批量查支付] 调用失败，稍后重试. size={}", chunk.size(), e);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return result;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
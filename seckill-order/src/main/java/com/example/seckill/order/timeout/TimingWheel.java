@@ -0,0 +1,130 @@
+package com.example.seckill.order.timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层时间轮 (非线程安全，由唯一的推进线程操作)
+ * 第一层每格 tickMs，共 wheelSize 格；超出本层范围的任务放入上一层 (每格 = 本层一圈)，
+ * 上层的格子开始时把任务降级重新插入，最底层的格子整格走完后其中的任务到期 (不会提前，最多延后一格)
+ *
+ * 例：tickMs = 1s、wheelSize = 60 时，第二层每格 1 分钟 (即按到期分钟分桶)，第三层每格 1 小时
+ */
+class TimingWheel<T> {
+
+    /**
+     * 时间轮中的一个任务
+     */
+    static final class Entry<T> {
+        final long expireAt;
+        final T item;
+
+        Entry(long expireAt, T item) {
+            this.expireAt = expireAt;
+            this.item = item;
+        }
+    }
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long interval;
+    private final List<Entry<T>>[] slots;
+    // 当前格的起始时间 (向下取整到 tickMs)，早于它的任务视为已到期
+    private long currentTime;
+    private TimingWheel<T> overflow;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.interval = tickMs * wheelSize;
+        this.slots = new List[wheelSize];
+        this.currentTime = startMs - (startMs % tickMs);
+    }
+
+    /**
+     * 加入任务
+     * @return false 表示任务已到期，没有加入 (由调用方直接处理)
+     */
+    boolean add(long expireAt, T item) {
+        return add(new Entry<>(expireAt, item));
+    }
+
+    private boolean add(Entry<T> entry) {
+        if (entry.expireAt < currentTime) {
+            return false;
+        }
+        if (entry.expireAt < currentTime + interval) {
+            int index = (int) ((entry.expireAt / tickMs) % wheelSize);
+            List<Entry<T>> slot = slots[index];
+            if (slot == null) {
+                slot = new ArrayList<>();
+                slots[index] = slot;
+            }
+            slot.add(entry);
+            size++;
+            return true;
+        }
+        if (overflow == null) {
+            overflow = new TimingWheel<>(interval, wheelSize, currentTime);
+        }
+        return overflow.add(entry);
+    }
+
+    /**
+     * 推进到 now，把到期的任务放入 expired
+     */
+    void advance(long now, List<T> expired) {
+        while (now >= currentTime + tickMs) {
+            // 1. 当前格 [currentTime, currentTime + tickMs) 已整格走完，其中的任务全部到期
+            int index = (int) ((currentTime / tickMs) % wheelSize);
+            List<Entry<T>> slot = slots[index];
+            if (slot != null) {
+                slots[index] = null;
+                size -= slot.size();
+                for (Entry<T> entry : slot) {
+                    expired.add(entry.item);
+                }
+            }
+            currentTime += tickMs;
+
+            // 2. 上层同步推进，开始的上层格子整体降级到本层
+            if (overflow != null) {
+                List<Entry<T>> cascaded = new ArrayList<>();
+                overflow.advanceTo(currentTime, cascaded);
+                for (Entry<T> entry : cascaded) {
+                    if (!add(entry)) {
+                        expired.add(entry.item);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 上层推进：格子到期时把其中的任务交给下层重新插入
+     */
+    private void advanceTo(long time, List<Entry<T>> cascaded) {
+        while (time >= currentTime + tickMs) {
+            currentTime += tickMs;
+            if (overflow != null) {
+                overflow.advanceTo(currentTime, cascaded);
+            }
+            int index = (int) ((currentTime / tickMs) % wheelSize);
+            List<Entry<T>> slot = slots[index];
+            if (slot != null) {
+                slots[index] = null;
+                size -= slot.size();
+                cascaded.addAll(slot);
+            }
+        }
+    }
+
+    /**
+     * 时间轮中的任务总数 (含上层)
+     */
+    int size() {
+        return size + (overflow == null ? 0 : overflow.size());
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.seckill.order.vo;
+
+import lombok.Data;
+
+/**
+ * 秒杀异步票据查询结果
+ */
+@Data
+public class SeckillTicketVo {
+    private String ticket; // 票据 (即订单ID)
+    private String state; // QUEUED / STOCK_OK / PERSISTED / FAILED
+    private String message; // 失败原因
+    private Boolean finished; // 是否为最终状态 (客户端可以停止轮询)
+}
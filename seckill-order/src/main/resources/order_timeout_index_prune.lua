@@ -0,0 +1,9 @@
+-- 到期分钟桶已空时从索引中移除 (检查与删除原子执行，避免与并发登记的 ZADD 交错而丢掉新桶的索引)
+-- KEYS[1]: 分钟桶索引, KEYS[2]: 分钟桶
+-- ARGV[1]: 分钟
+-- 返回: 1 = 已移除, 0 = 桶非空未移除
+
+if (redis.call('exists', KEYS[2]) == 1) then
+    return 0
+end
+return redis.call('zrem', KEYS[1], ARGV[1])
@@ -0,0 +1,15 @@
+-- 占用限购额度 (记录与要扣的库存 Key 不同槽时使用：先占额度，再由 seckill_stock_take.lua 扣库存，扣成功后才写扣减记录)
+-- KEYS[1]: 限购账本桶 (Hash)，带 PurchaseLedger.tagOf 的 Hash Tag
+-- ARGV[1]: userId, ARGV[2]: 每人限购件数, ARGV[3]: 账本过期时间(秒)
+-- 返回值: 1=成功, -2=超过限购
+
+local bought = tonumber(redis.call('hget', KEYS[1], ARGV[1]) or '0')
+if (bought >= tonumber(ARGV[2])) then
+    return -2
+end
+
+redis.call('hincrby', KEYS[1], ARGV[1], 1)
+if (redis.call('ttl', KEYS[1]) < 0) then
+    redis.call('expire', KEYS[1], tonumber(ARGV[3]))
+end
+return 1
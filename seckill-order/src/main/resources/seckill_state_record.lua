@@ -0,0 +1,9 @@
+-- 写扣减记录 (两步扣减的最后一步：库存已扣成功之后才写，事务回查查到记录即可放心提交)
+-- KEYS[1]: 扣减记录桶 (Set)
+-- ARGV[1]: orderId, ARGV[2]: 扣减记录过期时间(秒)
+
+redis.call('sadd', KEYS[1], ARGV[1])
+if (redis.call('ttl', KEYS[1]) < 0) then
+    redis.call('expire', KEYS[1], tonumber(ARGV[2]))
+end
+return 1
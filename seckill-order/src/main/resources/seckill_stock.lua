@@ -1,27 +1,47 @@
--- 1. 判定用户是否已购买 (幂等性校验)
--- 如果 Key 存在，说明已经买过了，直接返回 -2 (重复购买)
---if (redis.call('exists', KEYS[2]) == 1) then
---    return -2
---end
-
--- 2. 判定库存是否充足
--- 获取当前库存，并转为数字
+-- KEYS[1]: 库存 Key, KEYS[2]: 限购账本桶 (Hash), KEYS[3]: 扣减记录桶 (Set)
+-- ARGV[1]: skuId, ARGV[2]: 售罄广播频道 (为空则不广播)
+-- ARGV[3]: userId, ARGV[4]: orderId, ARGV[5]: 每人限购件数, ARGV[6]: 账本过期时间(秒), ARGV[7]: 扣减记录过期时间(秒)
+-- 返回值: 1=成功, -1=无库存, -2=超过限购, -3=Key不存在
+
+-- 1. 判定库存 Key 是否存在 (未预热 / 已回收)
 local stock = tonumber(redis.call('get', KEYS[1]))
 
 if(stock == nil)then
     return -3
 end
 
--- 如果库存不存在(nil)或者小于等于0，返回 -1 (库存不足)
+-- 2. 限购校验：先于库存判断，重复购买的用户不会碰到库存
+local bought = tonumber(redis.call('hget', KEYS[2], ARGV[3]) or '0')
+if (bought >= tonumber(ARGV[5])) then
+    return -2
+end
+
+local channel = ARGV[2]
+
+-- 3. 判定库存是否充足，小于等于0，返回 -1 (库存不足)
+-- 这里不再广播：售罄已在扣到 0 的那一次广播过，错过广播的节点收到 -1 后自行置位本地标记，
+-- 售罄后的每个请求都 PUBLISH 会把同一条消息放大到所有订阅节点
 if (stock <= 0) then
     return -1
 end
 
--- 3. 执行扣减与记录
+-- 4. 执行扣减与记录
 -- 库存 -1
-redis.call('decr', KEYS[1])
--- 记录用户已购买 (设置一个占位符，过期时间可设为 3600秒，防止无限占用内存)
--- 实际生产中，这个 Key 的过期时间应大于活动持续时间
-redis.call('setex', KEYS[2], 3600, 1)
+local left = redis.call('decr', KEYS[1])
+-- 账本记一件 (桶首次写入时设置过期时间，过期时间应大于活动持续时间)
+redis.call('hincrby', KEYS[2], ARGV[3], 1)
+if (redis.call('ttl', KEYS[2]) < 0) then
+    redis.call('expire', KEYS[2], tonumber(ARGV[6]))
+end
+-- 扣减记录 (事务回查据此判断)
+redis.call('sadd', KEYS[3], ARGV[4])
+if (redis.call('ttl', KEYS[3]) < 0) then
+    redis.call('expire', KEYS[3], tonumber(ARGV[7]))
+end
+
+-- 5. 最后一件被抢走，立即广播售罄，不必等下一个请求撞到 -1
+if (left == 0 and channel ~= nil and channel ~= '') then
+    redis.call('publish', channel, 'SOLD_OUT:' .. ARGV[1])
+end
 
-return 1
\ No newline at end of file
+return 1
@@ -0,0 +1,59 @@
+-- 批量扣减 (Group Commit)：同一 SKU 的一批请求合并为一次 Lua 调用
+-- KEYS[1]: 库存 Key, KEYS[2i], KEYS[2i+1]: 第 i 个请求的限购账本桶 / 扣减记录桶
+-- ARGV[1]: skuId, ARGV[2]: 售罄广播频道 (为空则不广播)
+-- ARGV[3]: 每人限购件数, ARGV[4]: 账本过期时间(秒), ARGV[5]: 扣减记录过期时间(秒)
+-- ARGV[4 + 2i], ARGV[5 + 2i]: 第 i 个请求的 userId / orderId
+-- 返回值: 与请求一一对应的结果数组, 1=成功, -1=无库存, -2=超过限购, -3=Key不存在
+
+local results = {}
+local n = (#KEYS - 1) / 2
+
+local stock = tonumber(redis.call('get', KEYS[1]))
+if (stock == nil) then
+    for i = 1, n do
+        results[i] = -3
+    end
+    return results
+end
+
+local channel = ARGV[2]
+local limit = tonumber(ARGV[3])
+local ledgerTtl = tonumber(ARGV[4])
+local stateTtl = tonumber(ARGV[5])
+
+-- 批内顺序即排队顺序，先到先得；同一用户在批内重复出现时第二次即超过限购
+local take = 0
+for i = 1, n do
+    local ledger = KEYS[2 * i]
+    local state = KEYS[2 * i + 1]
+    local userId = ARGV[4 + 2 * i]
+    local bought = tonumber(redis.call('hget', ledger, userId) or '0')
+    if (bought >= limit) then
+        results[i] = -2
+    elseif (take >= stock) then
+        results[i] = -1
+    else
+        take = take + 1
+        redis.call('hincrby', ledger, userId, 1)
+        if (redis.call('ttl', ledger) < 0) then
+            redis.call('expire', ledger, ledgerTtl)
+        end
+        redis.call('sadd', state, ARGV[5 + 2 * i])
+        if (redis.call('ttl', state) < 0) then
+            redis.call('expire', state, stateTtl)
+        end
+        results[i] = 1
+    end
+end
+
+-- 一次性扣减本批抢到的数量
+if (take > 0) then
+    redis.call('decrby', KEYS[1], take)
+end
+
+-- 本批把库存从正数扣到 0，立即广播售罄 (开始前已是 0 的批次不再重复广播，调用方收到 -1 自行置位本地标记)
+if (stock > 0 and stock - take <= 0 and channel ~= nil and channel ~= '') then
+    redis.call('publish', channel, 'SOLD_OUT:' .. ARGV[1])
+end
+
+return results
@@ -0,0 +1,31 @@
+-- 归还一批订单占用的库存 (同一个槽内)，按订单幂等
+-- KEYS[1]: 库存 Key (单 Key 或用户主段)，与记录同槽时才传；不传时 KEYS 从记录桶开始，由调用方另行回补库存
+-- 其后每单两个 Key: 扣减记录桶 (Set) / 限购账本桶 (Hash)
+-- ARGV[3i - 2] / ARGV[3i - 1] / ARGV[3i]: 第 i 单的 orderId / userId / 件数
+-- 返回: 传了库存 Key 时为实际加回库存的件数，未传时为删掉记录的订单件数之和 (调用方据此回补)
+-- 1. 只有确实删掉了扣减记录的订单才退回额度与库存，重复归还 (关单与补偿重入) 不会多补
+-- 2. 库存 Key 已不存在 (活动已回收 / 过期) 时不重建 Key (INCRBY 会建出一个没有 TTL 的 Key，下次预热又被覆盖)，只退额度
+
+local base = #KEYS % 2
+local exists = base == 1 and redis.call('exists', KEYS[1]) == 1
+local restock = 0
+for i = 1, #ARGV / 3 do
+    local orderId = ARGV[3 * i - 2]
+    local userId = ARGV[3 * i - 1]
+    local count = tonumber(ARGV[3 * i])
+    if redis.call('srem', KEYS[base + 2 * i - 1], orderId) == 1 then
+        if redis.call('hincrby', KEYS[base + 2 * i], userId, -count) <= 0 then
+            redis.call('hdel', KEYS[base + 2 * i], userId)
+        end
+        restock = restock + count
+    end
+end
+
+if base == 0 then
+    return restock
+end
+if exists and restock > 0 then
+    redis.call('incrby', KEYS[1], restock)
+    return restock
+end
+return 0
@@ -0,0 +1,9 @@
+-- 回补库存 (记录与库存不同槽时，seckill_stock_release.lua 删掉记录后的第二步)
+-- KEYS[1]: 库存 Key (单 Key 或某一段), ARGV[1]: 件数
+-- 返回: 实际加回的件数，库存 Key 已不存在 (活动已回收) 时不重建，返回 0
+
+if (redis.call('exists', KEYS[1]) == 0) then
+    return 0
+end
+redis.call('incrby', KEYS[1], tonumber(ARGV[1]))
+return tonumber(ARGV[1])
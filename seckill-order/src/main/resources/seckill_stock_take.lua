@@ -0,0 +1,13 @@
+-- 从一个库存段扣一件 (不做限购与记录，由调用方事先通过 seckill_ledger_take.lua 占好额度)
+-- KEYS[1]: 库存段 Key
+-- 返回值: 1=成功, -1=无库存, -3=Key不存在
+
+local stock = tonumber(redis.call('get', KEYS[1]))
+if (stock == nil) then
+    return -3
+end
+if (stock <= 0) then
+    return -1
+end
+redis.call('decr', KEYS[1])
+return 1
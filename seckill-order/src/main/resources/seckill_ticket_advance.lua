@@ -0,0 +1,40 @@
+-- 推进秒杀票据状态 (批量)，状态只能前进：Q(排队) < S(已扣库存) < P(已落库) / F(失败)
+-- KEYS[i]: 第 i 个票据所在的分钟 Hash
+-- ARGV[1]: 新状态值 (状态码[:说明]), ARGV[2]: Hash TTL (ms), ARGV[3]: 变更通知频道 (为空则不通知)
+-- ARGV[4]: 票据所属用户ID (仅创建时传入，写到 "订单ID:u" 字段供查询时校验归属；为空则不写)
+-- ARGV[4 + i]: 第 i 个票据 (订单ID)
+-- 返回: 实际推进的票据数
+local function rank(value)
+    if not value then
+        return -1
+    end
+    local code = string.sub(value, 1, 1)
+    if code == 'Q' then
+        return 0
+    elseif code == 'S' then
+        return 1
+    end
+    return 2
+end
+
+local newRank = rank(ARGV[1])
+local changed = {}
+for i, key in ipairs(KEYS) do
+    local field = ARGV[4 + i]
+    local current = redis.call('hget', key, field)
+    -- 只有 Q 可以创建票据，其余状态只推进已存在的票据 (同步接口下的订单没有票据)
+    if (newRank == 0 and not current) or (current and rank(current) < newRank) then
+        if newRank == 0 and ARGV[4] ~= '' then
+            redis.call('hset', key, field, ARGV[1], field .. ':u', ARGV[4])
+        else
+            redis.call('hset', key, field, ARGV[1])
+        end
+        redis.call('pexpire', key, ARGV[2])
+        changed[#changed + 1] = field
+    end
+end
+
+if #changed > 0 and ARGV[3] ~= nil and ARGV[3] ~= '' then
+    redis.call('publish', ARGV[3], ARGV[1] .. '|' .. table.concat(changed, ','))
+end
+return #changed
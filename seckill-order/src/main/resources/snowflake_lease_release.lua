@@ -0,0 +1,7 @@
+-- 雪花机器标识释放：只处理自己持有的租约
+-- 不直接删除，而是把剩余 TTL 缩短为安全余量，避免时钟偏慢的新持有者生成与本实例最后一毫秒重复的 ID
+-- KEYS[1]: 租约 Key, ARGV[1]: 本实例令牌, ARGV[2]: 安全余量 (ms)
+if redis.call('get', KEYS[1]) == ARGV[1] then
+    return redis.call('pexpire', KEYS[1], ARGV[2])
+end
+return 0
@@ -0,0 +1,9 @@
+-- 雪花机器标识续约
+-- KEYS[1]: 租约 Key (seckill:snowflake:node:{nodeId})
+-- ARGV[1]: 本实例令牌, ARGV[2]: TTL (ms)
+-- 返回: 1=续约成功, 0=租约已丢失 (过期或被其它实例占用)
+if redis.call('get', KEYS[1]) == ARGV[1] then
+    redis.call('pexpire', KEYS[1], ARGV[2])
+    return 1
+end
+return 0
@@ -0,0 +1,28 @@
+-- 库存租约：一次从 Redis 租走一整块库存，后续购买在 JVM 内扣减
+-- KEYS[1]: 库存 Key, KEYS[2]: 租约 Hash (同一个 {skuId} 槽；SKU 登记由调用方在脚本外完成)
+-- ARGV[1]: 节点ID, ARGV[2]: 块大小, ARGV[3]: skuId, ARGV[4]: 售罄广播频道
+-- 返回值: >0 = 租到的数量, 0 = Redis 已无库存, -3 = Key不存在
+
+local stock = tonumber(redis.call('get', KEYS[1]))
+if (stock == nil) then
+    return -3
+end
+
+local take = math.min(stock, tonumber(ARGV[2]))
+if (take <= 0) then
+    -- Redis 没货了，再看其它节点手里是否还有未卖出的租约
+    -- 都没有才是真正售罄，广播给所有订单节点
+    local held = 0
+    local vals = redis.call('hvals', KEYS[2])
+    for i = 1, #vals do
+        held = held + tonumber(vals[i])
+    end
+    if (held <= 0 and ARGV[4] ~= '') then
+        redis.call('publish', ARGV[4], 'SOLD_OUT:' .. ARGV[3])
+    end
+    return 0
+end
+
+redis.call('decrby', KEYS[1], take)
+redis.call('hincrby', KEYS[2], ARGV[1], take)
+return take
@@ -0,0 +1,16 @@
+-- 回收失联节点的租约：心跳 Key 已过期，说明节点宕机或网络隔离，其未结算的库存退回 Redis
+-- 未结算 = 未卖出 + 已卖出但未写扣减记录；后者的事务消息回查时找不到记录会被 ROLLBACK，所以一并退回是安全的
+-- KEYS[1]: 库存 Key, KEYS[2]: 租约 Hash (同一个 {skuId} 槽；心跳检查由调用方在脚本外完成)
+-- ARGV[1]: 失联节点ID
+-- 返回值: 回收数量
+
+local held = tonumber(redis.call('hget', KEYS[2], ARGV[1]))
+if (held == nil) then
+    return 0
+end
+
+redis.call('hdel', KEYS[2], ARGV[1])
+if (held > 0) then
+    redis.call('incrby', KEYS[1], held)
+end
+return held
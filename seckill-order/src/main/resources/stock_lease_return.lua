@@ -0,0 +1,19 @@
+-- 归还租约：把本节点未卖出的库存还给 Redis
+-- KEYS[1]: 库存 Key, KEYS[2]: 租约 Hash
+-- ARGV[1]: 节点ID, ARGV[2]: 归还数量
+-- 返回值: 实际归还数量, -1 = 租约已被回收
+
+local held = tonumber(redis.call('hget', KEYS[2], ARGV[1]))
+if (held == nil) then
+    return -1
+end
+
+local n = math.min(tonumber(ARGV[2]), held)
+if (n > 0) then
+    redis.call('incrby', KEYS[1], n)
+end
+local left = redis.call('hincrby', KEYS[2], ARGV[1], -n)
+if (left <= 0) then
+    redis.call('hdel', KEYS[2], ARGV[1])
+end
+return n
@@ -0,0 +1,57 @@
+-- 租约结算：把一批本地卖出的订单记入限购账本与扣减记录，并从租约余额中扣除
+-- 记录与余额在同一个脚本里变更，保证“卖出”与“记录存在”严格一致，回查和回收都以此为准
+-- KEYS[1]: 租约 Hash, KEYS[2i], KEYS[2i+1]: 第 i 个订单的限购账本桶 / 扣减记录桶
+-- ARGV[1]: 节点ID, ARGV[2]: 每人限购件数, ARGV[3]: 账本过期时间(秒), ARGV[4]: 扣减记录过期时间(秒)
+-- ARGV[2 + 3i], ARGV[3 + 3i], ARGV[4 + 3i]: 第 i 个订单的 userId / orderId / 结算截止时间戳(ms)
+-- 按扣减记录幂等：订单已在记录中 (上次结算已执行但结果没有返回) 直接返回 1，不再计入账本与租约，
+-- 结算异常后可以原样重试整批
+-- 结算截止按 Redis 服务端时间判断：事务回查过了截止时间 (加时钟余量) 就会按“未扣减”回滚，之后不允许再落地
+-- (脚本读 TIME 后再写，依赖 Redis 5+ 默认的按效果复制)
+-- 返回值: 与订单一一对应的结果数组, 1=结算成功, -2=超过限购, -3=已过结算截止时间 (这两种库存都留在本节点租约中)
+--        租约已被回收 (节点被判定失联) 时返回 {-1}
+
+if (redis.call('hexists', KEYS[1], ARGV[1]) == 0) then
+    return {-1}
+end
+
+local limit = tonumber(ARGV[2])
+local ledgerTtl = tonumber(ARGV[3])
+local stateTtl = tonumber(ARGV[4])
+local n = (#KEYS - 1) / 2
+local time = redis.call('time')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local results = {}
+local settled = 0
+for i = 1, n do
+    local ledger = KEYS[2 * i]
+    local state = KEYS[2 * i + 1]
+    local userId = ARGV[2 + 3 * i]
+    local orderId = ARGV[3 + 3 * i]
+    local bought = tonumber(redis.call('hget', ledger, userId) or '0')
+    if (redis.call('sismember', state, orderId) == 1) then
+        results[i] = 1
+    elseif (now > tonumber(ARGV[4 + 3 * i])) then
+        results[i] = -3
+    elseif (bought >= limit) then
+        results[i] = -2
+    else
+        redis.call('hincrby', ledger, userId, 1)
+        if (redis.call('ttl', ledger) < 0) then
+            redis.call('expire', ledger, ledgerTtl)
+        end
+        redis.call('sadd', state, orderId)
+        if (redis.call('ttl', state) < 0) then
+            redis.call('expire', state, stateTtl)
+        end
+        settled = settled + 1
+        results[i] = 1
+    end
+end
+
+if (settled > 0) then
+    local left = redis.call('hincrby', KEYS[1], ARGV[1], -settled)
+    if (left <= 0) then
+        redis.call('hdel', KEYS[1], ARGV[1])
+    end
+end
+return results
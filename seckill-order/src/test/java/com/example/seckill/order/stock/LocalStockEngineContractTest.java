@@ -0,0 +1,30 @@
+package com.example.seckill.order.stock;
+
+import com.example.seckill.order.activity.SeckillActivityCatalog;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+/**
+ * JVM 内引擎：不连 Redis，活动目录 / 售罄广播用到的 StringRedisTemplate 用空 Mock 代替
+ * LocalStockEngine 只在 app.seckill.stock.engine=local 时注册，这里显式打开
+ */
+@SpringJUnitConfig(LocalStockEngineContractTest.Config.class)
+@TestPropertySource(properties = "app.seckill.stock.engine=local")
+class LocalStockEngineContractTest extends StockEngineContractTest {
+
+    @Configuration
+    @Import({LocalStockEngine.class, SoldOutBroadcaster.class, StockSegmentRouter.class, PurchaseLedger.class,
+            SeckillActivityCatalog.class})
+    static class Config {
+
+        @Bean
+        StringRedisTemplate stringRedisTemplate() {
+            return Mockito.mock(StringRedisTemplate.class, Mockito.RETURNS_DEEP_STUBS);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.seckill.order.stock;
+
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Redis 引擎 (用户记录槽数与段数不一致)：记录与任何库存段都不同槽，扣减与归还全部走两步脚本
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@TestPropertySource(properties = "app.seckill.ledger.slots=4")
+class MismatchedSlotsRedisStockEngineContractTest extends RedisStockEngineContractTest {
+
+    @Override
+    protected int segments() {
+        return 2;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.seckill.order.stock;
+
+import com.example.seckill.order.activity.SeckillActivityCatalog;
+import com.example.seckill.order.config.RedisClusterScriptConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Redis 引擎 (单 Key 模式)：跑在 Testcontainers 启动的 Redis 上，无 Docker 环境时跳过
+ * 开启脚本 Key 同槽校验 (app.redis.verify-slots)，单节点 Redis 上同样能发现 Cluster 下会报 CROSSSLOT 的 Key 布局
+ * 不走 SpringApplication，避免拉起 Nacos 等 bootstrap 组件
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringJUnitConfig(RedisStockEngineContractTest.Config.class)
+@TestPropertySource(properties = "app.redis.verify-slots=true")
+class RedisStockEngineContractTest extends StockEngineContractTest {
+
+    // 所有子类共用一个容器 (Spring 上下文按配置缓存复用，容器随类重启会换端口)，进程退出时由 Testcontainers 清理
+    static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+
+    static {
+        REDIS.start();
+    }
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        registry.add("test.redis.host", REDIS::getHost);
+        registry.add("test.redis.port", () -> REDIS.getMappedPort(6379));
+    }
+
+    @Configuration
+    @Import({RedisStockEngine.class, SoldOutBroadcaster.class, StockSegmentRouter.class, StockLeaseManager.class,
+            PurchaseLedger.class, SeckillActivityCatalog.class, RedisClusterScriptConfig.class})
+    static class Config {
+
+        @Bean
+        LettuceConnectionFactory redisConnectionFactory(@Value("${test.redis.host}") String host,
+                                                        @Value("${test.redis.port}") int port) {
+            return new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        }
+
+        @Bean
+        StringRedisTemplate stringRedisTemplate(LettuceConnectionFactory connectionFactory) {
+            return new StringRedisTemplate(connectionFactory);
+        }
+
+        @Bean
+        ReactiveStringRedisTemplate reactiveStringRedisTemplate(LettuceConnectionFactory connectionFactory) {
+            return new ReactiveStringRedisTemplate(connectionFactory);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.seckill.order.stock;
+
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Redis 引擎 (分段模式)：主段扣减、兄弟段回退与按主段归还走的是另一组脚本 / Key，同样必须满足契约
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class SegmentedRedisStockEngineContractTest extends RedisStockEngineContractTest {
+
+    @Override
+    protected int segments() {
+        return 4;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.seckill.order.stock;
+
+import com.example.seckill.common.utils.SnowflakeIdWorker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link StockEngine} 契约测试：每个实现各写一个子类提供 Spring 上下文，跑同一组用例
+ * 每人限购取默认配置 1 件；每个用例使用独立的 skuId，不依赖执行顺序，也不需要清库
+ */
+abstract class StockEngineContractTest {
+
+    private static final AtomicLong SKU_SEQUENCE = new AtomicLong(System.currentTimeMillis() % 1_000_000 * 1_000);
+    private static final AtomicLong USER_SEQUENCE = new AtomicLong(1_000_000);
+
+    @Autowired
+    protected StockEngine stockEngine;
+
+    private long skuId;
+
+    /**
+     * 预热段数 (不支持分段的实现忽略)
+     */
+    protected int segments() {
+        return 1;
+    }
+
+    @BeforeEach
+    void nextSku() {
+        skuId = SKU_SEQUENCE.incrementAndGet();
+    }
+
+    private static long newUser() {
+        return USER_SEQUENCE.incrementAndGet();
+    }
+
+    private static long newOrder(long userId) {
+        return SnowflakeIdWorker.getInstance().nextId(userId);
+    }
+
+    @Test
+    void reserveBeforePrewarmIsNotStarted() {
+        long userId = newUser();
+        assertThat(stockEngine.reserve(skuId, userId, newOrder(userId))).isEqualTo(StockEngine.Reservation.NOT_STARTED);
+        assertThat(stockEngine.remaining(skuId)).isEqualTo(-1);
+    }
+
+    @Test
+    void reserveTakesOneUnitAndLeavesRecord() {
+        stockEngine.prewarm(skuId, 10, segments());
+        long userId = newUser();
+        long orderId = newOrder(userId);
+
+        assertThat(stockEngine.reserve(skuId, userId, orderId)).isEqualTo(StockEngine.Reservation.RESERVED);
+        assertThat(stockEngine.remaining(skuId)).isEqualTo(9);
+        assertThat(stockEngine.check(skuId, userId, orderId)).isEqualTo(StockEngine.Reservation.RESERVED);
+
+        long otherUser = newUser();
+        assertThat(stockEngine.check(skuId, otherUser, newOrder(otherUser))).isEqualTo(StockEngine.Reservation.NONE);
+    }
+
+    @Test
+    void repeatBuyerIsRejectedWithoutTouchingStock() {
+        stockEngine.prewarm(skuId, 10, segments());
+        long userId = newUser();
+        assertThat(stockEngine.reserve(skuId, userId, newOrder(userId))).isEqualTo(StockEngine.Reservation.RESERVED);
+
+        long secondOrder = newOrder(userId);
+        assertThat(stockEngine.reserve(skuId, userId, secondOrder)).isEqualTo(StockEngine.Reservation.LIMIT_EXCEEDED);
+        assertThat(stockEngine.remaining(skuId)).isEqualTo(9);
+        assertThat(stockEngine.check(skuId, userId, secondOrder)).isEqualTo(StockEngine.Reservation.NONE);
+    }
+
+    @Test
+    void soldOutDoesNotGoNegativeOrConsumeQuota() {
+        stockEngine.prewarm(skuId, 2, segments());
+        for (int i = 0; i < 2; i++) {
+            long userId = newUser();
+            assertThat(stockEngine.reserve(skuId, userId, newOrder(userId))).isEqualTo(StockEngine.Reservation.RESERVED);
+        }
+        long lateUser = newUser();
+        assertThat(stockEngine.reserve(skuId, lateUser, newOrder(lateUser))).isEqualTo(StockEngine.Reservation.SOLD_OUT);
+        assertThat(stockEngine.remaining(skuId)).isEqualTo(0);
+
+        // 售罄时没有占用限购额度，补货后同一用户仍可购买
+        stockEngine.prewarm(skuId, 1, segments());
+        assertThat(stockEngine.reserve(skuId, lateUser, newOrder(lateUser))).isEqualTo(StockEngine.Reservation.RESERVED);
+    }
+
+    @Test
+    void releaseReturnsStockRecordAndQuota() {
+        stockEngine.prewarm(skuId, 1, segments());
+        long userId = newUser();
+        long orderId = newOrder(userId);
+        assertThat(stockEngine.reserve(skuId, userId, orderId)).isEqualTo(StockEngine.Reservation.RESERVED);
+
+        stockEngine.release(skuId, userId, orderId, 1);
+
+        assertThat(stockEngine.remaining(skuId)).isEqualTo(1);
+        assertThat(stockEngine.check(skuId, userId, orderId)).isEqualTo(StockEngine.Reservation.NONE);
+        assertThat(stockEngine.reserve(skuId, userId, newOrder(userId))).isEqualTo(StockEngine.Reservation.RESERVED);
+    }
+
+    @Test
+    void doubleReleaseReturnsStockOnce() {
+        stockEngine.prewarm(skuId, 5, segments());
+        long userId = newUser();
+        long orderId = newOrder(userId);
+        assertThat(stockEngine.reserve(skuId, userId, orderId)).isEqualTo(StockEngine.Reservation.RESERVED);
+
+        stockEngine.release(skuId, userId, orderId, 1);
+        stockEngine.release(skuId, userId, orderId, 1);
+        assertThat(stockEngine.remaining(skuId)).isEqualTo(5);
+
+        // 同一批里重复出现也只补一次
+        long otherUser = newUser();
+        long otherOrder = newOrder(otherUser);
+        assertThat(stockEngine.reserve(skuId, otherUser, otherOrder)).isEqualTo(StockEngine.Reservation.RESERVED);
+        StockEngine.Claim claim = new StockEngine.Claim(skuId, otherUser, otherOrder, 1);
+        stockEngine.releaseAll(List.of(claim, claim));
+        assertThat(stockEngine.remaining(skuId)).isEqualTo(5);
+    }
+
+    @Test
+    void releaseOfUnknownOrderIsIgnored() {
+        stockEngine.prewarm(skuId, 3, segments());
+        long userId = newUser();
+        stockEngine.release(skuId, userId, newOrder(userId), 1);
+        assertThat(stockEngine.remaining(skuId)).isEqualTo(3);
+    }
+
+    @Test
+    void releaseAfterDrainDoesNotRecreateStock() {
+        stockEngine.prewarm(skuId, 3, segments());
+        long userId = newUser();
+        long orderId = newOrder(userId);
+        assertThat(stockEngine.reserve(skuId, userId, orderId)).isEqualTo(StockEngine.Reservation.RESERVED);
+
+        assertThat(stockEngine.drain(skuId)).isEqualTo(2);
+        stockEngine.release(skuId, userId, orderId, 1);
+
+        assertThat(stockEngine.remaining(skuId)).isEqualTo(-1);
+        long nextUser = newUser();
+        assertThat(stockEngine.reserve(skuId, nextUser, newOrder(nextUser))).isEqualTo(StockEngine.Reservation.NOT_STARTED);
+    }
+
+    @Test
+    void concurrentBuyersNeverOversell() throws Exception {
+        int stock = 100;
+        int buyers = 1_000;
+        stockEngine.prewarm(skuId, stock, segments());
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<StockEngine.Reservation>> results = new ArrayList<>(buyers);
+        try {
+            for (int i = 0; i < buyers; i++) {
+                long userId = newUser();
+                long orderId = newOrder(userId);
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return stockEngine.reserve(skuId, userId, orderId);
+                }));
+            }
+            start.countDown();
+            int reserved = 0;
+            int soldOut = 0;
+            for (Future<StockEngine.Reservation> result : results) {
+                StockEngine.Reservation reservation = result.get(30, TimeUnit.SECONDS);
+                if (reservation == StockEngine.Reservation.RESERVED) {
+                    reserved++;
+                } else if (reservation == StockEngine.Reservation.SOLD_OUT) {
+                    soldOut++;
+                }
+            }
+            assertThat(reserved).isEqualTo(stock);
+            assertThat(soldOut).isEqualTo(buyers - stock);
+            assertThat(stockEngine.remaining(skuId)).isEqualTo(0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.seckill.search.service;
+
+import com.example.seckill.search.dto.SearchParamDTO;
+import com.example.seckill.search.entity.GoodsDoc;
+import com.example.seckill.search.vo.SearchResultVO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * GPU 召回结果的内存过滤 + 分页 (从 SearchService.searchByGPU 抽出，便于单独压测)
+ * GPU 路径不走 ES，品牌 / 分类 / 价格过滤和分页都在 Java 层完成，召回顺序即相似度顺序
+ */
+public final class GpuResultPager {
+
+    private GpuResultPager() {
+    }
+
+    public static SearchResultVO filterAndPage(List<GoodsDoc> gpuDocs, SearchParamDTO param) {
+        // 1. 手动实现业务过滤 (模拟 ES 的 Filter)
+        List<GoodsDoc> filteredDocs = gpuDocs.stream().filter(doc -> {
+            // 品牌过滤
+            if (param.getBrandId() != null && !param.getBrandId().equals(doc.getBrandId())) return false;
+            // 分类过滤
+            if (param.getCategoryId() != null && !param.getCategoryId().equals(doc.getCategoryId())) return false;
+            // 价格过滤
+            if (doc.getPrice() != null) {
+                if (param.getPriceStart() != null && doc.getPrice().doubleValue() < param.getPriceStart()) return false;
+                if (param.getPriceEnd() != null && doc.getPrice().doubleValue() > param.getPriceEnd()) return false;
+            }
+            return true;
+        }).collect(Collectors.toList());
+
+        // 2. 分页逻辑 (内存分页)
+        int totalHits = filteredDocs.size();
+        int fromIndex = (param.getPageNum() - 1) * param.getPageSize();
+        int toIndex = Math.min(fromIndex + param.getPageSize(), totalHits);
+
+        List<GoodsDoc> pageList;
+        if (fromIndex >= totalHits) {
+            pageList = new ArrayList<>();
+        } else {
+            pageList = filteredDocs.subList(fromIndex, toIndex);
+        }
+
+        // 3. 封装结果
+        SearchResultVO result = new SearchResultVO();
+        result.setProductList(pageList);
+        result.setTotal((long) totalHits);
+        result.setPageNum(param.getPageNum());
+        long totalPages = totalHits % param.getPageSize() == 0 ? totalHits / param.getPageSize() : totalHits / param.getPageSize() + 1;
+        result.setTotalPages((int) totalPages);
+        return result;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.seckill.search.service;
 
+import com.example.seckill.search.service.llm.LlmOutputCleaner;
 import com.example.seckill.search.service.llm.LlmRequest;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -7,9 +8,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.*;
 
 @Service
@@ -130,49 +129,10 @@ public class LlmBatchService {
             // 3. 结果清洗与分发
             if (outputs != null && outputs.length == batch.size()) {
                 for (int i = 0; i < batch.size(); i++) {
-                    String rawOutput = outputs[i];
-                    // 1. 【核心】暴力移除所有 <|...|> 格式的特殊标签 (包括 <|im_end|>, <|endoftext|>)
-                    // 正则解释：<\| 匹配开头，.*? 非贪婪匹配中间内容，\|> 匹配结尾
-                    String cleanResult = rawOutput.replaceAll("<\\|.*?\\|>", "");
-
-                    // 2. 移除可能残留的思考标签
-                    cleanResult = cleanResult.replaceAll("(?s)<think>.*?</think>", "");
-                    cleanResult = cleanResult.replaceAll("</?think>", ""); // 移除剩下的 <think> 或 </think>
-
-                    // 3. 移除常见的后续对话幻觉
-                    String[] stopSignals = new String[]{"Human:", "User:", "Input:", "任务:"};
-                    for (String signal : stopSignals) {
-                        int idx = cleanResult.indexOf(signal);
-                        if (idx != -1) {
-                            cleanResult = cleanResult.substring(0, idx);
-                        }
-                    }
-
-                    // 4. 标点归一化：把换行、空格、中文逗号都变成英文逗号
-                    cleanResult = cleanResult.replaceAll("[\\n\\r\\t\\s，。、]+", ",");
-
-                    // 5. 再次清理可能残留的特殊字符 (比如 <, >, | 等)
-                    cleanResult = cleanResult.replaceAll("[<>|]", "");
-
-                    // 6. 去除首尾逗号
-                    if (cleanResult.startsWith(",")) cleanResult = cleanResult.substring(1);
-                    if (cleanResult.endsWith(",")) cleanResult = cleanResult.substring(0, cleanResult.length() - 1);cleanResults[i] = cleanResult;
-                    // 7. 直接把 im_end 等关键词替换为空，防止残留
-                    cleanResult = cleanResult.replace("im_end", "")
-                            .replace("endoftext", "")
-                            .replace("im_start", "");
-
-                    String[] splits = cleanResult.split(",");
-                    List<String> keywords = new ArrayList<>();
-                    Set<String>set = new HashSet<>();
-                    for (String s : splits) {
-                        String k = s.trim();
-                        if (k.length() > 1 && !set.contains(k)) {
-                            set.add(k);
-                            keywords.add(k);
-                        }
-                    }
-                    batch.get(i).getFutureWord().complete(keywords);
+                    // 清洗流水线见 LlmOutputCleaner (向量用清洗后的文本，关键词另外去重)
+                    LlmOutputCleaner.Cleaned cleaned = LlmOutputCleaner.clean(outputs[i]);
+                    cleanResults[i] = cleaned.text();
+                    batch.get(i).getFutureWord().complete(cleaned.keywords());
                 }
                 float[] batchEmbeddings = getBatchEmbeddings(cleanResults);
                 for (int i = 0; i < batch.size(); i++) {
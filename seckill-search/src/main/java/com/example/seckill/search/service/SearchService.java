@@ -323,7 +323,6 @@ public class SearchService {
      * GPU加速接口
      */
     public SearchResultVO searchByGPU(SearchParamDTO param) {
-        SearchResultVO result = new SearchResultVO();
         // -------------------------------------------------------
         // 1. 前置校验：如果没有关键词，直接回退到普通 ES 搜索
         // -------------------------------------------------------
@@ -446,41 +445,8 @@ public class SearchService {
         // 替代了原有的 build ES query -> elasticsearchClient.search
         List<GoodsDoc> gpuDocs = gpuSearchService.getDocsLocally(topIds);
 
-        // 4. 手动实现业务过滤 (模拟 ES 的 Filter)
-        // 因为不走 ES 了，必须在 Java 层过滤 Brand/Category/Price
-        List<GoodsDoc> filteredDocs = gpuDocs.stream().filter(doc -> {
-            // 品牌过滤
-            if (param.getBrandId() != null && !param.getBrandId().equals(doc.getBrandId())) return false;
-            // 分类过滤
-            if (param.getCategoryId() != null && !param.getCategoryId().equals(doc.getCategoryId())) return false;
-            // 价格过滤
-            if (doc.getPrice() != null) {
-                if (param.getPriceStart() != null && doc.getPrice().doubleValue() < param.getPriceStart()) return false;
-                if (param.getPriceEnd() != null && doc.getPrice().doubleValue() > param.getPriceEnd()) return false;
-            }
-            return true;
-        }).collect(Collectors.toList());
-
-        // 5. 分页逻辑 (内存分页)
-        int totalHits = filteredDocs.size();
-        int fromIndex = (param.getPageNum() - 1) * param.getPageSize();
-        int toIndex = Math.min(fromIndex + param.getPageSize(), totalHits);
-
-        List<GoodsDoc> pageList;
-        if (fromIndex >= totalHits) {
-            pageList = new ArrayList<>();
-        } else {
-            pageList = filteredDocs.subList(fromIndex, toIndex);
-        }
-
-        // 6. 封装结果
-        result.setProductList(pageList);
-        result.setTotal((long) totalHits);
-        result.setPageNum(param.getPageNum());
-        long totalPages = totalHits % param.getPageSize() == 0 ? totalHits / param.getPageSize() : totalHits / param.getPageSize() + 1;
-        result.setTotalPages((int) totalPages);
-
-        return result;
+        // 4. 业务过滤 (品牌 / 分类 / 价格) + 内存分页，见 GpuResultPager
+        return GpuResultPager.filterAndPage(gpuDocs, param);
     }
 
     // --- 辅助方法：抽离原有的 Filter 逻辑 ---
@@ -0,0 +1,83 @@
+package com.example.seckill.search.service.llm;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 大模型原始输出 -> 关键词 的清洗流水线 (从 LlmBatchService.processBatch 抽出，便于单独压测)
+ * 正则预编译为常量，避免每条输出重复编译 5 次
+ */
+public final class LlmOutputCleaner {
+
+    // <|im_end|>、<|endoftext|> 等特殊标签 (非贪婪匹配)
+    private static final Pattern SPECIAL_TOKEN = Pattern.compile("<\\|.*?\\|>");
+    // 完整的思考块
+    private static final Pattern THINK_BLOCK = Pattern.compile("(?s)<think>.*?</think>");
+    // 残留的 <think> 或 </think>
+    private static final Pattern THINK_TAG = Pattern.compile("</?think>");
+    // 换行、空白、中文标点统一为英文逗号
+    private static final Pattern SEPARATORS = Pattern.compile("[\\n\\r\\t\\s，。、]+");
+    // 残留的 <, >, |
+    private static final Pattern RESIDUAL = Pattern.compile("[<>|]");
+
+    // 常见的后续对话幻觉，出现即截断
+    private static final String[] STOP_SIGNALS = {"Human:", "User:", "Input:", "任务:"};
+
+    private LlmOutputCleaner() {
+    }
+
+    /**
+     * 清洗结果
+     * text 用于计算向量 (与改造前一致，不做第 7 步的关键词替换)，keywords 为去重后的关键词
+     */
+    public record Cleaned(String text, List<String> keywords) {
+    }
+
+    public static Cleaned clean(String rawOutput) {
+        // 1. 移除所有 <|...|> 格式的特殊标签
+        String cleanResult = SPECIAL_TOKEN.matcher(rawOutput).replaceAll("");
+
+        // 2. 移除可能残留的思考标签
+        cleanResult = THINK_BLOCK.matcher(cleanResult).replaceAll("");
+        cleanResult = THINK_TAG.matcher(cleanResult).replaceAll("");
+
+        // 3. 移除常见的后续对话幻觉
+        for (String signal : STOP_SIGNALS) {
+            int idx = cleanResult.indexOf(signal);
+            if (idx != -1) {
+                cleanResult = cleanResult.substring(0, idx);
+            }
+        }
+
+        // 4. 标点归一化：把换行、空格、中文逗号都变成英文逗号
+        cleanResult = SEPARATORS.matcher(cleanResult).replaceAll(",");
+
+        // 5. 再次清理可能残留的特殊字符
+        cleanResult = RESIDUAL.matcher(cleanResult).replaceAll("");
+
+        // 6. 去除首尾逗号
+        if (cleanResult.startsWith(",")) cleanResult = cleanResult.substring(1);
+        if (cleanResult.endsWith(",")) cleanResult = cleanResult.substring(0, cleanResult.length() - 1);
+        String text = cleanResult;
+
+        // 7. 直接把 im_end 等关键词替换为空，防止残留
+        cleanResult = cleanResult.replace("im_end", "")
+                .replace("endoftext", "")
+                .replace("im_start", "");
+
+        // 8. 拆分去重，丢弃单字
+        String[] splits = cleanResult.split(",");
+        List<String> keywords = new ArrayList<>();
+        Set<String> set = new HashSet<>();
+        for (String s : splits) {
+            String k = s.trim();
+            if (k.length() > 1 && set.add(k)) {
+                keywords.add(k);
+            }
+        }
+        return new Cleaned(text, keywords);
+    }
+}